@@ -1,45 +1,78 @@
 package com.aigreentick.services.template.client.adapter;
 
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import com.aigreentick.services.template.config.client.MessagingClientProperties;
+import com.aigreentick.services.template.config.client.ServerErrorResponsePredicate;
 import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
 import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
 import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+import com.aigreentick.services.template.util.helper.LogRateLimiter;
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class MessagingClientImpl {
+    /** Circuit breaker / bulkhead instance guarding the messaging service */
+    public static final String RESILIENCE_INSTANCE = "messagingService";
+
+    /** Carries DispatchRequestDto.dispatchId so the chunk can be deduplicated */
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final WebClient.Builder webClientBuilder;
     private final MessagingClientProperties properties;
 
+    private final LogRateLimiter shortCircuitLog = new LogRateLimiter(Duration.ofSeconds(5));
+
     /**
-     * Dispatches messages to the messaging service for processing
+     * Dispatches messages to the messaging service for processing.
+     * Fails fast with 503 while the circuit is open or the bulkhead is full,
+     * so the caller queues the chunk for retry instead of waiting.
      */
+    @CircuitBreaker(name = RESILIENCE_INSTANCE, fallbackMethod = "dispatchMessageFallback")
+    @Bulkhead(name = RESILIENCE_INSTANCE, fallbackMethod = "dispatchMessageFallback")
     public FacebookApiResponse<BroadcastDispatchResponseDto> dispatchMessage(DispatchRequestDto request) {
-        log.info("Dispatching {} messages to messaging service", 
-                request.getItems() != null ? request.getItems().size() : 0);
+        // Once per chunk: detail only at DEBUG
+        if (log.isDebugEnabled()) {
+            log.debug("Dispatching {} messages to messaging service",
+                    request.getItems() != null ? request.getItems().size() : 0);
+        }
 
         try {
             BroadcastDispatchResponseDto response = webClientBuilder.build()
                     .post()
                     .uri(properties.getBaseUrl())
                     .contentType(MediaType.APPLICATION_JSON)
+                    .headers(headers -> {
+                        if (request.getDispatchId() != null) {
+                            headers.set(IDEMPOTENCY_KEY_HEADER, request.getDispatchId());
+                        }
+                    })
                     .bodyValue(request)
                     .retrieve()
                     .bodyToMono(BroadcastDispatchResponseDto.class)
+                    .timeout(properties.getResponseTimeout())
                     .block();
 
             if (response != null && "SUCCESS".equals(response.getStatus())) {
-                log.info("Messages dispatched successfully. Total: {}, Failed: {}", 
-                        response.getData().getTotalDispatched(), 
-                        response.getData().getFailedCount());
+                if (log.isDebugEnabled()) {
+                    log.debug("Messages dispatched successfully. Total: {}, Failed: {}",
+                            response.getData().getTotalDispatched(),
+                            response.getData().getFailedCount());
+                }
                 return FacebookApiResponse.success(response, 200);
             } else {
                 String errorMsg = response != null ? response.getMessage() : "Unknown error";
@@ -47,9 +80,41 @@ public class MessagingClientImpl {
                 return FacebookApiResponse.error(errorMsg, 500);
             }
 
+        } catch (WebClientResponseException ex) {
+            // Keep the real status: callers back off on 429 / 5xx
+            log.error("Messaging service returned {} for dispatch", ex.getStatusCode().value());
+            return FacebookApiResponse.error("Failed to dispatch messages: " + ex.getMessage(),
+                    ex.getStatusCode().value());
+
+        } catch (WebClientRequestException ex) {
+            log.error("Messaging service unreachable", ex);
+            return FacebookApiResponse.error("Failed to dispatch messages: " + ex.getMessage(), 503);
+
         } catch (Exception ex) {
+            if (Exceptions.unwrap(ex) instanceof TimeoutException) {
+                log.error("Messaging service did not respond within {}", properties.getResponseTimeout());
+                return FacebookApiResponse.error("Messaging service timed out", 504);
+            }
             log.error("Failed to dispatch messages to messaging service", ex);
             return FacebookApiResponse.error("Failed to dispatch messages: " + ex.getMessage(), 500);
         }
     }
+
+    /**
+     * Fallback when the circuit is open or the bulkhead rejects the call.
+     * A bulkhead rejection answers BULKHEAD_FULL, so it is retried without
+     * counting against the circuit breaker.
+     */
+    @SuppressWarnings("unused")
+    private FacebookApiResponse<BroadcastDispatchResponseDto> dispatchMessageFallback(
+            DispatchRequestDto request, Throwable ex) {
+        // Fires for every chunk while the circuit is open
+        long suppressed = shortCircuitLog.tryAcquire();
+        if (suppressed >= 0) {
+            log.warn("Dispatch of {} messages short-circuited: {} ({} similar suppressed)",
+                    request.getItems() != null ? request.getItems().size() : 0, ex.getMessage(), suppressed);
+        }
+        return FacebookApiResponse.error("Messaging service unavailable: " + ex.getMessage(),
+                ServerErrorResponsePredicate.fallbackStatus(ex));
+    }
 }
\ No newline at end of file
@@ -16,12 +16,16 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.aigreentick.services.template.config.client.WhatsappClientProperties;
+import com.aigreentick.services.template.config.client.ServerErrorResponsePredicate;
 import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
 import com.aigreentick.services.template.dto.response.media.UploadMediaResponse;
 import com.aigreentick.services.template.dto.response.media.UploadOffsetResponse;
 import com.aigreentick.services.template.dto.response.media.UploadSessionResponse;
+import com.aigreentick.services.template.jfr.TemplateSyncPageEvent;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
@@ -30,12 +34,19 @@ import reactor.core.publisher.Mono;
 @Slf4j
 @Component
 public class WhatsappClientImpl {
+        /** Circuit breaker / bulkhead instance guarding the Graph API */
+        public static final String RESILIENCE_INSTANCE = "whatsappGraphApi";
+        /** Separate bulkhead so long uploads cannot starve template calls */
+        public static final String UPLOAD_BULKHEAD = "whatsappUpload";
+
         private final WebClient.Builder webClientBuilder;
         private final WhatsappClientProperties properties;
 
         /**
          * Sends a WhatsApp template to Facebook for approval.
          */
+        @CircuitBreaker(name = RESILIENCE_INSTANCE, fallbackMethod = "createTemplateFallback")
+        @Bulkhead(name = RESILIENCE_INSTANCE, fallbackMethod = "createTemplateFallback")
         public FacebookApiResponse<JsonNode> createTemplate(String bodyJson, String wabaId, String accessToken) {
 
                 if (!properties.isOutgoingEnabled()) {
@@ -73,6 +84,7 @@ public class WhatsappClientImpl {
                                                                                                 + errorBody));
                                                         }))
                                         .bodyToMono(JsonNode.class)
+                                        .timeout(properties.getResponseTimeout())
                                         .block();
 
                         log.info("Template sent to Facebook. WABA_ID={} Response={}", wabaId, response);
@@ -92,8 +104,10 @@ public class WhatsappClientImpl {
         /**
          * Fetches all WhatsApp templates for a given WABA.
          * Supports optional filters: status, language, category, name, limit.
-         * Wrapped with Retry and CircuitBreaker for resilience.
+         * Wrapped with CircuitBreaker and Bulkhead for resilience.
          */
+        @CircuitBreaker(name = RESILIENCE_INSTANCE, fallbackMethod = "getAllTemplatesFallback")
+        @Bulkhead(name = RESILIENCE_INSTANCE, fallbackMethod = "getAllTemplatesFallback")
         public FacebookApiResponse<JsonNode> getAllTemplates(
                         String wabaId,
                         String accessToken,
@@ -115,6 +129,7 @@ public class WhatsappClientImpl {
                 limit.ifPresent(l -> builder.queryParam("limit", l));
 
                 URI uri = builder.build().toUri();
+                TemplateSyncPageEvent event = TemplateSyncPageEvent.begin(wabaId, status.orElse(null));
 
                 try {
                         JsonNode response = webClientBuilder.build()
@@ -129,17 +144,22 @@ public class WhatsappClientImpl {
                                                         r -> Mono.error(new RuntimeException(
                                                                         "Facebook API returned 5xx")))
                                         .bodyToMono(JsonNode.class)
+                                        .timeout(properties.getResponseTimeout())
                                         .block();
 
                         // log.info("Fetched all templates. WABA_ID={} URI={} Response={}", wabaId, uri, response);
+                        event.complete(200, response != null ? response.path("data").size() : 0,
+                                        response != null && response.path("paging").hasNonNull("next"));
                         return FacebookApiResponse.success(response, 200);
 
                 } catch (WebClientResponseException ex) {
+                        event.complete(ex.getStatusCode().value(), 0, false);
                         log.error("Failed to fetch all templates. WABA_ID={} URI={} Status={} Response={}", wabaId, uri,
                                         ex.getStatusCode(), ex.getResponseBodyAsString());
                         return FacebookApiResponse.error(ex.getResponseBodyAsString(), ex.getStatusCode().value());
 
                 } catch (Exception ex) {
+                        event.complete(500, 0, false);
                         log.error("Unexpected error while fetching templates. WABA_ID={} URI={}", wabaId, uri, ex);
                         return FacebookApiResponse.error("Internal Server Error: " + ex.getMessage(), 500);
                 }
@@ -148,6 +168,8 @@ public class WhatsappClientImpl {
         /**
          * Fetches a WhatsApp template by its name.
          */
+        @CircuitBreaker(name = RESILIENCE_INSTANCE, fallbackMethod = "getTemplateByNameFallback")
+        @Bulkhead(name = RESILIENCE_INSTANCE, fallbackMethod = "getTemplateByNameFallback")
         public FacebookApiResponse<JsonNode> getTemplateByName(
                         String templateName, String wabaId, String accessToken) {
 
@@ -172,6 +194,7 @@ public class WhatsappClientImpl {
                                                         r -> Mono.error(new RuntimeException(
                                                                         "Facebook API returned 5xx")))
                                         .bodyToMono(JsonNode.class)
+                                        .timeout(properties.getResponseTimeout())
                                         .block();
 
                         log.info("Fetched template by name. Name={} URI={} Response={}", templateName, uri, response);
@@ -195,6 +218,8 @@ public class WhatsappClientImpl {
         /**
          * Step 1: Initiates an upload session with the Facebook Graph API.
          */
+        @CircuitBreaker(name = RESILIENCE_INSTANCE, fallbackMethod = "initiateUploadSessionFallback")
+        @Bulkhead(name = RESILIENCE_INSTANCE, fallbackMethod = "initiateUploadSessionFallback")
         public FacebookApiResponse<UploadSessionResponse> initiateUploadSession(String fileName, long fileSize,
                         String mimeType,
                         String wabaAppId, String accessToken) {
@@ -239,6 +264,7 @@ public class WhatsappClientImpl {
                                                                                                 + errorBody));
                                                         }))
                                         .bodyToMono(UploadSessionResponse.class)
+                                        .timeout(properties.getResponseTimeout())
                                         .block();
 
                         log.info("Upload session initiated successfully. Session ID: {}",
@@ -258,8 +284,10 @@ public class WhatsappClientImpl {
 
         /**
          * Step 2: Uploads media to Facebook using an upload session ID.
-         * Wrapped with Retry, CircuitBreaker, and RateLimiter for resilience.
+         * Wrapped with CircuitBreaker and the upload Bulkhead for resilience.
          */
+        @CircuitBreaker(name = RESILIENCE_INSTANCE, fallbackMethod = "uploadResumableMediaFallback")
+        @Bulkhead(name = UPLOAD_BULKHEAD, fallbackMethod = "uploadResumableMediaFallback")
         public FacebookApiResponse<UploadMediaResponse> uploadResumableMediaToFacebook(
                         String sessionId,
                         File file,
@@ -303,6 +331,7 @@ public class WhatsappClientImpl {
                                                                                                 + errorBody));
                                                         }))
                                         .bodyToMono(UploadMediaResponse.class)
+                                        .timeout(properties.getUploadTimeout())
                                         .block();
 
                         if (response == null || response.getFacebookImageUrl() == null) {
@@ -355,11 +384,12 @@ public class WhatsappClientImpl {
                                 .retrieve()
                                 .bodyToMono(UploadOffsetResponse.class)
                                 .doOnNext(resp -> log.info("Received file_offset: {}", resp.getFileOffset()))
+                                .timeout(properties.getResponseTimeout())
                                 .block();
         }
 
         /**
-         * Fallback method for getTemplateByName when Retry or CircuitBreaker triggers.
+         * Fallback method for getTemplateByName when the CircuitBreaker or Bulkhead rejects the call.
          */
         @SuppressWarnings("unused")
         private FacebookApiResponse<JsonNode> getTemplateByNameFallback(
@@ -367,21 +397,23 @@ public class WhatsappClientImpl {
 
                 log.error("Fallback triggered while fetching template by name. Name={} WABA_ID={}", templateName,
                                 wabaId, ex);
-                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(), 500);
+                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(),
+                                ServerErrorResponsePredicate.fallbackStatus(ex));
         }
 
         /**
-         * Fallback method triggered by Retry or CircuitBreaker.
+         * Fallback method for createTemplate when the CircuitBreaker or Bulkhead rejects the call.
          */
         @SuppressWarnings("unused")
         private FacebookApiResponse<JsonNode> createTemplateFallback(String bodyJson, String wabaId,
                         String accessToken, Throwable ex) {
                 log.error("Fallback triggered while sending template to Facebook. WABA_ID={}", wabaId, ex);
-                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(), 500);
+                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(),
+                                ServerErrorResponsePredicate.fallbackStatus(ex));
         }
 
         /**
-         * Fallback method for getAllTemplates when Retry or CircuitBreaker triggers.
+         * Fallback method for getAllTemplates when the CircuitBreaker or Bulkhead rejects the call.
          */
         @SuppressWarnings("unused")
         private FacebookApiResponse<JsonNode> getAllTemplatesFallback(
@@ -395,6 +427,29 @@ public class WhatsappClientImpl {
                         Throwable ex) {
 
                 log.error("Fallback triggered while fetching all templates. WABA_ID={}", wabaId, ex);
-                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(), 500);
+                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(),
+                                ServerErrorResponsePredicate.fallbackStatus(ex));
+        }
+
+        /**
+         * Fallback method for initiateUploadSession when the CircuitBreaker or Bulkhead rejects the call.
+         */
+        @SuppressWarnings("unused")
+        private FacebookApiResponse<UploadSessionResponse> initiateUploadSessionFallback(String fileName,
+                        long fileSize, String mimeType, String wabaAppId, String accessToken, Throwable ex) {
+                log.error("Fallback triggered while initiating upload session. AppId={}", wabaAppId, ex);
+                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(),
+                                ServerErrorResponsePredicate.fallbackStatus(ex));
+        }
+
+        /**
+         * Fallback method for uploadResumableMediaToFacebook when the CircuitBreaker or Bulkhead rejects the call.
+         */
+        @SuppressWarnings("unused")
+        private FacebookApiResponse<UploadMediaResponse> uploadResumableMediaFallback(String sessionId, File file,
+                        String accessToken, String offset, Throwable ex) {
+                log.error("Fallback triggered while uploading media. SessionId={}", sessionId, ex);
+                return FacebookApiResponse.error("Fallback triggered: " + ex.getMessage(),
+                                ServerErrorResponsePredicate.fallbackStatus(ex));
         }
 }
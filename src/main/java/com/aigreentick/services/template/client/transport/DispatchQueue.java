@@ -0,0 +1,47 @@
+package com.aigreentick.services.template.client.transport;
+
+import java.util.List;
+
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+
+/**
+ * At-least-once queue of dispatch chunks between the broadcast service
+ * (publisher) and the sender (consumer).
+ *
+ * A polled chunk is leased to the consumer. It must be acked once handled or
+ * nacked to be delivered again; a lease that is neither is redelivered after
+ * the visibility timeout. Consumers must therefore tolerate duplicates.
+ */
+public interface DispatchQueue {
+
+    /**
+     * Returns once the chunk is stored as durably as the queue can.
+     *
+     * @return false when the queue is full and the chunk was not accepted
+     */
+    boolean offer(DispatchRequestDto request);
+
+    /**
+     * Leases up to maxBatch ready chunks, oldest first. Never blocks.
+     */
+    List<QueuedDispatch> poll(int maxBatch);
+
+    void ack(long id);
+
+    /**
+     * Returns a leased chunk to the queue for another delivery.
+     */
+    void nack(long id);
+
+    /**
+     * Takes up to maxBatch chunks that ran out of deliveries, oldest first.
+     * Their messages were counted as dispatched when published, so the
+     * consumer must settle them as failed, then ack them.
+     */
+    List<QueuedDispatch> pollDeadLetters(int maxBatch);
+
+    /**
+     * Chunks waiting or leased.
+     */
+    int size();
+}
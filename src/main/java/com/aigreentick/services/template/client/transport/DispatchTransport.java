@@ -0,0 +1,33 @@
+package com.aigreentick.services.template.client.transport;
+
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+
+/**
+ * Hands dispatch chunks to the sender.
+ *
+ * Implementations are selected with dispatch.transport.type. Whatever the
+ * transport, the response follows the HTTP contract callers already rely
+ * on: 2xx with the dispatched / failed counts when the chunk was taken,
+ * 429 / 5xx when it should be retried later (and the rate lowered).
+ */
+public interface DispatchTransport {
+
+    FacebookApiResponse<BroadcastDispatchResponseDto> send(DispatchRequestDto request);
+
+    /**
+     * False while the transport is known to reject chunks (e.g. an open
+     * circuit), so background retries can wait instead of failing.
+     */
+    boolean isAvailable();
+
+    /**
+     * Whether a failed send is worth retrying: 408, 429, 5xx and failures
+     * without an HTTP error status. Any other 4xx would be rejected again on
+     * every attempt.
+     */
+    static boolean isRetryable(int statusCode) {
+        return statusCode < 400 || statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,229 @@
+package com.aigreentick.services.template.client.transport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.aigreentick.services.template.client.adapter.MessagingClientImpl;
+import com.aigreentick.services.template.config.client.DispatchTransportProperties;
+import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+import com.aigreentick.services.template.service.impl.account.WhatsappAccountServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchRateLimiterServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchRetryServiceImpl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumer side of the queue transport, running in this process: drains
+ * the DispatchQueue in batches and posts each chunk to the messaging
+ * service. dispatch.transport.queue.embedded-sender.concurrency threads of
+ * its own drain it side by side, so the blocking calls never hold up the
+ * shared background scheduler and one slow chunk does not stall the rest.
+ *
+ * Every response is fed into DispatchRateLimiterServiceImpl for the chunk's
+ * phone number; the publisher only sees 202, which the limiter ignores.
+ *
+ * 2xx acks the chunk. 4xx (other than 429) will not succeed on redelivery:
+ * the chunk is acked and its messages are failed and refunded through
+ * DispatchRetryServiceImpl.failUndeliverable, as are dead-lettered chunks,
+ * which are acked once settled.
+ * 429 and 5xx nack it for redelivery, and draining pauses with exponential
+ * backoff (up to the visibility timeout) so an outage does not use up every
+ * chunk's deliveries at once.
+ *
+ * Chunks recovered from disk after a restart carry no access token; it is
+ * looked up by phone number id, once per batch. Deployments with a separate
+ * sender disable this with dispatch.transport.queue.embedded-sender.enabled=false.
+ */
+@Component
+@ConditionalOnExpression("'${dispatch.transport.type:http}' == 'queue' "
+        + "and ${dispatch.transport.queue.embedded-sender.enabled:true}")
+@Slf4j
+public class EmbeddedDispatchQueueSender {
+
+    private final DispatchQueue dispatchQueue;
+    private final MessagingClientImpl messagingClient;
+    private final DispatchRateLimiterServiceImpl rateLimiter;
+    private final DispatchRetryServiceImpl dispatchRetryService;
+    private final WhatsappAccountServiceImpl whatsappAccountService;
+    private final ThreadPoolTaskScheduler senderThreads = new ThreadPoolTaskScheduler();
+    private final DispatchTransportProperties.EmbeddedSender properties;
+    private final Duration maxBackoff;
+
+    private final List<ScheduledFuture<?>> drainTasks = new ArrayList<>();
+
+    // Shared by the drain tasks: one refusal pauses all of them
+    private volatile Duration backoff = Duration.ZERO;
+    private volatile long resumeAtNanos;
+
+    public EmbeddedDispatchQueueSender(
+            DispatchQueue dispatchQueue,
+            MessagingClientImpl messagingClient,
+            DispatchRateLimiterServiceImpl rateLimiter,
+            DispatchRetryServiceImpl dispatchRetryService,
+            WhatsappAccountServiceImpl whatsappAccountService,
+            DispatchTransportProperties transportProperties) {
+        this.dispatchQueue = dispatchQueue;
+        this.messagingClient = messagingClient;
+        this.rateLimiter = rateLimiter;
+        this.dispatchRetryService = dispatchRetryService;
+        this.whatsappAccountService = whatsappAccountService;
+        this.properties = transportProperties.getQueue().getEmbeddedSender();
+        this.maxBackoff = transportProperties.getQueue().getVisibilityTimeout();
+    }
+
+    @PostConstruct
+    void start() {
+        int concurrency = Math.max(1, properties.getConcurrency());
+        senderThreads.setPoolSize(concurrency);
+        senderThreads.setThreadNamePrefix("dispatch-queue-sender-");
+        senderThreads.initialize();
+        for (int i = 0; i < concurrency; i++) {
+            drainTasks.add(senderThreads.scheduleWithFixedDelay(this::drain, properties.getPollInterval()));
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        drainTasks.forEach(task -> task.cancel(false));
+        senderThreads.shutdown();
+        if (dispatchQueue.size() > 0) {
+            log.warn("Stopping with {} dispatch chunks still queued", dispatchQueue.size());
+        }
+    }
+
+    /**
+     * Sends batches until the queue has no ready chunks left or a chunk has
+     * to be redelivered.
+     */
+    void drain() {
+        failDeadLetters();
+        if (!backoff.isZero() && System.nanoTime() - resumeAtNanos < 0) {
+            return;
+        }
+        try {
+            List<QueuedDispatch> batch;
+            while (!(batch = dispatchQueue.poll(properties.getBatchSize())).isEmpty()) {
+                Map<String, String> tokens = new HashMap<>();
+                int nacked = 0;
+                for (QueuedDispatch dispatch : batch) {
+                    if (!send(dispatch, tokens)) {
+                        nacked++;
+                    }
+                }
+                if (nacked > 0) {
+                    backOff(nacked);
+                    return;
+                }
+                backoff = Duration.ZERO;
+            }
+        } catch (Exception e) {
+            log.error("Dispatch queue drain failed", e);
+        }
+    }
+
+    private void failDeadLetters() {
+        try {
+            List<QueuedDispatch> dead;
+            while (!(dead = dispatchQueue.pollDeadLetters(properties.getBatchSize())).isEmpty()) {
+                for (QueuedDispatch dispatch : dead) {
+                    fail(dispatch, "Not delivered after " + dispatch.deliveryCount() + " attempts");
+                    dispatchQueue.ack(dispatch.id());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to settle dead-lettered dispatch chunks", e);
+        }
+    }
+
+    private synchronized void backOff(int nacked) {
+        Duration doubled = backoff.isZero()
+                ? properties.getPollInterval().multipliedBy(2)
+                : backoff.multipliedBy(2);
+        backoff = doubled.compareTo(maxBackoff) > 0 ? maxBackoff : doubled;
+        resumeAtNanos = System.nanoTime() + backoff.toNanos();
+        log.warn("{} dispatch chunks returned to the queue, pausing the sender for {} ms",
+                nacked, backoff.toMillis());
+    }
+
+    /**
+     * @param tokens access tokens already looked up for this batch
+     * @return false if the chunk was nacked for redelivery
+     */
+    private boolean send(QueuedDispatch dispatch, Map<String, String> tokens) {
+        DispatchRequestDto request = dispatch.request();
+        String phoneNumberId = request.getAccountInfo() != null ? request.getAccountInfo().getPhoneNumberId() : null;
+        int messages = request.getItems() != null ? request.getItems().size() : 0;
+
+        try {
+            request = withAccessToken(request, tokens);
+        } catch (Exception e) {
+            log.warn("Account lookup for dispatch chunk {} failed: {}", dispatch.id(), e.getMessage());
+            dispatchQueue.nack(dispatch.id());
+            return false;
+        }
+
+        FacebookApiResponse<BroadcastDispatchResponseDto> response;
+        try {
+            response = messagingClient.dispatchMessage(request);
+        } catch (Exception e) {
+            log.warn("Dispatch chunk {} failed on delivery {}: {}", dispatch.id(), dispatch.deliveryCount(),
+                    e.getMessage());
+            rateLimiter.onResponse(phoneNumberId, 500, messages);
+            dispatchQueue.nack(dispatch.id());
+            return false;
+        }
+
+        int status = response.getStatusCode();
+        rateLimiter.onResponse(phoneNumberId, status, messages);
+        if (response.isSuccess()) {
+            dispatchQueue.ack(dispatch.id());
+            return true;
+        }
+        if (!DispatchTransport.isRetryable(status)) {
+            log.error("Dispatch chunk {} rejected with {}: {}", dispatch.id(), status, response.getErrorMessage());
+            dispatchQueue.ack(dispatch.id());
+            fail(dispatch, "Rejected with HTTP " + status + ": " + response.getErrorMessage());
+            return true;
+        }
+        dispatchQueue.nack(dispatch.id());
+        return false;
+    }
+
+    private DispatchRequestDto withAccessToken(DispatchRequestDto request, Map<String, String> tokens) {
+        WhatsappAccountInfoDto accountInfo = request.getAccountInfo();
+        if (accountInfo == null || accountInfo.getAccessToken() != null) {
+            return request;
+        }
+        String token = tokens.computeIfAbsent(accountInfo.getPhoneNumberId(),
+                phoneNumberId -> whatsappAccountService.getAccountByNumberId(phoneNumberId).getParmenentToken());
+        return DispatchRequestDto.builder()
+                .items(request.getItems())
+                .accountInfo(WhatsappAccountInfoDto.builder()
+                        .phoneNumberId(accountInfo.getPhoneNumberId())
+                        .accessToken(token)
+                        .build())
+                .dispatchId(request.getDispatchId())
+                .build();
+    }
+
+    private void fail(QueuedDispatch dispatch, String error) {
+        List<BroadcastDispatchItemDto> items = dispatch.request().getItems();
+        if (items != null && !items.isEmpty()) {
+            dispatchRetryService.failUndeliverable(items, error);
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.aigreentick.services.template.client.transport;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.aigreentick.services.template.config.client.DispatchTransportProperties;
+import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Embedded DispatchQueue kept in append-only segment files, so chunks
+ * accepted by offer() survive a restart.
+ *
+ * offer() returns once its record is forced to disk; concurrent offers share
+ * one force. Acks are appended without forcing: a lost ack only means the
+ * chunk is delivered again, which the messaging service drops by its
+ * dispatch id. A segment is deleted once it is the oldest and every chunk in
+ * it was acked, so acks stored in later segments never outlive what they
+ * refer to.
+ *
+ * On startup the segments are read back and every chunk without an ack is
+ * ready again, with its delivery count reset. Access tokens are not written
+ * to disk: recovered chunks carry only the phone number id and the sender
+ * looks the token up. New records always go to a fresh segment, so a record
+ * torn by a crash is only ever at the end of the previous run's last one.
+ *
+ * Record layout: int length, byte type, long chunk id, body, int CRC32 of
+ * type + id + body. An ENQUEUE body is the dispatch id, phone number id and
+ * items (strings as int length + UTF-8, -1 for null). An ACK has no body.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.transport.type", havingValue = "queue")
+@Slf4j
+public class FileDispatchQueue implements DispatchQueue, Closeable {
+
+    static final byte ENQUEUE = 1;
+    static final byte ACK = 2;
+    static final String SEGMENT_PREFIX = "dispatch-queue-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int capacity;
+    private final long visibilityTimeoutNanos;
+    private final int maxDeliveries;
+
+    // Guarded by this
+    private final ArrayDeque<Entry> ready = new ArrayDeque<>();
+    private final Map<Long, Lease> leased = new HashMap<>();
+    private final ArrayDeque<Entry> deadLetters = new ArrayDeque<>();
+    private final Map<Long, Entry> settling = new HashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment current;
+    private long lastId;
+    private long appendedRecords;
+
+    // Guarded by forceLock
+    private final Object forceLock = new Object();
+    private long forcedRecords;
+
+    public FileDispatchQueue(DispatchTransportProperties properties) throws IOException {
+        DispatchTransportProperties.Queue queue = properties.getQueue();
+        this.dir = Path.of(queue.getDir());
+        this.segmentBytes = queue.getSegmentBytes();
+        this.capacity = queue.getCapacity();
+        this.visibilityTimeoutNanos = queue.getVisibilityTimeout().toNanos();
+        this.maxDeliveries = queue.getMaxDeliveries();
+
+        Files.createDirectories(dir);
+        recover();
+    }
+
+    @Override
+    public boolean offer(DispatchRequestDto request) {
+        byte[] body = encodeRequest(request);
+        long record;
+        synchronized (this) {
+            // Leased chunks count too, so a slow sender pushes back on publishers
+            if (ready.size() + leased.size() >= capacity) {
+                return false;
+            }
+            long id = lastId + 1;
+            Segment segment = append(ENQUEUE, id, body);
+            lastId = id;
+            segment.live++;
+            ready.add(new Entry(id, request, 0, segment));
+            record = appendedRecords;
+        }
+        force(record);
+        return true;
+    }
+
+    @Override
+    public synchronized List<QueuedDispatch> poll(int maxBatch) {
+        redeliverExpired();
+
+        List<QueuedDispatch> batch = new ArrayList<>(maxBatch);
+        long deadline = System.nanoTime() + visibilityTimeoutNanos;
+        Entry entry;
+        while (batch.size() < maxBatch && (entry = ready.poll()) != null) {
+            Entry delivered = entry.delivered();
+            leased.put(delivered.id(), new Lease(delivered, deadline));
+            batch.add(delivered.toQueued());
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized void ack(long id) {
+        Lease lease = leased.remove(id);
+        Entry entry = lease != null ? lease.entry() : settling.remove(id);
+        if (entry == null) {
+            return;
+        }
+        try {
+            append(ACK, id, new byte[0]);
+        } catch (UncheckedIOException e) {
+            // The chunk is delivered again after a restart
+            log.warn("Could not record ack of dispatch chunk {}: {}", id, e.getMessage());
+        }
+        entry.segment().live--;
+        deleteDrainedSegments();
+    }
+
+    @Override
+    public synchronized void nack(long id) {
+        Lease lease = leased.remove(id);
+        if (lease != null) {
+            requeue(lease.entry());
+        }
+    }
+
+    @Override
+    public synchronized List<QueuedDispatch> pollDeadLetters(int maxBatch) {
+        List<QueuedDispatch> batch = new ArrayList<>();
+        Entry dead;
+        while (batch.size() < maxBatch && (dead = deadLetters.poll()) != null) {
+            settling.put(dead.id(), dead);
+            batch.add(dead.toQueued());
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized int size() {
+        return ready.size() + leased.size();
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (current != null && current.channel.isOpen()) {
+            current.channel.force(false);
+            current.channel.close();
+        }
+    }
+
+    private void redeliverExpired() {
+        long now = System.nanoTime();
+        Iterator<Lease> it = leased.values().iterator();
+        List<Entry> expired = new ArrayList<>();
+        while (it.hasNext()) {
+            Lease lease = it.next();
+            if (now - lease.deadline() >= 0) {
+                it.remove();
+                expired.add(lease.entry());
+            }
+        }
+        for (Entry entry : expired) {
+            log.warn("Dispatch chunk {} not acknowledged within the visibility timeout (delivery {})",
+                    entry.id(), entry.deliveries());
+            requeue(entry);
+        }
+    }
+
+    private void requeue(Entry entry) {
+        if (entry.deliveries() >= maxDeliveries) {
+            log.error("Dead-lettering dispatch chunk {} of {} messages after {} deliveries",
+                    entry.id(), itemCount(entry.request()), entry.deliveries());
+            deadLetters.add(entry);
+            return;
+        }
+        ready.add(entry);
+    }
+
+    /**
+     * Appends a record to the current segment, rolling to a new one first if
+     * it would grow past segmentBytes.
+     *
+     * @return the segment the record was written to
+     */
+    private Segment append(byte type, long id, byte[] body) {
+        ByteBuffer record = encode(type, id, body);
+        try {
+            if (current.size > 0 && current.size + record.remaining() > segmentBytes) {
+                roll();
+            }
+            int length = record.remaining();
+            writeFully(current.channel, record);
+            current.size += length;
+            appendedRecords++;
+            return current;
+        } catch (IOException e) {
+            // Never append behind a partly written record
+            try {
+                roll();
+            } catch (IOException rollFailure) {
+                e.addSuppressed(rollFailure);
+            }
+            throw new UncheckedIOException("Failed to write to dispatch queue in " + dir, e);
+        }
+    }
+
+    /**
+     * Waits until the given record is on disk. Whoever forces covers every
+     * record appended so far, so concurrent offers share the cost.
+     */
+    private void force(long record) {
+        synchronized (forceLock) {
+            if (forcedRecords >= record) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            synchronized (this) {
+                target = appendedRecords;
+                channel = current.channel;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Rolled meanwhile: roll() forced it before closing
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to force dispatch queue in " + dir, e);
+            }
+            forcedRecords = target;
+        }
+    }
+
+    private void roll() throws IOException {
+        long seq = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path file = dir.resolve(SEGMENT_PREFIX + seq + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (current != null && current.channel.isOpen()) {
+            current.channel.force(false);
+            current.channel.close();
+        }
+        current = new Segment(seq, file, channel);
+        segments.put(seq, current);
+        deleteDrainedSegments();
+    }
+
+    private void deleteDrainedSegments() {
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == current || oldest.live > 0) {
+                return;
+            }
+            segments.pollFirstEntry();
+            try {
+                if (oldest.channel != null) {
+                    oldest.channel.close();
+                }
+                Files.deleteIfExists(oldest.file);
+            } catch (IOException e) {
+                log.warn("Could not delete dispatch queue segment {}: {}", oldest.file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads back the chunks a previous run accepted but never acked, then
+     * opens a fresh segment for this run.
+     */
+    private synchronized void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(segmentSeq(a), segmentSeq(b)))
+                    .toList();
+        }
+
+        Map<Long, Entry> pending = new LinkedHashMap<>();
+        for (Path file : files) {
+            Segment segment = new Segment(segmentSeq(file), file, null);
+            segments.put(segment.seq, segment);
+            scan(file, (type, id, body) -> {
+                lastId = Math.max(lastId, id);
+                if (type == ENQUEUE) {
+                    pending.put(id, new Entry(id, decodeRequest(body), 0, segment));
+                } else if (type == ACK) {
+                    pending.remove(id);
+                }
+            });
+        }
+        for (Entry entry : pending.values()) {
+            entry.segment().live++;
+            ready.add(entry);
+        }
+
+        roll();
+        if (!pending.isEmpty()) {
+            log.info("Recovered {} unacknowledged dispatch chunks from {}", pending.size(), dir);
+        }
+    }
+
+    private static long segmentSeq(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static ByteBuffer encode(byte type, long id, byte[] body) {
+        int length = 1 + 8 + body.length;
+        ByteBuffer record = ByteBuffer.allocate(4 + length + 4);
+        record.putInt(length).put(type).putLong(id).put(body);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length);
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Visits the records of a segment up to the first torn one.
+     */
+    private static void scan(Path file, RecordVisitor visitor) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                DataInputStream data = new DataInputStream(
+                        new BufferedInputStream(Channels.newInputStream(in), 64 * 1024))) {
+            long remaining = in.size();
+            while (remaining >= 4) {
+                int length = data.readInt();
+                if (length < 9 || length + 4L > remaining - 4) {
+                    log.warn("Dispatch queue segment {} ends in a torn record", file);
+                    return;
+                }
+                byte[] record = new byte[length];
+                data.readFully(record);
+                int storedCrc = data.readInt();
+
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != storedCrc) {
+                    log.warn("Dispatch queue segment {} ends in a torn record", file);
+                    return;
+                }
+
+                ByteBuffer header = ByteBuffer.wrap(record, 0, 9);
+                byte type = header.get();
+                long id = header.getLong();
+                byte[] body = new byte[length - 9];
+                System.arraycopy(record, 9, body, 0, body.length);
+                visitor.visit(type, id, body);
+
+                remaining -= 4 + length + 4;
+            }
+        } catch (EOFException e) {
+            // torn tail
+        }
+    }
+
+    private static byte[] encodeRequest(DispatchRequestDto request) {
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(bytes(request.getDispatchId()));
+        strings.add(bytes(request.getAccountInfo() != null ? request.getAccountInfo().getPhoneNumberId() : null));
+        List<BroadcastDispatchItemDto> items = request.getItems() != null ? request.getItems() : List.of();
+        for (BroadcastDispatchItemDto item : items) {
+            strings.add(bytes(item.getMobileNo()));
+            strings.add(bytes(item.getPayload()));
+        }
+
+        int size = 4 + 8 * items.size();
+        for (byte[] string : strings) {
+            size += 4 + (string != null ? string.length : 0);
+        }
+        ByteBuffer body = ByteBuffer.allocate(size);
+        putString(body, strings.get(0));
+        putString(body, strings.get(1));
+        body.putInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Long broadcastId = items.get(i).getBroadcastId();
+            body.putLong(broadcastId != null ? broadcastId : -1);
+            putString(body, strings.get(2 + 2 * i));
+            putString(body, strings.get(3 + 2 * i));
+        }
+        return body.array();
+    }
+
+    private static DispatchRequestDto decodeRequest(byte[] body) {
+        ByteBuffer buf = ByteBuffer.wrap(body);
+        String dispatchId = getString(buf);
+        String phoneNumberId = getString(buf);
+        int count = buf.getInt();
+        List<BroadcastDispatchItemDto> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long broadcastId = buf.getLong();
+            items.add(BroadcastDispatchItemDto.builder()
+                    .broadcastId(broadcastId >= 0 ? broadcastId : null)
+                    .mobileNo(getString(buf))
+                    .payload(getString(buf))
+                    .build());
+        }
+        return DispatchRequestDto.builder()
+                .items(items)
+                .accountInfo(WhatsappAccountInfoDto.builder().phoneNumberId(phoneNumberId).build())
+                .dispatchId(dispatchId)
+                .build();
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static void putString(ByteBuffer buf, byte[] bytes) {
+        if (bytes == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static int itemCount(DispatchRequestDto request) {
+        return request.getItems() != null ? request.getItems().size() : 0;
+    }
+
+    private static final class Segment {
+        final long seq;
+        final Path file;
+        // Null for segments of a previous run, which are only read
+        final FileChannel channel;
+        long size;
+        // Chunks enqueued here and not yet acked
+        int live;
+
+        Segment(long seq, Path file, FileChannel channel) {
+            this.seq = seq;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private record Entry(long id, DispatchRequestDto request, int deliveries, Segment segment) {
+
+        Entry delivered() {
+            return new Entry(id, request, deliveries + 1, segment);
+        }
+
+        QueuedDispatch toQueued() {
+            return new QueuedDispatch(id, request, deliveries);
+        }
+    }
+
+    private record Lease(Entry entry, long deadline) {
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte type, long id, byte[] body);
+    }
+}
@@ -0,0 +1,39 @@
+package com.aigreentick.services.template.client.transport;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.aigreentick.services.template.client.adapter.MessagingClientImpl;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+
+/**
+ * Default transport: a synchronous POST of each chunk to the messaging
+ * service, behind its circuit breaker and bulkhead.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.transport.type", havingValue = "http", matchIfMissing = true)
+public class HttpDispatchTransport implements DispatchTransport {
+
+    private final MessagingClientImpl messagingClient;
+    private final CircuitBreaker circuitBreaker;
+
+    public HttpDispatchTransport(MessagingClientImpl messagingClient, CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.messagingClient = messagingClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(MessagingClientImpl.RESILIENCE_INSTANCE);
+    }
+
+    @Override
+    public FacebookApiResponse<BroadcastDispatchResponseDto> send(DispatchRequestDto request) {
+        return messagingClient.dispatchMessage(request);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+}
@@ -0,0 +1,50 @@
+package com.aigreentick.services.template.client.transport;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.broadcast.DispatchResultData;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Publishes chunks to a DispatchQueue instead of calling the messaging
+ * service, so broadcasts are not slowed down by (or coupled to) the sender.
+ *
+ * A chunk counts as dispatched once the queue accepted it (202), which the
+ * queue only does after storing it durably: settlement and the dispatch
+ * journal's ack rely on the chunk surviving a restart. Delivery failures are
+ * the consumer's to handle, including failing and refunding chunks it
+ * cannot deliver. The rate limiter ignores 202 and takes its
+ * feedback from the consumer's responses instead. A full queue answers
+ * 503, so the chunk goes to the retry queue and the account's rate backs
+ * off until the sender catches up.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.transport.type", havingValue = "queue")
+@RequiredArgsConstructor
+public class QueueDispatchTransport implements DispatchTransport {
+
+    private final DispatchQueue dispatchQueue;
+
+    @Override
+    public FacebookApiResponse<BroadcastDispatchResponseDto> send(DispatchRequestDto request) {
+        if (!dispatchQueue.offer(request)) {
+            return FacebookApiResponse.error("Dispatch queue full (" + dispatchQueue.size() + " chunks)", 503);
+        }
+        int count = request.getItems() != null ? request.getItems().size() : 0;
+        return FacebookApiResponse.success(BroadcastDispatchResponseDto.builder()
+                .status("SUCCESS")
+                .message("Queued")
+                .data(DispatchResultData.builder().totalDispatched(count).failedCount(0).build())
+                .build(), 202);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+}
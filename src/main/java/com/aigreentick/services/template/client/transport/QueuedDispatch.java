@@ -0,0 +1,9 @@
+package com.aigreentick.services.template.client.transport;
+
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+
+/**
+ * A chunk leased from a DispatchQueue; deliveryCount starts at 1.
+ */
+public record QueuedDispatch(long id, DispatchRequestDto request, int deliveryCount) {
+}
@@ -1,7 +1,9 @@
 package com.aigreentick.services.template.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -34,6 +36,9 @@ public class AsyncBatchDispatchConfig {
         
         // Thread naming for debugging
         executor.setThreadNamePrefix("dispatch-");
+
+        // Carry the caller's trace context (and other registered thread locals) onto the worker
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
         
         // Wait for tasks to complete on shutdown
         executor.setWaitForTasksToCompleteOnShutdown(true);
@@ -42,4 +47,25 @@ public class AsyncBatchDispatchConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs accepted broadcasts (reports, contacts, build, dispatch) off the
+     * HTTP request thread. Kept separate from messageDispatchExecutor so a
+     * queue of large campaigns cannot starve contact linking.
+     */
+    @Bean(name = "broadcastJobExecutor")
+    public Executor broadcastJobExecutor(
+            @Value("${broadcast.job.pool-size:4}") int poolSize,
+            @Value("${broadcast.job.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("broadcast-job-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+}
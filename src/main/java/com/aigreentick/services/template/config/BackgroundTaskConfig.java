@@ -0,0 +1,30 @@
+package com.aigreentick.services.template.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Scheduler for periodic maintenance work (settlement flushes, write-behind
+ * buffers and similar).
+ *
+ * Services schedule their own tasks on it instead of relying on
+ * @EnableScheduling, which would also switch on every @Scheduled method in
+ * the application.
+ */
+@Configuration
+public class BackgroundTaskConfig {
+
+    @Bean(name = "backgroundTaskScheduler")
+    public ThreadPoolTaskScheduler backgroundTaskScheduler(
+            @Value("${background.scheduler.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("background-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+        return scheduler;
+    }
+}
@@ -0,0 +1,36 @@
+package com.aigreentick.services.template.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "broadcast.admission")
+@Data
+public class BroadcastAdmissionProperties {
+
+    // Dispatch chunks (first attempts and retries) handed to
+    // messageDispatchExecutor at once across all tenants. 0 = its max pool
+    // + queue capacity minus reservedExecutorTasks; larger values are
+    // capped to that
+    private int dispatchSlots = 0;
+
+    // Room on messageDispatchExecutor kept free of dispatch chunks for the
+    // other @Async work on it (contact linking)
+    private int reservedExecutorTasks = 20;
+
+    // Share of a tenant (userId) without an entry in weights
+    private int defaultWeight = 1;
+
+    // userId -> weight; a tenant with weight 2 gets twice the job and
+    // dispatch slots of a weight 1 tenant when both are waiting
+    private Map<Long, Integer> weights = new HashMap<>();
+
+    public int weightOf(long userId) {
+        return weights.getOrDefault(userId, defaultWeight);
+    }
+}
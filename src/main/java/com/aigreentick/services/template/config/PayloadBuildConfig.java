@@ -0,0 +1,57 @@
+package com.aigreentick.services.template.config;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Configuration for the CPU-bound payload build stage.
+ *
+ * Template building and JSON serialization are pure CPU work, so they get a
+ * dedicated fork/join pool sized to the cores instead of sharing the common
+ * pool (which also runs dispatch chunk futures).
+ */
+@Configuration
+@Slf4j
+public class PayloadBuildConfig {
+
+    @Bean(name = "payloadBuildPool", destroyMethod = "shutdown")
+    public ForkJoinPool payloadBuildPool(
+            @Value("${broadcast.build-parallelism:0}") int configuredParallelism) {
+
+        // 0 (default) means one worker per available core
+        int parallelism = configuredParallelism > 0
+                ? configuredParallelism
+                : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("payload-build-" + threadCounter.incrementAndGet());
+            return thread;
+        };
+
+        log.info("Payload build pool parallelism: {}", parallelism);
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+
+    /**
+     * Queue depth, steals and active workers of the build pool. Actuator only
+     * binds Spring's ThreadPoolTask* executors on its own.
+     */
+    @Bean
+    public MeterBinder payloadBuildPoolMetrics(@Qualifier("payloadBuildPool") ForkJoinPool payloadBuildPool) {
+        return registry -> new ExecutorServiceMetrics(payloadBuildPool, "payloadBuildPool", Tags.empty())
+                .bindTo(registry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.aigreentick.services.template.config;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.ObservationFilter;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Tracing setup on top of Spring Boot's OpenTelemetry auto-configuration.
+ *
+ * Spans go to the OTLP endpoint in management.otlp.tracing.*. With
+ * tracing.file-export.enabled they are also written as OTLP JSON lines to
+ * tracing.file-export.path, for local analysis without a collector. The
+ * file appender is only added then, so a disabled export creates no file.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String OTLP_JSON_LOGGER = "io.opentelemetry.exporter.logging.otlp";
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.file-export.enabled", havingValue = "true")
+    public SpanExporter otlpJsonFileSpanExporter(
+            @Value("${tracing.file-export.path:logs/traces.jsonl}") String path) {
+        attachTraceFileAppender(path);
+        return OtlpJsonLoggingSpanExporter.create();
+    }
+
+    /**
+     * Routes the exporter's output, one JSON document per line, to a file
+     * rolled daily and at 100MB, kept for 7 days.
+     */
+    private static void attachTraceFileAppender(String path) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        RollingFileAppender<ILoggingEvent> appender = new RollingFileAppender<>();
+        appender.setContext(context);
+        appender.setName("TRACE_FILE");
+        appender.setFile(path);
+
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new SizeAndTimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(context);
+        rollingPolicy.setParent(appender);
+        rollingPolicy.setFileNamePattern(path + ".%d{yyyy-MM-dd}.%i.gz");
+        rollingPolicy.setMaxFileSize(FileSize.valueOf("100MB"));
+        rollingPolicy.setMaxHistory(7);
+        rollingPolicy.start();
+        appender.setRollingPolicy(rollingPolicy);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        appender.setEncoder(encoder);
+        appender.start();
+
+        Logger logger = context.getLogger(OTLP_JSON_LOGGER);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    /**
+     * Tags every inbound request span with the caller's X-User-Id, so a
+     * broadcast trace can be found by user.
+     */
+    @Bean
+    public ObservationFilter userIdObservationFilter() {
+        return context -> {
+            if (context instanceof ServerRequestObservationContext serverContext) {
+                String userId = serverContext.getCarrier().getHeader(USER_ID_HEADER);
+                if (userId != null) {
+                    serverContext.addHighCardinalityKeyValue(KeyValue.of("user.id", userId));
+                }
+            }
+            return context;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.aigreentick.services.template.config.client;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "dispatch.transport")
+@Data
+public class DispatchTransportProperties {
+
+    // http: synchronous POST to messaging-service.base-url
+    // queue: publish to a DispatchQueue, sent by a separate consumer
+    private String type = "http";
+
+    private Queue queue = new Queue();
+
+    @Data
+    public static class Queue {
+        // Chunks waiting for the sender; publishing fails fast (503) when full
+        private int capacity = 10_000;
+
+        // A delivered chunk that is not acked within this time is redelivered
+        private Duration visibilityTimeout = Duration.ofMinutes(1);
+
+        // Deliveries before a chunk is dead-lettered
+        private int maxDeliveries = 5;
+
+        // Segment files of the embedded queue; chunks in them survive restarts
+        private String dir = "data/dispatch-queue";
+
+        // A segment is deleted once every chunk in it was acked
+        private long segmentBytes = 64L * 1024 * 1024;
+
+        private EmbeddedSender embeddedSender = new EmbeddedSender();
+    }
+
+    @Data
+    public static class EmbeddedSender {
+        // Drain the embedded queue in this process (single node and tests)
+        private boolean enabled = true;
+
+        // Sender threads, each draining its own batches
+        private int concurrency = 4;
+        private int batchSize = 20;
+        private Duration pollInterval = Duration.ofMillis(50);
+    }
+}
@@ -1,5 +1,7 @@
 package com.aigreentick.services.template.config.client;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,4 +12,7 @@ import lombok.Data;
 @Data
 public class MessagingClientProperties {
     private String baseUrl;
+
+    // Upper bound for one dispatch call, connect time included
+    private Duration responseTimeout = Duration.ofSeconds(30);
 }
\ No newline at end of file
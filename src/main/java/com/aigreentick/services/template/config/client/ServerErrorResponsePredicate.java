@@ -0,0 +1,43 @@
+package com.aigreentick.services.template.config.client;
+
+import java.util.function.Predicate;
+
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+
+/**
+ * Circuit breaker result predicate for the HTTP clients.
+ *
+ * The clients catch their own exceptions and return a FacebookApiResponse,
+ * so failures must be recognised from the result: 5xx, 429 and timeouts
+ * count against the breaker, caller errors (other 4xx) do not.
+ *
+ * Neither does BULKHEAD_FULL: the bulkhead runs inside the breaker, so its
+ * rejections reach the breaker as results, but they only mean this process
+ * has too many calls in flight, not that the service is failing.
+ */
+public class ServerErrorResponsePredicate implements Predicate<Object> {
+
+    /**
+     * Status of a call the bulkhead rejected before it was made. Retryable
+     * like any 5xx.
+     */
+    public static final int BULKHEAD_FULL = 529;
+
+    /**
+     * Status for a circuit breaker / bulkhead fallback response.
+     */
+    public static int fallbackStatus(Throwable ex) {
+        return ex instanceof BulkheadFullException ? BULKHEAD_FULL : 503;
+    }
+
+    @Override
+    public boolean test(Object result) {
+        if (!(result instanceof FacebookApiResponse<?> response) || response.isSuccess()) {
+            return false;
+        }
+        int status = response.getStatusCode();
+        return (status >= 500 && status != BULKHEAD_FULL) || status == 429;
+    }
+}
@@ -0,0 +1,34 @@
+package com.aigreentick.services.template.config.client;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Transport-level timeouts for every WebClient built from the shared builder.
+ *
+ * The clients additionally bound each call with their own response timeout;
+ * these defaults only make sure nothing can hang on a dead connection.
+ */
+@Configuration
+public class WebClientTimeoutConfig {
+
+    @Bean
+    public WebClientCustomizer timeoutWebClientCustomizer(
+            @Value("${http-client.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${http-client.response-timeout:PT2M}") Duration responseTimeout) {
+
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(responseTimeout);
+
+        return builder -> builder.clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+}
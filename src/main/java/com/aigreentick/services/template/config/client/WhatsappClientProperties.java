@@ -1,5 +1,7 @@
 package com.aigreentick.services.template.config.client;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,6 +14,10 @@ public class WhatsappClientProperties {
     private String baseUrl;
     private String apiVersion;
 
+    // Upper bounds per Graph API call; media uploads carry whole files
+    private Duration responseTimeout = Duration.ofSeconds(15);
+    private Duration uploadTimeout = Duration.ofMinutes(2);
+
     // Feature flags for dynamic enable/disable
     private volatile boolean outgoingEnabled = true;
 }
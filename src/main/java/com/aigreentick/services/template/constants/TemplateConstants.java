@@ -61,6 +61,11 @@ public class TemplateConstants {
         public static final String TEMPLATE_CREATED = "Template created successfully";
         public static final String TEMPLATES_FETCHED = "Templates fetched successfully";
         public static final String TEMPLATE_STATUS_UPDATED = "Template status updated successfully";
+        public static final String BROADCAST_ACCEPTED = "Broadcast accepted for processing";
+        public static final String BROADCAST_PROGRESS_FETCHED = "Broadcast progress fetched successfully";
+        public static final String BROADCAST_STATS_FETCHED = "Broadcast delivery stats fetched successfully";
+        public static final String REPORT_STATUSES_INGESTED = "Report statuses ingested successfully";
+        public static final String REPORTS_FETCHED = "Reports fetched successfully";
     }
 
 }
@@ -0,0 +1,82 @@
+package com.aigreentick.services.template.controller.broadcast;
+
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.aigreentick.services.template.constants.TemplateConstants;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
+import com.aigreentick.services.template.dto.response.common.ResponseMessage;
+import com.aigreentick.services.template.enums.ResponseStatus;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastJobServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastProgressStreamServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.ReportServiceImpl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controller for broadcast lifecycle queries.
+ * 
+ * Endpoints:
+ * - GET /api/v1/broadcast/{broadcastId}/progress - Phase and built/dispatched/failed counts
+ * - GET /api/v1/broadcast/{broadcastId}/progress/stream - Same snapshot as server-sent events
+ * - GET /api/v1/broadcast/{broadcastId}/stats    - Report counts per delivery status
+ */
+@RestController
+@RequestMapping("api/v1/broadcast")
+@RequiredArgsConstructor
+@Slf4j
+public class BroadcastController {
+
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final BroadcastProgressStreamServiceImpl progressStreamService;
+    private final BroadcastServiceImpl broadcastService;
+    private final ReportServiceImpl reportService;
+
+    @GetMapping("/{broadcastId}/progress")
+    public ResponseEntity<?> getProgress(
+            @RequestHeader("X-User-Id") Long userId,
+            @PathVariable Long broadcastId) {
+
+        BroadcastProgressResponseDto response = broadcastJobService.getProgress(broadcastId, userId);
+
+        return ResponseEntity.ok(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.BROADCAST_PROGRESS_FETCHED,
+                        response));
+    }
+
+    @GetMapping(path = "/{broadcastId}/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProgress(
+            @RequestHeader("X-User-Id") Long userId,
+            @PathVariable Long broadcastId) {
+
+        return progressStreamService.subscribe(broadcastId, userId);
+    }
+
+    @GetMapping("/{broadcastId}/stats")
+    public ResponseEntity<?> getStats(
+            @RequestHeader("X-User-Id") Long userId,
+            @PathVariable Long broadcastId) {
+
+        broadcastService.getBroadcastForUser(broadcastId, userId);
+
+        Map<String, Long> stats = reportService.getDeliveryStats(broadcastId);
+
+        return ResponseEntity.ok(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.BROADCAST_STATS_FETCHED,
+                        stats));
+    }
+}
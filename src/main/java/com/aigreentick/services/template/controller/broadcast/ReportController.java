@@ -0,0 +1,154 @@
+package com.aigreentick.services.template.controller.broadcast;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.aigreentick.services.template.constants.TemplateConstants;
+import com.aigreentick.services.template.dto.request.broadcast.BulkReportStatusRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.ReportStatusIngestResponseDto;
+import com.aigreentick.services.template.dto.response.common.CursorPageResponseDto;
+import com.aigreentick.services.template.dto.response.common.ResponseMessage;
+import com.aigreentick.services.template.enums.ExportFormat;
+import com.aigreentick.services.template.enums.ResponseStatus;
+import com.aigreentick.services.template.model.broadcast.Report;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.ReportExportServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.ReportServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.ReportStatusIngestionServiceImpl;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controller for broadcast reports.
+ * 
+ * Endpoints:
+ * - POST /api/v1/reports/status/bulk                       - Apply a batch of the user's delivery receipts
+ * - GET  /api/v1/reports?cursor=&size=                     - User's reports, keyset pages
+ * - GET  /api/v1/reports/broadcast/{broadcastId}           - Broadcast's reports, keyset pages
+ * - GET  /api/v1/reports/broadcast/{broadcastId}/export    - Stream a broadcast's reports (csv / ndjson)
+ * - GET  /api/v1/reports/export?from=&to=                  - Stream a user's reports in a date range
+ */
+@RestController
+@RequestMapping("api/v1/reports")
+@RequiredArgsConstructor
+@Slf4j
+public class ReportController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final ReportStatusIngestionServiceImpl statusIngestionService;
+    private final ReportServiceImpl reportService;
+    private final ReportExportServiceImpl reportExportService;
+    private final BroadcastServiceImpl broadcastService;
+
+    @PostMapping("/status/bulk")
+    public ResponseEntity<?> ingestStatuses(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "X-Webhook-Secret", required = false) String webhookSecret,
+            @Valid @RequestBody BulkReportStatusRequestDto request) {
+
+        if (!statusIngestionService.isAuthorized(webhookSecret)) {
+            log.warn("Rejected status ingestion for userId: {} - missing or wrong webhook secret", userId);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ReportStatusIngestResponseDto response = statusIngestionService.ingest(userId, request.getEvents());
+
+        return ResponseEntity.ok(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.REPORT_STATUSES_INGESTED,
+                        response));
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getUserReports(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+
+        CursorPageResponseDto<Report> response = reportService.getReportsByUserId(userId, cursor, pageSize(size));
+
+        return ResponseEntity.ok(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.REPORTS_FETCHED,
+                        response));
+    }
+
+    @GetMapping("/broadcast/{broadcastId}")
+    public ResponseEntity<?> getBroadcastReports(
+            @RequestHeader("X-User-Id") Long userId,
+            @PathVariable Long broadcastId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+
+        broadcastService.getBroadcastForUser(broadcastId, userId);
+        CursorPageResponseDto<Report> response =
+                reportService.getReportsByBroadcastId(broadcastId, cursor, pageSize(size));
+
+        return ResponseEntity.ok(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.REPORTS_FETCHED,
+                        response));
+    }
+
+    @GetMapping("/broadcast/{broadcastId}/export")
+    public ResponseEntity<StreamingResponseBody> exportBroadcastReports(
+            @RequestHeader("X-User-Id") Long userId,
+            @PathVariable Long broadcastId,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        broadcastService.getBroadcastForUser(broadcastId, userId);
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+
+        return streamExport("broadcast-" + broadcastId + "-reports", exportFormat,
+                out -> reportExportService.exportByBroadcastId(broadcastId, exportFormat, out));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUserReports(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+
+        return streamExport("reports", exportFormat,
+                out -> reportExportService.exportByUserId(userId, from, to, exportFormat, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamExport(
+            String fileName, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + format.getValue() + "\"")
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
+    }
+
+    private int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+}
@@ -1,20 +1,27 @@
 package com.aigreentick.services.template.controller.template;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.aigreentick.services.template.constants.TemplateConstants;
+import com.aigreentick.services.template.dto.request.template.csv.SendTemplateByCsvFileRequestDto;
 import com.aigreentick.services.template.dto.request.template.csv.SendTemplateByCsvRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
 import com.aigreentick.services.template.dto.response.common.ResponseMessage;
 import com.aigreentick.services.template.dto.response.template.TemplateResponseDto;
 import com.aigreentick.services.template.enums.ResponseStatus;
 import com.aigreentick.services.template.service.impl.template.broadcast.SendTemplateByCSVOrchestratorServiceImpl;
 
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -29,11 +36,12 @@ public class SendTemplateByCSVOrchestratorController {
     @PostMapping("/broadcast")
     public ResponseEntity<?> broadcast(
             @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody SendTemplateByCsvRequestDto request) {
 
         log.info("Broadcasting template via CSV for userId={}", userId);
 
-        TemplateResponseDto response = sendTemplateByCSVOrchestratorServiceImpl.broadcastTemplate(request, userId);
+        TemplateResponseDto response = sendTemplateByCSVOrchestratorServiceImpl.broadcastTemplate(request, userId, idempotencyKey);
 
         return ResponseEntity.ok(
                 new ResponseMessage<>(
@@ -42,6 +50,62 @@ public class SendTemplateByCSVOrchestratorController {
                         response));
     }
 
+    /**
+     * Accept-and-queue variant of /broadcast.
+     * 
+     * Returns 202 with the broadcast id once the request is validated and
+     * charged; poll GET /api/v1/broadcast/{broadcastId}/progress afterwards.
+     */
+    @PostMapping("/broadcast/async")
+    public ResponseEntity<?> broadcastAsync(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody SendTemplateByCsvRequestDto request) {
+
+        log.info("Queueing CSV broadcast for userId={}", userId);
+
+        BroadcastProgressResponseDto response = sendTemplateByCSVOrchestratorServiceImpl
+                .submitBroadcast(request, userId, idempotencyKey);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.BROADCAST_ACCEPTED,
+                        response));
+    }
+
+    /**
+     * Broadcast from a raw CSV file.
+     * 
+     * Multipart parts:
+     * - file: the CSV (first row is the header)
+     * - request: JSON metadata, see SendTemplateByCsvFileRequestDto
+     * 
+     * The file is parsed incrementally, so recipient count is bounded by the
+     * upload size limit rather than by heap. Returns 202 with the broadcast
+     * id once the broadcast is charged, like /broadcast/async; sending runs
+     * as a background broadcast job.
+     */
+    @PostMapping(value = "/broadcast/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> broadcastFile(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestPart("file") MultipartFile file,
+            @Valid @RequestPart("request") SendTemplateByCsvFileRequestDto request) {
+
+        log.info("Broadcasting template via streamed CSV for userId={}, file={}", userId,
+                file.getOriginalFilename());
+
+        BroadcastProgressResponseDto response = sendTemplateByCSVOrchestratorServiceImpl
+                .broadcastTemplateFromCsvFile(request, file, userId, idempotencyKey);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.BROADCAST_ACCEPTED,
+                        response));
+    }
+
     @GetMapping("/sample")
     public String getSample() {
         return "sample fetched";
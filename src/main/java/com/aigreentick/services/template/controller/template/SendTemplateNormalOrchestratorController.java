@@ -1,5 +1,6 @@
 package com.aigreentick.services.template.controller.template;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.aigreentick.services.template.constants.TemplateConstants;
 import com.aigreentick.services.template.dto.request.template.normal.SendTemplateNormalRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
 import com.aigreentick.services.template.dto.response.common.ResponseMessage;
 import com.aigreentick.services.template.dto.response.template.TemplateResponseDto;
 import com.aigreentick.services.template.enums.ResponseStatus;
@@ -29,7 +31,11 @@ import lombok.extern.slf4j.Slf4j;
  * 
  * Endpoints:
  * - POST /api/v1/template/normal/broadcast - Execute normal broadcast
+ * - POST /api/v1/template/normal/broadcast/async - Accept and queue normal broadcast
  * - GET /api/v1/template/normal/sample - Get sample request JSON
+ * 
+ * The broadcast endpoints accept an optional Idempotency-Key header; a
+ * retried submission returns the original broadcast instead of a new one.
  */
 @RestController
 @RequestMapping("api/v1/template/normal")
@@ -67,13 +73,14 @@ public class SendTemplateNormalOrchestratorController {
     @PostMapping("/broadcast")
     public ResponseEntity<?> broadcast(
             @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody SendTemplateNormalRequestDto request) {
 
         log.info("Broadcasting template via Normal flow for userId={}, templateId={}, recipients={}", 
                 userId, request.getTemplateId(), 
                 request.getMobileNumbers() != null ? request.getMobileNumbers().size() : 0);
 
-        TemplateResponseDto response = sendTemplateByNormalOrchestratorServiceImpl.broadcastTemplate(request, userId);
+        TemplateResponseDto response = sendTemplateByNormalOrchestratorServiceImpl.broadcastTemplate(request, userId, idempotencyKey);
 
         return ResponseEntity.ok(
                 new ResponseMessage<>(
@@ -82,6 +89,33 @@ public class SendTemplateNormalOrchestratorController {
                         response));
     }
 
+    /**
+     * Accept-and-queue variant of /broadcast.
+     * 
+     * Returns 202 with the broadcast id as soon as the request is validated
+     * and charged; the broadcast then runs in the background. Poll
+     * GET /api/v1/broadcast/{broadcastId}/progress for its progress.
+     */
+    @PostMapping("/broadcast/async")
+    public ResponseEntity<?> broadcastAsync(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody SendTemplateNormalRequestDto request) {
+
+        log.info("Queueing Normal broadcast for userId={}, templateId={}, recipients={}",
+                userId, request.getTemplateId(),
+                request.getMobileNumbers() != null ? request.getMobileNumbers().size() : 0);
+
+        BroadcastProgressResponseDto response = sendTemplateByNormalOrchestratorServiceImpl
+                .submitBroadcast(request, userId, idempotencyKey);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                new ResponseMessage<>(
+                        ResponseStatus.SUCCESS.name(),
+                        TemplateConstants.Messages.BROADCAST_ACCEPTED,
+                        response));
+    }
+
     /**
      * Get sample request JSON for Normal broadcast.
      * Useful for API documentation and testing.
@@ -0,0 +1,18 @@
+package com.aigreentick.services.template.dto.request.broadcast;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+/**
+ * Batch of delivery receipts to apply to reports.
+ * Events may arrive in any order and repeat the same message.
+ */
+@Data
+public class BulkReportStatusRequestDto {
+
+    @NotEmpty(message = "Events are required")
+    private List<@Valid ReportStatusEventDto> events;
+}
@@ -0,0 +1,40 @@
+package com.aigreentick.services.template.dto.request.broadcast;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One delivery receipt from the WhatsApp status webhook.
+ *
+ * Example:
+ * {
+ *   "message_id": "wamid.HBgM...",
+ *   "status": "delivered",
+ *   "timestamp": 1760000000
+ * }
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportStatusEventDto {
+
+    @NotBlank(message = "Message ID is required")
+    private String messageId;
+
+    /**
+     * sent, delivered, read or failed
+     */
+    @NotBlank(message = "Status is required")
+    private String status;
+
+    /**
+     * Event time in epoch seconds, as sent by WhatsApp
+     */
+    @NotNull(message = "Timestamp is required")
+    private Long timestamp;
+}
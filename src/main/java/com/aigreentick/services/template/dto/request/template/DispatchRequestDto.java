@@ -19,4 +19,9 @@ public class DispatchRequestDto {
     private List<BroadcastDispatchItemDto> items;
 
     private WhatsappAccountInfoDto accountInfo;
+
+    // Stable id of a journaled chunk, repeated when the chunk is replayed
+    // after a crash so the messaging service can drop one it already has.
+    // Null for chunks that are never replayed.
+    private String dispatchId;
 }
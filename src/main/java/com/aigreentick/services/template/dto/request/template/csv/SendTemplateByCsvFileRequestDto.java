@@ -0,0 +1,81 @@
+package com.aigreentick.services.template.dto.request.template.csv;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * Metadata part of a streamed CSV broadcast upload.
+ *
+ * Unlike SendTemplateByCsvRequestDto, recipients and their variables are NOT
+ * part of this payload - they are read row by row from the uploaded CSV file.
+ *
+ * Example (multipart part "request"):
+ * {
+ *   "template_id": "123",
+ *   "col_name": "mobile",
+ *   "variable_columns": ["first_name", "order_id"],
+ *   "camp_name": "January Sale",
+ *   "country_id": 91
+ * }
+ *
+ * With the CSV:
+ *   mobile,first_name,order_id
+ *   919876543210,John,A-100
+ *   919876543211,Jane,A-101
+ *
+ * {{1}} resolves to first_name and {{2}} to order_id for each row.
+ */
+@Data
+public class SendTemplateByCsvFileRequestDto {
+
+    /**
+     * Template ID to use for broadcasting
+     */
+    @NotBlank(message = "Template ID is required")
+    private String templateId;
+
+    /**
+     * Header name of the column holding the recipient mobile number
+     */
+    @NotBlank(message = "Mobile column name is required")
+    private String colName;
+
+    /**
+     * Header names bound to template variables, in order.
+     * Position 0 maps to {{1}}, position 1 to {{2}} and so on.
+     */
+    private List<String> variableColumns;
+
+    /**
+     * Country ID for phone number formatting
+     */
+    private Integer countryId;
+
+    /**
+     * Campaign name for tracking
+     */
+    @NotBlank(message = "Campaign name is required")
+    private String campName;
+
+    /**
+     * Whether template contains media
+     */
+    private Boolean isMedia;
+
+    /**
+     * Type of media (IMAGE, VIDEO, DOCUMENT)
+     */
+    private String mediaType;
+
+    /**
+     * Media URL if using URL-based media
+     */
+    private String mediaUrl;
+
+    /**
+     * Carousel card variables - same values for ALL contacts
+     */
+    private List<CarouselCardDto> carouselCards;
+}
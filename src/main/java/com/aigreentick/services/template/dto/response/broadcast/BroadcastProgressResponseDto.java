@@ -0,0 +1,37 @@
+package com.aigreentick.services.template.dto.response.broadcast;
+
+import java.time.LocalDateTime;
+
+import com.aigreentick.services.template.enums.BroadcastJobPhase;
+import com.aigreentick.services.template.enums.BroadcastType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress snapshot of a broadcast, returned when a broadcast is accepted, by
+ * the progress polling endpoint and as the events of the progress stream.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastProgressResponseDto {
+    private Long broadcastId;
+    private BroadcastType broadcastType;
+    private BroadcastJobPhase phase;
+    // Set while the broadcast waits for admission (1 = next to start)
+    private Integer queuePosition;
+    private int total;
+    private int built;
+    private int dispatched;
+    private int failed;
+    private int chunksInFlight;
+    private Long etaSeconds;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+}
@@ -0,0 +1,26 @@
+package com.aigreentick.services.template.dto.response.broadcast;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk status ingestion.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportStatusIngestResponseDto {
+    /** Events in the request */
+    private int received;
+    /** Distinct messages after keeping only the latest event of each */
+    private int coalesced;
+    /** Reports whose status changed */
+    private int applied;
+    /** Unknown messages, unknown statuses and stale (backwards) transitions */
+    private int ignored;
+    /** Messages not among the caller's reports (part of ignored) */
+    private int rejected;
+}
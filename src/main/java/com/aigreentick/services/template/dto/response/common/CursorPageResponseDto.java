@@ -0,0 +1,22 @@
+package com.aigreentick.services.template.dto.response.common;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One keyset page. Pass nextCursor back to fetch the following page;
+ * it is null when there are no more items.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponseDto<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,43 @@
+package com.aigreentick.services.template.enums;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+// Lifecycle of a broadcast executed by the background job engine
+public enum BroadcastJobPhase {
+    SCHEDULED("SCHEDULED"),
+    QUEUED("QUEUED"),
+    CREATING_REPORTS("CREATING_REPORTS"),
+    BUILDING("BUILDING"),
+    DISPATCHING("DISPATCHING"),
+    COMPLETED("COMPLETED"),
+    FAILED("FAILED");
+
+    private final String value;
+
+    BroadcastJobPhase(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static BroadcastJobPhase fromValue(String input) {
+        if (input == null) {
+            return null;
+        }
+        for (BroadcastJobPhase phase : BroadcastJobPhase.values()) {
+            if (phase.value.equalsIgnoreCase(input)) {
+                return phase;
+            }
+        }
+        throw new IllegalArgumentException("Unknown broadcast job phase: " + input);
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,48 @@
+package com.aigreentick.services.template.enums;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Persistent execution phase of a broadcast, stored in broadcasts.data.phase.
+ *
+ * CHARGED -> REPORTS_CREATED -> BUILT -> DISPATCHING -> DONE
+ *
+ * Each transition is committed on its own, so a broadcast interrupted by a
+ * crash can be resumed from the last phase it reached.
+ */
+public enum BroadcastPhase {
+    CHARGED("CHARGED"),
+    REPORTS_CREATED("REPORTS_CREATED"),
+    BUILT("BUILT"),
+    DISPATCHING("DISPATCHING"),
+    DONE("DONE");
+
+    private final String value;
+
+    BroadcastPhase(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static BroadcastPhase fromValue(String input) {
+        if (input == null) {
+            return null;
+        }
+        for (BroadcastPhase phase : BroadcastPhase.values()) {
+            if (phase.value.equalsIgnoreCase(input)) {
+                return phase;
+            }
+        }
+        throw new IllegalArgumentException("Unknown broadcast phase: " + input);
+    }
+
+    public boolean isResumable() {
+        return this != DONE;
+    }
+}
@@ -0,0 +1,21 @@
+package com.aigreentick.services.template.enums;
+
+// Timed steps of the broadcast pipeline; the value is the metric tag
+public enum BroadcastStage {
+    BLACKLIST_FILTER("blacklist_filter"),
+    REPORT_CREATION("report_creation"),
+    CONTACT_LINKING("contact_linking"),
+    TEMPLATE_BUILD("template_build"),
+    SERIALIZATION("serialization"),
+    PAYLOAD_BUILD("payload_build");
+
+    private final String value;
+
+    BroadcastStage(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
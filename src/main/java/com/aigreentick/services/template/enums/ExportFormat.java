@@ -0,0 +1,42 @@
+package com.aigreentick.services.template.enums;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Output format of streamed exports.
+ */
+public enum ExportFormat {
+    CSV("csv", "text/csv"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String value;
+    private final String contentType;
+
+    ExportFormat(String value, String contentType) {
+        this.value = value;
+        this.contentType = contentType;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    @JsonCreator
+    public static ExportFormat fromValue(String input) {
+        if (input == null) {
+            return CSV;
+        }
+        for (ExportFormat format : ExportFormat.values()) {
+            if (format.value.equalsIgnoreCase(input)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + input);
+    }
+}
@@ -0,0 +1,68 @@
+package com.aigreentick.services.template.enums;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Delivery status of a report, as counted in broadcast_status_counts.
+ *
+ * pending -> sent -> delivered -> read, or failed at any point.
+ */
+public enum ReportStatus {
+    PENDING("pending"),
+    SENT("sent"),
+    DELIVERED("delivered"),
+    READ("read"),
+    FAILED("failed");
+
+    private final String value;
+
+    ReportStatus(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static ReportStatus fromValue(String input) {
+        ReportStatus status = of(input);
+        if (status == null) {
+            throw new IllegalArgumentException("Unknown report status: " + input);
+        }
+        return status;
+    }
+
+    /**
+     * Lenient lookup for statuses read from the reports table.
+     *
+     * @return the status, or null if the value is not a counted status
+     */
+    public static ReportStatus of(String input) {
+        if (input == null) {
+            return null;
+        }
+        if ("error".equalsIgnoreCase(input)) {
+            return FAILED;
+        }
+        for (ReportStatus status : ReportStatus.values()) {
+            if (status.value.equalsIgnoreCase(input)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Statuses only move forward; read and failed are final. A late or
+     * duplicate receipt must not move a report backwards.
+     */
+    public boolean canMoveTo(ReportStatus next) {
+        if (next == null || this == READ || this == FAILED) {
+            return false;
+        }
+        return next.ordinal() > ordinal();
+    }
+}
@@ -0,0 +1,14 @@
+package com.aigreentick.services.template.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A submission with the same idempotency key is still being processed.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DuplicateBroadcastException extends RuntimeException {
+    public DuplicateBroadcastException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,60 @@
+package com.aigreentick.services.template.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one phase of a broadcast (blacklist filter, reports,
+ * payload build, dispatch). The event duration is the phase duration.
+ *
+ * Usage: begin(...) when the phase starts, commit() when it ends. When the
+ * event is disabled in the recording settings both calls are no-ops.
+ */
+@Name("com.aigreentick.BroadcastPhase")
+@Label("Broadcast Phase")
+@Category({ "AiGreenTick", "Broadcast" })
+@Description("One phase of a broadcast pipeline run")
+@StackTrace(false)
+public class BroadcastPhaseEvent extends Event {
+
+    public static final String BLACKLIST_FILTER = "blacklist_filter";
+    public static final String CREATE_REPORTS = "create_reports";
+    public static final String BUILD = "build";
+    public static final String DISPATCH = "dispatch";
+
+    @Label("Broadcast Id")
+    long broadcastId;
+
+    @Label("User Id")
+    long userId;
+
+    @Label("Broadcast Type")
+    String broadcastType;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Recipients")
+    int recipients;
+
+    /**
+     * @param broadcastId broadcast, or null when not created yet
+     */
+    public static BroadcastPhaseEvent begin(String phase, String broadcastType, Long broadcastId, Long userId,
+            int recipients) {
+        BroadcastPhaseEvent event = new BroadcastPhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase;
+            event.broadcastType = broadcastType;
+            event.broadcastId = broadcastId != null ? broadcastId : 0;
+            event.userId = userId != null ? userId : 0;
+            event.recipients = recipients;
+            event.begin();
+        }
+        return event;
+    }
+}
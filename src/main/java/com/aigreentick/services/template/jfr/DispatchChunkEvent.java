@@ -0,0 +1,62 @@
+package com.aigreentick.services.template.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one messaging-service dispatch call. The event duration is
+ * the HTTP latency of the call, rate limiter wait excluded.
+ */
+@Name("com.aigreentick.DispatchChunk")
+@Label("Dispatch Chunk")
+@Category({ "AiGreenTick", "Broadcast" })
+@Description("One chunk sent to the messaging service")
+@StackTrace(false)
+public class DispatchChunkEvent extends Event {
+
+    @Label("Broadcast Id")
+    long broadcastId;
+
+    @Label("Phone Number Id")
+    String phoneNumberId;
+
+    @Label("Chunk Number")
+    int chunkNumber;
+
+    @Label("Chunk Size")
+    int chunkSize;
+
+    @Label("HTTP Status")
+    int statusCode;
+
+    @Label("Outcome")
+    String outcome;
+
+    public static DispatchChunkEvent begin(Long broadcastId, String phoneNumberId, int chunkNumber, int chunkSize) {
+        DispatchChunkEvent event = new DispatchChunkEvent();
+        if (event.isEnabled()) {
+            event.broadcastId = broadcastId != null ? broadcastId : 0;
+            event.phoneNumberId = phoneNumberId;
+            event.chunkNumber = chunkNumber;
+            event.chunkSize = chunkSize;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Ends the event with the call's result and commits it.
+     */
+    public void complete(int statusCode, String outcome) {
+        end();
+        if (shouldCommit()) {
+            this.statusCode = statusCode;
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
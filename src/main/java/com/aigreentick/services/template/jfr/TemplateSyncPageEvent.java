@@ -0,0 +1,58 @@
+package com.aigreentick.services.template.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one page of templates fetched from the Graph API. The event
+ * duration is the HTTP latency of the call.
+ */
+@Name("com.aigreentick.TemplateSyncPage")
+@Label("Template Sync Page")
+@Category({ "AiGreenTick", "WhatsApp" })
+@Description("One page of message templates fetched from the Graph API")
+@StackTrace(false)
+public class TemplateSyncPageEvent extends Event {
+
+    @Label("WABA Id")
+    String wabaId;
+
+    @Label("Status Filter")
+    String statusFilter;
+
+    @Label("Templates")
+    int templates;
+
+    @Label("Has Next Page")
+    boolean hasNext;
+
+    @Label("HTTP Status")
+    int statusCode;
+
+    public static TemplateSyncPageEvent begin(String wabaId, String statusFilter) {
+        TemplateSyncPageEvent event = new TemplateSyncPageEvent();
+        if (event.isEnabled()) {
+            event.wabaId = wabaId;
+            event.statusFilter = statusFilter;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Ends the event with the page's result and commits it.
+     */
+    public void complete(int statusCode, int templates, boolean hasNext) {
+        end();
+        if (shouldCommit()) {
+            this.statusCode = statusCode;
+            this.templates = templates;
+            this.hasNext = hasNext;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.aigreentick.services.template.model.broadcast;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A broadcast submission's idempotency key.
+ *
+ * Claimed (broadcastId null) before the submission is processed and bound to
+ * the broadcast in the transaction that charges the wallet. Until expiresAt,
+ * a submission with the same key gets the bound broadcast back instead of a
+ * new one.
+ */
+@Data
+@Entity
+@Table(name = "broadcast_idempotency_keys")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * SHA-256 of the client's key, or of the request when it sent none
+     */
+    @Column(name = "key_hash", nullable = false, columnDefinition = "BINARY(32)")
+    private byte[] keyHash;
+
+    /**
+     * Identifies the submission holding the claim
+     */
+    @Column(name = "claim_token", nullable = false, length = 36)
+    private String claimToken;
+
+    @Column(name = "broadcast_id")
+    private Long broadcastId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
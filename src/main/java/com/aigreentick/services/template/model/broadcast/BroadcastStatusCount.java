@@ -0,0 +1,46 @@
+package com.aigreentick.services.template.model.broadcast;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-broadcast report counters, one row per broadcast.
+ *
+ * Maintained incrementally from report inserts and status changes, so
+ * delivery stats never have to scan the reports table.
+ */
+@Data
+@Entity
+@Table(name = "broadcast_status_counts")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastStatusCount {
+
+    @Id
+    @Column(name = "broadcast_id")
+    private Long broadcastId;
+
+    @Column(name = "pending", nullable = false)
+    private long pending;
+
+    @Column(name = "sent", nullable = false)
+    private long sent;
+
+    @Column(name = "delivered", nullable = false)
+    private long delivered;
+
+    @Column(name = "read_count", nullable = false)
+    private long read;
+
+    @Column(name = "failed", nullable = false)
+    private long failed;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
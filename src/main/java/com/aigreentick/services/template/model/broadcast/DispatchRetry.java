@@ -0,0 +1,81 @@
+package com.aigreentick.services.template.model.broadcast;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A built message whose dispatch chunk failed, waiting to be re-sent.
+ *
+ * The payload is stored as built, so a retry does not need the template or
+ * the original request. The access token is not stored; it is looked up by
+ * phoneNumberId when the retry is sent.
+ *
+ * status: pending -> in_flight -> (deleted when dispatched) | pending | exhausted
+ */
+@Data
+@Entity
+@Table(name = "dispatch_retries")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchRetry {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_IN_FLIGHT = "in_flight";
+    public static final String STATUS_EXHAUSTED = "exhausted";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "broadcast_id", nullable = false)
+    private Long broadcastId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "phone_number_id", nullable = false, length = 64)
+    private String phoneNumberId;
+
+    @Column(name = "mobile", nullable = false, length = 20)
+    private String mobile;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    /**
+     * Price charged per message, used to refund when the retry gives up
+     */
+    @Column(name = "unit_price", precision = 12, scale = 4)
+    private BigDecimal unitPrice;
+
+    /**
+     * Dispatch attempts made so far, the original one included
+     */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,8 +1,10 @@
 package com.aigreentick.services.template.repository.account;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -73,4 +75,39 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT u.marketMsgCharge FROM User u WHERE u.id = :userId")
     Double findMarketingChargeByUserId(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Atomically deducts amount if the balance covers it.
+     * Returns 0 (and changes nothing) when the balance is insufficient.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance - :amount, " +
+           "u.debit = COALESCE(u.debit, 0) + :amount, u.updatedAt = :updatedAt " +
+           "WHERE u.id = :userId AND u.balance >= :amount AND u.deletedAt IS NULL")
+    int deductBalanceIfSufficient(
+            @Param("userId") Long userId,
+            @Param("amount") Double amount,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically adds a top-up amount to balance and credit
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance + :amount, " +
+           "u.credit = u.credit + :amount, u.updatedAt = :updatedAt WHERE u.id = :userId")
+    int creditBalance(
+            @Param("userId") Long userId,
+            @Param("amount") Double amount,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Atomically returns a previously deducted amount (reverses the debit)
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance + :amount, " +
+           "u.debit = COALESCE(u.debit, 0) - :amount, u.updatedAt = :updatedAt WHERE u.id = :userId")
+    int refundBalance(
+            @Param("userId") Long userId,
+            @Param("amount") Double amount,
+            @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,101 @@
+package com.aigreentick.services.template.repository.broadcast;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.aigreentick.services.template.model.broadcast.BroadcastIdempotencyKey;
+
+@Repository
+public interface BroadcastIdempotencyKeyRepository extends JpaRepository<BroadcastIdempotencyKey, Long> {
+
+    Optional<BroadcastIdempotencyKey> findByUserIdAndKeyHash(Long userId, byte[] keyHash);
+
+    /**
+     * Claims a key; 0 if the user already holds it
+     */
+    @Modifying
+    @Query(value = """
+                INSERT IGNORE INTO broadcast_idempotency_keys
+                    (user_id, key_hash, claim_token, broadcast_id, created_at, expires_at)
+                VALUES (:userId, :keyHash, :claimToken, NULL, :now, :expiresAt)
+            """, nativeQuery = true)
+    int claim(
+            @Param("userId") Long userId,
+            @Param("keyHash") byte[] keyHash,
+            @Param("claimToken") String claimToken,
+            @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Removes the key if it expired, so it can be claimed again
+     */
+    @Modifying
+    @Query(value = """
+                DELETE FROM broadcast_idempotency_keys
+                WHERE user_id = :userId AND key_hash = :keyHash AND expires_at <= :now
+            """, nativeQuery = true)
+    int deleteIfExpired(
+            @Param("userId") Long userId,
+            @Param("keyHash") byte[] keyHash,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Takes over a claim whose submission never bound a broadcast (its
+     * instance died or it is stuck)
+     */
+    @Modifying
+    @Query(value = """
+                UPDATE broadcast_idempotency_keys
+                SET claim_token = :claimToken, created_at = :now, expires_at = :expiresAt
+                WHERE user_id = :userId AND key_hash = :keyHash
+                  AND broadcast_id IS NULL AND created_at < :staleBefore
+            """, nativeQuery = true)
+    int takeOverStale(
+            @Param("userId") Long userId,
+            @Param("keyHash") byte[] keyHash,
+            @Param("claimToken") String claimToken,
+            @Param("staleBefore") LocalDateTime staleBefore,
+            @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query(value = """
+                UPDATE broadcast_idempotency_keys
+                SET broadcast_id = :broadcastId
+                WHERE user_id = :userId AND key_hash = :keyHash AND broadcast_id IS NULL
+                  AND claim_token = :claimToken
+            """, nativeQuery = true)
+    int bind(
+            @Param("userId") Long userId,
+            @Param("keyHash") byte[] keyHash,
+            @Param("claimToken") String claimToken,
+            @Param("broadcastId") Long broadcastId);
+
+    /**
+     * Drops a claim whose submission failed before creating a broadcast
+     */
+    @Modifying
+    @Query(value = """
+                DELETE FROM broadcast_idempotency_keys
+                WHERE user_id = :userId AND key_hash = :keyHash AND broadcast_id IS NULL
+                  AND claim_token = :claimToken
+            """, nativeQuery = true)
+    int release(
+            @Param("userId") Long userId,
+            @Param("keyHash") byte[] keyHash,
+            @Param("claimToken") String claimToken);
+
+    @Modifying
+    @Query(value = """
+                DELETE FROM broadcast_idempotency_keys
+                WHERE expires_at <= :now
+                LIMIT :limit
+            """, nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
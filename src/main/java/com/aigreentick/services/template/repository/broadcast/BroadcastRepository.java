@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -39,4 +40,98 @@ public interface BroadcastRepository extends JpaRepository<Broadcast, Long> {
             @Param("startWindow") LocalDateTime startWindow,
             @Param("endWindow") LocalDateTime endWindow,
             @Param("status") String status);
+
+    /**
+     * Records the broadcast's execution phase in data.phase without loading
+     * (and rewriting) the numbers / requests LOBs. data.owner names the
+     * instance that wrote it.
+     */
+    @Modifying
+    @Query(value = """
+                UPDATE broadcasts
+                SET data = JSON_SET(COALESCE(data, JSON_OBJECT()), '$.phase', :phase, '$.owner', :owner),
+                    updated_at = :updatedAt
+                WHERE id = :id
+            """, nativeQuery = true)
+    int updatePhase(
+            @Param("id") Long id,
+            @Param("phase") String phase,
+            @Param("owner") String owner,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Records the live progress counters in data.progress, the same way as
+     * updatePhase. Also serves as a heartbeat: updated_at keeps moving while
+     * the broadcast dispatches.
+     */
+    @Modifying
+    @Query(value = """
+                UPDATE broadcasts
+                SET data = JSON_SET(COALESCE(data, JSON_OBJECT()), '$.progress',
+                        JSON_OBJECT('built', :built, 'dispatched', :dispatched, 'failed', :failed),
+                        '$.owner', :owner),
+                    updated_at = :updatedAt
+                WHERE id = :id
+            """, nativeQuery = true)
+    int updateProgress(
+            @Param("id") Long id,
+            @Param("owner") String owner,
+            @Param("built") int built,
+            @Param("dispatched") int dispatched,
+            @Param("failed") int failed,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Processing broadcasts stopped in one of the given phases that have not
+     * advanced since staleBefore - candidates for crash recovery.
+     */
+    @Query(value = """
+                SELECT * FROM broadcasts
+                WHERE status = '2'
+                AND deleted_at IS NULL
+                AND updated_at < :staleBefore
+                AND JSON_UNQUOTE(JSON_EXTRACT(data, '$.phase')) IN (:phases)
+                ORDER BY id ASC
+            """, nativeQuery = true)
+    List<Broadcast> findInterruptedBroadcasts(
+            @Param("phases") List<String> phases,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Processing broadcasts in one of the given phases last written by the
+     * given instance before startedAt, i.e. by its previous run. Nobody else
+     * can be running them, so no staleness is required.
+     */
+    @Query(value = """
+                SELECT * FROM broadcasts
+                WHERE status = '2'
+                AND deleted_at IS NULL
+                AND updated_at < :startedAt
+                AND JSON_UNQUOTE(JSON_EXTRACT(data, '$.owner')) = :owner
+                AND JSON_UNQUOTE(JSON_EXTRACT(data, '$.phase')) IN (:phases)
+                ORDER BY id ASC
+            """, nativeQuery = true)
+    List<Broadcast> findOrphanedBroadcasts(
+            @Param("phases") List<String> phases,
+            @Param("owner") String owner,
+            @Param("startedAt") LocalDateTime startedAt);
+
+    /**
+     * Claims a broadcast for recovery. Succeeds (returns 1) only for the
+     * instance that still sees the updated_at it read, so two instances never
+     * resume the same broadcast. The claimer becomes data.owner.
+     */
+    @Modifying
+    @Query(value = """
+                UPDATE broadcasts
+                SET data = JSON_SET(COALESCE(data, JSON_OBJECT()), '$.owner', :owner),
+                    updated_at = :now
+                WHERE id = :id
+                AND updated_at = :expectedUpdatedAt
+            """, nativeQuery = true)
+    int claimForRecovery(
+            @Param("id") Long id,
+            @Param("owner") String owner,
+            @Param("expectedUpdatedAt") LocalDateTime expectedUpdatedAt,
+            @Param("now") LocalDateTime now);
 }
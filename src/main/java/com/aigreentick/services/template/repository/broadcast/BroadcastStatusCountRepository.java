@@ -0,0 +1,40 @@
+package com.aigreentick.services.template.repository.broadcast;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.aigreentick.services.template.model.broadcast.BroadcastStatusCount;
+
+@Repository
+public interface BroadcastStatusCountRepository extends JpaRepository<BroadcastStatusCount, Long> {
+
+    /**
+     * Adds deltas to a broadcast's counters, creating the row on first use
+     */
+    @Modifying
+    @Query(value = """
+                INSERT INTO broadcast_status_counts
+                    (broadcast_id, pending, sent, delivered, read_count, failed, updated_at)
+                VALUES (:broadcastId, :pending, :sent, :delivered, :read, :failed, :updatedAt)
+                ON DUPLICATE KEY UPDATE
+                    pending = pending + VALUES(pending),
+                    sent = sent + VALUES(sent),
+                    delivered = delivered + VALUES(delivered),
+                    read_count = read_count + VALUES(read_count),
+                    failed = failed + VALUES(failed),
+                    updated_at = VALUES(updated_at)
+            """, nativeQuery = true)
+    int addDeltas(
+            @Param("broadcastId") Long broadcastId,
+            @Param("pending") long pending,
+            @Param("sent") long sent,
+            @Param("delivered") long delivered,
+            @Param("read") long read,
+            @Param("failed") long failed,
+            @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,96 @@
+package com.aigreentick.services.template.repository.broadcast;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.aigreentick.services.template.model.broadcast.DispatchRetry;
+
+@Repository
+public interface DispatchRetryRepository extends JpaRepository<DispatchRetry, Long> {
+
+    /**
+     * Accounts with at least one retry due
+     */
+    @Query("SELECT DISTINCT d.phoneNumberId FROM DispatchRetry d " +
+           "WHERE d.status = 'pending' AND d.nextAttemptAt <= :now")
+    List<String> findDuePhoneNumberIds(@Param("now") LocalDateTime now);
+
+    /**
+     * Mobiles of a broadcast still waiting for (or in) a retry
+     */
+    @Query("SELECT d.mobile FROM DispatchRetry d WHERE d.broadcastId = :broadcastId " +
+           "AND d.status IN ('pending', 'in_flight')")
+    List<String> findOpenMobilesByBroadcastId(@Param("broadcastId") Long broadcastId);
+
+    /**
+     * Ids of an account's due retries, oldest due first, across broadcasts
+     */
+    @Query("SELECT d.id FROM DispatchRetry d WHERE d.phoneNumberId = :phoneNumberId " +
+           "AND d.status = 'pending' AND d.nextAttemptAt <= :now ORDER BY d.nextAttemptAt, d.id")
+    List<Long> findDueIds(
+            @Param("phoneNumberId") String phoneNumberId,
+            @Param("now") LocalDateTime now,
+            Pageable limit);
+
+    /**
+     * Claims due retries for this instance. Rows claimed by another instance
+     * in the meantime are skipped.
+     */
+    @Modifying
+    @Query("UPDATE DispatchRetry d SET d.status = 'in_flight', d.claimToken = :claimToken, d.updatedAt = :now " +
+           "WHERE d.id IN :ids AND d.status = 'pending'")
+    int claim(
+            @Param("ids") Collection<Long> ids,
+            @Param("claimToken") String claimToken,
+            @Param("now") LocalDateTime now);
+
+    List<DispatchRetry> findByClaimToken(String claimToken);
+
+    /**
+     * Records a failed attempt and schedules the next one
+     */
+    @Modifying
+    @Query("UPDATE DispatchRetry d SET d.status = 'pending', d.attempts = d.attempts + 1, " +
+           "d.nextAttemptAt = :nextAttemptAt, d.lastError = :error, d.claimToken = NULL, d.updatedAt = :now " +
+           "WHERE d.id IN :ids")
+    int reschedule(
+            @Param("ids") Collection<Long> ids,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Records the last failed attempt; the rows are kept for inspection
+     */
+    @Modifying
+    @Query("UPDATE DispatchRetry d SET d.status = 'exhausted', d.attempts = d.attempts + 1, " +
+           "d.lastError = :error, d.claimToken = NULL, d.updatedAt = :now WHERE d.id IN :ids")
+    int markExhausted(
+            @Param("ids") Collection<Long> ids,
+            @Param("error") String error,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Returns claimed rows to the queue without counting an attempt
+     */
+    @Modifying
+    @Query("UPDATE DispatchRetry d SET d.status = 'pending', d.claimToken = NULL, d.updatedAt = :now " +
+           "WHERE d.id IN :ids AND d.status = 'in_flight'")
+    int unclaim(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Re-queues rows left in flight by an instance that died mid-send
+     */
+    @Modifying
+    @Query("UPDATE DispatchRetry d SET d.status = 'pending', d.claimToken = NULL, d.updatedAt = :now " +
+           "WHERE d.status = 'in_flight' AND d.updatedAt < :staleBefore")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+}
@@ -1,12 +1,14 @@
 package com.aigreentick.services.template.repository.broadcast;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,6 +28,32 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
      */
     Page<Report> findByBroadcastIdAndDeletedAtIsNull(Long broadcastId, Pageable pageable);
 
+    /**
+     * Keyset page of a broadcast's reports, newest first, strictly after the
+     * (createdAt, id) cursor. The Pageable only carries the limit (page 0).
+     */
+    @Query("SELECT r FROM Report r WHERE r.broadcastId = :broadcastId AND r.deletedAt IS NULL " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Report> findByBroadcastIdAfter(
+            @Param("broadcastId") Long broadcastId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
+
+    /**
+     * Keyset page of a user's reports, newest first, strictly after the
+     * (createdAt, id) cursor
+     */
+    @Query("SELECT r FROM Report r WHERE r.userId = :userId AND r.deletedAt IS NULL " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Report> findByUserIdAfter(
+            @Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
+
     /**
      * Find reports by user ID
      */
@@ -80,4 +108,54 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     @Query("SELECT r FROM Report r WHERE r.broadcastId = :broadcastId " +
            "AND r.status IN ('failed', 'error') AND r.deletedAt IS NULL")
     List<Report> findFailedReportsByBroadcastId(@Param("broadcastId") Long broadcastId);
-}
\ No newline at end of file
+
+    /**
+     * (mobile, id) pairs of a broadcast's reports
+     */
+    @Query("SELECT r.mobile, r.id FROM Report r WHERE r.broadcastId = :broadcastId AND r.deletedAt IS NULL")
+    List<Object[]> findMobileAndIdByBroadcastId(@Param("broadcastId") Long broadcastId);
+
+    /**
+     * Mobiles of a broadcast that have not been handed to WhatsApp yet
+     * (still pending and no message id assigned)
+     */
+    @Query("SELECT r.mobile FROM Report r WHERE r.broadcastId = :broadcastId " +
+           "AND r.status = 'pending' AND r.messageId IS NULL AND r.deletedAt IS NULL")
+    List<String> findUndispatchedMobilesByBroadcastId(@Param("broadcastId") Long broadcastId);
+
+    /**
+     * (messageId, broadcastId, status) of the user's reports with the given
+     * message ids
+     */
+    @Query("SELECT r.messageId, r.broadcastId, r.status FROM Report r " +
+           "WHERE r.messageId IN :messageIds AND r.userId = :userId AND r.deletedAt IS NULL")
+    List<Object[]> findStatusByMessageIds(@Param("messageIds") Collection<String> messageIds,
+                                          @Param("userId") Long userId);
+
+    /**
+     * Moves the given reports from oldStatus to newStatus in one statement.
+     * Reports whose status changed in the meantime are left untouched, so
+     * the returned count is exactly the number of transitions applied.
+     */
+    @Modifying
+    @Query("UPDATE Report r SET r.status = :newStatus, r.messageStatus = :newStatus, r.updatedAt = :updatedAt " +
+           "WHERE r.messageId IN :messageIds AND r.status = :oldStatus AND r.deletedAt IS NULL")
+    int updateStatusByMessageIds(
+            @Param("messageIds") Collection<String> messageIds,
+            @Param("oldStatus") String oldStatus,
+            @Param("newStatus") String newStatus,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Marks reports of a broadcast that were never handed to WhatsApp as
+     * failed (their dispatch was given up)
+     */
+    @Modifying
+    @Query("UPDATE Report r SET r.status = 'failed', r.messageStatus = 'failed', r.updatedAt = :updatedAt " +
+           "WHERE r.broadcastId = :broadcastId AND r.mobile IN :mobiles " +
+           "AND r.status = 'pending' AND r.messageId IS NULL AND r.deletedAt IS NULL")
+    int markUndispatchedAsFailed(
+            @Param("broadcastId") Long broadcastId,
+            @Param("mobiles") Collection<String> mobiles,
+            @Param("updatedAt") LocalDateTime updatedAt);
+}
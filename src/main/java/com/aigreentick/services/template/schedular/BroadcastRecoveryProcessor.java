@@ -0,0 +1,263 @@
+package com.aigreentick.services.template.schedular;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.aigreentick.services.template.enums.BroadcastPhase;
+import com.aigreentick.services.template.enums.BroadcastType;
+import com.aigreentick.services.template.model.broadcast.Broadcast;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastJobServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchJournalServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchRetryServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.ReportServiceImpl;
+import com.aigreentick.services.template.service.impl.common.WalletReservationServiceImpl;
+import com.aigreentick.services.template.service.impl.template.broadcast.SendTemplateByCSVOrchestratorServiceImpl;
+import com.aigreentick.services.template.service.impl.template.broadcast.SendTemplateByNormalOrchestratorServiceImpl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resumes broadcasts interrupted by a crash or restart.
+ *
+ * On startup, processing broadcasts whose persisted phase is not DONE are
+ * claimed (one instance per broadcast) and handed back to their
+ * orchestrator, which continues from the last committed phase:
+ * - broadcasts this instance was dispatching left a dispatch journal behind
+ *   and are replayed from it;
+ * - the other broadcasts its previous run last wrote (data.owner) are
+ *   resumed at once, however fresh their updated_at, since no other instance
+ *   can be running them;
+ * - anything else must not have advanced for broadcast.recovery.stale-minutes.
+ *
+ * The stale pass is repeated every broadcast.recovery.interval, so
+ * broadcasts of an instance that died and never came back are picked up by
+ * the survivors. Running jobs rewrite updated_at periodically, which keeps
+ * live broadcasts out of it.
+ *
+ * A broadcast that cannot be resumed is failed: its still-undispatched
+ * reports are marked failed and those messages refunded.
+ */
+@Component
+@Slf4j
+public class BroadcastRecoveryProcessor {
+
+    private final BroadcastServiceImpl broadcastServiceImpl;
+    private final ScheduledBroadcastExecutor scheduledBroadcastExecutor;
+    private final SendTemplateByCSVOrchestratorServiceImpl csvOrchestrator;
+    private final SendTemplateByNormalOrchestratorServiceImpl normalOrchestrator;
+    private final DispatchJournalServiceImpl dispatchJournal;
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final ReportServiceImpl reportService;
+    private final DispatchRetryServiceImpl dispatchRetryService;
+    private final WalletReservationServiceImpl walletReservationService;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    @Value("${broadcast.recovery.enabled:true}")
+    private boolean enabled;
+
+    @Value("${broadcast.recovery.stale-minutes:5}")
+    private int staleMinutes;
+
+    @Value("${broadcast.recovery.interval:1m}")
+    private Duration interval;
+
+    private ScheduledFuture<?> recoveryTask;
+
+    public BroadcastRecoveryProcessor(
+            BroadcastServiceImpl broadcastServiceImpl,
+            ScheduledBroadcastExecutor scheduledBroadcastExecutor,
+            SendTemplateByCSVOrchestratorServiceImpl csvOrchestrator,
+            SendTemplateByNormalOrchestratorServiceImpl normalOrchestrator,
+            DispatchJournalServiceImpl dispatchJournal,
+            BroadcastJobServiceImpl broadcastJobService,
+            ReportServiceImpl reportService,
+            DispatchRetryServiceImpl dispatchRetryService,
+            WalletReservationServiceImpl walletReservationService,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.broadcastServiceImpl = broadcastServiceImpl;
+        this.scheduledBroadcastExecutor = scheduledBroadcastExecutor;
+        this.csvOrchestrator = csvOrchestrator;
+        this.normalOrchestrator = normalOrchestrator;
+        this.dispatchJournal = dispatchJournal;
+        this.broadcastJobService = broadcastJobService;
+        this.reportService = reportService;
+        this.dispatchRetryService = dispatchRetryService;
+        this.walletReservationService = walletReservationService;
+        this.scheduler = scheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedBroadcasts() {
+        if (!enabled) {
+            return;
+        }
+
+        Set<Long> handled = resumeJournaledBroadcasts();
+        recover("orphaned", broadcastServiceImpl::getOrphanedBroadcasts, handled);
+        recover("interrupted", () -> broadcastServiceImpl.getInterruptedBroadcasts(staleMinutes), handled);
+
+        recoveryTask = scheduler.scheduleWithFixedDelay(this::recoverStaleBroadcasts,
+                Instant.now().plus(interval), interval);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recoveryTask != null) {
+            recoveryTask.cancel(false);
+        }
+    }
+
+    /**
+     * Periodic pass over broadcasts that stopped advancing, whichever
+     * instance ran them.
+     */
+    void recoverStaleBroadcasts() {
+        recover("stale", () -> broadcastServiceImpl.getInterruptedBroadcasts(staleMinutes), new HashSet<>());
+    }
+
+    /**
+     * Claims and resumes the broadcasts found by the lookup, skipping the
+     * ones already handled and the ones this instance is still running.
+     * Handled ids are added to the set.
+     */
+    private void recover(String kind, Supplier<List<Broadcast>> lookup, Set<Long> handled) {
+        List<Broadcast> interrupted;
+        try {
+            interrupted = lookup.get().stream()
+                    .filter(broadcast -> !handled.contains(broadcast.getId()))
+                    .filter(broadcast -> !broadcastJobService.isRunning(broadcast.getId()))
+                    .toList();
+        } catch (Exception e) {
+            log.error("Could not look up {} broadcasts", kind, e);
+            return;
+        }
+
+        if (interrupted.isEmpty()) {
+            return;
+        }
+        log.info("Found {} {} broadcasts to recover", interrupted.size(), kind);
+
+        int resumed = 0;
+        for (Broadcast broadcast : interrupted) {
+            handled.add(broadcast.getId());
+            if (!broadcastServiceImpl.claimForRecovery(broadcast)) {
+                log.info("Broadcast {} already claimed by another instance", broadcast.getId());
+                continue;
+            }
+            try {
+                if (resume(broadcast)) {
+                    resumed++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to resume broadcast: {}", broadcast.getId(), e);
+                failInterruptedBroadcast(broadcast, "Recovery failed: " + e.getMessage());
+            }
+        }
+
+        log.info("Resumed {} of {} {} broadcasts", resumed, interrupted.size(), kind);
+    }
+
+    /**
+     * Resumes the broadcasts with a local dispatch journal.
+     *
+     * @return ids of the broadcasts handled here
+     */
+    private Set<Long> resumeJournaledBroadcasts() {
+        Set<Long> handled = new HashSet<>();
+        for (Long broadcastId : dispatchJournal.getJournaledBroadcastIds()) {
+            handled.add(broadcastId);
+            try {
+                Broadcast broadcast = broadcastServiceImpl.getBroadcastById(broadcastId);
+                BroadcastPhase phase = BroadcastPhase.fromValue(String.valueOf(broadcast.getData().get("phase")));
+                if (!"2".equals(broadcast.getStatus()) || phase != BroadcastPhase.DISPATCHING) {
+                    log.info("Discarding dispatch journal of broadcast {} (status {}, phase {})",
+                            broadcastId, broadcast.getStatus(), phase);
+                    dispatchJournal.discard(broadcastId);
+                    continue;
+                }
+                if (!broadcastServiceImpl.claimForRecovery(broadcast)) {
+                    log.info("Journaled broadcast {} already claimed by another instance", broadcastId);
+                    continue;
+                }
+                log.info("Resuming journaled broadcast {}", broadcastId);
+                if (!resume(broadcast)) {
+                    dispatchJournal.discard(broadcastId);
+                }
+            } catch (Exception e) {
+                log.error("Failed to resume journaled broadcast: {}", broadcastId, e);
+            }
+        }
+        return handled;
+    }
+
+    private boolean resume(Broadcast broadcast) {
+        BroadcastPhase phase = BroadcastPhase.fromValue(String.valueOf(broadcast.getData().get("phase")));
+
+        // Streamed uploads are spooled only for the lifetime of their job,
+        // there is nothing to resume from; what was not sent is refunded
+        if ("CSV_FILE".equals(broadcast.getData().get("source"))) {
+            log.warn("Streamed CSV broadcast {} interrupted in phase {} cannot be resumed",
+                    broadcast.getId(), phase);
+            failInterruptedBroadcast(broadcast,
+                    "Interrupted in phase " + phase + "; streamed upload is not retained");
+            return false;
+        }
+
+        if (BroadcastType.CSV.equals(broadcast.getBroadcastType())) {
+            csvOrchestrator.resumeBroadcast(broadcast,
+                    scheduledBroadcastExecutor.reconstructCsvRequest(broadcast), phase);
+        } else {
+            normalOrchestrator.resumeBroadcast(broadcast,
+                    scheduledBroadcastExecutor.reconstructNormalRequest(broadcast), phase);
+        }
+        return true;
+    }
+
+    /**
+     * Gives up on a charged broadcast: reports not handed to WhatsApp are
+     * marked failed and refunded together with the messages that never got a
+     * report. Messages parked for retry are left to the retry poller, which
+     * settles them itself.
+     */
+    private void failInterruptedBroadcast(Broadcast broadcast, String error) {
+        Long broadcastId = broadcast.getId();
+        try {
+            Set<String> retrying = new HashSet<>(dispatchRetryService.getOpenRetryMobiles(broadcastId));
+            List<String> undispatched = reportService.getUndispatchedMobiles(broadcastId).stream()
+                    .filter(mobile -> !retrying.contains(mobile))
+                    .toList();
+            int failed = undispatched.isEmpty() ? 0
+                    : reportService.markUndispatchedAsFailed(broadcastId, undispatched);
+            long withoutReport = Math.max(0, broadcast.getTotal() - reportService.countByBroadcastId(broadcastId));
+            int unsent = failed + (int) withoutReport;
+
+            Object price = broadcast.getData().get("price_per_message");
+            if (unsent > 0 && price == null) {
+                log.error("Cannot refund {} unsent messages of broadcastId: {} - no price recorded",
+                        unsent, broadcastId);
+            } else if (unsent > 0) {
+                BigDecimal refunded = walletReservationService.refundUnreserved(broadcast.getUserId(),
+                        broadcastId, new BigDecimal(price.toString()), unsent);
+                log.warn("Refunded {} for {} unsent messages of broadcastId: {}", refunded, unsent, broadcastId);
+            }
+        } catch (Exception e) {
+            log.error("Failed to refund unsent messages of broadcastId: {}", broadcastId, e);
+        }
+        scheduledBroadcastExecutor.markBroadcastAsFailed(broadcast, error);
+    }
+}
@@ -0,0 +1,262 @@
+package com.aigreentick.services.template.schedular;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the monthly RANGE partitions of reports (see db/reports_partitioning.sql).
+ *
+ * Each run:
+ * - splits pmax so partitions exist report.partitioning.months-ahead months
+ *   in advance (pmax is empty, so the reorganize is instant)
+ * - archives partitions that ended more than hot-months ago: the partition
+ *   is swapped into its own table reports_archive_<partition> with
+ *   EXCHANGE PARTITION (metadata only), that table is rebuilt compressed, and
+ *   the now-empty partition is dropped
+ *
+ * Every step is idempotent, so a run interrupted half way is completed by the
+ * next one. A MySQL named lock keeps instances from running concurrently.
+ * Archived rows are no longer visible to the reports queries; broadcast stats
+ * are unaffected since they come from broadcast_status_counts.
+ */
+@Component
+@Slf4j
+public class ReportPartitionMaintenanceProcessor {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+    private static final String TABLE = "reports";
+    private static final String ARCHIVE_PREFIX = "reports_archive_";
+    private static final String MAX_PARTITION = "pmax";
+    private static final String LOCK_NAME = "reports_partition_maintenance";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    @Value("${report.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${report.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${report.partitioning.hot-months:6}")
+    private int hotMonths;
+
+    @Value("${report.partitioning.archive-enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${report.partitioning.interval-hours:24}")
+    private long intervalHours;
+
+    public ReportPartitionMaintenanceProcessor(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scheduler = scheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedule() {
+        if (!enabled) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::runMaintenance,
+                Instant.now().plus(Duration.ofMinutes(1)), Duration.ofHours(intervalHours));
+    }
+
+    public void runMaintenance() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!acquireLock(connection)) {
+                    log.info("Report partition maintenance running on another instance, skipping");
+                    return null;
+                }
+                try {
+                    maintain(connection);
+                } finally {
+                    releaseLock(connection);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Report partition maintenance failed", e);
+        }
+    }
+
+    private void maintain(Connection connection) throws SQLException {
+        List<Partition> partitions = loadPartitions(connection);
+        if (partitions.isEmpty()) {
+            log.warn("Table {} is not partitioned, run db/reports_partitioning.sql first", TABLE);
+            return;
+        }
+
+        createFuturePartitions(connection, partitions);
+
+        if (archiveEnabled) {
+            LocalDate archiveBefore = YearMonth.now(IST).minusMonths(hotMonths).atDay(1);
+            for (Partition partition : partitions) {
+                if (partition.upperBound() != null && !partition.upperBound().isAfter(archiveBefore)) {
+                    archive(connection, partition.name());
+                }
+            }
+        }
+    }
+
+    private void createFuturePartitions(Connection connection, List<Partition> partitions) throws SQLException {
+        if (partitions.stream().noneMatch(p -> p.upperBound() == null)) {
+            log.warn("Table {} has no {} partition, cannot add future partitions", TABLE, MAX_PARTITION);
+            return;
+        }
+
+        LocalDate highest = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(bound -> bound != null)
+                .max(LocalDate::compareTo)
+                .orElse(YearMonth.now(IST).atDay(1));
+        LocalDate target = YearMonth.now(IST).plusMonths(monthsAhead + 1L).atDay(1);
+
+        List<String> added = new ArrayList<>();
+        StringBuilder ddl = new StringBuilder();
+        for (LocalDate start = highest; start.isBefore(target); start = start.plusMonths(1)) {
+            String name = start.format(PARTITION_NAME);
+            ddl.append("PARTITION ").append(name)
+                    .append(" VALUES LESS THAN ('").append(start.plusMonths(1)).append("'), ");
+            added.add(name);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+
+        execute(connection, "ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + ddl + "PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+        log.info("Added report partitions: {}", added);
+    }
+
+    private void archive(Connection connection, String partition) throws SQLException {
+        String archiveTable = ARCHIVE_PREFIX + partition;
+
+        if (partitionHasRows(connection, partition)) {
+            if (!tableExists(connection, archiveTable)) {
+                execute(connection, "CREATE TABLE " + archiveTable + " LIKE " + TABLE);
+                execute(connection, "ALTER TABLE " + archiveTable + " REMOVE PARTITIONING");
+            } else if (tableHasRows(connection, archiveTable)) {
+                // Swapping now would move archived rows back into reports
+                log.error("Cannot archive partition {}: {} already holds rows", partition, archiveTable);
+                return;
+            }
+            execute(connection, "ALTER TABLE " + TABLE + " EXCHANGE PARTITION " + partition
+                    + " WITH TABLE " + archiveTable + " WITHOUT VALIDATION");
+        }
+
+        if (tableExists(connection, archiveTable)) {
+            execute(connection, "ALTER TABLE " + archiveTable + " ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8");
+        }
+        execute(connection, "ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+        log.info("Archived report partition {} into {}", partition, archiveTable);
+    }
+
+    private List<Partition> loadPartitions(Connection connection) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        String sql = """
+                SELECT PARTITION_NAME, PARTITION_DESCRIPTION
+                FROM information_schema.PARTITIONS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+                ORDER BY PARTITION_ORDINAL_POSITION
+                """;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(new Partition(rs.getString(1), parseBound(rs.getString(2))));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * RANGE COLUMNS bounds look like '2026-11-01' or '2026-11-01 00:00:00';
+     * MAXVALUE maps to null.
+     */
+    private LocalDate parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(description.replace("'", "").substring(0, 10));
+    }
+
+    private boolean partitionHasRows(Connection connection, String partition) throws SQLException {
+        return hasRows(connection, "SELECT 1 FROM " + TABLE + " PARTITION (" + partition + ") LIMIT 1");
+    }
+
+    private boolean tableHasRows(Connection connection, String table) throws SQLException {
+        return hasRows(connection, "SELECT 1 FROM " + table + " LIMIT 1");
+    }
+
+    private boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private boolean hasRows(Connection connection, String sql) throws SQLException {
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next();
+        }
+    }
+
+    private boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.execute();
+        }
+    }
+
+    private void execute(Connection connection, String ddl) throws SQLException {
+        log.debug("Partition maintenance: {}", ddl);
+        try (Statement st = connection.createStatement()) {
+            st.execute(ddl);
+        }
+    }
+
+    /**
+     * @param upperBound exclusive upper bound, null for MAXVALUE
+     */
+    private record Partition(String name, LocalDate upperBound) {
+    }
+}
@@ -111,7 +111,7 @@ public class ScheduledBroadcastExecutor {
      * - numbers: Comma-separated mobile numbers
      * - templateId, campName, countryId from broadcast fields
      */
-    private SendTemplateByCsvRequestDto reconstructCsvRequest(Broadcast broadcast) {
+    SendTemplateByCsvRequestDto reconstructCsvRequest(Broadcast broadcast) {
         try {
             SendTemplateByCsvRequestDto request;
 
@@ -173,7 +173,7 @@ public class ScheduledBroadcastExecutor {
      * - numbers: Comma-separated mobile numbers (as strings for Normal)
      * - templateId, campName, countryId from broadcast fields
      */
-    private SendTemplateNormalRequestDto reconstructNormalRequest(Broadcast broadcast) {
+    SendTemplateNormalRequestDto reconstructNormalRequest(Broadcast broadcast) {
         try {
             SendTemplateNormalRequestDto request;
 
@@ -236,7 +236,7 @@ public class ScheduledBroadcastExecutor {
         return BroadcastType.NORMAL; // Default fallback
     }
 
-    private void markBroadcastAsFailed(Broadcast broadcast, String errorMessage) {
+    void markBroadcastAsFailed(Broadcast broadcast, String errorMessage) {
         try {
             broadcast.setStatus("0"); // FAILED/CANCELLED
             broadcast.setUpdatedAt(LocalDateTime.now());
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.aigreentick.services.template.enums.MessageCategory;
+import com.aigreentick.services.template.exceptions.InsufficientBalanceException;
 import com.aigreentick.services.template.model.account.User;
 import com.aigreentick.services.template.repository.account.UserRepository;
 
@@ -99,41 +100,40 @@ public class UserServiceImpl {
     }
 
     /**
-     * Deduct amount from user balance
+     * Deduct amount from user balance.
+     * 
+     * Single conditional UPDATE: the balance check and the deduction are one
+     * statement, so concurrent broadcasts of the same user cannot overdraw and
+     * the users row is locked only for the statement's own transaction.
      */
     @Transactional
-    public User deductBalance(Long userId, Double amount) {
+    public void deductBalance(Long userId, Double amount) {
         log.info("Deducting {} from userId: {}", amount, userId);
 
-        User user = getUserById(userId);
-
-        if (!hasSufficientBalance(userId, amount)) {
-            throw new IllegalStateException("Insufficient balance for userId: " + userId);
+        int updated = userRepository.deductBalanceIfSufficient(userId, amount, LocalDateTime.now());
+        if (updated == 0) {
+            throw new InsufficientBalanceException(
+                    String.format("Insufficient balance for userId: %d. Required: %.2f", userId, amount),
+                    402);
         }
-
-        double newBalance = user.getBalance() - amount;
-        user.setBalance(newBalance);
-        user.setDebit(user.getDebit() + amount);
-        user.setUpdatedAt(LocalDateTime.now());
-
-        return userRepository.save(user);
     }
 
     /**
      * Add amount to user balance
      */
     @Transactional
-    public User addBalance(Long userId, Double amount) {
+    public void addBalance(Long userId, Double amount) {
         log.info("Adding {} to userId: {}", amount, userId);
+        userRepository.creditBalance(userId, amount, LocalDateTime.now());
+    }
 
-        User user = getUserById(userId);
-        double newBalance = user.getBalance() + amount;
-
-        user.setBalance(newBalance);
-        user.setCredit(user.getCredit() + amount);
-        user.setUpdatedAt(LocalDateTime.now());
-
-        return userRepository.save(user);
+    /**
+     * Return a previously deducted amount to the user (e.g. undelivered messages)
+     */
+    @Transactional
+    public void refundBalance(Long userId, Double amount) {
+        log.info("Refunding {} to userId: {}", amount, userId);
+        userRepository.refundBalance(userId, amount, LocalDateTime.now());
     }
 
     /**
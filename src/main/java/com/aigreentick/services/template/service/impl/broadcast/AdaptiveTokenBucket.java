@@ -0,0 +1,145 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Token bucket whose refill rate adapts to downstream feedback (AIMD).
+ *
+ * - Tokens refill at rate per second, up to rate x burstSeconds.
+ * - Waiters are served strictly FIFO. A request larger than the bucket is
+ *   granted once the bucket is full and leaves it in debt, so the long-run
+ *   rate is still respected.
+ * - Successful sends raise the rate additively, by increaseStep per second
+ *   of traffic; a throttle signal cuts it multiplicatively, at most once per
+ *   cooldown so a burst of 429s from concurrent chunks counts once.
+ *
+ * All state is guarded by the instance lock; futures are completed by the
+ * caller outside of it.
+ */
+public final class AdaptiveTokenBucket {
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double decreaseFactor;
+    private final double burstSeconds;
+    private final long cooldownNanos;
+
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastDecreaseNanos;
+
+    public AdaptiveTokenBucket(double initialRate, double minRate, double maxRate, double increaseStep,
+            double decreaseFactor, double burstSeconds, long cooldownNanos) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increaseStep = increaseStep;
+        this.decreaseFactor = decreaseFactor;
+        this.burstSeconds = burstSeconds;
+        this.cooldownNanos = cooldownNanos;
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.tokens = capacity();
+        this.lastRefillNanos = System.nanoTime();
+        this.lastDecreaseNanos = lastRefillNanos - cooldownNanos;
+    }
+
+    /**
+     * @return a future completed once permits may be used; already completed
+     *         if tokens are available and nobody is queued
+     */
+    public synchronized CompletableFuture<Void> acquire(int permits) {
+        refill();
+        if (waiters.isEmpty() && tokens >= threshold(permits)) {
+            tokens -= permits;
+            return CompletableFuture.completedFuture(null);
+        }
+        Waiter waiter = new Waiter(permits, new CompletableFuture<>());
+        waiters.addLast(waiter);
+        return waiter.future();
+    }
+
+    /**
+     * Takes the waiters that can be served now, in order. The caller
+     * completes them.
+     */
+    public synchronized List<CompletableFuture<Void>> drainGranted() {
+        if (waiters.isEmpty()) {
+            return List.of();
+        }
+        refill();
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        while (!waiters.isEmpty() && tokens >= threshold(waiters.peekFirst().permits())) {
+            Waiter waiter = waiters.pollFirst();
+            tokens -= waiter.permits();
+            granted.add(waiter.future());
+        }
+        return granted;
+    }
+
+    /**
+     * Takes every waiter, e.g. to fail them on shutdown.
+     */
+    public synchronized List<CompletableFuture<Void>> drainAll() {
+        List<CompletableFuture<Void>> all = waiters.stream().map(Waiter::future).toList();
+        waiters.clear();
+        return all;
+    }
+
+    public synchronized void onSuccess(int permits) {
+        refill();
+        rate = Math.min(maxRate, rate + increaseStep * permits / rate);
+    }
+
+    /**
+     * @return true if the rate was cut, false if still within the cooldown
+     *         of the previous cut
+     */
+    public synchronized boolean onThrottle() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < cooldownNanos) {
+            return false;
+        }
+        refill();
+        lastDecreaseNanos = now;
+        rate = Math.max(minRate, rate * decreaseFactor);
+        // Pause briefly: whatever was saved up was sent too fast
+        tokens = Math.min(tokens, 0);
+        return true;
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized int getQueuedRequests() {
+        return waiters.size();
+    }
+
+    public synchronized boolean hasWaiters() {
+        return !waiters.isEmpty();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity(), tokens + (now - lastRefillNanos) / 1_000_000_000.0 * rate);
+        lastRefillNanos = now;
+    }
+
+    private double capacity() {
+        return Math.max(1, rate * burstSeconds);
+    }
+
+    private double threshold(int permits) {
+        return Math.min(permits, capacity());
+    }
+
+    private record Waiter(int permits, CompletableFuture<Void> future) {
+    }
+}
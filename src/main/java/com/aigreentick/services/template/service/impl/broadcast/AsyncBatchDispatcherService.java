@@ -1,23 +1,32 @@
 package com.aigreentick.services.template.service.impl.broadcast;
 
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import com.aigreentick.services.template.client.adapter.MessagingClientImpl;
+import com.aigreentick.services.template.client.transport.DispatchTransport;
 
 import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
 import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
 import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
 import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
 import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+import com.aigreentick.services.template.jfr.DispatchChunkEvent;
+import com.aigreentick.services.template.service.impl.common.WalletReservationServiceImpl;
+import com.aigreentick.services.template.service.impl.contact.FrequencyCapServiceImpl;
+import com.aigreentick.services.template.util.helper.LogRateLimiter;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.observation.Observation;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -25,17 +34,71 @@ import lombok.extern.slf4j.Slf4j;
  * 
  * Dispatches message chunks concurrently using CompletableFuture.
  * Does not wait for previous chunks to complete before starting next chunk.
+ * Chunks that fail as a whole are handed to DispatchRetryServiceImpl.
+ *
+ * Chunks are paced per phone number by DispatchRateLimiterServiceImpl: each
+ * chunk waits for its tokens before it is sent, and its response adjusts
+ * the rate. They then wait for a dispatch slot of the broadcast's tenant
+ * (BroadcastAdmissionServiceImpl) before going to messageDispatchExecutor.
+ *
+ * Items come either from a list or from a DispatchPayloadBuffer; a chunk's
+ * items are only read from the buffer once the chunk's tokens are granted,
+ * so spilled payloads are loaded chunk by chunk, in order. Buffered
+ * dispatches can be journaled (DispatchJournalServiceImpl) so that a crash
+ * resumes with the unacknowledged chunks; journaled chunks carry a stable
+ * dispatch id the messaging service can deduplicate on.
+ *
+ * Logging is per broadcast: one summary record when all chunks finish.
+ * Per-chunk lines are DEBUG, or rate-limited INFO / ERROR so a large
+ * campaign (or an outage) cannot flood the log.
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class AsyncBatchDispatcherService {
 
-    private final MessagingClientImpl messagingClient;
+    private final DispatchTransport dispatchTransport;
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final WalletReservationServiceImpl walletReservationService;
+    private final DispatchRetryServiceImpl dispatchRetryService;
+    private final DispatchRateLimiterServiceImpl rateLimiter;
+    private final BroadcastMetricsServiceImpl metrics;
+    private final BroadcastTracingServiceImpl tracing;
+    private final DispatchJournalServiceImpl dispatchJournal;
+    private final BroadcastAdmissionServiceImpl admissionService;
+    private final FrequencyCapServiceImpl frequencyCapService;
+    private final Executor dispatchExecutor;
+
+    private final LogRateLimiter chunkLog = new LogRateLimiter(Duration.ofSeconds(5));
+    private final LogRateLimiter chunkErrorLog = new LogRateLimiter(Duration.ofSeconds(5));
 
     @Value("${broadcast.dispatch-chunk-size:100}")
     private int dispatchChunkSize;
 
+    public AsyncBatchDispatcherService(
+            DispatchTransport dispatchTransport,
+            BroadcastJobServiceImpl broadcastJobService,
+            WalletReservationServiceImpl walletReservationService,
+            DispatchRetryServiceImpl dispatchRetryService,
+            DispatchRateLimiterServiceImpl rateLimiter,
+            BroadcastMetricsServiceImpl metrics,
+            BroadcastTracingServiceImpl tracing,
+            DispatchJournalServiceImpl dispatchJournal,
+            BroadcastAdmissionServiceImpl admissionService,
+            FrequencyCapServiceImpl frequencyCapService,
+            @Qualifier("messageDispatchExecutor") Executor dispatchExecutor) {
+        this.dispatchTransport = dispatchTransport;
+        this.broadcastJobService = broadcastJobService;
+        this.walletReservationService = walletReservationService;
+        this.dispatchRetryService = dispatchRetryService;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.dispatchJournal = dispatchJournal;
+        this.admissionService = admissionService;
+        this.frequencyCapService = frequencyCapService;
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
     /**
      * Dispatch all items asynchronously in chunks.
      * Fire-and-forget approach - doesn't wait for previous chunk to complete.
@@ -50,27 +113,126 @@ public class AsyncBatchDispatcherService {
             WhatsappAccountInfoDto accountInfo,
             Long broadcastId) {
 
-        log.info("Starting async dispatch for {} pre-built items in chunks of {}",
-                allItems.size(), dispatchChunkSize);
+        return dispatchChunks(allChunks(allItems.size()), allItems.size(), dispatchChunkSize, chunkNum -> {
+            int from = (chunkNum - 1) * dispatchChunkSize;
+            return allItems.subList(from, Math.min(from + dispatchChunkSize, allItems.size()));
+        }, accountInfo, broadcastId, null);
+    }
+
+    /**
+     * Dispatch all items of a sealed payload buffer asynchronously in chunks.
+     * The buffer is closed once every chunk has finished.
+     *
+     * @param journaled journal the chunks before sending and acknowledge them
+     *                  as they finish, so the dispatch can be resumed after a
+     *                  crash; the journal is deleted on completion
+     */
+    public CompletableFuture<Void> dispatchAsync(
+            DispatchPayloadBuffer buffer,
+            WhatsappAccountInfoDto accountInfo,
+            Long broadcastId,
+            boolean journaled) {
+
+        DispatchJournal journal;
+        try {
+            journal = journaled ? dispatchJournal.begin(broadcastId, buffer, dispatchChunkSize) : null;
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+
+        return dispatchChunks(allChunks(buffer.size()), buffer.size(), dispatchChunkSize,
+                chunkNum -> buffer.read((chunkNum - 1) * dispatchChunkSize, dispatchChunkSize),
+                accountInfo, broadcastId, journal)
+                .whenComplete((result, throwable) -> {
+                    // Journal first: it must never outlive the segments it refers to
+                    if (journal != null) {
+                        dispatchJournal.complete(journal);
+                    }
+                    buffer.close();
+                });
+    }
+
+    /**
+     * Continues a dispatch interrupted by a crash: sends its unacknowledged
+     * chunks under their original numbers and ids, acknowledging them in the
+     * same journal, which is deleted on completion.
+     */
+    public CompletableFuture<Void> resumeAsync(
+            JournaledDispatch dispatch,
+            WhatsappAccountInfoDto accountInfo,
+            Long broadcastId) {
+
+        DispatchJournal journal = dispatch.journal();
+        return dispatchChunks(dispatch.pendingChunks(), journal.getTotalItems(), journal.getChunkSize(),
+                dispatch::read, accountInfo, broadcastId, journal)
+                .whenComplete((result, throwable) -> {
+                    dispatchJournal.complete(journal);
+                    dispatch.buffer().close();
+                });
+    }
+
+    private List<Integer> allChunks(int totalItems) {
+        return IntStream.rangeClosed(1, (totalItems + dispatchChunkSize - 1) / dispatchChunkSize)
+                .boxed()
+                .toList();
+    }
+
+    /**
+     * Sends the given chunks of a dispatch of totalItems in chunks of
+     * chunkSize. Tokens are acquired for the chunk's full size; a replayed
+     * chunk may turn out smaller once its sent recipients are dropped.
+     */
+    private CompletableFuture<Void> dispatchChunks(
+            List<Integer> chunkNumbers,
+            int totalItems,
+            int chunkSize,
+            ChunkSource source,
+            WhatsappAccountInfoDto accountInfo,
+            Long broadcastId,
+            DispatchJournal journal) {
+
+        log.info("Starting async dispatch of {} chunks ({} pre-built items in chunks of {})",
+                chunkNumbers.size(), totalItems, chunkSize);
+        long startNanos = System.nanoTime();
+        // Chunks run on other threads, so their parent is captured here
+        Observation parent = tracing.currentObservation();
+        BroadcastJob job = broadcastJobService.findJob(broadcastId);
+        Long tenantId = job != null ? job.getUserId() : null;
 
-        // Split into chunks
-        List<List<BroadcastDispatchItemDto>> chunks = partitionList(allItems, dispatchChunkSize);
-        int totalChunks = chunks.size();
+        int totalChunks = (totalItems + chunkSize - 1) / chunkSize;
 
         // Track progress
         AtomicInteger completedChunks = new AtomicInteger(0);
         AtomicInteger totalDispatched = new AtomicInteger(0);
         AtomicInteger totalFailed = new AtomicInteger(0);
+        AtomicInteger totalRetrying = new AtomicInteger(0);
 
-        // Create futures for all chunks (fire them all immediately)
+        // Create futures for all chunks (each fires as soon as its tokens are granted)
         List<CompletableFuture<ChunkResult>> chunkFutures = new ArrayList<>();
 
-        for (int i = 0; i < chunks.size(); i++) {
-            int chunkNum = i + 1;
-            List<BroadcastDispatchItemDto> chunk = chunks.get(i);
+        for (int chunkNum : chunkNumbers) {
+            int permits = Math.min(chunkSize, totalItems - (chunkNum - 1) * chunkSize);
+            String dispatchId = journal != null ? journal.chunkId(chunkNum) : null;
 
-            CompletableFuture<ChunkResult> future = dispatchChunkAsync(
-                    chunk, accountInfo, chunkNum, totalChunks, broadcastId);
+            CompletableFuture<ChunkResult> future = rateLimiter
+                    .acquire(accountInfo.getPhoneNumberId(), permits)
+                    .thenCompose(granted -> admissionService.withDispatchSlot(tenantId, () -> dispatchChunkAsync(
+                            source.read(chunkNum), accountInfo, chunkNum, totalChunks, broadcastId, dispatchId,
+                            parent)));
+            if (journal != null) {
+                future = future.whenComplete((result, throwable) -> {
+                    if (result != null) {
+                        try {
+                            journal.ack(result.chunkNumber());
+                        } catch (UncheckedIOException e) {
+                            // The chunk was handled; at worst it is replayed after a crash
+                            log.error("Could not journal chunk {} of broadcastId: {}", result.chunkNumber(),
+                                    broadcastId, e);
+                        }
+                    }
+                });
+            }
 
             chunkFutures.add(future);
         }
@@ -84,17 +246,28 @@ public class AsyncBatchDispatcherService {
                             ChunkResult result = future.join();
                             totalDispatched.addAndGet(result.dispatched());
                             totalFailed.addAndGet(result.failed());
+                            totalRetrying.addAndGet(result.retrying());
                             completedChunks.incrementAndGet();
                         } catch (Exception e) {
                             log.error("Error collecting chunk result", e);
-                            totalFailed.addAndGet(dispatchChunkSize);
+                            totalFailed.addAndGet(chunkSize);
                         }
                     }
 
-                    log.info("=== Dispatch Summary for broadcastId: {} ===", broadcastId);
-                    log.info("Total Dispatched: {}", totalDispatched.get());
-                    log.info("Total Failed: {}", totalFailed.get());
-                    log.info("Chunks Completed: {}/{}", completedChunks.get(), totalChunks);
+                    // One structured record per broadcast; key-values show up as
+                    // fields with structured logging enabled
+                    log.atInfo()
+                            .addKeyValue("broadcastId", broadcastId)
+                            .addKeyValue("dispatched", totalDispatched.get())
+                            .addKeyValue("failed", totalFailed.get())
+                            .addKeyValue("retrying", totalRetrying.get())
+                            .addKeyValue("chunks", completedChunks.get())
+                            .addKeyValue("totalChunks", chunkNumbers.size())
+                            .addKeyValue("durationMs", (System.nanoTime() - startNanos) / 1_000_000)
+                            .log("Dispatch summary for broadcastId: {} - dispatched: {}, failed: {}, "
+                                    + "queued for retry: {}, chunks: {}/{}",
+                                    broadcastId, totalDispatched.get(), totalFailed.get(), totalRetrying.get(),
+                                    completedChunks.get(), chunkNumbers.size());
                 })
                 .exceptionally(ex -> {
                     log.error("Fatal error during dispatch aggregation for broadcastId: {}", broadcastId, ex);
@@ -103,71 +276,157 @@ public class AsyncBatchDispatcherService {
     }
 
     /**
-     * Dispatch a single chunk asynchronously.
-     * Each chunk runs independently - no waiting for others.
+     * Dispatch a single chunk on messageDispatchExecutor.
+     * Each chunk runs independently - no waiting for others. A chunk the
+     * executor rejects is handled like a failed send.
      */
-    @Async("messageDispatchExecutor")
-    public CompletableFuture<ChunkResult> dispatchChunkAsync(
+    private CompletableFuture<ChunkResult> dispatchChunkAsync(
             List<BroadcastDispatchItemDto> chunk,
             WhatsappAccountInfoDto accountInfo,
             int chunkNum,
             int totalChunks,
-            Long broadcastId) {
+            Long broadcastId,
+            String dispatchId,
+            Observation parent) {
 
-        return CompletableFuture.supplyAsync(() -> {
-            String threadName = Thread.currentThread().getName();
-            log.info("[{}] Processing chunk {}/{} with {} pre-built items for broadcastId: {}",
-                    threadName, chunkNum, totalChunks, chunk.size(), broadcastId);
+        if (chunk.isEmpty()) {
+            // Replayed chunk whose recipients were all sent before the crash
+            return CompletableFuture.completedFuture(new ChunkResult(0, 0, 0, chunkNum));
+        }
+        Observation observation = tracing.startChunk(parent, broadcastId, chunkNum, chunk.size());
+        broadcastJobService.recordChunkStarted(broadcastId);
+        CompletableFuture<ChunkResult> sent;
+        try {
+            sent = CompletableFuture.supplyAsync(() -> sendChunk(chunk, accountInfo, chunkNum, totalChunks,
+                    broadcastId, dispatchId, observation), dispatchExecutor);
+        } catch (RejectedExecutionException e) {
+            log.error("Chunk {}/{} of broadcastId: {} rejected by executor", chunkNum, totalChunks, broadcastId);
+            sent = CompletableFuture.completedFuture(failedChunk(chunk, accountInfo, chunkNum, 503, e.getMessage()));
+        }
+        return sent.whenComplete((result, throwable) -> {
+            // Live progress and per-message wallet settlement, chunk by chunk
+            if (throwable != null) {
+                observation.error(throwable);
+            }
+            // Always set: Prometheus requires the same tag keys on every series
+            observation.lowCardinalityKeyValue("outcome", result != null ? result.outcome() : "error");
+            if (result != null) {
+                metrics.recordChunk(result.dispatched(), result.failed(), result.retrying());
+                broadcastJobService.recordChunkFinished(broadcastId, result.dispatched(), result.failed());
+                walletReservationService.settle(broadcastId, result.dispatched(), result.failed());
+                recordDispatched(chunk, result.dispatched(), broadcastId);
+            } else {
+                broadcastJobService.recordChunkFinished(broadcastId, 0, 0);
+            }
+            observation.stop();
+        });
+    }
 
-            try {
-                // Items are already serialized - just send to messaging service
-                DispatchRequestDto dispatchRequest = DispatchRequestDto.builder()
-                        .items(chunk)
-                        .accountInfo(accountInfo)
-                        .build();
+    private ChunkResult sendChunk(
+            List<BroadcastDispatchItemDto> chunk,
+            WhatsappAccountInfoDto accountInfo,
+            int chunkNum,
+            int totalChunks,
+            Long broadcastId,
+            String dispatchId,
+            Observation observation) {
+        if (log.isDebugEnabled()) {
+            log.debug("Processing chunk {}/{} with {} pre-built items for broadcastId: {}",
+                    chunkNum, totalChunks, chunk.size(), broadcastId);
+        }
 
-                FacebookApiResponse<BroadcastDispatchResponseDto> response = messagingClient
-                        .dispatchMessage(dispatchRequest);
+        try {
+            // Items are already serialized - just send to messaging service
+            DispatchRequestDto dispatchRequest = DispatchRequestDto.builder()
+                    .items(chunk)
+                    .accountInfo(accountInfo)
+                    .dispatchId(dispatchId)
+                    .build();
 
-                if (response.isSuccess() && response.getData() != null
-                        && response.getData().getData() != null) {
+            DispatchChunkEvent event = DispatchChunkEvent.begin(broadcastId, accountInfo.getPhoneNumberId(),
+                    chunkNum, chunk.size());
+            // In scope so the transport call is a child of the chunk
+            FacebookApiResponse<BroadcastDispatchResponseDto> response = observation
+                    .scoped(() -> dispatchTransport.send(dispatchRequest));
+            event.complete(response.getStatusCode(), response.isSuccess() ? "sent" : "failed");
+            rateLimiter.onResponse(accountInfo.getPhoneNumberId(), response.getStatusCode(), chunk.size());
 
-                    int dispatched = response.getData().getData().getTotalDispatched();
-                    int failed = response.getData().getData().getFailedCount();
+            if (response.isSuccess() && response.getData() != null
+                    && response.getData().getData() != null) {
 
-                    log.info("[{}] Chunk {}/{} completed - Dispatched: {}, Failed: {}",
-                            threadName, chunkNum, totalChunks, dispatched, failed);
+                int dispatched = response.getData().getData().getTotalDispatched();
+                int failed = response.getData().getData().getFailedCount();
 
-                    return new ChunkResult(dispatched, failed, chunkNum);
-                } else {
-                    log.error("[{}] Chunk {}/{} failed: {}",
-                            threadName, chunkNum, totalChunks, response.getErrorMessage());
-                    return new ChunkResult(0, chunk.size(), chunkNum);
+                long suppressed = chunkLog.tryAcquire();
+                if (suppressed >= 0) {
+                    log.info("Chunk {}/{} of broadcastId: {} completed - Dispatched: {}, Failed: {} "
+                            + "({} chunk logs suppressed)",
+                            chunkNum, totalChunks, broadcastId, dispatched, failed, suppressed);
                 }
 
-            } catch (Exception e) {
-                log.error("[{}] Chunk {}/{} threw exception", threadName, chunkNum, totalChunks, e);
-                return new ChunkResult(0, chunk.size(), chunkNum);
+                return new ChunkResult(dispatched, failed, 0, chunkNum);
+            } else {
+                long suppressed = chunkErrorLog.tryAcquire();
+                if (suppressed >= 0) {
+                    log.error("Chunk {}/{} of broadcastId: {} failed: {} ({} chunk errors suppressed)",
+                            chunkNum, totalChunks, broadcastId, response.getErrorMessage(), suppressed);
+                }
+                return failedChunk(chunk, accountInfo, chunkNum, response.getStatusCode(),
+                        response.getErrorMessage());
             }
-        });
+
+        } catch (Exception e) {
+            log.error("Chunk {}/{} of broadcastId: {} threw exception", chunkNum, totalChunks, broadcastId, e);
+            rateLimiter.onResponse(accountInfo.getPhoneNumberId(), 500, chunk.size());
+            return failedChunk(chunk, accountInfo, chunkNum, 500, e.getMessage());
+        }
     }
 
     /**
-     * Partition list into chunks
+     * Counts the accepted messages against the frequency cap. Rejected ones
+     * are attributed to the tail of the chunk, as the response does not say
+     * which they were.
      */
-    private <T> List<List<T>> partitionList(List<T> list, int chunkSize) {
-        List<List<T>> partitions = new ArrayList<>();
-        for (int i = 0; i < list.size(); i += chunkSize) {
-            int end = Math.min(i + chunkSize, list.size());
-            partitions.add(list.subList(i, end));
+    private void recordDispatched(List<BroadcastDispatchItemDto> chunk, int dispatched, Long broadcastId) {
+        if (dispatched > 0) {
+            frequencyCapService.recordDispatched(broadcastId, chunk.subList(0, Math.min(dispatched, chunk.size()))
+                    .stream().map(BroadcastDispatchItemDto::getMobileNo).toList());
         }
-        return partitions;
+    }
+
+    /**
+     * Queues a failed chunk for retry; only if that is not possible, or the
+     * messaging service rejected it for good, are its messages counted (and
+     * refunded) as failed.
+     */
+    private ChunkResult failedChunk(List<BroadcastDispatchItemDto> chunk, WhatsappAccountInfoDto accountInfo,
+            int chunkNum, int statusCode, String error) {
+        if (!DispatchTransport.isRetryable(statusCode)) {
+            dispatchRetryService.failRejected(chunk, statusCode, error);
+            return new ChunkResult(0, chunk.size(), 0, chunkNum);
+        }
+        if (dispatchRetryService.enqueue(chunk, accountInfo, error)) {
+            return new ChunkResult(0, 0, chunk.size(), chunkNum);
+        }
+        return new ChunkResult(0, chunk.size(), 0, chunkNum);
+    }
+
+    /**
+     * Items of one chunk, by chunk number (1-based)
+     */
+    @FunctionalInterface
+    private interface ChunkSource {
+        List<BroadcastDispatchItemDto> read(int chunkNum);
     }
 
     /**
      * Result record for a single chunk
      */
-    public record ChunkResult(int dispatched, int failed, int chunkNumber) {
+    public record ChunkResult(int dispatched, int failed, int retrying, int chunkNumber) {
+
+        public String outcome() {
+            return dispatched > 0 ? "sent" : retrying > 0 ? "retrying" : "failed";
+        }
     }
 
 }
\ No newline at end of file
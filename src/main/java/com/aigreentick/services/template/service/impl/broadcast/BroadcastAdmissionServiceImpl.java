@@ -0,0 +1,171 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.aigreentick.services.template.config.BroadcastAdmissionProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-tenant admission control of broadcast work (see TenantFairQueue).
+ *
+ * Jobs: at most broadcast.job.pool-size broadcast jobs run at once. Excess
+ * jobs wait here instead of being rejected by broadcastJobExecutor, and a
+ * freed slot goes to the tenant (userId) with the lowest running / weight,
+ * so one tenant's burst of campaigns queues behind itself, not in front of
+ * everyone. Waiting jobs publish their queue position in the progress
+ * snapshot. They are already charged and persisted in phase CHARGED, so
+ * the queue itself needs no durability: after a restart the recovery
+ * processor resumes them at once as broadcasts this instance owned, without
+ * waiting for broadcast.recovery.stale-minutes. While they wait, the job
+ * service's progress heartbeat keeps their updated_at fresh so no other
+ * instance considers them interrupted.
+ *
+ * Dispatch: chunks (first attempts and retries) take a dispatch slot
+ * before they are handed to messageDispatchExecutor, shared by weight the
+ * same way. The slots are sized against the executor's max pool + queue
+ * capacity minus broadcast.admission.reserved-executor-tasks, so a large
+ * campaign waits for slots instead of filling the executor and getting
+ * other tenants' @Async work (contact linking, other dispatches) rejected.
+ */
+@Service
+@Slf4j
+public class BroadcastAdmissionServiceImpl {
+
+    private static final long NO_TENANT = 0L;
+    private static final int DEFAULT_DISPATCH_SLOTS = 60;
+
+    private final Executor jobExecutor;
+    private final BroadcastAdmissionProperties properties;
+    private final TenantFairQueue<Admission> jobSlots;
+    private final TenantFairQueue<CompletableFuture<Void>> dispatchSlots;
+
+    public BroadcastAdmissionServiceImpl(
+            @Qualifier("broadcastJobExecutor") Executor jobExecutor,
+            @Qualifier("messageDispatchExecutor") Executor dispatchExecutor,
+            BroadcastAdmissionProperties properties,
+            @Value("${broadcast.job.pool-size:4}") int jobPoolSize) {
+        this.jobExecutor = jobExecutor;
+        this.properties = properties;
+        this.jobSlots = new TenantFairQueue<>(jobPoolSize, properties::weightOf);
+        this.dispatchSlots = new TenantFairQueue<>(dispatchSlotsFor(dispatchExecutor), properties::weightOf);
+    }
+
+    /**
+     * Runs the job's task on the job executor as soon as its tenant is
+     * admitted.
+     *
+     * @param onRejected called if the executor still refuses the task
+     */
+    public void admit(BroadcastJob job, Runnable task, Consumer<RuntimeException> onRejected) {
+        Admission admission = new Admission(job, task, onRejected, tenantOf(job.getUserId()));
+        if (jobSlots.acquireOrEnqueue(admission.tenant, admission)) {
+            start(admission);
+            return;
+        }
+        log.info("Broadcast job {} of user {} waiting for admission ({} running, {} waiting)",
+                job.getBroadcastId(), job.getUserId(), jobSlots.running(), jobSlots.waiting());
+        publishQueuePositions();
+    }
+
+    /**
+     * Runs work once the tenant holds a dispatch slot and frees the slot when
+     * the returned future completes.
+     */
+    public <T> CompletableFuture<T> withDispatchSlot(Long userId, Supplier<CompletableFuture<T>> work) {
+        long tenant = tenantOf(userId);
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        if (dispatchSlots.acquireOrEnqueue(tenant, slot)) {
+            slot.complete(null);
+        }
+        return slot.thenCompose(granted -> {
+            CompletableFuture<T> result;
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            return result.whenComplete((value, throwable) -> releaseDispatchSlot(tenant));
+        });
+    }
+
+    private void releaseDispatchSlot(long tenant) {
+        CompletableFuture<Void> next = dispatchSlots.release(tenant);
+        if (next != null) {
+            next.complete(null);
+        }
+    }
+
+    private void start(Admission admission) {
+        admission.job.setQueuePosition(null);
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    admission.task.run();
+                } finally {
+                    finished(admission);
+                }
+            });
+        } catch (RuntimeException e) {
+            finished(admission);
+            admission.onRejected.accept(e);
+        }
+    }
+
+    private void finished(Admission admission) {
+        Admission next = jobSlots.release(admission.tenant);
+        if (next != null) {
+            log.info("Admitting broadcast job {} of user {}", next.job.getBroadcastId(), next.job.getUserId());
+            start(next);
+            publishQueuePositions();
+        }
+    }
+
+    /**
+     * Sets the queue position of every waiting job whose position changed.
+     */
+    private void publishQueuePositions() {
+        List<Admission> waiting = jobSlots.waitingInOrder();
+        for (int i = 0; i < waiting.size(); i++) {
+            BroadcastJob job = waiting.get(i).job;
+            Integer position = i + 1;
+            if (!position.equals(job.getQueuePosition())) {
+                job.setQueuePosition(position);
+            }
+        }
+    }
+
+    private int dispatchSlotsFor(Executor dispatchExecutor) {
+        int configured = properties.getDispatchSlots();
+        if (!(dispatchExecutor instanceof ThreadPoolTaskExecutor pool)) {
+            return configured > 0 ? configured : DEFAULT_DISPATCH_SLOTS;
+        }
+        int limit = Math.max(1, pool.getMaxPoolSize() + pool.getQueueCapacity()
+                - properties.getReservedExecutorTasks());
+        if (configured > limit) {
+            log.warn("broadcast.admission.dispatch-slots {} exceeds what messageDispatchExecutor can hold "
+                    + "next to {} reserved tasks; using {}", configured, properties.getReservedExecutorTasks(), limit);
+        }
+        int slots = configured > 0 ? Math.min(configured, limit) : limit;
+        log.info("{} dispatch slots on messageDispatchExecutor ({} threads, queue {})",
+                slots, pool.getMaxPoolSize(), pool.getQueueCapacity());
+        return slots;
+    }
+
+    private static long tenantOf(Long userId) {
+        return userId != null ? userId : NO_TENANT;
+    }
+
+    private record Admission(BroadcastJob job, Runnable task, Consumer<RuntimeException> onRejected,
+            long tenant) {
+    }
+}
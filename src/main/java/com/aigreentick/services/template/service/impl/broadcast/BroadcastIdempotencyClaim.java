@@ -0,0 +1,14 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+/**
+ * Outcome of claiming a submission's idempotency key.
+ *
+ * @param duplicateOf broadcast an earlier submission with the same key
+ *                    created, or null if this submission holds the claim
+ */
+public record BroadcastIdempotencyClaim(Long userId, byte[] keyHash, String claimToken, Long duplicateOf) {
+
+    public boolean isDuplicate() {
+        return duplicateOf != null;
+    }
+}
@@ -0,0 +1,242 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.aigreentick.services.template.enums.BroadcastType;
+import com.aigreentick.services.template.exceptions.DuplicateBroadcastException;
+import com.aigreentick.services.template.model.broadcast.BroadcastIdempotencyKey;
+import com.aigreentick.services.template.repository.broadcast.BroadcastIdempotencyKeyRepository;
+import com.aigreentick.services.template.util.helper.JsonHelper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Makes broadcast submissions idempotent, so a client retrying a request
+ * that timed out does not create, charge and send a second broadcast.
+ *
+ * A submission is identified by the client's Idempotency-Key header or,
+ * without one, by a hash of the request itself. Either is stored as a
+ * SHA-256 per user in broadcast_idempotency_keys: claimed before the
+ * submission runs, then bound to the broadcast in the same transaction as
+ * the wallet charge. A repeat within the TTL gets the original broadcast
+ * back; a repeat while the first one has not been charged yet is rejected
+ * with 409. A claim that never got bound (its instance died) can be taken
+ * over after broadcast.idempotency.claim-timeout.
+ *
+ * Client keys live for broadcast.idempotency.key-ttl; request hashes only
+ * for request-hash-ttl, which covers retries without blocking a campaign
+ * that is deliberately sent again later.
+ */
+@Service
+@Slf4j
+public class BroadcastIdempotencyServiceImpl {
+
+    private static final int PURGE_BATCH_SIZE = 5000;
+
+    private final BroadcastIdempotencyKeyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    @Value("${broadcast.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${broadcast.idempotency.key-ttl:24h}")
+    private Duration keyTtl;
+
+    @Value("${broadcast.idempotency.request-hash-ttl:10m}")
+    private Duration requestHashTtl;
+
+    @Value("${broadcast.idempotency.claim-timeout:2m}")
+    private Duration claimTimeout;
+
+    @Value("${broadcast.idempotency.purge-interval:10m}")
+    private Duration purgeInterval;
+
+    private ScheduledFuture<?> purgeTask;
+
+    public BroadcastIdempotencyServiceImpl(
+            BroadcastIdempotencyKeyRepository repository,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void startPurge() {
+        if (enabled) {
+            purgeTask = scheduler.scheduleWithFixedDelay(this::purgeExpired, purgeInterval);
+        }
+    }
+
+    @PreDestroy
+    void stopPurge() {
+        if (purgeTask != null) {
+            purgeTask.cancel(false);
+        }
+    }
+
+    /**
+     * Runs a submission at most once per key.
+     *
+     * @param idempotencyKey client key, or null to derive one from request
+     * @param request        supplies what identifies the submission when
+     *                       there is no client key
+     * @param submission     the submission; must bind the claim when it
+     *                       creates the broadcast (see bind)
+     * @param duplicate      builds the response for an earlier broadcast
+     */
+    public <T> T submitOnce(
+            Long userId,
+            BroadcastType type,
+            String idempotencyKey,
+            Supplier<Object> request,
+            Function<BroadcastIdempotencyClaim, T> submission,
+            Function<Long, T> duplicate) {
+        if (!enabled) {
+            return submission.apply(null);
+        }
+
+        BroadcastIdempotencyClaim claim = claim(userId, type, idempotencyKey, request);
+        if (claim.isDuplicate()) {
+            log.info("Duplicate {} broadcast submission for userId: {} - returning broadcastId: {}",
+                    type, userId, claim.duplicateOf());
+            return duplicate.apply(claim.duplicateOf());
+        }
+
+        try {
+            return submission.apply(claim);
+        } catch (RuntimeException e) {
+            // No-op once bound: the broadcast exists, retries must see it
+            release(claim);
+            throw e;
+        }
+    }
+
+    /**
+     * Binds the claim to the broadcast just created. Call inside the
+     * transaction that creates the broadcast and charges the wallet, so both
+     * roll back if the claim was lost.
+     */
+    public void bind(BroadcastIdempotencyClaim claim, Long broadcastId) {
+        if (claim == null) {
+            return;
+        }
+        if (repository.bind(claim.userId(), claim.keyHash(), claim.claimToken(), broadcastId) == 0) {
+            throw new DuplicateBroadcastException(
+                    "Idempotency key was taken over by another submission; retry the request");
+        }
+    }
+
+    /**
+     * SHA-256 of an uploaded file, to identify file submissions sent
+     * without a client key.
+     */
+    public String fingerprint(MultipartFile file) {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = file.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read uploaded CSV file", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private BroadcastIdempotencyClaim claim(Long userId, BroadcastType type, String idempotencyKey,
+            Supplier<Object> request) {
+        boolean clientKey = idempotencyKey != null && !idempotencyKey.isBlank();
+        String identity = type.getValue() + (clientKey
+                ? ":key:" + idempotencyKey.strip()
+                : ":request:" + JsonHelper.serialize(request.get()));
+        byte[] keyHash = sha256().digest(identity.getBytes(StandardCharsets.UTF_8));
+        String claimToken = UUID.randomUUID().toString();
+        Duration ttl = clientKey ? keyTtl : requestHashTtl;
+
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            repository.deleteIfExpired(userId, keyHash, now);
+            if (repository.claim(userId, keyHash, claimToken, now, now.plus(ttl)) == 1) {
+                return new BroadcastIdempotencyClaim(userId, keyHash, claimToken, null);
+            }
+
+            BroadcastIdempotencyKey existing = repository.findByUserIdAndKeyHash(userId, keyHash)
+                    .orElseThrow(() -> new DuplicateBroadcastException(
+                            "Concurrent submission with the same idempotency key; retry the request"));
+            if (existing.getBroadcastId() != null) {
+                return new BroadcastIdempotencyClaim(userId, keyHash, null, existing.getBroadcastId());
+            }
+            if (repository.takeOverStale(userId, keyHash, claimToken, now.minus(claimTimeout), now,
+                    now.plus(ttl)) == 1) {
+                log.warn("Took over stale idempotency claim of userId: {} (claimed at {})",
+                        userId, existing.getCreatedAt());
+                return new BroadcastIdempotencyClaim(userId, keyHash, claimToken, null);
+            }
+            throw new DuplicateBroadcastException(
+                    "A submission with the same idempotency key is still being processed");
+        });
+    }
+
+    private void release(BroadcastIdempotencyClaim claim) {
+        if (claim == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    repository.release(claim.userId(), claim.keyHash(), claim.claimToken()));
+        } catch (RuntimeException e) {
+            // The claim times out after claim-timeout anyway
+            log.warn("Failed to release idempotency claim of userId: {}", claim.userId(), e);
+        }
+    }
+
+    void purgeExpired() {
+        try {
+            int deleted;
+            int total = 0;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                deleted = transactionTemplate.execute(status -> repository.deleteExpired(now, PURGE_BATCH_SIZE));
+                total += deleted;
+            } while (deleted == PURGE_BATCH_SIZE);
+            if (total > 0) {
+                log.debug("Purged {} expired broadcast idempotency keys", total);
+            }
+        } catch (Exception e) {
+            log.error("Idempotency key purge failed", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aigreentick.services.template.enums.BroadcastJobPhase;
+import com.aigreentick.services.template.enums.BroadcastType;
+
+import lombok.Getter;
+
+/**
+ * In-memory state of one running broadcast.
+ *
+ * Written by the job thread, the build threads and the dispatch chunk
+ * futures, and read by the progress endpoint, so every mutable field is
+ * either volatile or atomic.
+ *
+ * Every change bumps version, so readers that poll the job (the progress
+ * stream and the periodic persistence) can skip jobs that did not move
+ * without taking any lock.
+ */
+@Getter
+public class BroadcastJob {
+
+    private final Long broadcastId;
+    private final Long userId;
+    private final BroadcastType broadcastType;
+    private final int total;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private volatile BroadcastJobPhase phase = BroadcastJobPhase.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String errorMessage;
+    private volatile long dispatchStartedNanos;
+    private volatile Integer queuePosition;
+
+    private final AtomicInteger built = new AtomicInteger();
+    private final AtomicInteger dispatched = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger chunksInFlight = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+
+    public BroadcastJob(Long broadcastId, Long userId, BroadcastType broadcastType, int total) {
+        this.broadcastId = broadcastId;
+        this.userId = userId;
+        this.broadcastType = broadcastType;
+        this.total = total;
+    }
+
+    public void moveTo(BroadcastJobPhase next) {
+        if (startedAt == null && next != BroadcastJobPhase.QUEUED) {
+            startedAt = LocalDateTime.now();
+        }
+        if (next == BroadcastJobPhase.DISPATCHING && dispatchStartedNanos == 0) {
+            dispatchStartedNanos = System.nanoTime();
+        }
+        phase = next;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Position among the broadcasts waiting for admission (1 = next), or
+     * null once admitted.
+     */
+    public void setQueuePosition(Integer position) {
+        queuePosition = position;
+        version.incrementAndGet();
+    }
+
+    public void addBuilt(int count) {
+        built.addAndGet(count);
+        version.incrementAndGet();
+    }
+
+    public void chunkStarted() {
+        chunksInFlight.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Records a finished dispatch chunk; its retried messages are counted
+     * later through recordDispatchResult.
+     */
+    public void chunkFinished(int dispatchedCount, int failedCount) {
+        chunksInFlight.decrementAndGet();
+        recordDispatchResult(dispatchedCount, failedCount);
+    }
+
+    public void recordDispatchResult(int dispatchedCount, int failedCount) {
+        dispatched.addAndGet(dispatchedCount);
+        failed.addAndGet(failedCount);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Estimated seconds until every message is dispatched or failed, from
+     * the dispatch throughput so far; null until the first chunk finishes.
+     */
+    public Long getEtaSeconds() {
+        long startNanos = dispatchStartedNanos;
+        int done = dispatched.get() + failed.get();
+        if (isFinished() || startNanos == 0 || done == 0) {
+            return null;
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        int remaining = Math.max(0, total - done);
+        return Math.round(elapsedSeconds * remaining / done);
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        moveTo(BroadcastJobPhase.COMPLETED);
+    }
+
+    public void fail(Throwable cause) {
+        errorMessage = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        finishedAt = LocalDateTime.now();
+        moveTo(BroadcastJobPhase.FAILED);
+    }
+
+    public boolean isFinished() {
+        return phase.isTerminal();
+    }
+}
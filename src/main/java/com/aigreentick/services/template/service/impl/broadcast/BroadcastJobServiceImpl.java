@@ -0,0 +1,346 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
+import com.aigreentick.services.template.enums.BroadcastJobPhase;
+import com.aigreentick.services.template.enums.BroadcastPhase;
+import com.aigreentick.services.template.enums.BroadcastType;
+import com.aigreentick.services.template.model.broadcast.Broadcast;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background job engine for broadcasts.
+ *
+ * Accepted broadcasts are charged and persisted on the request thread; the
+ * heavy part (reports, contacts, payload build, dispatch) is handed to the
+ * broadcastJobExecutor here, through BroadcastAdmissionServiceImpl so
+ * jobs beyond the executor's threads wait their tenant's turn. Running jobs are tracked in memory by
+ * broadcastId so progress can be polled while they run. Finished jobs are
+ * kept for broadcast.job.retention-minutes and then evicted; after that (or
+ * after a restart) progress falls back to the persisted broadcast status.
+ *
+ * Jobs are updated lock-free by the pipeline. Their counters are written to
+ * the broadcast's data.progress every broadcast.progress.persist-interval-ms,
+ * only for jobs that changed since the last write, instead of on every chunk.
+ * Unfinished jobs are rewritten at least every
+ * broadcast.progress.heartbeat-interval-ms even when idle, so recovery on
+ * other instances never takes them for interrupted.
+ */
+@Service
+@Slf4j
+public class BroadcastJobServiceImpl {
+
+    private final BroadcastAdmissionServiceImpl admissionService;
+    private final BroadcastServiceImpl broadcastService;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Map<Long, BroadcastJob> jobs = new ConcurrentHashMap<>();
+
+    // broadcastId -> job version last written to the database; only the
+    // persist task touches it
+    private final Map<Long, Long> persistedVersions = new ConcurrentHashMap<>();
+
+    // broadcastId -> System.nanoTime() of the last write; same owner
+    private final Map<Long, Long> persistedAt = new ConcurrentHashMap<>();
+
+    @Value("${broadcast.job.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${broadcast.progress.persist-interval-ms:5000}")
+    private long persistIntervalMs;
+
+    @Value("${broadcast.progress.heartbeat-interval-ms:60000}")
+    private long heartbeatIntervalMs;
+
+    private ScheduledFuture<?> persistTask;
+
+    public BroadcastJobServiceImpl(
+            BroadcastAdmissionServiceImpl admissionService,
+            BroadcastServiceImpl broadcastService,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.admissionService = admissionService;
+        this.broadcastService = broadcastService;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void startPersist() {
+        persistTask = scheduler.scheduleWithFixedDelay(this::persistProgress, Duration.ofMillis(persistIntervalMs));
+    }
+
+    @PreDestroy
+    void stopPersist() {
+        if (persistTask != null) {
+            persistTask.cancel(false);
+        }
+        persistProgress();
+    }
+
+    /**
+     * Starts tracking a broadcast. Used by both the synchronous and the
+     * accept-and-queue flows so progress can be polled either way.
+     */
+    public BroadcastJob register(Long broadcastId, Long userId, BroadcastType broadcastType, int total) {
+        evictFinishedJobs();
+        BroadcastJob job = new BroadcastJob(broadcastId, userId, broadcastType, total);
+        jobs.put(broadcastId, job);
+        return job;
+    }
+
+    /**
+     * Runs the job on the background executor once admitted.
+     *
+     * When called inside a transaction the job is only enqueued after commit,
+     * so it never sees an uncommitted broadcast or a charge that is later
+     * rolled back.
+     *
+     * @param work      executes the broadcast and returns its dispatch future
+     * @param onFailure compensation for a job that could not run to dispatch
+     */
+    public void submit(BroadcastJob job, Supplier<CompletableFuture<Void>> work, Consumer<Throwable> onFailure) {
+        Runnable task = () -> run(job, work, onFailure);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(job, task, onFailure);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(job, task, onFailure);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    jobs.remove(job.getBroadcastId());
+                }
+            }
+        });
+    }
+
+    /**
+     * Completes the job when its dispatch future completes.
+     */
+    public void track(BroadcastJob job, CompletableFuture<Void> dispatchFuture) {
+        job.moveTo(BroadcastJobPhase.DISPATCHING);
+        dispatchFuture.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                job.fail(throwable);
+            } else {
+                job.complete();
+            }
+        });
+    }
+
+    /**
+     * Tracked job of a broadcast, or null if this instance does not run it.
+     */
+    public BroadcastJob findJob(Long broadcastId) {
+        return jobs.get(broadcastId);
+    }
+
+    public void recordChunkStarted(Long broadcastId) {
+        BroadcastJob job = jobs.get(broadcastId);
+        if (job != null) {
+            job.chunkStarted();
+        }
+    }
+
+    /**
+     * Adds a finished dispatch chunk's outcome to the broadcast's job, if
+     * tracked.
+     */
+    public void recordChunkFinished(Long broadcastId, int dispatched, int failed) {
+        BroadcastJob job = jobs.get(broadcastId);
+        if (job != null) {
+            job.chunkFinished(dispatched, failed);
+        }
+    }
+
+    /**
+     * Adds dispatch outcomes outside a chunk (retries) to the broadcast's
+     * job, if tracked.
+     */
+    public void recordDispatchResult(Long broadcastId, int dispatched, int failed) {
+        BroadcastJob job = jobs.get(broadcastId);
+        if (job != null) {
+            job.recordDispatchResult(dispatched, failed);
+        }
+    }
+
+    /**
+     * Progress of a broadcast owned by userId.
+     */
+    public BroadcastProgressResponseDto getProgress(Long broadcastId, Long userId) {
+        BroadcastJob job = jobs.get(broadcastId);
+        if (job != null) {
+            if (!Objects.equals(job.getUserId(), userId)) {
+                throw new IllegalArgumentException("Broadcast not found with ID: " + broadcastId);
+            }
+            return toProgress(job);
+        }
+
+        Broadcast broadcast = broadcastService.getBroadcastById(broadcastId);
+        if (!Objects.equals(broadcast.getUserId(), userId)) {
+            throw new IllegalArgumentException("Broadcast not found with ID: " + broadcastId);
+        }
+
+        // Not tracked by this instance: only the persisted status, phase and
+        // last progress snapshot are known
+        BroadcastJobPhase phase = switch (String.valueOf(broadcast.getStatus())) {
+            case "0" -> BroadcastJobPhase.FAILED;
+            case "1" -> BroadcastJobPhase.SCHEDULED;
+            default -> persistedPhase(broadcast);
+        };
+
+        return BroadcastProgressResponseDto.builder()
+                .broadcastId(broadcast.getId())
+                .broadcastType(broadcast.getBroadcastType())
+                .phase(phase)
+                .total(broadcast.getTotal() != null ? broadcast.getTotal() : 0)
+                .built(persistedCount(broadcast, "built"))
+                .dispatched(persistedCount(broadcast, "dispatched"))
+                .failed(persistedCount(broadcast, "failed"))
+                .submittedAt(broadcast.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Job phase of a processing broadcast from its last committed
+     * BroadcastPhase: the step after the committed one is the one running.
+     * A charged broadcast may still wait for admission, so it reports QUEUED.
+     */
+    private BroadcastJobPhase persistedPhase(Broadcast broadcast) {
+        Object stored = broadcast.getData() != null ? broadcast.getData().get("phase") : null;
+        if (stored == null) {
+            return null;
+        }
+        BroadcastPhase committed;
+        try {
+            committed = BroadcastPhase.fromValue(stored.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return switch (committed) {
+            case CHARGED -> BroadcastJobPhase.QUEUED;
+            case REPORTS_CREATED -> BroadcastJobPhase.BUILDING;
+            case BUILT, DISPATCHING -> BroadcastJobPhase.DISPATCHING;
+            case DONE -> BroadcastJobPhase.COMPLETED;
+        };
+    }
+
+    public BroadcastProgressResponseDto toProgress(BroadcastJob job) {
+        return BroadcastProgressResponseDto.builder()
+                .broadcastId(job.getBroadcastId())
+                .broadcastType(job.getBroadcastType())
+                .phase(job.getPhase())
+                .queuePosition(job.getPhase() == BroadcastJobPhase.QUEUED ? job.getQueuePosition() : null)
+                .total(job.getTotal())
+                .built(job.getBuilt().get())
+                .dispatched(job.getDispatched().get())
+                .failed(job.getFailed().get())
+                .chunksInFlight(job.getChunksInFlight().get())
+                .etaSeconds(job.getEtaSeconds())
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .errorMessage(job.getErrorMessage())
+                .build();
+    }
+
+    private void enqueue(BroadcastJob job, Runnable task, Consumer<Throwable> onFailure) {
+        log.info("Queued broadcast job {} ({} recipients)", job.getBroadcastId(), job.getTotal());
+        admissionService.admit(job, task, e -> {
+            log.error("Broadcast job {} rejected by executor", job.getBroadcastId(), e);
+            job.fail(e);
+            // May run from afterCommit, where data access would still join the
+            // finished transaction; compensate on a clean thread instead
+            CompletableFuture.runAsync(() -> onFailure.accept(e));
+        });
+    }
+
+    private void run(BroadcastJob job, Supplier<CompletableFuture<Void>> work, Consumer<Throwable> onFailure) {
+        log.info("Running broadcast job {}", job.getBroadcastId());
+        try {
+            track(job, work.get());
+        } catch (Exception e) {
+            log.error("Broadcast job {} failed in phase {}", job.getBroadcastId(), job.getPhase(), e);
+            job.fail(e);
+            onFailure.accept(e);
+        }
+    }
+
+    /**
+     * Writes the counters of every job that changed since its last write.
+     * A failed write is retried on the next run, as the version stays behind.
+     */
+    void persistProgress() {
+        long now = System.nanoTime();
+        long heartbeatNanos = Duration.ofMillis(heartbeatIntervalMs).toNanos();
+        for (BroadcastJob job : jobs.values()) {
+            long version = job.getVersion().get();
+            Long persisted = persistedVersions.get(job.getBroadcastId());
+            Long writtenAt = persistedAt.get(job.getBroadcastId());
+            boolean heartbeatDue = !job.isFinished()
+                    && (writtenAt == null || now - writtenAt >= heartbeatNanos);
+            if (persisted != null && persisted == version && !heartbeatDue) {
+                continue;
+            }
+            try {
+                broadcastService.recordProgress(job.getBroadcastId(),
+                        job.getBuilt().get(), job.getDispatched().get(), job.getFailed().get());
+                persistedVersions.put(job.getBroadcastId(), version);
+                persistedAt.put(job.getBroadcastId(), now);
+            } catch (Exception e) {
+                log.warn("Failed to persist progress of broadcast {}: {}", job.getBroadcastId(), e.getMessage());
+            }
+        }
+        persistedVersions.keySet().retainAll(jobs.keySet());
+        persistedAt.keySet().retainAll(jobs.keySet());
+    }
+
+    /**
+     * True if this instance is running (or holding in its admission queue)
+     * the broadcast right now.
+     */
+    public boolean isRunning(Long broadcastId) {
+        BroadcastJob job = jobs.get(broadcastId);
+        return job != null && !job.isFinished();
+    }
+
+    private static int persistedCount(Broadcast broadcast, String key) {
+        if (broadcast.getData() != null
+                && broadcast.getData().get("progress") instanceof Map<?, ?> progress
+                && progress.get(key) instanceof Number count) {
+            return count.intValue();
+        }
+        return 0;
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished()
+                && job.getFinishedAt() != null
+                && job.getFinishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,120 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.aigreentick.services.template.enums.BroadcastStage;
+import com.aigreentick.services.template.enums.BroadcastType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer instrumentation of the broadcast pipeline.
+ *
+ * Meters:
+ * - broadcast.stage.duration{stage, type}: time per pipeline stage
+ * - broadcast.tenant.stage.duration{stage, type, tenant}: the same per
+ *   tenant, only with the tenant tag enabled
+ * - broadcast.dispatch.chunk{outcome}: one messaging-service call, timed by
+ *   its observation (BroadcastTracingServiceImpl)
+ * - broadcast.recipients{type, tenant, outcome}: accepted / blacklisted
+ * - broadcast.messages{outcome}: dispatched / failed / retrying per chunk
+ * - broadcast.retries{event}: queued / attempted / succeeded / exhausted /
+ *   rejected (4xx, not retried) / undeliverable (dead-lettered)
+ *
+ * Percentile histograms are switched on per meter in configuration
+ * (management.metrics.distribution.*). The tenant tag is the user id, so
+ * it is off by default (collapsed to "all") and never put on a histogram:
+ * with metrics.broadcast.tenant-tag-enabled the per-tenant stage timer is a
+ * separate meter with only count, sum and max, and must stay out of the
+ * percentiles-histogram list.
+ */
+@Service
+public class BroadcastMetricsServiceImpl {
+
+    public static final String STAGE_TIMER = "broadcast.stage.duration";
+    public static final String TENANT_STAGE_TIMER = "broadcast.tenant.stage.duration";
+    public static final String RECIPIENTS = "broadcast.recipients";
+    public static final String MESSAGES = "broadcast.messages";
+    public static final String RETRIES = "broadcast.retries";
+
+    private final MeterRegistry registry;
+
+    @Value("${metrics.broadcast.tenant-tag-enabled:false}")
+    private boolean tenantTagEnabled;
+
+    public BroadcastMetricsServiceImpl(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Records a stage started with start().
+     *
+     * @return elapsed milliseconds, for the caller's log line
+     */
+    public long stop(Timer.Sample sample, BroadcastStage stage, BroadcastType type, Long userId) {
+        Tags tags = Tags.of("stage", stage.getValue(), "type", type(type));
+        long nanos = sample.stop(registry.timer(STAGE_TIMER, tags));
+        if (tenantTagEnabled) {
+            registry.timer(TENANT_STAGE_TIMER, tags.and("tenant", tenant(userId)))
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public <T> T time(BroadcastStage stage, BroadcastType type, Long userId, Supplier<T> work) {
+        Timer.Sample sample = start();
+        try {
+            return work.get();
+        } finally {
+            stop(sample, stage, type, userId);
+        }
+    }
+
+    public void recordRecipients(BroadcastType type, Long userId, int accepted, int blacklisted) {
+        Tags tags = Tags.of("type", type(type), "tenant", tenant(userId));
+        registry.counter(RECIPIENTS, tags.and("outcome", "accepted")).increment(accepted);
+        registry.counter(RECIPIENTS, tags.and("outcome", "blacklisted")).increment(blacklisted);
+    }
+
+    /**
+     * Records the message counts of one dispatch chunk.
+     */
+    public void recordChunk(int dispatched, int failed, int retrying) {
+        incrementMessages("dispatched", dispatched);
+        incrementMessages("failed", failed);
+        incrementMessages("retrying", retrying);
+    }
+
+    public void recordRetries(String event, int count) {
+        if (count > 0) {
+            registry.counter(RETRIES, "event", event).increment(count);
+        }
+    }
+
+    private void incrementMessages(String outcome, int count) {
+        if (count > 0) {
+            registry.counter(MESSAGES, "outcome", outcome).increment(count);
+        }
+    }
+
+    private String type(BroadcastType type) {
+        return type != null ? type.getValue() : "unknown";
+    }
+
+    private String tenant(Long userId) {
+        if (!tenantTagEnabled) {
+            return "all";
+        }
+        return userId != null ? String.valueOf(userId) : "unknown";
+    }
+}
@@ -0,0 +1,232 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Server-sent event stream of broadcast progress.
+ *
+ * Subscribers get the current snapshot immediately. A single periodic task
+ * then reads the in-memory jobs and pushes a new "progress" event to every
+ * subscriber of a broadcast whose job version changed, so the number of
+ * events per second is bounded by the push interval, not by the chunk rate.
+ * The stream completes after the event that reports a terminal phase, or
+ * right away when the broadcast is not running on this instance.
+ *
+ * The periodic task only takes snapshots; the writes to the clients run on
+ * a small pool of its own (broadcast.progress.stream-senders threads), so
+ * a slow or stalled client never holds up backgroundTaskScheduler. Each
+ * subscriber has at most one send queued or running: a newer snapshot
+ * replaces one it has not received yet, so a slow client skips
+ * intermediate events but still gets the latest and the terminal one. A
+ * subscriber the pool cannot take is dropped.
+ */
+@Service
+@Slf4j
+public class BroadcastProgressStreamServiceImpl {
+
+    static final String EVENT_NAME = "progress";
+
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final ThreadPoolTaskExecutor senders = new ThreadPoolTaskExecutor();
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    @Value("${broadcast.progress.stream-interval-ms:1000}")
+    private long streamIntervalMs;
+
+    @Value("${broadcast.progress.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes;
+
+    @Value("${broadcast.progress.stream-senders:2}")
+    private int streamSenders;
+
+    @Value("${broadcast.progress.stream-max-subscribers:1000}")
+    private int streamMaxSubscribers;
+
+    private ScheduledFuture<?> pushTask;
+
+    public BroadcastProgressStreamServiceImpl(
+            BroadcastJobServiceImpl broadcastJobService,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.broadcastJobService = broadcastJobService;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void startPush() {
+        senders.setCorePoolSize(streamSenders);
+        senders.setMaxPoolSize(streamSenders);
+        senders.setQueueCapacity(streamMaxSubscribers);
+        senders.setThreadNamePrefix("progress-stream-");
+        senders.initialize();
+        pushTask = scheduler.scheduleWithFixedDelay(this::push, Duration.ofMillis(streamIntervalMs));
+    }
+
+    @PreDestroy
+    void stopPush() {
+        if (pushTask != null) {
+            pushTask.cancel(false);
+        }
+        senders.shutdown();
+        subscriptions.values().forEach(subscription ->
+                subscription.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscriptions.clear();
+    }
+
+    /**
+     * Opens a progress stream for a broadcast owned by userId.
+     */
+    public SseEmitter subscribe(Long broadcastId, Long userId) {
+        // Ownership check; also the first event
+        BroadcastProgressResponseDto snapshot = broadcastJobService.getProgress(broadcastId, userId);
+
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(streamTimeoutMinutes).toMillis());
+        if (!send(emitter, snapshot)) {
+            return emitter;
+        }
+
+        BroadcastJob job = broadcastJobService.findJob(broadcastId);
+        if (job == null || job.isFinished()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        Subscription subscription = subscriptions.computeIfAbsent(broadcastId, id -> new Subscription());
+        subscription.subscribers.add(new Subscriber(emitter));
+        emitter.onCompletion(() -> unsubscribe(broadcastId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(broadcastId, emitter));
+        return emitter;
+    }
+
+    /**
+     * Hands one snapshot per changed broadcast to its subscribers' senders.
+     */
+    void push() {
+        subscriptions.forEach((broadcastId, subscription) -> {
+            BroadcastJob job = broadcastJobService.findJob(broadcastId);
+            if (job == null) {
+                subscription.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+                subscriptions.remove(broadcastId);
+                return;
+            }
+
+            long version = job.getVersion().get();
+            if (version == subscription.sentVersion) {
+                return;
+            }
+            subscription.sentVersion = version;
+
+            Update update = new Update(broadcastJobService.toProgress(job), job.isFinished());
+            for (Subscriber subscriber : subscription.subscribers) {
+                offer(subscriber, update);
+            }
+            if (update.last()) {
+                subscriptions.remove(broadcastId);
+            }
+        });
+    }
+
+    /**
+     * Makes the update the next one the subscriber receives and starts its
+     * sender unless one is already queued or running.
+     */
+    private void offer(Subscriber subscriber, Update update) {
+        subscriber.next.set(update);
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            log.warn("Dropping progress subscriber of broadcast {}: senders saturated",
+                    update.snapshot().getBroadcastId());
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Update update = subscriber.next.getAndSet(null);
+            if (update == null) {
+                subscriber.sending.set(false);
+                // An update offered after getAndSet but before the flag was
+                // cleared found the sender still running; pick it up here
+                if (subscriber.next.get() == null || !subscriber.sending.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            if (send(subscriber.emitter, update.snapshot()) && update.last()) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, BroadcastProgressResponseDto snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(snapshot));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter's completion callback unsubscribes it
+            log.debug("Progress stream of broadcast {} closed: {}", snapshot.getBroadcastId(), e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(Long broadcastId, SseEmitter emitter) {
+        subscriptions.computeIfPresent(broadcastId, (id, subscription) -> {
+            subscription.subscribers.removeIf(subscriber -> subscriber.emitter == emitter);
+            return subscription.subscribers.isEmpty() ? null : subscription;
+        });
+    }
+
+    /**
+     * Subscribers of one broadcast. sentVersion is only touched by the push
+     * task.
+     */
+    private static final class Subscription {
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private long sentVersion = -1;
+    }
+
+    /**
+     * One client stream. next holds the update it has not been sent yet;
+     * sending is set while a sender for it is queued or running.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicReference<Update> next = new AtomicReference<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private record Update(BroadcastProgressResponseDto snapshot, boolean last) {
+    }
+}
@@ -1,7 +1,16 @@
 package com.aigreentick.services.template.service.impl.broadcast;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -10,12 +19,25 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.aigreentick.services.template.enums.BroadcastPhase;
 import com.aigreentick.services.template.model.broadcast.Broadcast;
 import com.aigreentick.services.template.repository.broadcast.BroadcastRepository;
 
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Broadcast persistence.
+ *
+ * Every write of a processing broadcast stamps data.owner with this
+ * instance's id, so after a restart the instance can tell the broadcasts its
+ * previous run left behind from ones another instance may still be running.
+ * The id comes from broadcast.recovery.instance-id, or is generated once and
+ * kept in broadcast.recovery.instance-id-file; either way it must be unique
+ * per instance and survive restarts.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -29,6 +51,38 @@ public class BroadcastServiceImpl {
 
     private final BroadcastRepository broadcastRepository;
 
+    // Anything this process wrote is at or after this
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    @Value("${broadcast.recovery.instance-id:}")
+    private String configuredInstanceId;
+
+    @Value("${broadcast.recovery.instance-id-file:data/instance-id}")
+    private String instanceIdFile;
+
+    @Getter
+    private String instanceId;
+
+    @PostConstruct
+    void resolveInstanceId() throws IOException {
+        if (configuredInstanceId != null && !configuredInstanceId.isBlank()) {
+            instanceId = configuredInstanceId.trim();
+            return;
+        }
+        Path file = Path.of(instanceIdFile);
+        if (Files.exists(file)) {
+            instanceId = Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        if (instanceId == null || instanceId.isEmpty()) {
+            instanceId = UUID.randomUUID().toString();
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, instanceId, StandardCharsets.UTF_8);
+        }
+        log.info("Broadcast instance id: {}", instanceId);
+    }
+
     /**
      * Save a broadcast record
      */
@@ -36,6 +90,9 @@ public class BroadcastServiceImpl {
     public Broadcast save(Broadcast broadcast) {
         log.info("Saving broadcast for userId: {}, templateId: {}",
                 broadcast.getUserId(), broadcast.getTemplateId());
+        if (broadcast.getData() != null) {
+            broadcast.getData().put("owner", instanceId);
+        }
         return broadcastRepository.save(broadcast);
     }
 
@@ -48,6 +105,17 @@ public class BroadcastServiceImpl {
                 .orElseThrow(() -> new IllegalArgumentException("Broadcast not found with ID: " + id));
     }
 
+    /**
+     * Get broadcast by ID, only if it belongs to the user
+     */
+    public Broadcast getBroadcastForUser(Long id, Long userId) {
+        Broadcast broadcast = getBroadcastById(id);
+        if (!Objects.equals(broadcast.getUserId(), userId)) {
+            throw new IllegalArgumentException("Broadcast not found with ID: " + id);
+        }
+        return broadcast;
+    }
+
     /**
      * Get all broadcasts with pagination
      */
@@ -113,4 +181,57 @@ public class BroadcastServiceImpl {
         return broadcasts;
     }
 
-}
\ No newline at end of file
+    /**
+     * Commits the broadcast's new execution phase in its own short transaction.
+     */
+    @Transactional
+    public void advancePhase(Long broadcastId, BroadcastPhase phase) {
+        log.info("Broadcast {} -> phase {}", broadcastId, phase);
+        broadcastRepository.updatePhase(broadcastId, phase.getValue(), instanceId, LocalDateTime.now());
+    }
+
+    /**
+     * Commits a progress snapshot of a running broadcast.
+     */
+    @Transactional
+    public void recordProgress(Long broadcastId, int built, int dispatched, int failed) {
+        broadcastRepository.updateProgress(broadcastId, instanceId, built, dispatched, failed, LocalDateTime.now());
+    }
+
+    /**
+     * Processing broadcasts whose phase has not advanced for staleMinutes.
+     */
+    @Transactional(readOnly = true)
+    public List<Broadcast> getInterruptedBroadcasts(int staleMinutes) {
+        return broadcastRepository.findInterruptedBroadcasts(resumablePhases(),
+                LocalDateTime.now().minusMinutes(staleMinutes));
+    }
+
+    /**
+     * Processing broadcasts this instance's previous run left behind,
+     * however recently it wrote them.
+     */
+    @Transactional(readOnly = true)
+    public List<Broadcast> getOrphanedBroadcasts() {
+        return broadcastRepository.findOrphanedBroadcasts(resumablePhases(), instanceId, startedAt);
+    }
+
+    /**
+     * Atomically claims an interrupted broadcast for recovery.
+     *
+     * @return true if this caller won the claim
+     */
+    @Transactional
+    public boolean claimForRecovery(Broadcast broadcast) {
+        return broadcastRepository.claimForRecovery(
+                broadcast.getId(), instanceId, broadcast.getUpdatedAt(), LocalDateTime.now()) == 1;
+    }
+
+    private static List<String> resumablePhases() {
+        return Arrays.stream(BroadcastPhase.values())
+                .filter(BroadcastPhase::isResumable)
+                .map(BroadcastPhase::getValue)
+                .toList();
+    }
+
+}
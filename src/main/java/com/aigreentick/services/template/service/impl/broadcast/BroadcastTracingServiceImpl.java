@@ -0,0 +1,117 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+
+import com.aigreentick.services.template.enums.BroadcastType;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+/**
+ * Tracing of the broadcast pipeline.
+ *
+ * Span layout of one broadcast:
+ *
+ * <pre>
+ * [HTTP request / broadcast job]
+ *   broadcast.execution            one per broadcast, ends when dispatch completes
+ *     broadcast.create_reports
+ *     broadcast.contact_linking    async, on messageDispatchExecutor
+ *     broadcast.build
+ *     broadcast.dispatch.chunk     one per chunk
+ *       http post                  messaging-service call, carries traceparent
+ * </pre>
+ *
+ * The root and the chunks are Observations, so the WebClient observation of
+ * the outbound call nests under its chunk and propagates trace headers.
+ * Phases are plain spans: they already have timers in
+ * BroadcastMetricsServiceImpl and must not register a second set.
+ */
+@Service
+public class BroadcastTracingServiceImpl {
+
+    public static final String BROADCAST_OBSERVATION = "broadcast.execution";
+    public static final String CHUNK_OBSERVATION = "broadcast.dispatch.chunk";
+
+    private final ObservationRegistry observationRegistry;
+    private final Tracer tracer;
+
+    public BroadcastTracingServiceImpl(ObservationRegistry observationRegistry, Tracer tracer) {
+        this.observationRegistry = observationRegistry;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Runs a broadcast execution under its root observation. The execution
+     * runs with the observation in scope; the observation stops when the
+     * returned future completes.
+     */
+    public CompletableFuture<Void> traceBroadcast(
+            BroadcastType type, Long broadcastId, Long userId, int recipients,
+            Supplier<CompletableFuture<Void>> execution) {
+
+        Observation observation = Observation.createNotStarted(BROADCAST_OBSERVATION, observationRegistry)
+                .contextualName("broadcast " + type.getValue())
+                .lowCardinalityKeyValue("type", type.getValue())
+                .highCardinalityKeyValue("broadcast.id", String.valueOf(broadcastId))
+                .highCardinalityKeyValue("user.id", String.valueOf(userId))
+                .highCardinalityKeyValue("recipients", String.valueOf(recipients))
+                .start();
+
+        CompletableFuture<Void> future;
+        try (Observation.Scope scope = observation.openScope()) {
+            future = execution.get();
+        } catch (RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            throw e;
+        }
+
+        return future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                observation.error(throwable);
+            }
+            observation.stop();
+        });
+    }
+
+    /**
+     * Runs one pipeline phase in a child span of the current span.
+     */
+    public <T> T tracePhase(String phase, Supplier<T> work) {
+        Span span = tracer.nextSpan().name("broadcast." + phase).start();
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return work.get();
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Starts the observation of one dispatch chunk.
+     *
+     * @param parent observation the chunk belongs to (captured on the
+     *               orchestrator thread; chunks complete on other threads)
+     */
+    public Observation startChunk(Observation parent, Long broadcastId, int chunkNumber, int chunkSize) {
+        return Observation.createNotStarted(CHUNK_OBSERVATION, observationRegistry)
+                .parentObservation(parent)
+                .contextualName("dispatch chunk")
+                .highCardinalityKeyValue("broadcast.id", String.valueOf(broadcastId))
+                .highCardinalityKeyValue("chunk.number", String.valueOf(chunkNumber))
+                .highCardinalityKeyValue("chunk.size", String.valueOf(chunkSize))
+                .start();
+    }
+
+    public Observation currentObservation() {
+        return observationRegistry.getCurrentObservation();
+    }
+}
@@ -0,0 +1,333 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of one broadcast's dispatch: a header naming the
+ * payload segments the chunks are read from, then one acknowledgement per
+ * chunk that was handled.
+ *
+ * The payloads themselves are not copied: they stay in the segment files of
+ * the broadcast's durable DispatchPayloadBuffer, forced before the journal
+ * is written, and chunk n is items (n - 1) * chunkSize onwards of those
+ * segments, as in the original dispatch.
+ *
+ * Record layout: int length, byte type, int chunk number, body, int CRC32 of
+ * type + chunk number + body. A BEGIN body is the dispatch key, chunk size,
+ * item count and the segment file names (strings as int length + UTF-8). An
+ * ACK has no body. A record cut short by a crash fails its length or CRC
+ * check and ends the read there; open() cuts it off before appending.
+ *
+ * Every chunk is sent with a stable id (broadcast id, dispatch key, chunk
+ * number) that a replay of the same journal reuses, so the messaging service
+ * can drop a chunk it accepted before the crash.
+ *
+ * Acks are appended from the dispatch threads and forced in batches by
+ * DispatchJournalServiceImpl, so an ack costs a write, not an fsync.
+ */
+public class DispatchJournal implements Closeable {
+
+    static final byte ACK = 2;
+    static final byte BEGIN = 3;
+
+    private final Long broadcastId;
+    private final Path file;
+    private final FileChannel channel;
+    private final String dispatchKey;
+    private final int chunkSize;
+    private final int totalItems;
+    private final List<Path> segmentFiles;
+    private final BitSet acked;
+    private boolean dirty;
+
+    private DispatchJournal(Long broadcastId, Path file, FileChannel channel, Header header, BitSet acked) {
+        this.broadcastId = broadcastId;
+        this.file = file;
+        this.channel = channel;
+        this.dispatchKey = header.dispatchKey();
+        this.chunkSize = header.chunkSize();
+        this.totalItems = header.totalItems();
+        this.segmentFiles = header.segmentFiles();
+        this.acked = acked;
+    }
+
+    /**
+     * Writes a new journal for a dispatch of the given durable buffer,
+     * replacing any previous one atomically, and opens it for
+     * acknowledgements.
+     */
+    static DispatchJournal create(Long broadcastId, Path file, int chunkSize, DispatchPayloadBuffer buffer)
+            throws IOException {
+        Header header = new Header(UUID.randomUUID().toString().substring(0, 8), chunkSize, buffer.size(),
+                buffer.segmentFiles());
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, encode(BEGIN, 0, header.encode()));
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new DispatchJournal(broadcastId, file, channel, header, new BitSet());
+    }
+
+    /**
+     * Opens the journal a previous run left behind, to continue its dispatch.
+     * A torn record at the end is cut off so new acks stay readable.
+     *
+     * @throws IOException if the header is missing or corrupt
+     */
+    static DispatchJournal open(Long broadcastId, Path file) throws IOException {
+        BitSet acked = new BitSet();
+        Header[] header = {null};
+        long validBytes = scan(file, (type, chunkNum, body) -> {
+            if (type == BEGIN && header[0] == null) {
+                header[0] = Header.decode(body, file.getParent());
+            } else if (type == ACK) {
+                acked.set(chunkNum);
+            }
+        });
+        if (header[0] == null) {
+            throw new IOException("Dispatch journal " + file + " has no valid header");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(validBytes);
+            channel.position(validBytes);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new DispatchJournal(broadcastId, file, channel, header[0], acked);
+    }
+
+    /**
+     * Segment files named by a journal's header, or an empty list if it has
+     * none that can be read.
+     */
+    static List<Path> readSegmentFiles(Path file) {
+        List<Path> segments = new ArrayList<>();
+        try {
+            scan(file, (type, chunkNum, body) -> {
+                if (type == BEGIN && segments.isEmpty()) {
+                    segments.addAll(Header.decode(body, file.getParent()).segmentFiles());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            // Unreadable header: nothing to refer to
+        }
+        return segments;
+    }
+
+    public Long getBroadcastId() {
+        return broadcastId;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    public int getTotalChunks() {
+        return (totalItems + chunkSize - 1) / chunkSize;
+    }
+
+    public List<Path> getSegmentFiles() {
+        return segmentFiles;
+    }
+
+    /**
+     * Chunk numbers without an ack, in order.
+     */
+    public synchronized List<Integer> pendingChunks() {
+        List<Integer> pending = new ArrayList<>();
+        for (int chunkNum = 1; chunkNum <= getTotalChunks(); chunkNum++) {
+            if (!acked.get(chunkNum)) {
+                pending.add(chunkNum);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Id of a chunk, the same for every replay of this journal.
+     */
+    public String chunkId(int chunkNum) {
+        return broadcastId + ":" + dispatchKey + ":" + chunkNum;
+    }
+
+    /**
+     * Marks a chunk as handled (sent, failed or handed to the retry queue).
+     * Durable after the next sync.
+     */
+    public synchronized void ack(int chunkNum) {
+        try {
+            writeFully(channel, encode(ACK, chunkNum, new byte[0]));
+            acked.set(chunkNum);
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal ack of chunk " + chunkNum
+                    + " of broadcast " + broadcastId, e);
+        }
+    }
+
+    /**
+     * Forces appended acks to disk, if there are any.
+     */
+    synchronized void sync() throws IOException {
+        if (dirty && channel.isOpen()) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Closes the journal and deletes it: the dispatch finished. The segments
+     * belong to the payload buffer and are deleted when it is closed.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer encode(byte type, int chunkNum, byte[] body) {
+        int length = 1 + 4 + body.length;
+        ByteBuffer record = ByteBuffer.allocate(4 + length + 4);
+        record.putInt(length).put(type).putInt(chunkNum).put(body);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length);
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Visits the records up to the first torn one.
+     *
+     * @return bytes of the file that hold complete records
+     */
+    private static long scan(Path file, RecordVisitor visitor) throws IOException {
+        long valid = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                DataInputStream data = new DataInputStream(
+                        new BufferedInputStream(Channels.newInputStream(in), 64 * 1024))) {
+            long remaining = in.size();
+            while (remaining >= 4) {
+                int length = data.readInt();
+                if (length < 5 || length + 4L > remaining - 4) {
+                    return valid; // torn tail
+                }
+                byte[] record = new byte[length];
+                data.readFully(record);
+                int storedCrc = data.readInt();
+
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != storedCrc) {
+                    return valid; // torn tail
+                }
+
+                ByteBuffer header = ByteBuffer.wrap(record, 0, 5);
+                byte type = header.get();
+                int chunkNum = header.getInt();
+                byte[] body = new byte[length - 5];
+                System.arraycopy(record, 5, body, 0, body.length);
+                visitor.visit(type, chunkNum, body);
+
+                remaining -= 4 + length + 4;
+                valid += 4 + length + 4;
+            }
+        } catch (EOFException e) {
+            // torn tail
+        }
+        return valid;
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private record Header(String dispatchKey, int chunkSize, int totalItems, List<Path> segmentFiles) {
+
+        byte[] encode() {
+            List<byte[]> strings = new ArrayList<>();
+            strings.add(dispatchKey.getBytes(StandardCharsets.UTF_8));
+            for (Path segment : segmentFiles) {
+                strings.add(segment.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            }
+            int bytes = 12;
+            for (byte[] string : strings) {
+                bytes += 4 + string.length;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(bytes);
+            body.putInt(strings.get(0).length).put(strings.get(0));
+            body.putInt(chunkSize).putInt(totalItems).putInt(segmentFiles.size());
+            for (byte[] name : strings.subList(1, strings.size())) {
+                body.putInt(name.length).put(name);
+            }
+            return body.array();
+        }
+
+        /**
+         * Segment names are resolved against the journal's directory.
+         */
+        static Header decode(byte[] body, Path dir) {
+            ByteBuffer buf = ByteBuffer.wrap(body);
+            String dispatchKey = readString(buf);
+            int chunkSize = buf.getInt();
+            int totalItems = buf.getInt();
+            int segmentCount = buf.getInt();
+            List<Path> segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(dir.resolve(readString(buf)));
+            }
+            return new Header(dispatchKey, chunkSize, totalItems, List.copyOf(segments));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte type, int chunkNum, byte[] body);
+    }
+}
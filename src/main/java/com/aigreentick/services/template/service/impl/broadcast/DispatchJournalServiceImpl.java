@@ -0,0 +1,307 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local, durable record of in-flight dispatches (see DispatchJournal).
+ *
+ * Payloads of journaled dispatches are built into durable segments in
+ * broadcast.journal.dir (DispatchPayloadBufferServiceImpl); before the
+ * first chunk is sent, a small journal naming those segments is written
+ * next to them. Each handled chunk is acknowledged, and acks are forced to
+ * disk every broadcast.journal.sync-interval-ms. The journal is deleted
+ * when the dispatch completes.
+ *
+ * After a crash, BroadcastRecoveryProcessor resumes every broadcast that
+ * still has a journal here. Its orchestrator reopens the journal and sends
+ * the unacknowledged chunks from the original segments instead of
+ * rebuilding, acknowledging them in the same journal. Unacknowledged
+ * includes chunks that were POSTed but whose ack was not synced; they are
+ * sent again under their original chunk id, for the messaging service to
+ * drop, and recipients whose report already has a message id are skipped.
+ *
+ * Segments without a journal (a crash during the build) are removed on
+ * startup.
+ */
+@Service
+@Slf4j
+public class DispatchJournalServiceImpl {
+
+    private static final String PREFIX = "broadcast-";
+    private static final String SUFFIX = ".journal";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Map<Long, DispatchJournal> openJournals = new ConcurrentHashMap<>();
+
+    @Value("${broadcast.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${broadcast.journal.dir:data/dispatch-journal}")
+    private String journalDir;
+
+    @Value("${broadcast.journal.sync-interval-ms:200}")
+    private long syncIntervalMs;
+
+    private Path dir;
+    private ScheduledFuture<?> syncTask;
+
+    public DispatchJournalServiceImpl(@Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        dir = Path.of(journalDir);
+        Files.createDirectories(dir);
+        deleteOrphanedSegments();
+        syncTask = scheduler.scheduleWithFixedDelay(this::syncAll, Duration.ofMillis(syncIntervalMs));
+    }
+
+    @PreDestroy
+    void stop() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+        }
+        // Journals of unfinished dispatches stay on disk for the next start
+        for (DispatchJournal journal : openJournals.values()) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Failed to close dispatch journal of broadcast {}", journal.getBroadcastId(), e);
+            }
+        }
+        openJournals.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Directory of the journals and of the durable payload segments they
+     * refer to.
+     */
+    public Path getDir() {
+        return dir;
+    }
+
+    /**
+     * Journals a dispatch of the buffer's items in chunks of chunkSize before
+     * it starts.
+     *
+     * @return the open journal, or null when journaling is disabled
+     */
+    public DispatchJournal begin(Long broadcastId, DispatchPayloadBuffer buffer, int chunkSize) {
+        if (!enabled) {
+            return null;
+        }
+        if (!buffer.isDurable()) {
+            throw new IllegalStateException("Payload buffer of broadcast " + broadcastId
+                    + " is not durable and cannot be journaled");
+        }
+        try {
+            DispatchJournal journal = DispatchJournal.create(broadcastId, fileOf(broadcastId), chunkSize, buffer);
+            openJournals.put(broadcastId, journal);
+            log.info("Journaled {} chunks of broadcastId: {} over {} payload segments", journal.getTotalChunks(),
+                    broadcastId, journal.getSegmentFiles().size());
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal dispatch of broadcast " + broadcastId, e);
+        }
+    }
+
+    /**
+     * Deletes the journal of a finished dispatch.
+     */
+    public void complete(DispatchJournal journal) {
+        openJournals.remove(journal.getBroadcastId(), journal);
+        try {
+            journal.delete();
+        } catch (IOException e) {
+            log.warn("Failed to delete dispatch journal of broadcast {}", journal.getBroadcastId(), e);
+        }
+    }
+
+    /**
+     * Broadcasts with a journal left by a previous run.
+     */
+    public List<Long> getJournaledBroadcastIds() {
+        if (!enabled) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            ids.add(Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            log.warn("Ignoring unexpected file in dispatch journal directory: {}", name);
+                        }
+                    });
+        } catch (IOException e) {
+            log.error("Could not list dispatch journals in {}", dir, e);
+        }
+        return ids;
+    }
+
+    /**
+     * Reopens the journal of a broadcast interrupted while dispatching, for
+     * its unacknowledged chunks. Items whose mobile is not in
+     * undispatchedMobiles were already handed to WhatsApp and are skipped.
+     *
+     * @return the dispatch to continue, or null if there is no usable
+     *         journal (an unusable one is discarded)
+     */
+    public JournaledDispatch resume(Long broadcastId, Collection<String> undispatchedMobiles) {
+        Path file = enabled ? fileOf(broadcastId) : null;
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+
+        DispatchJournal journal;
+        DispatchPayloadBuffer buffer;
+        try {
+            journal = DispatchJournal.open(broadcastId, file);
+        } catch (IOException e) {
+            log.error("Discarding unreadable dispatch journal of broadcastId: {}", broadcastId, e);
+            discard(broadcastId);
+            return null;
+        }
+        try {
+            buffer = DispatchPayloadBuffer.open(broadcastId, journal.getSegmentFiles());
+        } catch (IOException e) {
+            log.error("Discarding dispatch journal of broadcastId: {} - payload segments unreadable",
+                    broadcastId, e);
+            closeQuietly(journal);
+            discard(broadcastId);
+            return null;
+        }
+        if (buffer.size() != journal.getTotalItems()) {
+            log.error("Discarding dispatch journal of broadcastId: {} - {} payloads journaled, {} found",
+                    broadcastId, journal.getTotalItems(), buffer.size());
+            buffer.close();
+            closeQuietly(journal);
+            discard(broadcastId);
+            return null;
+        }
+
+        Set<String> undispatched = new HashSet<>(undispatchedMobiles);
+        List<Integer> pendingChunks = journal.pendingChunks();
+        int messages = 0;
+        for (int chunkNum : pendingChunks) {
+            for (String mobile : buffer.readMobiles((chunkNum - 1) * journal.getChunkSize(),
+                    journal.getChunkSize())) {
+                if (undispatched.contains(mobile)) {
+                    messages++;
+                }
+            }
+        }
+        openJournals.put(broadcastId, journal);
+        log.info("Resuming dispatch journal of broadcastId: {} - {} unacknowledged chunks, {} messages",
+                broadcastId, pendingChunks.size(), messages);
+        return new JournaledDispatch(journal, buffer, pendingChunks, undispatched, messages);
+    }
+
+    /**
+     * Removes the journal of a broadcast that will not be resumed, with the
+     * payload segments it refers to.
+     */
+    public void discard(Long broadcastId) {
+        if (!enabled) {
+            return;
+        }
+        Path file = fileOf(broadcastId);
+        DispatchJournal open = openJournals.remove(broadcastId);
+        if (open != null) {
+            closeQuietly(open);
+        }
+        try {
+            if (Files.exists(file)) {
+                for (Path segment : DispatchJournal.readSegmentFiles(file)) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to discard dispatch journal of broadcast {}", broadcastId, e);
+        }
+    }
+
+    void syncAll() {
+        for (DispatchJournal journal : openJournals.values()) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                log.error("Failed to sync dispatch journal of broadcast {}", journal.getBroadcastId(), e);
+            }
+        }
+    }
+
+    private Path fileOf(Long broadcastId) {
+        return dir.resolve(PREFIX + broadcastId + SUFFIX);
+    }
+
+    /**
+     * Deletes payload segments no journal refers to: their dispatch either
+     * finished or never started.
+     */
+    private void deleteOrphanedSegments() throws IOException {
+        Set<Path> referenced = new HashSet<>();
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    DispatchJournal.readSegmentFiles(path).forEach(segment -> referenced.add(segment.normalize()));
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(path);
+                }
+            }
+        }
+        int deleted = 0;
+        for (Path segment : segments) {
+            if (!referenced.contains(segment.normalize()) && Files.deleteIfExists(segment)) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} payload segments without a dispatch journal", deleted);
+        }
+    }
+
+    private static void closeQuietly(DispatchJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Failed to close dispatch journal of broadcast {}", journal.getBroadcastId(), e);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+
+/**
+ * Append-only store of the built dispatch items of one broadcast.
+ *
+ * The first heapWindow items stay on the heap as they are. Everything after
+ * them is encoded into segment files and read back through memory-mapped
+ * buffers, so a campaign's payloads live in the page cache and on disk
+ * instead of in the Java heap. The window only saves the first chunks a
+ * round trip through the page cache, so it is kept small, and read() hands
+ * each heap item out once and releases it: the window shrinks as the first
+ * chunks are dispatched instead of living as long as the dispatch.
+ *
+ * Record layout: int mobile length, mobile (UTF-8), int payload length,
+ * payload (UTF-8). Segments roll at segmentBytes; a record never spans two
+ * segments.
+ *
+ * A durable buffer keeps nothing on the heap and forces its segments on
+ * seal(). Its segments are the dispatch journal's copy of the payloads
+ * (see DispatchJournal): after a crash, open() reads them back as they
+ * were built.
+ *
+ * Lifecycle: one thread appends, in dispatch order, then calls seal(). After
+ * that read() may be called from any thread, once per range of heap items.
+ * close() deletes the segments.
+ */
+public class DispatchPayloadBuffer implements Closeable {
+
+    private static final int WRITE_BUFFER_BYTES = 1024 * 1024;
+
+    private final Long broadcastId;
+    private final int heapWindow;
+    private final Path spillDir;
+    private final long segmentBytes;
+    private final boolean durable;
+
+    private final List<BroadcastDispatchItemDto> heapItems = new ArrayList<>();
+    private final List<Segment> segments = new ArrayList<>();
+
+    // Spilled item i -> (segment << 32 | offset in segment)
+    private long[] positions = new long[0];
+    private int spilled;
+
+    private ByteBuffer writeBuffer;
+    private long segmentWritten;
+    private volatile boolean sealed;
+    private volatile boolean closed;
+
+    public DispatchPayloadBuffer(Long broadcastId, int heapWindow, Path spillDir, long segmentBytes,
+            boolean durable) {
+        this.broadcastId = broadcastId;
+        this.heapWindow = durable ? 0 : heapWindow;
+        this.spillDir = spillDir;
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+        this.durable = durable;
+    }
+
+    /**
+     * Opens the segments of a durable buffer written before a crash, in
+     * their original order, as a sealed buffer.
+     *
+     * @throws IOException if a segment is missing or cut short
+     */
+    public static DispatchPayloadBuffer open(Long broadcastId, List<Path> segmentFiles) throws IOException {
+        DispatchPayloadBuffer buffer = new DispatchPayloadBuffer(broadcastId, 0, null, Integer.MAX_VALUE, true);
+        try {
+            for (Path file : segmentFiles) {
+                Segment segment = new Segment(file, null);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    segment.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                buffer.segments.add(segment);
+                buffer.index(segment.mapped, buffer.segments.size() - 1, file);
+            }
+        } catch (IOException e) {
+            buffer.segments.clear();
+            throw e;
+        }
+        buffer.sealed = true;
+        return buffer;
+    }
+
+    public void append(List<BroadcastDispatchItemDto> items) {
+        if (sealed) {
+            throw new IllegalStateException("Payload buffer of broadcast " + broadcastId + " is sealed");
+        }
+        try {
+            for (BroadcastDispatchItemDto item : items) {
+                if (heapItems.size() < heapWindow) {
+                    heapItems.add(item);
+                } else {
+                    spill(item);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill payloads of broadcast " + broadcastId, e);
+        }
+    }
+
+    /**
+     * Ends the append phase and maps the segments for reading.
+     */
+    public void seal() {
+        if (sealed) {
+            return;
+        }
+        try {
+            if (!segments.isEmpty()) {
+                flushWriteBuffer();
+            }
+            for (Segment segment : segments) {
+                if (durable) {
+                    segment.channel.force(true);
+                }
+                segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.channel.size());
+                // The mapping stays valid after the channel is closed
+                segment.channel.close();
+                segment.channel = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map payload segments of broadcast " + broadcastId, e);
+        }
+        writeBuffer = null;
+        sealed = true;
+    }
+
+    public int size() {
+        return heapItems.size() + spilled;
+    }
+
+    public int spilledCount() {
+        return spilled;
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /**
+     * Segment files in item order.
+     */
+    public List<Path> segmentFiles() {
+        return segments.stream().map(segment -> segment.file).toList();
+    }
+
+    /**
+     * Reads count items starting at index from. The buffer must be sealed.
+     * Heap items are released as they are read; reading them again fails.
+     */
+    public List<BroadcastDispatchItemDto> read(int from, int count) {
+        if (!sealed || closed) {
+            throw new IllegalStateException("Payload buffer of broadcast " + broadcastId + " is not readable");
+        }
+        int to = Math.min(from + count, size());
+        List<BroadcastDispatchItemDto> items = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            items.add(i < heapItems.size() ? takeHeapItem(i) : decode(positions[i - heapItems.size()]));
+        }
+        return items;
+    }
+
+    /**
+     * Like read(), without decoding the payloads or releasing heap items.
+     */
+    public List<String> readMobiles(int from, int count) {
+        if (!sealed || closed) {
+            throw new IllegalStateException("Payload buffer of broadcast " + broadcastId + " is not readable");
+        }
+        int to = Math.min(from + count, size());
+        List<String> mobiles = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            mobiles.add(i < heapItems.size() ? requireUnread(heapItems.get(i), i).getMobileNo()
+                    : decodeMobile(positions[i - heapItems.size()]));
+        }
+        return mobiles;
+    }
+
+    /**
+     * Releases the items and deletes the segment files. Mapped pages are
+     * returned once the buffers are garbage collected; on Linux the deleted
+     * files no longer count against the disk after that.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heapItems.clear();
+        for (Segment segment : segments) {
+            segment.mapped = null;
+            try {
+                if (segment.channel != null) {
+                    segment.channel.close();
+                }
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                // Best effort; the spill directory is removed on shutdown
+            }
+        }
+        segments.clear();
+        positions = new long[0];
+    }
+
+    private BroadcastDispatchItemDto takeHeapItem(int index) {
+        // Each range is read by one chunk, so slots are never contended
+        return requireUnread(heapItems.set(index, null), index);
+    }
+
+    private BroadcastDispatchItemDto requireUnread(BroadcastDispatchItemDto item, int index) {
+        if (item == null) {
+            throw new IllegalStateException("Item " + index + " of broadcast " + broadcastId + " was already read");
+        }
+        return item;
+    }
+
+    private void spill(BroadcastDispatchItemDto item) throws IOException {
+        byte[] mobile = item.getMobileNo().getBytes(StandardCharsets.UTF_8);
+        byte[] payload = item.getPayload().getBytes(StandardCharsets.UTF_8);
+        int recordBytes = 8 + mobile.length + payload.length;
+
+        if (segments.isEmpty() || (segmentWritten > 0 && segmentWritten + recordBytes > segmentBytes)) {
+            rollSegment();
+        }
+
+        if (spilled == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(1024, positions.length * 2));
+        }
+        positions[spilled++] = ((long) (segments.size() - 1) << 32) | segmentWritten;
+
+        if (writeBuffer.remaining() < recordBytes) {
+            flushWriteBuffer();
+        }
+        if (writeBuffer.remaining() < recordBytes) {
+            // Larger than the write buffer: write it directly
+            ByteBuffer record = ByteBuffer.allocate(recordBytes);
+            putRecord(record, mobile, payload);
+            record.flip();
+            writeFully(record);
+        } else {
+            putRecord(writeBuffer, mobile, payload);
+        }
+        segmentWritten += recordBytes;
+    }
+
+    private void rollSegment() throws IOException {
+        if (!segments.isEmpty()) {
+            flushWriteBuffer();
+        } else {
+            Files.createDirectories(spillDir);
+            writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        }
+        Path file = Files.createTempFile(spillDir, "broadcast-" + broadcastId + "-", ".seg");
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segments.add(new Segment(file, channel));
+        segmentWritten = 0;
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        FileChannel channel = segments.get(segments.size() - 1).channel;
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static void putRecord(ByteBuffer target, byte[] mobile, byte[] payload) {
+        target.putInt(mobile.length).put(mobile).putInt(payload.length).put(payload);
+    }
+
+    /**
+     * Records the position of every record of a segment read back by open().
+     */
+    private void index(MappedByteBuffer mapped, int segmentNo, Path file) throws IOException {
+        int offset = 0;
+        int limit = mapped.limit();
+        while (offset < limit) {
+            if (limit - offset < 4) {
+                throw new IOException("Truncated payload segment " + file);
+            }
+            int mobileLength = mapped.getInt(offset);
+            if (mobileLength < 0 || limit - offset - 4 - mobileLength < 4) {
+                throw new IOException("Truncated payload segment " + file);
+            }
+            int payloadLength = mapped.getInt(offset + 4 + mobileLength);
+            long end = (long) offset + 8 + mobileLength + payloadLength;
+            if (payloadLength < 0 || end > limit) {
+                throw new IOException("Truncated payload segment " + file);
+            }
+            if (spilled == positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(1024, positions.length * 2));
+            }
+            positions[spilled++] = ((long) segmentNo << 32) | offset;
+            offset = (int) end;
+        }
+    }
+
+    private String decodeMobile(long position) {
+        MappedByteBuffer mapped = segments.get((int) (position >>> 32)).mapped;
+        int offset = (int) position;
+        byte[] mobile = new byte[mapped.getInt(offset)];
+        mapped.get(offset + 4, mobile);
+        return new String(mobile, StandardCharsets.UTF_8);
+    }
+
+    private BroadcastDispatchItemDto decode(long position) {
+        // Absolute gets only, so concurrent readers can share the mapping
+        MappedByteBuffer mapped = segments.get((int) (position >>> 32)).mapped;
+        int offset = (int) position;
+
+        byte[] mobile = new byte[mapped.getInt(offset)];
+        mapped.get(offset + 4, mobile);
+        offset += 4 + mobile.length;
+
+        byte[] payload = new byte[mapped.getInt(offset)];
+        mapped.get(offset + 4, payload);
+
+        return BroadcastDispatchItemDto.builder()
+                .broadcastId(broadcastId)
+                .mobileNo(new String(mobile, StandardCharsets.UTF_8))
+                .payload(new String(payload, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private FileChannel channel;
+        private volatile MappedByteBuffer mapped;
+
+        private Segment(Path file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the payload buffers of broadcast executions.
+ *
+ * Every process spills into its own temporary directory under
+ * broadcast.payload-buffer.spill-dir, so instances sharing a host never
+ * touch each other's segments. The directory is removed on shutdown.
+ *
+ * Buffers of journaled dispatches are durable instead: they write every
+ * payload to segments in the journal directory, which the journal refers
+ * to rather than copying the payloads again.
+ */
+@Service
+@Slf4j
+public class DispatchPayloadBufferServiceImpl {
+
+    private final DispatchJournalServiceImpl dispatchJournal;
+
+    @Value("${broadcast.payload-buffer.heap-window:2000}")
+    private int heapWindow;
+
+    @Value("${broadcast.payload-buffer.spill-dir:${java.io.tmpdir}/broadcast-spill}")
+    private String spillRoot;
+
+    @Value("${broadcast.payload-buffer.segment-size-mb:256}")
+    private int segmentSizeMb;
+
+    private Path spillDir;
+
+    public DispatchPayloadBufferServiceImpl(DispatchJournalServiceImpl dispatchJournal) {
+        this.dispatchJournal = dispatchJournal;
+    }
+
+    @PostConstruct
+    void createSpillDir() throws IOException {
+        Path root = Path.of(spillRoot);
+        Files.createDirectories(root);
+        spillDir = Files.createTempDirectory(root, "spill-");
+        log.info("Dispatch payloads beyond {} per broadcast spill to {}", heapWindow, spillDir);
+    }
+
+    @PreDestroy
+    void deleteSpillDir() {
+        try (Stream<Path> files = Files.walk(spillDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Failed to delete spill directory {}: {}", spillDir, e.getMessage());
+        }
+    }
+
+    /**
+     * @param journaled the buffer will be dispatched with a journal; durable
+     *                  unless journaling is disabled
+     */
+    public DispatchPayloadBuffer create(Long broadcastId, boolean journaled) {
+        boolean durable = journaled && dispatchJournal.isEnabled();
+        return new DispatchPayloadBuffer(broadcastId, heapWindow,
+                durable ? dispatchJournal.getDir() : spillDir, segmentSizeMb * 1024L * 1024L, durable);
+    }
+}
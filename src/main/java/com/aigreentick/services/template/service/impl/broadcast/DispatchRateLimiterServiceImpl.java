@@ -0,0 +1,155 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import com.aigreentick.services.template.config.client.ServerErrorResponsePredicate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per phone number throughput governor for message dispatch.
+ *
+ * Each WhatsApp phone number (phoneNumberId) gets an AdaptiveTokenBucket.
+ * Dispatch chunks wait for their tokens before being sent, and every
+ * messaging-service response feeds back into the bucket: success raises the
+ * rate, 429 / 5xx lowers it. Sustained throughput therefore settles at the
+ * ceiling the number is actually allowed, instead of firing everything at
+ * once and failing whole chunks on throttling.
+ *
+ * Queued waiters are served by a short periodic tick on the background
+ * scheduler; a caller never blocks a thread while waiting.
+ */
+@Service
+@Slf4j
+public class DispatchRateLimiterServiceImpl {
+
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Map<String, AdaptiveTokenBucket> buckets = new ConcurrentHashMap<>();
+
+    @Value("${dispatch.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dispatch.rate-limit.initial-rate:80}")
+    private double initialRate;
+
+    @Value("${dispatch.rate-limit.min-rate:10}")
+    private double minRate;
+
+    @Value("${dispatch.rate-limit.max-rate:1000}")
+    private double maxRate;
+
+    @Value("${dispatch.rate-limit.additive-increase:5}")
+    private double additiveIncrease;
+
+    @Value("${dispatch.rate-limit.multiplicative-decrease:0.5}")
+    private double multiplicativeDecrease;
+
+    @Value("${dispatch.rate-limit.burst-seconds:1}")
+    private double burstSeconds;
+
+    @Value("${dispatch.rate-limit.decrease-cooldown-ms:2000}")
+    private long decreaseCooldownMs;
+
+    @Value("${dispatch.rate-limit.tick-ms:20}")
+    private long tickMs;
+
+    private ScheduledFuture<?> tickTask;
+
+    public DispatchRateLimiterServiceImpl(
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void startTicking() {
+        if (enabled) {
+            tickTask = scheduler.scheduleAtFixedRate(this::grantWaiting, Duration.ofMillis(tickMs));
+        }
+    }
+
+    @PreDestroy
+    void stopTicking() {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+        }
+        IllegalStateException shutdown = new IllegalStateException("Dispatch rate limiter shut down");
+        buckets.values().forEach(bucket -> bucket.drainAll().forEach(f -> f.completeExceptionally(shutdown)));
+    }
+
+    /**
+     * @return a future completed when permits messages may be sent for the
+     *         phone number
+     */
+    public CompletableFuture<Void> acquire(String phoneNumberId, int permits) {
+        if (!enabled || phoneNumberId == null || permits <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return bucket(phoneNumberId).acquire(permits);
+    }
+
+    /**
+     * Feeds a messaging-service response back into the phone number's rate.
+     * 202 only means a chunk was queued (queue transport) and is ignored; the
+     * queue's sender reports the real outcome.
+     *
+     * @param statusCode HTTP status of the dispatch call
+     * @param permits    messages the call carried
+     */
+    public void onResponse(String phoneNumberId, int statusCode, int permits) {
+        // A local bulkhead rejection says nothing about the account's rate
+        if (!enabled || phoneNumberId == null || statusCode == ServerErrorResponsePredicate.BULKHEAD_FULL) {
+            return;
+        }
+        AdaptiveTokenBucket bucket = bucket(phoneNumberId);
+        if (statusCode == 429 || statusCode >= 500) {
+            if (bucket.onThrottle()) {
+                log.warn("Dispatch throttled for {} (HTTP {}), rate lowered to {}/s",
+                        phoneNumberId, statusCode, String.format("%.1f", bucket.getRate()));
+            }
+        } else if (statusCode >= 200 && statusCode < 300 && statusCode != 202) {
+            bucket.onSuccess(permits);
+        }
+    }
+
+    /**
+     * Current allowed rate (messages per second) of a phone number
+     */
+    public double getRate(String phoneNumberId) {
+        AdaptiveTokenBucket bucket = buckets.get(phoneNumberId);
+        return bucket != null ? bucket.getRate() : initialRate;
+    }
+
+    public Map<String, AdaptiveTokenBucket> getBuckets() {
+        return Map.copyOf(buckets);
+    }
+
+    private AdaptiveTokenBucket bucket(String phoneNumberId) {
+        return buckets.computeIfAbsent(phoneNumberId, id -> new AdaptiveTokenBucket(
+                initialRate, minRate, maxRate, additiveIncrease, multiplicativeDecrease, burstSeconds,
+                Duration.ofMillis(decreaseCooldownMs).toNanos()));
+    }
+
+    private void grantWaiting() {
+        for (AdaptiveTokenBucket bucket : buckets.values()) {
+            if (!bucket.hasWaiters()) {
+                continue;
+            }
+            List<CompletableFuture<Void>> granted = bucket.drainGranted();
+            for (CompletableFuture<Void> future : granted) {
+                future.complete(null);
+            }
+        }
+    }
+}
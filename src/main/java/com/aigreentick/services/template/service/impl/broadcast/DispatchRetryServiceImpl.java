@@ -0,0 +1,469 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aigreentick.services.template.client.transport.DispatchTransport;
+import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+import com.aigreentick.services.template.model.account.WhatsappAccount;
+import com.aigreentick.services.template.model.broadcast.Broadcast;
+import com.aigreentick.services.template.model.broadcast.DispatchRetry;
+import com.aigreentick.services.template.repository.broadcast.DispatchRetryRepository;
+import com.aigreentick.services.template.service.impl.account.WhatsappAccountServiceImpl;
+import com.aigreentick.services.template.service.impl.common.WalletReservation;
+import com.aigreentick.services.template.service.impl.common.WalletReservationServiceImpl;
+import com.aigreentick.services.template.service.impl.contact.FrequencyCapServiceImpl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retries dispatch chunks that failed as a whole (messaging service down,
+ * timeout, 429 / 5xx response). Chunks rejected with any other 4xx are not
+ * retried: their reports are marked failed right away.
+ *
+ * Failed items are persisted with their built payload and re-sent with
+ * exponential backoff and jitter. Due items of the same account are pooled
+ * across broadcasts and re-sent as full-size chunks, so a transient outage
+ * recovers on its own without re-running broadcasts.
+ *
+ * Wallet: queued messages stay reserved (held) until their retry is
+ * dispatched or gives up; giving up refunds them and marks their reports
+ * failed.
+ */
+@Service
+@Slf4j
+public class DispatchRetryServiceImpl {
+
+    private final DispatchRetryRepository retryRepository;
+    private final DispatchTransport dispatchTransport;
+    private final WhatsappAccountServiceImpl whatsappAccountService;
+    private final WalletReservationServiceImpl walletReservationService;
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final ReportServiceImpl reportService;
+    private final DispatchRateLimiterServiceImpl rateLimiter;
+    private final BroadcastMetricsServiceImpl metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Executor dispatchExecutor;
+    private final BroadcastAdmissionServiceImpl admissionService;
+    private final FrequencyCapServiceImpl frequencyCapService;
+    private final BroadcastServiceImpl broadcastService;
+
+    @Value("${dispatch.retry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dispatch.retry.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${dispatch.retry.base-delay-ms:2000}")
+    private long baseDelayMs;
+
+    @Value("${dispatch.retry.max-delay-ms:300000}")
+    private long maxDelayMs;
+
+    @Value("${dispatch.retry.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${dispatch.retry.chunks-per-poll:10}")
+    private int chunksPerPoll;
+
+    @Value("${dispatch.retry.in-flight-timeout-minutes:10}")
+    private int inFlightTimeoutMinutes;
+
+    @Value("${broadcast.dispatch-chunk-size:100}")
+    private int dispatchChunkSize;
+
+    private ScheduledFuture<?> pollTask;
+
+    public DispatchRetryServiceImpl(
+            DispatchRetryRepository retryRepository,
+            DispatchTransport dispatchTransport,
+            WhatsappAccountServiceImpl whatsappAccountService,
+            WalletReservationServiceImpl walletReservationService,
+            BroadcastJobServiceImpl broadcastJobService,
+            ReportServiceImpl reportService,
+            DispatchRateLimiterServiceImpl rateLimiter,
+            BroadcastMetricsServiceImpl metrics,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler,
+            @Qualifier("messageDispatchExecutor") Executor dispatchExecutor,
+            BroadcastAdmissionServiceImpl admissionService,
+            FrequencyCapServiceImpl frequencyCapService,
+            BroadcastServiceImpl broadcastService) {
+        this.retryRepository = retryRepository;
+        this.dispatchTransport = dispatchTransport;
+        this.whatsappAccountService = whatsappAccountService;
+        this.walletReservationService = walletReservationService;
+        this.broadcastJobService = broadcastJobService;
+        this.reportService = reportService;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+        this.dispatchExecutor = dispatchExecutor;
+        this.admissionService = admissionService;
+        this.frequencyCapService = frequencyCapService;
+        this.broadcastService = broadcastService;
+    }
+
+    @PostConstruct
+    void startPolling() {
+        if (enabled) {
+            pollTask = scheduler.scheduleWithFixedDelay(this::pollDueRetries, Duration.ofMillis(pollIntervalMs));
+        }
+    }
+
+    @PreDestroy
+    void stopPolling() {
+        if (pollTask != null) {
+            pollTask.cancel(false);
+        }
+    }
+
+    /**
+     * Queues the items of a failed chunk for retry.
+     *
+     * @return false if they could not be queued; the caller then treats them
+     *         as failed
+     */
+    public boolean enqueue(List<BroadcastDispatchItemDto> items, WhatsappAccountInfoDto accountInfo, String error) {
+        if (!enabled || items.isEmpty()) {
+            return false;
+        }
+
+        Map<Long, List<BroadcastDispatchItemDto>> byBroadcast = groupByBroadcast(items, BroadcastDispatchItemDto::getBroadcastId);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextAttemptAt = now.plus(backoff(1));
+
+        List<DispatchRetry> rows = new ArrayList<>(items.size());
+        Map<WalletReservation, Integer> holds = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<BroadcastDispatchItemDto>> entry : byBroadcast.entrySet()) {
+            WalletReservation reservation = walletReservationService.hold(entry.getKey(), entry.getValue().size());
+            if (reservation != null) {
+                holds.put(reservation, entry.getValue().size());
+            }
+
+            for (BroadcastDispatchItemDto item : entry.getValue()) {
+                rows.add(DispatchRetry.builder()
+                        .broadcastId(item.getBroadcastId())
+                        .userId(reservation != null ? reservation.getUserId() : null)
+                        .phoneNumberId(accountInfo.getPhoneNumberId())
+                        .mobile(item.getMobileNo())
+                        .payload(item.getPayload())
+                        .unitPrice(reservation != null ? reservation.getUnitPrice() : null)
+                        .attempts(1)
+                        .status(DispatchRetry.STATUS_PENDING)
+                        .nextAttemptAt(nextAttemptAt)
+                        .lastError(truncate(error))
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build());
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> retryRepository.saveAll(rows));
+            metrics.recordRetries("queued", rows.size());
+            log.info("Queued {} messages for retry on account {} (first attempt in {} ms)",
+                    rows.size(), accountInfo.getPhoneNumberId(), Duration.between(now, nextAttemptAt).toMillis());
+            return true;
+
+        } catch (Exception e) {
+            log.error("Failed to queue {} messages for retry", rows.size(), e);
+            holds.forEach(WalletReservation::unhold);
+            return false;
+        }
+    }
+
+    /**
+     * Marks the reports of a first-attempt chunk the messaging service
+     * rejected for good as failed. The caller settles the messages as failed,
+     * which refunds them from the reservation.
+     */
+    public void failRejected(List<BroadcastDispatchItemDto> items, int statusCode, String error) {
+        metrics.recordRetries("rejected", items.size());
+        log.error("Chunk of {} messages rejected with {}, not retrying: {}", items.size(), statusCode, error);
+        groupByBroadcast(items, BroadcastDispatchItemDto::getBroadcastId).forEach((broadcastId, group) -> {
+            try {
+                reportService.markUndispatchedAsFailed(broadcastId,
+                        group.stream().map(BroadcastDispatchItemDto::getMobileNo).toList());
+            } catch (Exception e) {
+                log.error("Failed to mark {} rejected reports of broadcastId: {} failed", group.size(),
+                        broadcastId, e);
+            }
+        });
+    }
+
+    /**
+     * Gives up on items that were counted as dispatched but never reached
+     * WhatsApp (a queued chunk that was rejected or dead-lettered by the
+     * sender): their still-undispatched reports are marked failed and those
+     * messages refunded, as for exhausted retries. Reports that already got
+     * a message id are left alone and stay charged.
+     */
+    public void failUndeliverable(List<BroadcastDispatchItemDto> items, String error) {
+        groupByBroadcast(items, BroadcastDispatchItemDto::getBroadcastId).forEach((broadcastId, group) -> {
+            try {
+                int failed = reportService.markUndispatchedAsFailed(broadcastId,
+                        group.stream().map(BroadcastDispatchItemDto::getMobileNo).toList());
+                if (failed == 0) {
+                    return;
+                }
+                broadcastJobService.recordDispatchResult(broadcastId, -failed, failed);
+                metrics.recordRetries("undeliverable", failed);
+
+                Broadcast broadcast = broadcastService.getBroadcastById(broadcastId);
+                Object price = broadcast.getData() != null ? broadcast.getData().get("price_per_message") : null;
+                if (price == null) {
+                    log.error("Cannot refund {} undeliverable messages of broadcastId: {} - no price recorded",
+                            failed, broadcastId);
+                    return;
+                }
+                walletReservationService.refundUnreserved(broadcast.getUserId(), broadcastId,
+                        new BigDecimal(price.toString()), failed);
+                log.error("Marked {} undeliverable messages of broadcastId: {} failed and refunded them: {}",
+                        failed, broadcastId, error);
+            } catch (Exception e) {
+                log.error("Failed to settle {} undeliverable messages of broadcastId: {}", group.size(),
+                        broadcastId, e);
+            }
+        });
+    }
+
+    /**
+     * Mobiles of a broadcast parked for retry. Their outcome (and refund) is
+     * settled by the retry poller, not by whoever gives up on the broadcast.
+     */
+    public List<String> getOpenRetryMobiles(Long broadcastId) {
+        return retryRepository.findOpenMobilesByBroadcastId(broadcastId);
+    }
+
+    /**
+     * Claims due retries account by account and re-sends them in full-size
+     * chunks on the dispatch executor.
+     */
+    void pollDueRetries() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int released = transactionTemplate.execute(status -> retryRepository.releaseStale(
+                    now.minusMinutes(inFlightTimeoutMinutes), now));
+            if (released > 0) {
+                log.warn("Re-queued {} retries left in flight", released);
+            }
+
+            // While the transport is known to be down, leave retries queued
+            // rather than burning their attempts on short-circuited calls
+            if (!dispatchTransport.isAvailable()) {
+                log.debug("Dispatch transport unavailable, skipping retry poll");
+                return;
+            }
+
+            for (String phoneNumberId : retryRepository.findDuePhoneNumberIds(now)) {
+                retryAccount(phoneNumberId, now);
+            }
+        } catch (Exception e) {
+            log.error("Dispatch retry poll failed", e);
+        }
+    }
+
+    private void retryAccount(String phoneNumberId, LocalDateTime now) {
+        List<Long> dueIds = retryRepository.findDueIds(phoneNumberId, now,
+                PageRequest.of(0, dispatchChunkSize * chunksPerPoll));
+        if (dueIds.isEmpty()) {
+            return;
+        }
+
+        String claimToken = UUID.randomUUID().toString();
+        int claimed = transactionTemplate.execute(status -> retryRepository.claim(dueIds, claimToken, now));
+        if (claimed == 0) {
+            return;
+        }
+        List<DispatchRetry> rows = retryRepository.findByClaimToken(claimToken);
+
+        WhatsappAccountInfoDto accountInfo;
+        try {
+            WhatsappAccount account = whatsappAccountService.getAccountByNumberId(phoneNumberId);
+            accountInfo = WhatsappAccountInfoDto.builder()
+                    .phoneNumberId(phoneNumberId)
+                    .accessToken(account.getParmenentToken())
+                    .build();
+        } catch (Exception e) {
+            onChunkFailure(rows, "Account lookup failed: " + e.getMessage(), false);
+            return;
+        }
+
+        log.info("Retrying {} messages for account {} in chunks of {}", rows.size(), phoneNumberId,
+                dispatchChunkSize);
+
+        for (int i = 0; i < rows.size(); i += dispatchChunkSize) {
+            List<DispatchRetry> chunk = rows.subList(i, Math.min(i + dispatchChunkSize, rows.size()));
+            rateLimiter.acquire(phoneNumberId, chunk.size())
+                    .thenCompose(granted -> admissionService.withDispatchSlot(chunk.get(0).getUserId(),
+                            () -> CompletableFuture.runAsync(() -> dispatchChunk(chunk, accountInfo), dispatchExecutor)))
+                    .exceptionally(ex -> {
+                        // Executor saturated or shutting down: give the chunk back
+                        // untouched, a later poll picks it up
+                        List<Long> ids = chunk.stream().map(DispatchRetry::getId).toList();
+                        transactionTemplate.executeWithoutResult(status ->
+                                retryRepository.unclaim(ids, LocalDateTime.now()));
+                        log.warn("Deferred {} retries: {}", ids.size(), ex.getMessage());
+                        return null;
+                    });
+        }
+    }
+
+    private void dispatchChunk(List<DispatchRetry> chunk, WhatsappAccountInfoDto accountInfo) {
+        metrics.recordRetries("attempted", chunk.size());
+        try {
+            List<BroadcastDispatchItemDto> items = chunk.stream()
+                    .map(row -> BroadcastDispatchItemDto.builder()
+                            .broadcastId(row.getBroadcastId())
+                            .mobileNo(row.getMobile())
+                            .payload(row.getPayload())
+                            .build())
+                    .toList();
+
+            FacebookApiResponse<BroadcastDispatchResponseDto> response = dispatchTransport.send(
+                    DispatchRequestDto.builder().items(items).accountInfo(accountInfo).build());
+            rateLimiter.onResponse(accountInfo.getPhoneNumberId(), response.getStatusCode(), chunk.size());
+
+            if (response.isSuccess() && response.getData() != null && response.getData().getData() != null) {
+                onChunkDispatched(chunk, response.getData().getData().getFailedCount());
+            } else {
+                onChunkFailure(chunk, response.getErrorMessage(),
+                        !DispatchTransport.isRetryable(response.getStatusCode()));
+            }
+        } catch (Exception e) {
+            onChunkFailure(chunk, e.getMessage(), false);
+        }
+    }
+
+    /**
+     * The messaging service accepted the chunk. It reports how many messages
+     * it rejected but not which ones; as in the first attempt those are final
+     * failures, attributed to the tail of the chunk.
+     */
+    private void onChunkDispatched(List<DispatchRetry> chunk, int failedCount) {
+        transactionTemplate.executeWithoutResult(status ->
+                retryRepository.deleteAllByIdInBatch(chunk.stream().map(DispatchRetry::getId).toList()));
+
+        int failedFrom = chunk.size() - Math.min(Math.max(failedCount, 0), chunk.size());
+        Map<Long, int[]> outcome = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            int[] counts = outcome.computeIfAbsent(chunk.get(i).getBroadcastId(), id -> new int[2]);
+            counts[i < failedFrom ? 0 : 1]++;
+        }
+
+        Map<Long, DispatchRetry> sample = new LinkedHashMap<>();
+        chunk.forEach(row -> sample.putIfAbsent(row.getBroadcastId(), row));
+        outcome.forEach((broadcastId, counts) -> settle(sample.get(broadcastId), counts[0], counts[1]));
+        groupByBroadcast(chunk.subList(0, failedFrom), DispatchRetry::getBroadcastId).forEach((broadcastId, rows) ->
+                frequencyCapService.recordDispatched(broadcastId, rows.stream().map(DispatchRetry::getMobile).toList()));
+
+        metrics.recordRetries("succeeded", failedFrom);
+        log.info("Retried chunk of {} messages dispatched - failed: {}", chunk.size(), chunk.size() - failedFrom);
+    }
+
+    /**
+     * @param rejected the messaging service rejected the chunk for good; all
+     *                 of it gives up now instead of being rescheduled
+     */
+    private void onChunkFailure(List<DispatchRetry> chunk, String error, boolean rejected) {
+        List<DispatchRetry> exhausted = new ArrayList<>();
+        Map<Integer, List<Long>> rescheduleByAttempt = new LinkedHashMap<>();
+        for (DispatchRetry row : chunk) {
+            int attempts = row.getAttempts() + 1;
+            if (rejected || attempts >= maxAttempts) {
+                exhausted.add(row);
+            } else {
+                rescheduleByAttempt.computeIfAbsent(attempts, a -> new ArrayList<>()).add(row.getId());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String lastError = truncate(error);
+        transactionTemplate.executeWithoutResult(status -> {
+            rescheduleByAttempt.forEach((attempts, ids) ->
+                    retryRepository.reschedule(ids, now.plus(backoff(attempts)), lastError, now));
+            if (!exhausted.isEmpty()) {
+                retryRepository.markExhausted(exhausted.stream().map(DispatchRetry::getId).toList(), lastError, now);
+            }
+        });
+
+        if (!exhausted.isEmpty()) {
+            metrics.recordRetries(rejected ? "rejected" : "exhausted", exhausted.size());
+            if (rejected) {
+                log.error("Giving up on {} rejected messages: {}", exhausted.size(), error);
+            } else {
+                log.error("Giving up on {} messages after {} attempts: {}", exhausted.size(), maxAttempts, error);
+            }
+            groupByBroadcast(exhausted, DispatchRetry::getBroadcastId).forEach((broadcastId, rows) -> {
+                settle(rows.get(0), 0, rows.size());
+                reportService.markUndispatchedAsFailed(broadcastId,
+                        rows.stream().map(DispatchRetry::getMobile).toList());
+            });
+        }
+        if (!rescheduleByAttempt.isEmpty()) {
+            log.warn("Retry of {} messages failed, rescheduled: {}", chunk.size() - exhausted.size(), error);
+        }
+    }
+
+    private void settle(DispatchRetry row, int dispatched, int failed) {
+        Long broadcastId = row.getBroadcastId();
+        broadcastJobService.recordDispatchResult(broadcastId, dispatched, failed);
+        if (!walletReservationService.settleRetried(broadcastId, dispatched, failed)) {
+            walletReservationService.refundUnreserved(row.getUserId(), broadcastId, row.getUnitPrice(), failed);
+        }
+    }
+
+    /**
+     * Delay before the given attempt: exponential in the attempt number,
+     * capped, with "equal jitter" (half fixed, half random) so retries of
+     * many chunks that failed together spread out instead of stampeding.
+     */
+    private Duration backoff(int attempt) {
+        long exponential = baseDelayMs << Math.min(attempt - 1, 20);
+        long capped = Math.min(maxDelayMs, exponential);
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    private <T> Map<Long, List<T>> groupByBroadcast(List<T> items, Function<T, Long> broadcastId) {
+        Map<Long, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(broadcastId.apply(item), id -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -0,0 +1,31 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.util.List;
+import java.util.Set;
+
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+
+/**
+ * A dispatch left unfinished by a previous run, reopened from its journal:
+ * the chunks without an ack, read from the original payload segments.
+ *
+ * Items whose recipient already has a message id (not in undispatched) are
+ * dropped as chunks are read. Chunks keep their original numbers, and with
+ * them their ids.
+ *
+ * @param messages items of the pending chunks still to send
+ */
+public record JournaledDispatch(
+        DispatchJournal journal,
+        DispatchPayloadBuffer buffer,
+        List<Integer> pendingChunks,
+        Set<String> undispatched,
+        int messages) {
+
+    public List<BroadcastDispatchItemDto> read(int chunkNum) {
+        int chunkSize = journal.getChunkSize();
+        return buffer.read((chunkNum - 1) * chunkSize, chunkSize).stream()
+                .filter(item -> undispatched.contains(item.getMobileNo()))
+                .toList();
+    }
+}
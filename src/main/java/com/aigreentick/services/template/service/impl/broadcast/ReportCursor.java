@@ -0,0 +1,42 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import com.aigreentick.services.template.model.broadcast.Report;
+
+/**
+ * Position in a (created_at DESC, id DESC) keyset scan of reports.
+ *
+ * Encoded for clients as an opaque URL-safe token; the first page starts
+ * after START, which sorts before every real row.
+ */
+record ReportCursor(LocalDateTime createdAt, Long id) {
+
+    // Upper bound of MySQL DATETIME, so every stored row is "older"
+    static final ReportCursor START = new ReportCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    static ReportCursor after(Report report) {
+        return new ReportCursor(report.getCreatedAt(), report.getId());
+    }
+
+    static ReportCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new ReportCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,186 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+
+import com.aigreentick.services.template.enums.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams reports straight from a forward-only JDBC cursor to the response.
+ *
+ * Rows are fetched report.export.fetch-size at a time and written as they
+ * arrive, so memory stays constant regardless of how many rows are exported,
+ * and the single ordered scan never needs an OFFSET. With MySQL the fetch
+ * size is only honoured when the JDBC URL has useCursorFetch=true.
+ */
+@Service
+@Slf4j
+public class ReportExportServiceImpl {
+
+    private static final String COLUMNS =
+            "id, broadcast_id, mobile, message_id, wa_id, status, message_status, created_at, updated_at";
+    private static final String CSV_HEADER =
+            "id,broadcast_id,mobile,message_id,wa_id,status,message_status,created_at,updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectWriter rowWriter;
+
+    @Value("${report.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public ReportExportServiceImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowWriter = objectMapper.writerFor(ExportRow.class);
+    }
+
+    /**
+     * Writes every report of a broadcast, oldest first.
+     *
+     * @return rows written
+     */
+    public long exportByBroadcastId(Long broadcastId, ExportFormat format, OutputStream out) {
+        String sql = "SELECT " + COLUMNS + " FROM reports "
+                + "WHERE broadcast_id = ? AND deleted_at IS NULL ORDER BY created_at, id";
+        return export(sql, format, out, broadcastId);
+    }
+
+    /**
+     * Writes a user's reports created in [from, to), oldest first.
+     *
+     * @return rows written
+     */
+    public long exportByUserId(Long userId, LocalDateTime from, LocalDateTime to, ExportFormat format,
+            OutputStream out) {
+        String sql = "SELECT " + COLUMNS + " FROM reports "
+                + "WHERE user_id = ? AND created_at >= ? AND created_at < ? AND deleted_at IS NULL "
+                + "ORDER BY created_at, id";
+        return export(sql, format, out, userId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private long export(String sql, ExportFormat format, OutputStream out, Object... params) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long[] rows = { 0 };
+
+        PreparedStatementCreator cursor = connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            return ps;
+        };
+
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            jdbcTemplate.query(cursor, rs -> {
+                try {
+                    write(writer, format, toRow(rs));
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Exported {} report rows as {}", rows[0], format.getValue());
+        return rows[0];
+    }
+
+    private void write(Writer writer, ExportFormat format, ExportRow row) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(rowWriter.writeValueAsString(row));
+            writer.write('\n');
+            return;
+        }
+
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writer.write(row.broadcastId() != null ? String.valueOf(row.broadcastId()) : "");
+        writer.write(',');
+        writeCsvField(writer, row.mobile());
+        writer.write(',');
+        writeCsvField(writer, row.messageId());
+        writer.write(',');
+        writeCsvField(writer, row.waId());
+        writer.write(',');
+        writeCsvField(writer, row.status());
+        writer.write(',');
+        writeCsvField(writer, row.messageStatus());
+        writer.write(',');
+        writer.write(row.createdAt() != null ? row.createdAt().toString() : "");
+        writer.write(',');
+        writer.write(row.updatedAt() != null ? row.updatedAt().toString() : "");
+        writer.write('\n');
+    }
+
+    /**
+     * RFC 4180 quoting, the counterpart of CsvStreamReader
+     */
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private ExportRow toRow(ResultSet rs) throws SQLException {
+        return new ExportRow(
+                rs.getLong("id"),
+                rs.getObject("broadcast_id", Long.class),
+                rs.getString("mobile"),
+                rs.getString("message_id"),
+                rs.getString("wa_id"),
+                rs.getString("status"),
+                rs.getString("message_status"),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("updated_at", LocalDateTime.class));
+    }
+
+    private record ExportRow(
+            Long id,
+            Long broadcastId,
+            String mobile,
+            String messageId,
+            String waId,
+            String status,
+            String messageStatus,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.aigreentick.services.template.service.impl.broadcast;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -12,6 +13,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.aigreentick.services.template.dto.response.common.CursorPageResponseDto;
+import com.aigreentick.services.template.enums.ReportStatus;
 import com.aigreentick.services.template.model.broadcast.Report;
 import com.aigreentick.services.template.repository.broadcast.ReportRepository;
 
@@ -23,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ReportServiceImpl {
     private final ReportRepository reportRepository;
+    private final ReportStatusCounterServiceImpl statusCounterService;
 
     /**
      * Save a report
@@ -30,7 +34,12 @@ public class ReportServiceImpl {
     @Transactional
     public Report save(Report report) {
         log.debug("Saving report for mobile: {}", report.getMobile());
-        return reportRepository.save(report);
+        boolean isNew = report.getId() == null;
+        Report saved = reportRepository.save(report);
+        if (isNew) {
+            statusCounterService.recordCreated(saved.getBroadcastId(), saved.getStatus(), 1);
+        }
+        return saved;
     }
 
     /**
@@ -39,12 +48,27 @@ public class ReportServiceImpl {
     @Transactional
     public List<Report> saveAll(List<Report> reports) {
         log.info("Saving {} reports in bulk", reports.size());
-        return reportRepository.saveAll(reports);
+        Map<Long, Map<String, Integer>> created = new HashMap<>();
+        for (Report report : reports) {
+            if (report.getId() == null && report.getBroadcastId() != null) {
+                created.computeIfAbsent(report.getBroadcastId(), id -> new HashMap<>())
+                        .merge(report.getStatus(), 1, Integer::sum);
+            }
+        }
+
+        List<Report> saved = reportRepository.saveAll(reports);
+        created.forEach((broadcastId, byStatus) -> byStatus.forEach(
+                (status, count) -> statusCounterService.recordCreated(broadcastId, status, count)));
+        return saved;
     }
 
     /**
      * Get reports by broadcast ID with pagination
+     *
+     * @deprecated OFFSET pages degrade with depth; use
+     *             {@link #getReportsByBroadcastId(Long, String, int)}
      */
+    @Deprecated
     public Page<Report> getReportsByBroadcastId(Long broadcastId, int page, int size) {
         log.debug("Fetching reports for broadcastId: {}", broadcastId);
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
@@ -53,13 +77,54 @@ public class ReportServiceImpl {
 
     /**
      * Get reports by user ID with pagination
+     *
+     * @deprecated OFFSET pages degrade with depth; use
+     *             {@link #getReportsByUserId(Long, String, int)}
      */
+    @Deprecated
     public Page<Report> getReportsByUserId(Long userId, int page, int size) {
         log.debug("Fetching reports for userId: {}", userId);
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
         return reportRepository.findByUserIdAndDeletedAtIsNull(userId, pageable);
     }
 
+    /**
+     * Keyset page of a broadcast's reports, newest first
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     */
+    public CursorPageResponseDto<Report> getReportsByBroadcastId(Long broadcastId, String cursor, int size) {
+        ReportCursor after = ReportCursor.decode(cursor);
+        List<Report> rows = reportRepository.findByBroadcastIdAfter(
+                broadcastId, after.createdAt(), after.id(), PageRequest.of(0, size + 1));
+        return toCursorPage(rows, size);
+    }
+
+    /**
+     * Keyset page of a user's reports, newest first
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     */
+    public CursorPageResponseDto<Report> getReportsByUserId(Long userId, String cursor, int size) {
+        ReportCursor after = ReportCursor.decode(cursor);
+        List<Report> rows = reportRepository.findByUserIdAfter(
+                userId, after.createdAt(), after.id(), PageRequest.of(0, size + 1));
+        return toCursorPage(rows, size);
+    }
+
+    /**
+     * One extra row is fetched to know whether another page exists
+     */
+    private CursorPageResponseDto<Report> toCursorPage(List<Report> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<Report> items = hasMore ? rows.subList(0, size) : rows;
+        return CursorPageResponseDto.<Report>builder()
+                .items(items)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? ReportCursor.after(items.get(items.size() - 1)).encode() : null)
+                .build();
+    }
+
     /**
      * Get report by message ID
      */
@@ -70,13 +135,21 @@ public class ReportServiceImpl {
     }
 
     /**
-     * Get delivery statistics for a broadcast
+     * Get delivery statistics for a broadcast.
+     * Reads the broadcast's counter row, not the reports table.
      */
     public Map<String, Long> getDeliveryStats(Long broadcastId) {
         log.debug("Fetching delivery stats for broadcastId: {}", broadcastId);
-        
+        return statusCounterService.getCounts(broadcastId);
+    }
+
+    /**
+     * Get delivery statistics by scanning the reports table (GROUP BY status).
+     * Used to verify or rebuild the counters.
+     */
+    public Map<String, Long> getDeliveryStatsFromReports(Long broadcastId) {
         List<Object[]> results = reportRepository.getDeliveryStatsByBroadcastId(broadcastId);
-        
+
         return results.stream()
                 .collect(Collectors.toMap(
                         row -> (String) row[0],    // status
@@ -92,10 +165,47 @@ public class ReportServiceImpl {
     }
 
     /**
-     * Count reports by status
+     * Count reports by status. Counted statuses come from the counter row;
+     * anything else falls back to a COUNT query.
      */
     public long countByStatus(Long broadcastId, String status) {
-        return reportRepository.countByBroadcastIdAndStatus(broadcastId, status);
+        ReportStatus counted = ReportStatus.of(status);
+        if (counted == null || !counted.getValue().equals(status)) {
+            return reportRepository.countByBroadcastIdAndStatus(broadcastId, status);
+        }
+        return statusCounterService.getCounts(broadcastId).get(counted.getValue());
+    }
+
+    /**
+     * Existing reports of a broadcast as mobile -> reportId
+     */
+    public Map<String, Long> getReportIdsByMobile(Long broadcastId) {
+        List<Object[]> rows = reportRepository.findMobileAndIdByBroadcastId(broadcastId);
+        Map<String, Long> mobileToReportId = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for (Object[] row : rows) {
+            mobileToReportId.put((String) row[0], (Long) row[1]);
+        }
+        return mobileToReportId;
+    }
+
+    /**
+     * Mobiles of a broadcast not dispatched yet, used when resuming
+     */
+    public List<String> getUndispatchedMobiles(Long broadcastId) {
+        return reportRepository.findUndispatchedMobilesByBroadcastId(broadcastId);
+    }
+
+    /**
+     * Marks the still-undispatched reports of the given mobiles as failed
+     *
+     * @return reports updated
+     */
+    @Transactional
+    public int markUndispatchedAsFailed(Long broadcastId, List<String> mobiles) {
+        int updated = reportRepository.markUndispatchedAsFailed(broadcastId, mobiles, LocalDateTime.now());
+        statusCounterService.recordTransitions(broadcastId, ReportStatus.PENDING.getValue(),
+                ReportStatus.FAILED.getValue(), updated);
+        return updated;
     }
 
     /**
@@ -108,7 +218,11 @@ public class ReportServiceImpl {
 
     /**
      * Get reports by date range
+     *
+     * @deprecated loads the whole range into memory; use
+     *             ReportExportServiceImpl to stream large ranges
      */
+    @Deprecated
     public List<Report> getReportsByDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
         log.debug("Fetching reports for userId: {} between {} and {}", userId, startDate, endDate);
         return reportRepository.findByUserIdAndDateRange(userId, startDate, endDate);
@@ -130,10 +244,13 @@ public class ReportServiceImpl {
         log.info("Updating report status for messageId: {} to {}", messageId, newStatus);
         
         Report report = getReportByMessageId(messageId);
+        String oldStatus = report.getStatus();
         report.setStatus(newStatus);
         report.setMessageStatus(newStatus);
         report.setUpdatedAt(LocalDateTime.now());
         
-        return reportRepository.save(report);
+        Report saved = reportRepository.save(report);
+        statusCounterService.recordTransition(saved.getBroadcastId(), oldStatus, newStatus);
+        return saved;
     }
 }
\ No newline at end of file
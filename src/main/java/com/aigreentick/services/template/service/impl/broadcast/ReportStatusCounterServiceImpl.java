@@ -0,0 +1,237 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aigreentick.services.template.enums.ReportStatus;
+import com.aigreentick.services.template.repository.broadcast.BroadcastStatusCountRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind counters of report statuses per broadcast.
+ *
+ * Report inserts and status changes only bump in-memory deltas (once their
+ * transaction commits). A periodic flush adds the accumulated deltas to
+ * broadcast_status_counts with one upsert per broadcast, so a burst of
+ * updates costs a handful of writes and stats reads are a single row.
+ *
+ * Reads merge the stored row with deltas not flushed yet, so a caller sees
+ * its own changes immediately. Deltas being flushed stay in a second map
+ * until their upsert has committed; reads hold off while a flush commits,
+ * so a delta is counted exactly once, either from that map or from the row.
+ */
+@Service
+@Slf4j
+public class ReportStatusCounterServiceImpl {
+
+    private static final ReportStatus[] STATUSES = ReportStatus.values();
+
+    private final BroadcastStatusCountRepository statusCountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    // broadcastId -> delta per ReportStatus ordinal; only touched inside
+    // compute/remove so each broadcast's array is updated atomically
+    private final Map<Long, long[]> deltas = new ConcurrentHashMap<>();
+
+    // Deltas taken by the running flush, until its transaction ends; only
+    // written by the flush
+    private final Map<Long, long[]> inFlight = new ConcurrentHashMap<>();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    @Value("${report.counters.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    private ScheduledFuture<?> flushTask;
+
+    public ReportStatusCounterServiceImpl(
+            BroadcastStatusCountRepository statusCountRepository,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.statusCountRepository = statusCountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void startFlush() {
+        flushTask = scheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(flushIntervalMs));
+    }
+
+    @PreDestroy
+    void stopFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+    }
+
+    /**
+     * Counts newly created reports of a broadcast under the given status.
+     */
+    public void recordCreated(Long broadcastId, String status, int count) {
+        ReportStatus counted = ReportStatus.of(status);
+        if (broadcastId == null || counted == null || count <= 0) {
+            return;
+        }
+        afterCommit(() -> addDelta(broadcastId, null, counted, count));
+    }
+
+    /**
+     * Moves one report of a broadcast from its old status to the new one.
+     * Statuses that are not counted are ignored on either side.
+     */
+    public void recordTransition(Long broadcastId, String oldStatus, String newStatus) {
+        recordTransitions(broadcastId, oldStatus, newStatus, 1);
+    }
+
+    /**
+     * Moves count reports of a broadcast from oldStatus to newStatus.
+     */
+    public void recordTransitions(Long broadcastId, String oldStatus, String newStatus, int count) {
+        ReportStatus from = ReportStatus.of(oldStatus);
+        ReportStatus to = ReportStatus.of(newStatus);
+        if (broadcastId == null || from == to || count <= 0) {
+            return;
+        }
+        afterCommit(() -> addDelta(broadcastId, from, to, count));
+    }
+
+    /**
+     * Current counts of a broadcast: stored row plus unflushed deltas.
+     *
+     * @return status value -> count, for every counted status
+     */
+    public Map<String, Long> getCounts(Long broadcastId) {
+        long[] counts = new long[STATUSES.length];
+        flushLock.readLock().lock();
+        try {
+            statusCountRepository.findById(broadcastId).ifPresent(row -> {
+                counts[ReportStatus.PENDING.ordinal()] = row.getPending();
+                counts[ReportStatus.SENT.ordinal()] = row.getSent();
+                counts[ReportStatus.DELIVERED.ordinal()] = row.getDelivered();
+                counts[ReportStatus.READ.ordinal()] = row.getRead();
+                counts[ReportStatus.FAILED.ordinal()] = row.getFailed();
+            });
+            addTo(counts, inFlight.get(broadcastId));
+            deltas.computeIfPresent(broadcastId, (id, delta) -> {
+                addTo(counts, delta);
+                return delta;
+            });
+        } finally {
+            flushLock.readLock().unlock();
+        }
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (ReportStatus status : STATUSES) {
+            result.put(status.getValue(), Math.max(0, counts[status.ordinal()]));
+        }
+        return result;
+    }
+
+    /**
+     * Writes all accumulated deltas, one upsert per broadcast, in a single
+     * transaction. On failure the deltas are put back for the next run.
+     */
+    synchronized void flush() {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // Each delta moves to inFlight atomically, so reads never miss it
+        for (Long broadcastId : deltas.keySet()) {
+            deltas.computeIfPresent(broadcastId, (id, delta) -> {
+                inFlight.put(id, delta);
+                return null;
+            });
+        }
+        if (inFlight.isEmpty()) {
+            return;
+        }
+
+        flushLock.writeLock().lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<Long, long[]> entry : inFlight.entrySet()) {
+                    long[] d = entry.getValue();
+                    statusCountRepository.addDeltas(entry.getKey(),
+                            d[ReportStatus.PENDING.ordinal()],
+                            d[ReportStatus.SENT.ordinal()],
+                            d[ReportStatus.DELIVERED.ordinal()],
+                            d[ReportStatus.READ.ordinal()],
+                            d[ReportStatus.FAILED.ordinal()],
+                            now);
+                }
+            });
+            log.debug("Flushed status counters for {} broadcasts", inFlight.size());
+
+        } catch (Exception e) {
+            log.error("Failed to flush status counters for {} broadcasts, retrying next run", inFlight.size(), e);
+            for (Map.Entry<Long, long[]> entry : inFlight.entrySet()) {
+                deltas.merge(entry.getKey(), entry.getValue(), (current, failed) -> {
+                    addTo(current, failed);
+                    return current;
+                });
+            }
+        } finally {
+            inFlight.clear();
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private static void addTo(long[] target, long[] delta) {
+        if (delta != null) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += delta[i];
+            }
+        }
+    }
+
+    private void addDelta(Long broadcastId, ReportStatus from, ReportStatus to, int count) {
+        deltas.compute(broadcastId, (id, delta) -> {
+            if (delta == null) {
+                delta = new long[STATUSES.length];
+            }
+            if (from != null) {
+                delta[from.ordinal()] -= count;
+            }
+            if (to != null) {
+                delta[to.ordinal()] += count;
+            }
+            return delta;
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aigreentick.services.template.dto.request.broadcast.ReportStatusEventDto;
+import com.aigreentick.services.template.dto.response.broadcast.ReportStatusIngestResponseDto;
+import com.aigreentick.services.template.enums.ReportStatus;
+import com.aigreentick.services.template.repository.broadcast.ReportRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk ingestion of WhatsApp delivery receipts.
+ *
+ * A batch is coalesced in memory first, so each message keeps only its
+ * latest event. The survivors are applied in chunks: one SELECT reads the
+ * current status of the whole chunk, then one UPDATE ... WHERE message_id IN
+ * per (broadcast, old status, new status) group moves them. A campaign burst
+ * touches few broadcasts and few distinct transitions, so a chunk of
+ * thousands of receipts costs a handful of statements.
+ *
+ * Statuses only move forward (see ReportStatus.canMoveTo); late or duplicate
+ * receipts are counted as ignored.
+ *
+ * Receipts are applied only to the calling user's reports: message ids of
+ * other tenants (or unknown ones) are rejected without saying which. When
+ * report.status-ingest.webhook-secret is set, callers must also present it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportStatusIngestionServiceImpl {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private final ReportRepository reportRepository;
+    private final ReportStatusCounterServiceImpl statusCounterService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${report.status-ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${report.status-ingest.webhook-secret:}")
+    private String webhookSecret;
+
+    /**
+     * Whether the caller presented the configured webhook secret; always true
+     * when none is configured.
+     */
+    public boolean isAuthorized(String presentedSecret) {
+        if (webhookSecret == null || webhookSecret.isEmpty()) {
+            return true;
+        }
+        return presentedSecret != null && MessageDigest.isEqual(
+                webhookSecret.getBytes(StandardCharsets.UTF_8), presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ReportStatusIngestResponseDto ingest(Long userId, List<ReportStatusEventDto> events) {
+        Map<String, ReportStatusEventDto> latest = coalesce(events);
+        List<String> messageIds = new ArrayList<>(latest.keySet());
+
+        int applied = 0;
+        int found = 0;
+        for (int i = 0; i < messageIds.size(); i += batchSize) {
+            List<String> chunk = messageIds.subList(i, Math.min(i + batchSize, messageIds.size()));
+            ChunkOutcome outcome = transactionTemplate.execute(status -> applyChunk(userId, chunk, latest));
+            if (outcome != null) {
+                applied += outcome.applied();
+                found += outcome.found();
+            }
+        }
+        int rejected = Math.max(0, latest.size() - found);
+        if (rejected > 0) {
+            log.warn("Rejected status events for {} messages not among the reports of userId: {}",
+                    rejected, userId);
+        }
+
+        log.info("Ingested {} status events for userId: {}: {} messages after coalescing, {} applied",
+                events.size(), userId, latest.size(), applied);
+
+        return ReportStatusIngestResponseDto.builder()
+                .received(events.size())
+                .coalesced(latest.size())
+                .applied(applied)
+                .ignored(events.size() - applied)
+                .rejected(rejected)
+                .build();
+    }
+
+    /**
+     * Latest event per message. Ties on timestamp go to the furthest status,
+     * since WhatsApp can stamp delivered and read with the same second.
+     * Events with an unknown status are dropped.
+     */
+    private Map<String, ReportStatusEventDto> coalesce(List<ReportStatusEventDto> events) {
+        Map<String, ReportStatusEventDto> latest = new LinkedHashMap<>(events.size() * 4 / 3 + 1);
+        for (ReportStatusEventDto event : events) {
+            ReportStatus status = ReportStatus.of(event.getStatus());
+            if (event.getMessageId() == null || status == null || status == ReportStatus.PENDING) {
+                continue;
+            }
+            latest.merge(event.getMessageId(), event, (current, candidate) -> isNewer(candidate, current)
+                    ? candidate
+                    : current);
+        }
+        return latest;
+    }
+
+    private boolean isNewer(ReportStatusEventDto candidate, ReportStatusEventDto current) {
+        int byTime = Long.compare(timestampOf(candidate), timestampOf(current));
+        if (byTime != 0) {
+            return byTime > 0;
+        }
+        return ReportStatus.of(candidate.getStatus()).ordinal() > ReportStatus.of(current.getStatus()).ordinal();
+    }
+
+    private long timestampOf(ReportStatusEventDto event) {
+        return event.getTimestamp() != null ? event.getTimestamp() : Long.MIN_VALUE;
+    }
+
+    private ChunkOutcome applyChunk(Long userId, List<String> messageIds, Map<String, ReportStatusEventDto> latest) {
+        Map<Transition, List<String>> groups = new HashMap<>();
+        List<Object[]> rows = reportRepository.findStatusByMessageIds(messageIds, userId);
+        for (Object[] row : rows) {
+            String messageId = (String) row[0];
+            Long broadcastId = (Long) row[1];
+            String oldStatus = (String) row[2];
+
+            ReportStatus target = ReportStatus.of(latest.get(messageId).getStatus());
+            ReportStatus current = ReportStatus.of(oldStatus);
+            if (current != null && !current.canMoveTo(target)) {
+                continue;
+            }
+            groups.computeIfAbsent(new Transition(broadcastId, oldStatus, target.getValue()),
+                    t -> new ArrayList<>()).add(messageId);
+        }
+
+        LocalDateTime now = LocalDateTime.now(IST);
+        int applied = 0;
+        for (Map.Entry<Transition, List<String>> group : groups.entrySet()) {
+            Transition t = group.getKey();
+            int updated = reportRepository.updateStatusByMessageIds(group.getValue(), t.oldStatus(), t.newStatus(), now);
+            statusCounterService.recordTransitions(t.broadcastId(), t.oldStatus(), t.newStatus(), updated);
+            applied += updated;
+        }
+        return new ChunkOutcome(rows.size(), applied);
+    }
+
+    private record Transition(Long broadcastId, String oldStatus, String newStatus) {
+    }
+
+    private record ChunkOutcome(int found, int applied) {
+    }
+}
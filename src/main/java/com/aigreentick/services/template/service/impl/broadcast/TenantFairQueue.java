@@ -0,0 +1,169 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Fixed number of slots shared by tenants in proportion to their weights.
+ *
+ * - A waiter gets a slot right away when one is free and nobody is waiting.
+ * - Otherwise it waits in its tenant's FIFO queue. Each released slot goes
+ *   to the waiting tenant with the lowest running / weight, ties to the
+ *   oldest waiter, so a tenant with many waiters cannot starve the others.
+ *
+ * All state is guarded by the instance lock; the caller starts the waiter a
+ * slot was handed to outside of it.
+ */
+final class TenantFairQueue<T> {
+
+    private final int slots;
+    private final LongToIntFunction weightOf;
+    private final Map<Long, Tenant<T>> tenants = new HashMap<>();
+
+    private int running;
+    private int waiting;
+    private long sequence;
+
+    TenantFairQueue(int slots, LongToIntFunction weightOf) {
+        this.slots = Math.max(1, slots);
+        this.weightOf = weightOf;
+    }
+
+    /**
+     * Takes a slot for the waiter, or queues it.
+     *
+     * @return true if the slot was taken and the caller should start the
+     *         waiter now
+     */
+    synchronized boolean acquireOrEnqueue(long tenantId, T waiter) {
+        Tenant<T> tenant = tenants.computeIfAbsent(tenantId, Tenant::new);
+        if (running < slots && waiting == 0) {
+            tenant.running++;
+            running++;
+            return true;
+        }
+        tenant.queue.addLast(new Entry<>(sequence++, waiter));
+        waiting++;
+        return false;
+    }
+
+    /**
+     * Frees a slot of the tenant and hands it to the next waiter, if any.
+     *
+     * @return the waiter that now holds the slot, or null
+     */
+    synchronized T release(long tenantId) {
+        Tenant<T> tenant = tenants.get(tenantId);
+        if (tenant == null || tenant.running == 0) {
+            throw new IllegalStateException("Tenant " + tenantId + " holds no slot");
+        }
+        tenant.running--;
+        running--;
+
+        T next = null;
+        Tenant<T> chosen = pick(tenants.values(), t -> t.running, t -> t.queue.peekFirst());
+        if (chosen != null) {
+            next = chosen.queue.pollFirst().waiter;
+            chosen.running++;
+            running++;
+            waiting--;
+        }
+        if (tenant.running == 0 && tenant.queue.isEmpty()) {
+            tenants.remove(tenantId);
+        }
+        return next;
+    }
+
+    /**
+     * Waiters in the order they would get slots if nothing finished in the
+     * meantime; index + 1 is a waiter's queue position.
+     */
+    synchronized List<T> waitingInOrder() {
+        Map<Tenant<T>, int[]> simulated = new LinkedHashMap<>();
+        Map<Tenant<T>, Iterator<Entry<T>>> cursors = new HashMap<>();
+        Map<Tenant<T>, Entry<T>> heads = new HashMap<>();
+        for (Tenant<T> tenant : tenants.values()) {
+            if (!tenant.queue.isEmpty()) {
+                simulated.put(tenant, new int[] {tenant.running});
+                Iterator<Entry<T>> cursor = tenant.queue.iterator();
+                cursors.put(tenant, cursor);
+                heads.put(tenant, cursor.next());
+            }
+        }
+
+        List<T> order = new ArrayList<>(waiting);
+        while (!heads.isEmpty()) {
+            Tenant<T> chosen = pick(heads.keySet(), t -> simulated.get(t)[0], heads::get);
+            order.add(heads.get(chosen).waiter);
+            simulated.get(chosen)[0]++;
+            Iterator<Entry<T>> cursor = cursors.get(chosen);
+            if (cursor.hasNext()) {
+                heads.put(chosen, cursor.next());
+            } else {
+                heads.remove(chosen);
+            }
+        }
+        return order;
+    }
+
+    synchronized int running() {
+        return running;
+    }
+
+    synchronized int waiting() {
+        return waiting;
+    }
+
+    /**
+     * Tenant with a waiting head and the lowest running / weight; ties to the
+     * oldest head.
+     */
+    private Tenant<T> pick(Iterable<Tenant<T>> candidates, RunningOf<T> runningOf, HeadOf<T> headOf) {
+        Tenant<T> best = null;
+        double bestShare = 0;
+        long bestSequence = 0;
+        for (Tenant<T> tenant : candidates) {
+            Entry<T> head = headOf.head(tenant);
+            if (head == null) {
+                continue;
+            }
+            double share = runningOf.running(tenant) / (double) Math.max(1, weightOf.applyAsInt(tenant.id));
+            if (best == null || share < bestShare || (share == bestShare && head.sequence < bestSequence)) {
+                best = tenant;
+                bestShare = share;
+                bestSequence = head.sequence;
+            }
+        }
+        return best;
+    }
+
+    @FunctionalInterface
+    private interface RunningOf<T> {
+        int running(Tenant<T> tenant);
+    }
+
+    @FunctionalInterface
+    private interface HeadOf<T> {
+        Entry<T> head(Tenant<T> tenant);
+    }
+
+    private record Entry<T>(long sequence, T waiter) {
+    }
+
+    private static final class Tenant<T> {
+        private final long id;
+        private final Deque<Entry<T>> queue = new ArrayDeque<>();
+        private int running;
+
+        private Tenant(long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.aigreentick.services.template.service.impl.common;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+/**
+ * Balance held for one broadcast: reserved messages x unit price.
+ *
+ * Each dispatch chunk settles its delivered messages and refunds its failed
+ * ones. outstanding only ever decreases and never goes below zero, so a
+ * message cannot be both settled and refunded, or refunded twice.
+ *
+ * Refunds are not paid out per chunk: they accumulate in pendingRefund and
+ * the settlement flush credits them to the wallet in one entry per window.
+ *
+ * Messages parked for retry are held: they stay outstanding, and releasing
+ * the reservation at the end of the broadcast leaves them reserved until
+ * their retry settles or refunds them.
+ */
+@Getter
+public class WalletReservation {
+
+    private final Long userId;
+    private final Long broadcastId;
+    private final BigDecimal unitPrice;
+    private final int reserved;
+    private final AtomicInteger outstanding;
+    private final AtomicInteger settled = new AtomicInteger();
+    private final AtomicInteger refunded = new AtomicInteger();
+    private final AtomicInteger pendingRefund = new AtomicInteger();
+    private final AtomicInteger held = new AtomicInteger();
+
+    public WalletReservation(Long userId, Long broadcastId, BigDecimal unitPrice, int reserved) {
+        this.userId = userId;
+        this.broadcastId = broadcastId;
+        this.unitPrice = unitPrice;
+        this.reserved = reserved;
+        this.outstanding = new AtomicInteger(reserved);
+    }
+
+    /**
+     * Marks up to count messages as delivered (charge is final).
+     *
+     * @return messages actually settled
+     */
+    public int settle(int count) {
+        int taken = take(count);
+        settled.addAndGet(taken);
+        return taken;
+    }
+
+    /**
+     * Marks up to count messages as failed (charge is returned).
+     *
+     * @return messages actually refunded
+     */
+    public int refund(int count) {
+        int taken = take(count);
+        refunded.addAndGet(taken);
+        return taken;
+    }
+
+    /**
+     * Queues refunded messages for the next settlement flush.
+     */
+    public void addPendingRefund(int count) {
+        if (count > 0) {
+            pendingRefund.addAndGet(count);
+        }
+    }
+
+    /**
+     * Takes every queued refund, leaving none pending.
+     *
+     * @return messages to credit back
+     */
+    public int drainPendingRefund() {
+        return pendingRefund.getAndSet(0);
+    }
+
+    /**
+     * Parks count outstanding messages for retry.
+     */
+    public void hold(int count) {
+        if (count > 0) {
+            held.addAndGet(count);
+        }
+    }
+
+    /**
+     * Un-parks up to count messages once their retry has an outcome.
+     */
+    public void unhold(int count) {
+        if (count > 0) {
+            held.updateAndGet(current -> Math.max(0, current - count));
+        }
+    }
+
+    /**
+     * Outstanding messages that are not parked for retry.
+     */
+    public int unheld() {
+        return Math.max(0, outstanding.get() - held.get());
+    }
+
+    public boolean isClosed() {
+        return outstanding.get() == 0;
+    }
+
+    private int take(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        while (true) {
+            int current = outstanding.get();
+            int taken = Math.min(current, count);
+            if (taken == 0 || outstanding.compareAndSet(current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+}
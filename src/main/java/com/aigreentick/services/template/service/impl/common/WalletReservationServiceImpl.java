@@ -0,0 +1,261 @@
+package com.aigreentick.services.template.service.impl.common;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.aigreentick.services.template.model.common.Wallet;
+import com.aigreentick.services.template.service.impl.account.UserServiceImpl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Wallet engine for broadcasts.
+ *
+ * A broadcast reserves its full cost up front with one conditional UPDATE
+ * (no read-modify-write, no long-held users row lock). As dispatch chunks
+ * complete, delivered messages are settled and failed ones refunded, and
+ * whatever is still reserved when the broadcast finishes is released.
+ *
+ * Chunk results only touch in-memory counters. Refunds are aggregated per
+ * broadcast and written by a periodic flush as one balance update plus one
+ * credit entry per broadcast per window, instead of one pair per chunk.
+ *
+ * Open reservations live in memory; a resumed broadcast re-opens its
+ * reservation for the messages it still has to send.
+ */
+@Service
+@Slf4j
+public class WalletReservationServiceImpl {
+
+    private final UserServiceImpl userService;
+    private final WalletServiceImpl walletService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final Map<Long, WalletReservation> reservations = new ConcurrentHashMap<>();
+
+    @Value("${wallet.settlement.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    private ScheduledFuture<?> flushTask;
+
+    public WalletReservationServiceImpl(
+            UserServiceImpl userService,
+            WalletServiceImpl walletService,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.userService = userService;
+        this.walletService = walletService;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void startSettlementFlush() {
+        flushTask = scheduler.scheduleWithFixedDelay(this::flushSettlements, Duration.ofMillis(flushIntervalMs));
+    }
+
+    @PreDestroy
+    void stopSettlementFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flushSettlements();
+    }
+
+    /**
+     * Charges messageCount x unitPrice and opens a reservation for the
+     * broadcast. Joins the caller's transaction; the reservation only becomes
+     * visible once that transaction commits.
+     *
+     * @throws com.aigreentick.services.template.exceptions.InsufficientBalanceException
+     *         if the balance does not cover the charge
+     */
+    public void reserve(Long userId, Long broadcastId, BigDecimal unitPrice, int messageCount) {
+        BigDecimal amount = unitPrice.multiply(BigDecimal.valueOf(messageCount));
+        userService.deductBalance(userId, amount.doubleValue());
+
+        WalletReservation reservation = new WalletReservation(userId, broadcastId, unitPrice, messageCount);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reservations.put(broadcastId, reservation);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reservations.put(broadcastId, reservation);
+            }
+        });
+    }
+
+    /**
+     * Re-opens the reservation of a resumed broadcast for the messages it
+     * still has to send. Nothing is charged - that happened on acceptance.
+     */
+    public void resume(Long userId, Long broadcastId, BigDecimal unitPrice, int outstandingMessages) {
+        log.info("Re-opening reservation for broadcastId: {} - {} messages outstanding",
+                broadcastId, outstandingMessages);
+        reservations.put(broadcastId, new WalletReservation(userId, broadcastId, unitPrice, outstandingMessages));
+    }
+
+    /**
+     * Records one dispatch chunk: dispatched messages keep their charge,
+     * failed ones are queued for refund on the next flush. No database work.
+     */
+    public void settle(Long broadcastId, int dispatched, int failed) {
+        WalletReservation reservation = reservations.get(broadcastId);
+        if (reservation == null) {
+            return;
+        }
+
+        reservation.settle(dispatched);
+        reservation.addPendingRefund(reservation.refund(failed));
+    }
+
+    /**
+     * Refunds every message still reserved, together with any refunds not yet
+     * flushed, in a single credit. Called when a broadcast finishes (messages
+     * that were never dispatched) or fails. Messages parked for retry stay
+     * reserved; the reservation is closed once none are left.
+     *
+     * @return amount refunded
+     */
+    public BigDecimal release(Long broadcastId) {
+        WalletReservation reservation = reservations.get(broadcastId);
+        if (reservation == null) {
+            return BigDecimal.ZERO;
+        }
+        if (reservation.getHeld().get() == 0) {
+            reservations.remove(broadcastId, reservation);
+        }
+
+        reservation.addPendingRefund(reservation.refund(reservation.unheld()));
+        int refunded = reservation.drainPendingRefund();
+        if (refunded == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        log.info("Releasing reservation for broadcastId: {} - settled: {}, refunded: {}, held for retry: {}",
+                broadcastId, reservation.getSettled().get(), reservation.getRefunded().get(),
+                reservation.getHeld().get());
+        if (!refund(reservation, refunded)) {
+            // Hand it back to the periodic flush for another attempt
+            reservation.addPendingRefund(refunded);
+            reservations.putIfAbsent(broadcastId, reservation);
+        }
+        return reservation.getUnitPrice().multiply(BigDecimal.valueOf(refunded));
+    }
+
+    /**
+     * Parks messages of a failed chunk for retry instead of refunding them.
+     *
+     * @return the broadcast's reservation, or null if none is open
+     */
+    public WalletReservation hold(Long broadcastId, int messages) {
+        WalletReservation reservation = reservations.get(broadcastId);
+        if (reservation != null) {
+            reservation.hold(messages);
+        }
+        return reservation;
+    }
+
+    /**
+     * Settles the outcome of retried messages: dispatched ones keep their
+     * charge, failed ones are queued for refund.
+     *
+     * @return false if the broadcast has no open reservation (e.g. after a
+     *         restart); the caller then refunds failures itself
+     */
+    public boolean settleRetried(Long broadcastId, int dispatched, int failed) {
+        WalletReservation reservation = reservations.get(broadcastId);
+        if (reservation == null) {
+            return false;
+        }
+        reservation.unhold(dispatched + failed);
+        reservation.settle(dispatched);
+        reservation.addPendingRefund(reservation.refund(failed));
+        return true;
+    }
+
+    /**
+     * Refunds messages charged by a broadcast whose reservation is no longer
+     * in memory.
+     */
+    public BigDecimal refundUnreserved(Long userId, Long broadcastId, BigDecimal unitPrice, int messages) {
+        if (userId == null || unitPrice == null || messages <= 0) {
+            return BigDecimal.ZERO;
+        }
+        WalletReservation detached = new WalletReservation(userId, broadcastId, unitPrice, messages);
+        return refund(detached, messages)
+                ? unitPrice.multiply(BigDecimal.valueOf(messages))
+                : BigDecimal.ZERO;
+    }
+
+    /**
+     * Credits the refunds accumulated since the last window, one write per
+     * broadcast, and drops reservations that are fully accounted for. A
+     * broadcast whose credit fails keeps its amount for the next window.
+     */
+    void flushSettlements() {
+        int flushed = 0;
+        for (WalletReservation reservation : reservations.values()) {
+            int messages = reservation.drainPendingRefund();
+            if (messages > 0) {
+                if (refund(reservation, messages)) {
+                    flushed++;
+                } else {
+                    reservation.addPendingRefund(messages);
+                    continue;
+                }
+            }
+            if (reservation.isClosed() && reservation.getPendingRefund().get() == 0) {
+                reservations.remove(reservation.getBroadcastId(), reservation);
+            }
+        }
+        if (flushed > 0) {
+            log.debug("Settlement flush credited refunds for {} broadcasts", flushed);
+        }
+    }
+
+    private boolean refund(WalletReservation reservation, int messages) {
+        BigDecimal amount = reservation.getUnitPrice().multiply(BigDecimal.valueOf(messages));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userService.refundBalance(reservation.getUserId(), amount.doubleValue());
+
+                Wallet wallet = Wallet.builder()
+                        .userId(reservation.getUserId())
+                        .createdBy(reservation.getUserId())
+                        .amount(amount.doubleValue())
+                        .type(Wallet.WalletType.credit)
+                        .status("1")
+                        .description("Broadcast refund - " + messages + " messages not delivered")
+                        .transection("BROADCAST_REFUND_" + reservation.getBroadcastId())
+                        .broadcastId(reservation.getBroadcastId().intValue())
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build();
+                walletService.save(wallet);
+            });
+            return true;
+
+        } catch (Exception e) {
+            log.error("Failed to refund {} to userId: {} for broadcastId: {}",
+                    amount, reservation.getUserId(), reservation.getBroadcastId(), e);
+            return false;
+        }
+    }
+}
@@ -10,9 +10,14 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.aigreentick.services.template.enums.BroadcastStage;
+import com.aigreentick.services.template.enums.BroadcastType;
 import com.aigreentick.services.template.model.contact.ContactMessages;
 import com.aigreentick.services.template.repository.contact.ContactMessagesRepository;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastMetricsServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastTracingServiceImpl;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -23,6 +28,8 @@ public class ContactMessagesServiceImpl {
 
     private final ContactMessagesRepository contactMessagesRepository;
     private final ChatContactServiceImpl chatContactService;
+    private final BroadcastMetricsServiceImpl metrics;
+    private final BroadcastTracingServiceImpl tracing;
 
     @Value("${broadcast.batch-size:200}")
     private int batchSize;
@@ -37,44 +44,76 @@ public class ContactMessagesServiceImpl {
      * @param mobileToReportId Map of mobile -> reportId (from saved reports)
      * @param userId           User ID for contact ownership
      * @param countryId        Country ID for new contacts
+     * @param type             Broadcast type, for metrics
      */
     @Async("messageDispatchExecutor")
     public void createContactsAndLinkMessagesAsync(
             Map<String, Long> mobileToReportId,
             Long userId,
-            Long countryId) {
+            Long countryId,
+            BroadcastType type) {
 
         log.info("[ContactsAndMessages] Starting chained async for {} mobiles, userId={}",
                 mobileToReportId.size(), userId);
 
-        long startTime = System.currentTimeMillis();
+        Timer.Sample sample = metrics.start();
 
         try {
-            // Step 1: Create/fetch contacts and get their IDs
-            List<String> mobileNumbers = new ArrayList<>(mobileToReportId.keySet());
-            
-            log.info("[ContactsAndMessages] Step 1: Ensuring contacts exist for {} numbers", mobileNumbers.size());
-            Map<String, Long> mobileToContactId = chatContactService.ensureContactsExistAndGetIds(
-                    userId, mobileNumbers, countryId);
-            
-            log.info("[ContactsAndMessages] Step 1 complete: {} contacts ready", mobileToContactId.size());
-
-            // Step 2: Create ContactMessages linking reports to contacts
-            log.info("[ContactsAndMessages] Step 2: Creating contact-message links");
-            createContactMessagesInBatches(mobileToReportId, mobileToContactId, userId);
+            // Runs on messageDispatchExecutor; the propagated context makes
+            // this span a child of the submitting broadcast
+            int contacts = tracing.tracePhase("contact_linking",
+                    () -> createContactsAndLinkMessages(mobileToReportId, userId, countryId));
 
-            long duration = System.currentTimeMillis() - startTime;
+            long duration = metrics.stop(sample, BroadcastStage.CONTACT_LINKING, type, userId);
             log.info("[ContactsAndMessages] Completed in {}ms - {} contacts, {} links created",
-                    duration, mobileToContactId.size(), mobileToReportId.size());
+                    duration, contacts, mobileToReportId.size());
 
         } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
+            long duration = metrics.stop(sample, BroadcastStage.CONTACT_LINKING, type, userId);
             log.error("[ContactsAndMessages] Failed after {}ms for userId={}: {}",
                     duration, userId, e.getMessage(), e);
             // Don't rethrow - this is fire-and-forget
         }
     }
 
+    /**
+     * Synchronous variant of createContactsAndLinkMessagesAsync.
+     * 
+     * Used by flows that already run batch by batch (streamed CSV uploads) and
+     * must not submit one async task per batch to the shared dispatch executor.
+     *
+     * @return number of contacts resolved
+     */
+    public int createContactsAndLinkMessages(
+            Map<String, Long> mobileToReportId,
+            Long userId,
+            Long countryId,
+            BroadcastType type) {
+        return metrics.time(BroadcastStage.CONTACT_LINKING, type, userId,
+                () -> tracing.tracePhase("contact_linking",
+                        () -> createContactsAndLinkMessages(mobileToReportId, userId, countryId)));
+    }
+
+    private int createContactsAndLinkMessages(
+            Map<String, Long> mobileToReportId,
+            Long userId,
+            Long countryId) {
+
+        // Step 1: Create/fetch contacts and get their IDs
+        List<String> mobileNumbers = new ArrayList<>(mobileToReportId.keySet());
+
+        log.debug("[ContactsAndMessages] Step 1: Ensuring contacts exist for {} numbers", mobileNumbers.size());
+        Map<String, Long> mobileToContactId = chatContactService.ensureContactsExistAndGetIds(
+                userId, mobileNumbers, countryId);
+
+        // Step 2: Create ContactMessages linking reports to contacts
+        log.debug("[ContactsAndMessages] Step 2: Creating contact-message links for {} contacts",
+                mobileToContactId.size());
+        createContactMessagesInBatches(mobileToReportId, mobileToContactId, userId);
+
+        return mobileToContactId.size();
+    }
+
     /**
      * DEPRECATED: Use createContactsAndLinkMessagesAsync instead.
      * Kept for backward compatibility if needed.
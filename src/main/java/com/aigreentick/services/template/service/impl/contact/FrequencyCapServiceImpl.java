@@ -0,0 +1,287 @@
+package com.aigreentick.services.template.service.impl.contact;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-user, per-recipient frequency cap across campaigns: at most
+ * frequency-cap.max-messages messages of a capped template category (by
+ * default MARKETING) to the same number within frequency-cap.window-hours.
+ *
+ * Counts live in memory, one RecipientFrequencyWindow per user, so a check
+ * costs no database round trip. Recorded messages are also accumulated as
+ * deltas and added to recipient_frequency_counts every
+ * frequency-cap.flush-interval-ms; the live window is loaded back from
+ * there on startup. Instances do not see each other's counts until they
+ * restart, so with several instances the cap holds per instance.
+ *
+ * Messages count when they are dispatched, not when the broadcast is
+ * charged: orchestrators register a broadcast with trackBroadcast when it
+ * executes, and the dispatcher and the retry service report what the
+ * messaging service accepted through recordDispatched. Scheduled
+ * broadcasts therefore count once, when they run, and failed or refunded
+ * messages never use up the cap.
+ */
+@Service
+@Slf4j
+public class FrequencyCapServiceImpl {
+
+    private static final int PURGE_BATCH_SIZE = 10_000;
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final Map<Long, RecipientFrequencyWindow> windows = new ConcurrentHashMap<>();
+    private final Map<Long, RecipientFrequencyWindow> unflushed = new ConcurrentHashMap<>();
+
+    // broadcastId -> whose cap its dispatched messages count against
+    private final Map<Long, TrackedBroadcast> trackedBroadcasts = new ConcurrentHashMap<>();
+
+    @Value("${frequency-cap.enabled:false}")
+    private boolean enabled;
+
+    @Value("${frequency-cap.max-messages:2}")
+    private int maxMessages;
+
+    @Value("${frequency-cap.window-hours:24}")
+    private int windowHours;
+
+    @Value("${frequency-cap.bucket-minutes:60}")
+    private int bucketMinutes;
+
+    @Value("${frequency-cap.categories:MARKETING}")
+    private Set<String> categories;
+
+    @Value("${frequency-cap.flush-interval-ms:30000}")
+    private long flushIntervalMs;
+
+    private int windowBuckets;
+    private ScheduledFuture<?> flushTask;
+
+    public FrequencyCapServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("backgroundTaskScheduler") ThreadPoolTaskScheduler scheduler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        windowBuckets = Math.max(1, (int) Math.ceil(windowHours * 60.0 / bucketMinutes));
+        load();
+        flushTask = scheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(flushIntervalMs));
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flush();
+        }
+    }
+
+    /**
+     * True when broadcasts of this template category are capped.
+     */
+    public boolean appliesTo(String category) {
+        return enabled && category != null && categories.stream().anyMatch(category::equalsIgnoreCase);
+    }
+
+    /**
+     * Removes the numbers that already reached the cap. Numbers that are not
+     * numeric are never capped.
+     */
+    public List<String> filterCappedNumbers(Long userId, String category, List<String> mobiles) {
+        if (!appliesTo(category)) {
+            return mobiles;
+        }
+        RecipientFrequencyWindow window = windows.get(userId);
+        if (window == null) {
+            return mobiles;
+        }
+
+        long bucket = currentBucket();
+        List<String> allowed = new ArrayList<>(mobiles.size());
+        for (String mobile : mobiles) {
+            long key = toKey(mobile);
+            if (key <= 0 || window.count(key, bucket) < maxMessages) {
+                allowed.add(mobile);
+            }
+        }
+        if (allowed.size() < mobiles.size()) {
+            log.info("Frequency cap removed {} of {} numbers for userId: {}",
+                    mobiles.size() - allowed.size(), mobiles.size(), userId);
+        }
+        return allowed;
+    }
+
+    /**
+     * Counts the dispatched messages of this broadcast from now on. Call when
+     * the broadcast executes (also when it is resumed), not when it is
+     * accepted or scheduled.
+     */
+    public void trackBroadcast(Long broadcastId, Long userId, String category) {
+        if (appliesTo(category)) {
+            trackedBroadcasts.put(broadcastId, new TrackedBroadcast(userId, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Counts one message to each number, if the broadcast is tracked. Call
+     * with the recipients the messaging service accepted.
+     */
+    public void recordDispatched(Long broadcastId, Collection<String> mobiles) {
+        TrackedBroadcast tracked = trackedBroadcasts.get(broadcastId);
+        if (tracked != null) {
+            recordSent(tracked.userId(), mobiles);
+        }
+    }
+
+    private void recordSent(Long userId, Collection<String> mobiles) {
+        if (mobiles.isEmpty()) {
+            return;
+        }
+        long bucket = currentBucket();
+        long[] keys = mobiles.stream().mapToLong(FrequencyCapServiceImpl::toKey).filter(key -> key > 0).toArray();
+        // Inside compute, so flush cannot take the window or delta away midway
+        windows.compute(userId, (id, window) -> addAll(window, keys, bucket));
+        unflushed.compute(userId, (id, delta) -> addAll(delta, keys, bucket));
+    }
+
+    /**
+     * Adds the accumulated deltas to recipient_frequency_counts, drops
+     * windows with nothing left in them and purges rows that left the
+     * window. Failed deltas are kept for the next run.
+     */
+    void flush() {
+        try {
+            for (Long userId : unflushed.keySet()) {
+                RecipientFrequencyWindow delta = unflushed.remove(userId);
+                if (delta == null) {
+                    continue;
+                }
+                try {
+                    // One transaction, so a failed flush can be retried as a whole
+                    transactionTemplate.executeWithoutResult(status -> writeDeltas(userId, delta));
+                } catch (Exception e) {
+                    log.error("Failed to flush frequency counts of userId: {}, retrying next run", userId, e);
+                    unflushed.compute(userId, (id, current) -> {
+                        RecipientFrequencyWindow merged = current != null ? current : newWindow();
+                        delta.forEach((bucket, mobile, messages) -> merged.add(mobile, bucket, messages));
+                        return merged;
+                    });
+                }
+            }
+
+            long bucket = currentBucket();
+            for (Long userId : windows.keySet()) {
+                windows.computeIfPresent(userId, (id, window) -> window.isEmpty(bucket) ? null : window);
+            }
+
+            // Retries of a broadcast end long before its messages leave the window
+            long trackedCutoff = System.currentTimeMillis() - windowHours * 3_600_000L;
+            trackedBroadcasts.values().removeIf(tracked -> tracked.trackedAtMillis() < trackedCutoff);
+
+            long oldest = bucket - windowBuckets + 1;
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(
+                        "DELETE FROM recipient_frequency_counts WHERE bucket < ? LIMIT " + PURGE_BATCH_SIZE, oldest);
+            } while (deleted == PURGE_BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("Frequency count flush failed", e);
+        }
+    }
+
+    private void writeDeltas(Long userId, RecipientFrequencyWindow delta) {
+        List<Object[]> rows = new ArrayList<>();
+        delta.forEach((bucket, mobile, messages) -> rows.add(new Object[] { userId, mobile, bucket, messages }));
+        for (int i = 0; i < rows.size(); i += FLUSH_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO recipient_frequency_counts (user_id, mobile, bucket, sent_count)
+                    VALUES (?, ?, ?, ?)
+                    ON DUPLICATE KEY UPDATE sent_count = sent_count + VALUES(sent_count)
+                    """, rows.subList(i, Math.min(i + FLUSH_BATCH_SIZE, rows.size())));
+        }
+    }
+
+    private void load() {
+        long oldest = currentBucket() - windowBuckets + 1;
+        try {
+            long[] loaded = { 0 };
+            jdbcTemplate.query(
+                    "SELECT user_id, mobile, bucket, sent_count FROM recipient_frequency_counts WHERE bucket >= ?",
+                    rs -> {
+                        windows.computeIfAbsent(rs.getLong(1), id -> newWindow())
+                                .add(rs.getLong(2), rs.getLong(3), rs.getInt(4));
+                        loaded[0]++;
+                    },
+                    oldest);
+            log.info("Loaded {} recipient frequency counts for {} users", loaded[0], windows.size());
+        } catch (Exception e) {
+            log.error("Could not load recipient frequency counts; caps start empty", e);
+        }
+    }
+
+    private RecipientFrequencyWindow addAll(RecipientFrequencyWindow window, long[] keys, long bucket) {
+        RecipientFrequencyWindow target = window != null ? window : newWindow();
+        for (long key : keys) {
+            target.add(key, bucket, 1);
+        }
+        return target;
+    }
+
+    private RecipientFrequencyWindow newWindow() {
+        return new RecipientFrequencyWindow(windowBuckets);
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / (bucketMinutes * 60_000L);
+    }
+
+    /**
+     * Mobile number as a primitive key, or -1 if it is not a number.
+     */
+    private static long toKey(String mobile) {
+        if (mobile == null || mobile.isEmpty() || mobile.length() > 18) {
+            return -1;
+        }
+        int start = mobile.charAt(0) == '+' ? 1 : 0;
+        long key = 0;
+        for (int i = start; i < mobile.length(); i++) {
+            char c = mobile.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return start == mobile.length() ? -1 : key;
+    }
+
+    private record TrackedBroadcast(Long userId, long trackedAtMillis) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.aigreentick.services.template.service.impl.contact;
+
+import java.util.Arrays;
+
+/**
+ * Messages sent to each recipient of one user over a sliding window, in
+ * time buckets.
+ *
+ * Layout: a ring with one slot per bucket of the window. Each slot holds
+ * the bucket it currently counts and an open-addressing long -> int hash
+ * table (mobile number -> messages in that bucket), no boxing. A slot is
+ * reused, cleared, when a bucket one full window later is written to it,
+ * so expiry costs nothing per recipient. A recipient's count is the sum
+ * over the slots whose bucket is still inside the window.
+ *
+ * Thread-safe; all methods lock the instance.
+ */
+final class RecipientFrequencyWindow {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long[] slotBuckets;
+    private final Counts[] slotCounts;
+
+    RecipientFrequencyWindow(int windowBuckets) {
+        this.slotBuckets = new long[windowBuckets];
+        this.slotCounts = new Counts[windowBuckets];
+        Arrays.fill(slotBuckets, Long.MIN_VALUE);
+    }
+
+    /**
+     * Messages to mobile in the window ending with currentBucket.
+     */
+    synchronized int count(long mobile, long currentBucket) {
+        long oldest = currentBucket - slotBuckets.length + 1;
+        int total = 0;
+        for (int i = 0; i < slotBuckets.length; i++) {
+            if (slotBuckets[i] >= oldest && slotBuckets[i] <= currentBucket) {
+                total += slotCounts[i].get(mobile);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds messages to mobile in the given bucket. Ignored if a later bucket
+     * already took the bucket's slot, i.e. the bucket left the window.
+     */
+    synchronized void add(long mobile, long bucket, int messages) {
+        int slot = (int) Math.floorMod(bucket, (long) slotBuckets.length);
+        if (slotBuckets[slot] != bucket) {
+            if (slotBuckets[slot] > bucket) {
+                return;
+            }
+            slotBuckets[slot] = bucket;
+            slotCounts[slot] = new Counts(INITIAL_CAPACITY);
+        }
+        slotCounts[slot].add(mobile, messages);
+    }
+
+    /**
+     * True when nothing is counted inside the window ending with
+     * currentBucket, so the window can be dropped.
+     */
+    synchronized boolean isEmpty(long currentBucket) {
+        long oldest = currentBucket - slotBuckets.length + 1;
+        for (int i = 0; i < slotBuckets.length; i++) {
+            if (slotBuckets[i] >= oldest && slotCounts[i].size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits every (bucket, mobile, messages) entry.
+     */
+    synchronized void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < slotBuckets.length; i++) {
+            Counts counts = slotCounts[i];
+            if (counts == null) {
+                continue;
+            }
+            for (int j = 0; j < counts.keys.length; j++) {
+                if (counts.values[j] != 0) {
+                    consumer.accept(slotBuckets[i], counts.keys[j], counts.values[j]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long bucket, long mobile, int messages);
+    }
+
+    /**
+     * Linear-probing table; a zero value marks an empty slot.
+     */
+    private static final class Counts {
+
+        private long[] keys;
+        private int[] values;
+        private int mask;
+        private int size;
+
+        private Counts(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        private int get(long key) {
+            int slot = mix(key) & mask;
+            while (values[slot] != 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return 0;
+        }
+
+        private void add(long key, int delta) {
+            int slot = mix(key) & mask;
+            while (values[slot] != 0) {
+                if (keys[slot] == key) {
+                    values[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = delta;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (values[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -1,27 +1,39 @@
 package com.aigreentick.services.template.service.impl.template.broadcast;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.aigreentick.services.template.dto.build.MessageRequest;
 import com.aigreentick.services.template.dto.build.TemplateDto;
 import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
-import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.csv.SendTemplateByCsvFileRequestDto;
 import com.aigreentick.services.template.dto.request.template.csv.SendTemplateByCsvRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
 import com.aigreentick.services.template.dto.response.template.TemplateResponseDto;
+import com.aigreentick.services.template.enums.BroadcastJobPhase;
+import com.aigreentick.services.template.enums.BroadcastPhase;
+import com.aigreentick.services.template.enums.BroadcastStage;
 import com.aigreentick.services.template.enums.BroadcastType;
 import com.aigreentick.services.template.enums.Platform;
 import com.aigreentick.services.template.enums.TemplateCategory;
 import com.aigreentick.services.template.exceptions.InsufficientBalanceException;
+import com.aigreentick.services.template.jfr.BroadcastPhaseEvent;
 import com.aigreentick.services.template.mapper.TemplateMapper;
 import com.aigreentick.services.template.model.account.User;
 import com.aigreentick.services.template.model.account.WhatsappAccount;
@@ -32,18 +44,34 @@ import com.aigreentick.services.template.model.template.Template;
 import com.aigreentick.services.template.service.impl.account.UserServiceImpl;
 import com.aigreentick.services.template.service.impl.account.WhatsappAccountServiceImpl;
 import com.aigreentick.services.template.service.impl.broadcast.AsyncBatchDispatcherService;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastIdempotencyClaim;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastIdempotencyServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastJob;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastJobServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastMetricsServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastTracingServiceImpl;
 import com.aigreentick.services.template.service.impl.broadcast.BroadcastServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchJournalServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchPayloadBuffer;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchPayloadBufferServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.JournaledDispatch;
 import com.aigreentick.services.template.service.impl.broadcast.ReportServiceImpl;
+import com.aigreentick.services.template.service.impl.common.WalletReservationServiceImpl;
 import com.aigreentick.services.template.service.impl.common.WalletServiceImpl;
 import com.aigreentick.services.template.service.impl.contact.BlacklistServiceImpl;
 import com.aigreentick.services.template.service.impl.contact.ChatContactServiceImpl;
 import com.aigreentick.services.template.service.impl.contact.ContactMessagesServiceImpl;
+import com.aigreentick.services.template.service.impl.contact.FrequencyCapServiceImpl;
 import com.aigreentick.services.template.service.impl.template.TemplateServiceImpl;
+import com.aigreentick.services.template.service.impl.template.builder.CsvVariableTable;
+import com.aigreentick.services.template.service.impl.template.builder.ParallelPayloadBuilderService;
 import com.aigreentick.services.template.service.impl.template.builder.TemplateBuilderForCsvServiceImpl;
+import com.aigreentick.services.template.util.helper.CsvStreamReader;
 import com.aigreentick.services.template.util.helper.JsonHelper;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.aigreentick.services.template.util.helper.LongHashSet;
 
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -66,14 +94,23 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
     private final TemplateMapper templateMapper;
     private final UserServiceImpl userService;
     private final BlacklistServiceImpl blacklistService;
+    private final FrequencyCapServiceImpl frequencyCapService;
     private final BroadcastServiceImpl broadcastService;
     private final ReportServiceImpl reportService;
     private final WalletServiceImpl walletService;
     private final ChatContactServiceImpl chatContactService;
     private final TemplateBuilderForCsvServiceImpl csvTemplateBuilder; // CSV-specific builder
     private final AsyncBatchDispatcherService asyncDispatchService;
-    private final ObjectMapper objectMapper;
+    private final ParallelPayloadBuilderService payloadBuilder;
+    private final DispatchPayloadBufferServiceImpl payloadBufferService;
+    private final DispatchJournalServiceImpl dispatchJournal;
     private final ContactMessagesServiceImpl contactMessagesService;
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletReservationServiceImpl walletReservationService;
+    private final BroadcastMetricsServiceImpl metrics;
+    private final BroadcastTracingServiceImpl tracing;
+    private final BroadcastIdempotencyServiceImpl idempotencyService;
 
     @Value("${broadcast.batch-size:1000}")
     private int batchSize;
@@ -81,18 +118,166 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
     @Value("${broadcast.build-batch-size:500}")
     private int buildBatchSize;
 
+    @Value("${broadcast.csv-upload.spool-dir:${java.io.tmpdir}/broadcast-uploads}")
+    private String uploadSpoolRoot;
+
+    private Path uploadSpoolDir;
+
+    @PostConstruct
+    void createUploadSpoolDir() throws IOException {
+        uploadSpoolDir = Files.createDirectories(Path.of(uploadSpoolRoot));
+    }
+
     /**
      * Main entry point for CSV-based WhatsApp template broadcasts.
-     * Transactional to ensure atomicity of DB operations.
+     * Not one transaction: the charge commits on its own and every later phase
+     * commits as it completes (see BroadcastPhase).
      * 
      * Key difference from regular broadcast: CSV contains per-recipient variables,
      * so template building uses csvTemplateBuilder instead of regular
      * templateBuilder.
+     * 
+     * Runs the whole pipeline on the calling thread; see submitBroadcast for
+     * the accept-and-queue variant.
      */
-    @Transactional
     public TemplateResponseDto broadcastTemplate(SendTemplateByCsvRequestDto request, Long userId) {
+        return broadcastTemplate(request, userId, (BroadcastIdempotencyClaim) null);
+    }
+
+    /**
+     * broadcastTemplate for client submissions: a repeat of an earlier
+     * submission (same Idempotency-Key, or same request when there is none)
+     * returns the status of the broadcast it created instead of running again.
+     */
+    public TemplateResponseDto broadcastTemplate(SendTemplateByCsvRequestDto request, Long userId, String idempotencyKey) {
+        return idempotencyService.submitOnce(userId, BroadcastType.CSV, idempotencyKey, () -> request,
+                claim -> broadcastTemplate(request, userId, claim),
+                broadcastId -> toDuplicateResponse(broadcastId, userId));
+    }
+
+    private TemplateResponseDto broadcastTemplate(SendTemplateByCsvRequestDto request, Long userId,
+            BroadcastIdempotencyClaim claim) {
         log.info("=== Starting optimized CSV broadcast for userId: {} ===", userId);
 
+        PreparedBroadcast prepared = prepareBroadcast(request, userId, claim);
+        Template template = prepared.template();
+
+        if (prepared.isScheduled()) {
+            // Don't proceed with immediate dispatch - let scheduler handle it
+            return TemplateResponseDto.builder()
+                    .id(template.getId())
+                    .name(template.getName())
+                    .status("SCHEDULED")
+                    .build();
+        }
+
+        BroadcastJob job = broadcastJobService.register(prepared.broadcast().getId(), userId,
+                BroadcastType.CSV, prepared.validNumbers().size());
+        try {
+            broadcastJobService.track(job, executeBroadcast(prepared, request, job, null));
+        } catch (RuntimeException e) {
+            job.fail(e);
+            throw e;
+        }
+
+        log.info("=== CSV Broadcast initiated - templates built, dispatching in background ===");
+
+        return TemplateResponseDto.builder()
+                .id(template.getId())
+                .name(template.getName())
+                .status("BROADCAST_INITIATED")
+                .build();
+    }
+
+    /**
+     * Accept-and-queue entry point for CSV broadcasts.
+     * 
+     * Validates, filters the blacklist (the charge depends on it), charges the
+     * wallet and creates the broadcast, then returns. Reports, contacts,
+     * payload build and dispatch run on the broadcast job executor; poll
+     * progress by the returned broadcastId.
+     */
+    public BroadcastProgressResponseDto submitBroadcast(SendTemplateByCsvRequestDto request, Long userId) {
+        return submitBroadcast(request, userId, (BroadcastIdempotencyClaim) null);
+    }
+
+    /**
+     * submitBroadcast for client submissions: a repeat of an earlier
+     * submission returns the progress of the broadcast it created.
+     */
+    public BroadcastProgressResponseDto submitBroadcast(SendTemplateByCsvRequestDto request, Long userId, String idempotencyKey) {
+        return idempotencyService.submitOnce(userId, BroadcastType.CSV, idempotencyKey, () -> request,
+                claim -> submitBroadcast(request, userId, claim),
+                broadcastId -> broadcastJobService.getProgress(broadcastId, userId));
+    }
+
+    private BroadcastProgressResponseDto submitBroadcast(SendTemplateByCsvRequestDto request, Long userId,
+            BroadcastIdempotencyClaim claim) {
+        log.info("=== Accepting CSV broadcast for userId: {} ===", userId);
+
+        PreparedBroadcast prepared = prepareBroadcast(request, userId, claim);
+        Broadcast broadcast = prepared.broadcast();
+
+        if (prepared.isScheduled()) {
+            return BroadcastProgressResponseDto.builder()
+                    .broadcastId(broadcast.getId())
+                    .broadcastType(BroadcastType.CSV)
+                    .phase(BroadcastJobPhase.SCHEDULED)
+                    .total(prepared.validNumbers().size())
+                    .submittedAt(broadcast.getCreatedAt())
+                    .build();
+        }
+
+        BroadcastJob job = broadcastJobService.register(broadcast.getId(), userId,
+                BroadcastType.CSV, prepared.validNumbers().size());
+        broadcastJobService.submit(job,
+                () -> executeBroadcast(prepared, request, job, null),
+                failure -> compensateFailedBroadcast(prepared, failure));
+
+        return broadcastJobService.toProgress(job);
+    }
+
+    /**
+     * Resumes a broadcast interrupted (e.g. by a restart) in the given phase.
+     * 
+     * The charge is already committed, so execution continues from the step
+     * after the last committed phase on the broadcast job executor, with the
+     * wallet reservation re-opened for the messages still to send. The stored
+     * numbers were blacklist-filtered when the broadcast was accepted.
+     */
+    public BroadcastProgressResponseDto resumeBroadcast(
+            Broadcast broadcast, SendTemplateByCsvRequestDto request, BroadcastPhase phase) {
+        log.info("=== Resuming CSV broadcastId: {} from phase {} ===", broadcast.getId(), phase);
+
+        User user = userService.getUserById(broadcast.getUserId());
+        WhatsappAccount config = whatsappAccountService.getActiveAccountByUserId(user.getId());
+        Template template = templateService.getTemplateById(broadcast.getTemplateId());
+        TemplateDto templateDto = templateMapper.toTemplateDto(template);
+        List<String> validNumbers = request.getMobileNumbers().stream()
+                .map(String::valueOf)
+                .toList();
+
+        BigDecimal pricePerMessage = getChargedPricePerMessage(broadcast, user, template);
+        PreparedBroadcast prepared = new PreparedBroadcast(user, config, template, templateDto, validNumbers,
+                pricePerMessage, broadcast, false);
+
+        BroadcastJob job = broadcastJobService.register(broadcast.getId(), user.getId(),
+                BroadcastType.CSV, validNumbers.size());
+        broadcastJobService.submit(job,
+                () -> executeBroadcast(prepared, request, job, phase),
+                failure -> compensateFailedBroadcast(prepared, failure));
+
+        return broadcastJobService.toProgress(job);
+    }
+
+    /**
+     * Steps 1-8: validation, blacklist filtering, balance check, broadcast
+     * record and wallet charge.
+     * 
+     * @param claim idempotency claim bound to the new broadcast, or null
+     */
+    private PreparedBroadcast prepareBroadcast(SendTemplateByCsvRequestDto request, Long userId,
+            BroadcastIdempotencyClaim claim) {
         // Step 1-2: Load user and WhatsApp configuration
         User user = userService.getUserById(userId);
         WhatsappAccount config = whatsappAccountService.getActiveAccountByUserId(user.getId());
@@ -104,16 +289,23 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
         // Step 4: Get price based on template category
         BigDecimal pricePerMessage = getPricePerMessage(userId, template.getCategory(), user);
 
-        // Step 5: Convert mobile numbers and filter blacklisted ones
+        // Step 5: Convert mobile numbers and filter blacklisted and frequency-capped ones
         List<String> mobileStrings = request.getMobileNumbers().stream()
                 .map(String::valueOf)
                 .toList();
 
-        List<String> validNumbers = blacklistService.filterBlockedNumbers(userId, mobileStrings);
+        BroadcastPhaseEvent filterEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.BLACKLIST_FILTER,
+                BroadcastType.CSV.getValue(), null, userId, mobileStrings.size());
+        List<String> validNumbers = metrics.time(BroadcastStage.BLACKLIST_FILTER, BroadcastType.CSV, userId,
+                () -> frequencyCapService.filterCappedNumbers(userId, template.getCategory(),
+                        blacklistService.filterBlockedNumbers(userId, mobileStrings)));
+        filterEvent.commit();
         log.info("Filtered: {} valid out of {} total", validNumbers.size(), mobileStrings.size());
+        metrics.recordRecipients(BroadcastType.CSV, userId, validNumbers.size(),
+                mobileStrings.size() - validNumbers.size());
 
         if (validNumbers.isEmpty()) {
-            throw new IllegalArgumentException("No valid numbers after blacklist filtering");
+            throw new IllegalArgumentException("No valid numbers after blacklist and frequency cap filtering");
         }
 
         // Step 6: Validate user has sufficient balance
@@ -125,134 +317,612 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
                     402);
         }
 
-        // Step 7: Create broadcast record (marks source as "CSV")
-        Broadcast broadcast = createBroadcastRecord(request, user, validNumbers, template);
-
-        // Step 8: Deduct wallet balance and create transaction record
-        deductWalletBalance(user, totalDeduction, broadcast.getId());
+        // Step 7-8: Create broadcast record (marks source as "CSV") and charge
+        // the wallet in one short transaction - committed in phase CHARGED
+        Broadcast broadcast = transactionTemplate.execute(status -> {
+            Broadcast created = createBroadcastRecord(request, user, validNumbers, template, pricePerMessage);
+            idempotencyService.bind(claim, created.getId());
+            deductWalletBalance(user, pricePerMessage, validNumbers.size(), created.getId());
+            return created;
+        });
 
         // Check if this is a scheduled broadcast (future execution)
-        if (broadcast.getScheduleAt() != null &&
-                broadcast.getScheduleAt().isAfter(LocalDateTime.now())) {
-
+        boolean scheduled = broadcast.getScheduleAt() != null &&
+                broadcast.getScheduleAt().isAfter(LocalDateTime.now());
+        if (scheduled) {
             log.info("Broadcast {} scheduled for future execution at {}",
                     broadcast.getId(), broadcast.getScheduleAt());
-
-            // Don't proceed with immediate dispatch - let scheduler handle it
-            return TemplateResponseDto.builder()
-                    .id(template.getId())
-                    .name(template.getName())
-                    .status("SCHEDULED")
-                    .build();
         }
 
-        // Step 9: Create report entries for tracking delivery status
-        log.info("Creating reports at: {}", LocalDateTime.now());
-        Map<String, Long> mobileToReportId = createReportsAndGetIds(user.getId(), broadcast.getId(), validNumbers);
+        return new PreparedBroadcast(user, config, template, templateDto, validNumbers, pricePerMessage,
+                broadcast, scheduled);
+    }
 
-        // Step 9: Create contacts and link messages (chained async - fire and forget)
-        log.info(" Starting chained async for contacts + messages ===");
-        contactMessagesService.createContactsAndLinkMessagesAsync(
-                mobileToReportId,
-                user.getId(),
-                Long.valueOf(request.getCountryId()));
+    /**
+     * Steps 9-13: reports, contacts, payload build and dispatch, committing
+     * the broadcast's phase after each step.
+     * 
+     * @param resumeFrom phase the broadcast was interrupted in, or null for a
+     *                   fresh broadcast
+     * @return future completing when every dispatch chunk has finished
+     */
+    private CompletableFuture<Void> executeBroadcast(
+            PreparedBroadcast prepared,
+            SendTemplateByCsvRequestDto request,
+            BroadcastJob job,
+            BroadcastPhase resumeFrom) {
+        return tracing.traceBroadcast(BroadcastType.CSV, prepared.broadcast().getId(), prepared.user().getId(),
+                prepared.validNumbers().size(), () -> runBroadcast(prepared, request, job, resumeFrom));
+    }
 
-        // Step 12: Build WhatsApp API payloads with CSV-specific variables
-        log.info("=== PHASE 1: Building CSV templates for {} numbers ===", validNumbers.size());
-        long buildStart = System.currentTimeMillis();
+    private CompletableFuture<Void> runBroadcast(
+            PreparedBroadcast prepared,
+            SendTemplateByCsvRequestDto request,
+            BroadcastJob job,
+            BroadcastPhase resumeFrom) {
+
+        Long userId = prepared.user().getId();
+        Broadcast broadcast = prepared.broadcast();
+        List<String> validNumbers = prepared.validNumbers();
+        JournaledDispatch journaled = null;
+        // Counted against the cap as they are dispatched, so a scheduled
+        // broadcast is not capped by its own acceptance
+        frequencyCapService.trackBroadcast(broadcast.getId(), userId, prepared.template().getCategory());
+
+        if (resumeFrom == null || resumeFrom == BroadcastPhase.CHARGED) {
+            // Step 9: Create report entries for tracking delivery status
+            job.moveTo(BroadcastJobPhase.CREATING_REPORTS);
+            log.info("Creating reports at: {}", LocalDateTime.now());
+            BroadcastPhaseEvent reportsEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.CREATE_REPORTS,
+                    BroadcastType.CSV.getValue(), broadcast.getId(), userId, validNumbers.size());
+            List<String> reportNumbers = validNumbers;
+            Map<String, Long> mobileToReportId = tracing.tracePhase(BroadcastPhaseEvent.CREATE_REPORTS,
+                    () -> createReportsAndGetIds(userId, broadcast.getId(), reportNumbers, resumeFrom != null));
+            reportsEvent.commit();
+            broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.REPORTS_CREATED);
+
+            // Step 9: Create contacts and link messages (chained async - fire and forget)
+            log.info(" Starting chained async for contacts + messages ===");
+            contactMessagesService.createContactsAndLinkMessagesAsync(
+                    mobileToReportId,
+                    userId,
+                    Long.valueOf(request.getCountryId()),
+                    BroadcastType.CSV);
+
+        } else if (resumeFrom == BroadcastPhase.DISPATCHING) {
+            // Part of the broadcast was sent before the interruption
+            validNumbers = reportService.getUndispatchedMobiles(broadcast.getId());
+            log.info("Resuming broadcastId: {} - {} recipients left to dispatch",
+                    broadcast.getId(), validNumbers.size());
+            // Chunks journaled before the crash are sent as built, no rebuild
+            journaled = dispatchJournal.resume(broadcast.getId(), validNumbers);
+            if (journaled != null) {
+                job.addBuilt(journaled.messages());
+            }
+        }
 
-        List<BroadcastDispatchItemDto> allDispatchItems = buildAllCsvDispatchItemsInBatches(
-                userId, validNumbers, templateDto, request, broadcast.getId());
+        if (resumeFrom != null) {
+            walletReservationService.resume(userId, broadcast.getId(), prepared.pricePerMessage(),
+                    journaled != null ? journaled.messages() : validNumbers.size());
+        }
 
-        long buildDuration = System.currentTimeMillis() - buildStart;
-        log.info("=== Built {} CSV dispatch items in {}ms ===", allDispatchItems.size(), buildDuration);
+        DispatchPayloadBuffer allDispatchItems = journaled != null
+                ? null
+                : buildPayloads(prepared, request, job, validNumbers);
+        int dispatchCount = journaled != null ? journaled.messages() : allDispatchItems.size();
 
         // Step 13: Dispatch messages asynchronously (returns immediately)
         WhatsappAccountInfoDto accountInfo = WhatsappAccountInfoDto.builder()
-                .phoneNumberId(config.getWhatsappNoId())
-                .accessToken(config.getParmenentToken())
+                .phoneNumberId(prepared.config().getWhatsappNoId())
+                .accessToken(prepared.config().getParmenentToken())
                 .build();
 
-        log.info("=== PHASE 2: Starting async dispatch for {} CSV items ===", allDispatchItems.size());
+        if (resumeFrom != BroadcastPhase.DISPATCHING) {
+            broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.BUILT);
+        }
+
+        job.moveTo(BroadcastJobPhase.DISPATCHING);
+        broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.DISPATCHING);
+        log.info("=== PHASE 2: Starting async dispatch for {} CSV items ===", dispatchCount);
 
-        CompletableFuture<Void> dispatchFuture = asyncDispatchService.dispatchAsync(
-                allDispatchItems, accountInfo, broadcast.getId());
+        BroadcastPhaseEvent dispatchEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.DISPATCH,
+                BroadcastType.CSV.getValue(), broadcast.getId(), userId, dispatchCount);
+        CompletableFuture<Void> dispatchFuture = journaled != null
+                ? asyncDispatchService.resumeAsync(journaled, accountInfo, broadcast.getId())
+                : asyncDispatchService.dispatchAsync(allDispatchItems, accountInfo, broadcast.getId(), true);
 
         // Log completion (non-blocking callback)
         dispatchFuture.whenComplete((result, throwable) -> {
+            dispatchEvent.commit();
             if (throwable != null) {
                 log.error("Async CSV dispatch failed for broadcastId: {}", broadcast.getId(), throwable);
             } else {
                 log.info("=== Async CSV dispatch completed for broadcastId: {} ===", broadcast.getId());
+                broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.DONE);
+                // Charged messages that never reached dispatch (e.g. failed to build)
+                walletReservationService.release(broadcast.getId());
             }
         });
 
-        log.info("=== CSV Broadcast initiated - templates built, dispatching in background ===");
+        return dispatchFuture;
+    }
 
-        return TemplateResponseDto.builder()
-                .id(template.getId())
-                .name(template.getName())
-                .status("BROADCAST_INITIATED")
-                .build();
+    /**
+     * Step 12: builds the payloads of the given recipients into a sealed
+     * payload buffer.
+     */
+    private DispatchPayloadBuffer buildPayloads(
+            PreparedBroadcast prepared,
+            SendTemplateByCsvRequestDto request,
+            BroadcastJob job,
+            List<String> validNumbers) {
+
+        Long userId = prepared.user().getId();
+        Broadcast broadcast = prepared.broadcast();
+
+        // Step 12: Build WhatsApp API payloads with CSV-specific variables
+        job.moveTo(BroadcastJobPhase.BUILDING);
+        log.info("=== PHASE 1: Building CSV templates for {} numbers ===", validNumbers.size());
+        Timer.Sample buildSample = metrics.start();
+        BroadcastPhaseEvent buildEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.BUILD,
+                BroadcastType.CSV.getValue(), broadcast.getId(), userId, validNumbers.size());
+
+        CsvVariableTable variableTable = csvTemplateBuilder.prepareVariableTable(request);
+        DispatchPayloadBuffer allDispatchItems = tracing.tracePhase(BroadcastPhaseEvent.BUILD,
+                () -> buildAllCsvDispatchItemsInBatches(
+                        userId, validNumbers, prepared.templateDto(), request, variableTable, broadcast.getId(),
+                        job, true));
+
+        buildEvent.commit();
+        long buildDuration = metrics.stop(buildSample, BroadcastStage.PAYLOAD_BUILD, BroadcastType.CSV, userId);
+        log.info("=== Built {} CSV dispatch items in {}ms ===", allDispatchItems.size(), buildDuration);
+        return allDispatchItems;
     }
 
     /**
-     * Builds WhatsApp API payloads in batches using CSV-specific template builder.
-     * Each recipient gets personalized content based on their CSV row data.
+     * Compensation for a queued broadcast that failed before its dispatch
+     * started: every still-reserved message is refunded and the broadcast is
+     * marked failed.
+     */
+    private void compensateFailedBroadcast(PreparedBroadcast prepared, Throwable failure) {
+        compensateFailedBroadcast(prepared.broadcast(), prepared.user().getId(), failure);
+    }
+
+    private void compensateFailedBroadcast(Broadcast broadcast, Long userId, Throwable failure) {
+        try {
+            BigDecimal refunded = walletReservationService.release(broadcast.getId());
+            log.warn("Refunded {} to userId: {} for failed CSV broadcastId: {}",
+                    refunded, userId, broadcast.getId());
+
+            broadcast.setStatus("0"); // FAILED/CANCELLED
+            broadcast.setUpdatedAt(LocalDateTime.now());
+            broadcast.getData().put("error", "Execution failed: " + failure.getMessage());
+            broadcast.getData().put("failed_at", LocalDateTime.now().toString());
+            broadcastService.save(broadcast);
+        } catch (Exception e) {
+            log.error("Failed to compensate CSV broadcastId: {}", broadcast.getId(), e);
+        }
+    }
+
+    /**
+     * Entry point for CSV broadcasts uploaded as a raw file.
      * 
-     * Memory optimization: Serializes to JSON immediately, allowing MessageRequest
-     * objects to be garbage collected after each batch.
+     * The upload is spooled to broadcast.csv-upload.spool-dir and read twice
+     * with a forward-only tokenizer, never held in memory. The first pass
+     * runs on the calling thread and counts distinct deliverable recipients
+     * so the wallet can be charged up front. The second pass runs as a
+     * broadcast job, under the same admission control as the other flows,
+     * and feeds the pipeline (reports, contacts, build, dispatch) one batch
+     * of rows at a time, waiting for each batch to be dispatched before
+     * reading the next one. Heap usage therefore depends on batch size, plus
+     * a primitive set of the numbers already seen, not on the row count.
+     * 
+     * Each batch commits on its own so a large upload does not pin a
+     * connection for its whole duration. The spooled file lives only as long
+     * as its job, so unlike the other flows an interrupted streamed broadcast
+     * cannot be resumed.
+     *
+     * Returns the job's progress, like submitBroadcast; a repeated submission
+     * returns the progress of the broadcast it created.
      */
-    private List<BroadcastDispatchItemDto> buildAllCsvDispatchItemsInBatches(
+    public BroadcastProgressResponseDto broadcastTemplateFromCsvFile(
+            SendTemplateByCsvFileRequestDto request, MultipartFile file, Long userId, String idempotencyKey) {
+        // Without a client key the upload is identified by its metadata and content
+        return idempotencyService.submitOnce(userId, BroadcastType.CSV, idempotencyKey,
+                () -> List.of(request, idempotencyService.fingerprint(file)),
+                claim -> broadcastTemplateFromCsvFile(request, file, userId, claim),
+                broadcastId -> broadcastJobService.getProgress(broadcastId, userId));
+    }
+
+    private BroadcastProgressResponseDto broadcastTemplateFromCsvFile(
+            SendTemplateByCsvFileRequestDto request, MultipartFile file, Long userId,
+            BroadcastIdempotencyClaim claim) {
+        log.info("=== Accepting streamed CSV broadcast for userId: {}, file: {} ({} bytes) ===",
+                userId, file.getOriginalFilename(), file.getSize());
+
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Uploaded CSV file is empty");
+        }
+
+        Path upload = spoolUpload(file);
+        boolean submitted = false;
+        try {
+            // Step 1-4: Load user, WhatsApp configuration, template and price
+            User user = userService.getUserById(userId);
+            WhatsappAccount config = whatsappAccountService.getActiveAccountByUserId(user.getId());
+            Template template = templateService.getTemplateById(Long.valueOf(request.getTemplateId()));
+            TemplateDto templateDto = templateMapper.toTemplateDto(template);
+            BigDecimal pricePerMessage = getPricePerMessage(userId, template.getCategory(), user);
+
+            // Step 5: First pass - count distinct recipients left after
+            // blacklist and frequency cap filtering. Dispatched batches of
+            // pass 2 count against the cap; charged recipients it caps after
+            // all are released.
+            LongHashSet counted = new LongHashSet();
+            long[] validCount = { 0 };
+            streamCsvRecipients(upload, request, rows -> {
+                List<String> firstSeen = rows.stream()
+                        .map(CsvRecipientRow::mobile)
+                        .filter(mobile -> counted.add(Long.parseLong(mobile)))
+                        .toList();
+                validCount[0] += metrics.time(BroadcastStage.BLACKLIST_FILTER, BroadcastType.CSV, userId,
+                        () -> frequencyCapService.filterCappedNumbers(userId, template.getCategory(),
+                                blacklistService.filterBlockedNumbers(userId, firstSeen)))
+                        .size();
+            });
+            log.info("Streamed CSV pass 1: {} valid recipients", validCount[0]);
+
+            if (validCount[0] == 0) {
+                throw new IllegalArgumentException("No valid numbers after blacklist and frequency cap filtering");
+            }
+
+            // Step 6: Validate user has sufficient balance
+            BigDecimal totalDeduction = pricePerMessage.multiply(BigDecimal.valueOf(validCount[0]));
+            if (BigDecimal.valueOf(user.getBalance()).compareTo(totalDeduction) < 0) {
+                throw new InsufficientBalanceException(
+                        String.format("Insufficient balance. Required: %.2f, Available: %.2f",
+                                totalDeduction, user.getBalance()),
+                        402);
+            }
+
+            // Step 7-8: Create broadcast record and charge the wallet in one short transaction
+            Broadcast broadcast = transactionTemplate.execute(status -> {
+                Broadcast created = createCsvFileBroadcastRecord(request, file, user, (int) validCount[0], template,
+                        pricePerMessage);
+                idempotencyService.bind(claim, created.getId());
+                deductWalletBalance(user, pricePerMessage, (int) validCount[0], created.getId());
+                return created;
+            });
+
+            WhatsappAccountInfoDto accountInfo = WhatsappAccountInfoDto.builder()
+                    .phoneNumberId(config.getWhatsappNoId())
+                    .accessToken(config.getParmenentToken())
+                    .build();
+
+            // Step 9-13: Second pass as a background job
+            BroadcastJob job = broadcastJobService.register(broadcast.getId(), userId,
+                    BroadcastType.CSV, (int) validCount[0]);
+            broadcastJobService.submit(job,
+                    () -> runCsvFileBroadcast(upload, request, userId, templateDto, broadcast, accountInfo,
+                            validCount[0], job),
+                    failure -> {
+                        compensateFailedBroadcast(broadcast, userId, failure);
+                        deleteSpooledUpload(upload);
+                    });
+            submitted = true;
+
+            log.info("=== Streamed CSV broadcast {} accepted - {} recipients queued ===",
+                    broadcast.getId(), validCount[0]);
+
+            return broadcastJobService.toProgress(job);
+        } finally {
+            if (!submitted) {
+                deleteSpooledUpload(upload);
+            }
+        }
+    }
+
+    /**
+     * Second pass of a streamed upload: reads the spooled file again and
+     * sends every recipient once, at most as many as were charged.
+     */
+    private CompletableFuture<Void> runCsvFileBroadcast(
+            Path upload,
+            SendTemplateByCsvFileRequestDto request,
             Long userId,
-            List<String> phoneNumbers,
             TemplateDto templateDto,
-            SendTemplateByCsvRequestDto request,
-            Long broadcastId) {
+            Broadcast broadcast,
+            WhatsappAccountInfoDto accountInfo,
+            long charged,
+            BroadcastJob job) {
+        try {
+            frequencyCapService.trackBroadcast(broadcast.getId(), userId, templateDto.getCategory());
+            job.moveTo(BroadcastJobPhase.DISPATCHING);
+            broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.DISPATCHING);
+
+            LongHashSet seen = new LongHashSet((int) Math.min(charged, Integer.MAX_VALUE / 4));
+            long[] remaining = { charged };
+            long[] processed = { 0 };
+            streamCsvRecipients(upload, request, rows -> {
+                if (remaining[0] <= 0) {
+                    return;
+                }
+                int sent = processCsvFileBatch(rows, seen, userId, request, templateDto, broadcast, accountInfo,
+                        remaining[0], job);
+                remaining[0] -= sent;
+                processed[0] += sent;
+            });
+
+            broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.DONE);
+            // Charged recipients that were not sent (e.g. capped between the passes)
+            walletReservationService.release(broadcast.getId());
+
+            log.info("=== Streamed CSV broadcast {} completed - {} recipients processed ===",
+                    broadcast.getId(), processed[0]);
+            return CompletableFuture.completedFuture(null);
+        } finally {
+            deleteSpooledUpload(upload);
+        }
+    }
+
+    /**
+     * Runs one batch of streamed rows through the broadcast pipeline and waits
+     * for its dispatch to finish, which bounds how much is in flight at once.
+     * Numbers already in seen (earlier rows of the file) are skipped, so
+     * every recipient gets one message, built from its first row.
+     *
+     * @return number of recipients sent in this batch
+     */
+    private int processCsvFileBatch(
+            List<CsvRecipientRow> rows,
+            LongHashSet seen,
+            Long userId,
+            SendTemplateByCsvFileRequestDto request,
+            TemplateDto templateDto,
+            Broadcast broadcast,
+            WhatsappAccountInfoDto accountInfo,
+            long remainingBudget,
+            BroadcastJob job) {
+
+        Map<String, CsvRecipientRow> rowsByMobile = new LinkedHashMap<>();
+        for (CsvRecipientRow row : rows) {
+            if (seen.add(Long.parseLong(row.mobile()))) {
+                rowsByMobile.put(row.mobile(), row);
+            }
+        }
+        if (rowsByMobile.isEmpty()) {
+            return 0;
+        }
+
+        List<String> validNumbers = metrics.time(BroadcastStage.BLACKLIST_FILTER, BroadcastType.CSV, userId,
+                () -> frequencyCapService.filterCappedNumbers(userId, templateDto.getCategory(),
+                        blacklistService.filterBlockedNumbers(userId, new ArrayList<>(rowsByMobile.keySet()))));
+        int filtered = rowsByMobile.size() - validNumbers.size();
+        if (validNumbers.size() > remainingBudget) {
+            // Never send more than was charged in pass 1
+            validNumbers = validNumbers.subList(0, (int) remainingBudget);
+        }
+        metrics.recordRecipients(BroadcastType.CSV, userId, validNumbers.size(), filtered);
+        if (validNumbers.isEmpty()) {
+            return 0;
+        }
+        Map<String, Long> mobileToReportId = createReportsAndGetIds(userId, broadcast.getId(), validNumbers);
+        contactMessagesService.createContactsAndLinkMessages(
+                mobileToReportId,
+                userId,
+                request.getCountryId() != null ? request.getCountryId().longValue() : null,
+                BroadcastType.CSV);
 
-        List<BroadcastDispatchItemDto> allItems = new ArrayList<>(phoneNumbers.size());
-        int totalBatches = (phoneNumbers.size() + buildBatchSize - 1) / buildBatchSize;
+        CsvVariableTable.Builder variables = CsvVariableTable.builder(validNumbers.size());
+        for (String mobile : validNumbers) {
+            variables.addRow(Long.parseLong(mobile), rowsByMobile.get(mobile).values());
+        }
 
-        log.info("Building CSV templates in {} batches of {} numbers", totalBatches, buildBatchSize);
+        BroadcastPhaseEvent buildEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.BUILD,
+                BroadcastType.CSV.getValue(), broadcast.getId(), userId, validNumbers.size());
+        DispatchPayloadBuffer items = buildAllCsvDispatchItemsInBatches(
+                userId, validNumbers, templateDto, toBatchRequest(request), variables.build(), broadcast.getId(),
+                job, false);
+        buildEvent.commit();
+
+        BroadcastPhaseEvent dispatchEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.DISPATCH,
+                BroadcastType.CSV.getValue(), broadcast.getId(), userId, items.size());
+        asyncDispatchService.dispatchAsync(items, accountInfo, broadcast.getId(), false).join();
+        dispatchEvent.commit();
+        return validNumbers.size();
+    }
 
-        for (int i = 0; i < phoneNumbers.size(); i += buildBatchSize) {
-            int end = Math.min(i + buildBatchSize, phoneNumbers.size());
-            List<String> batch = phoneNumbers.subList(i, end);
-            int batchNum = (i / buildBatchSize) + 1;
+    /**
+     * Reads the spooled CSV and hands recipients to the consumer in batches of
+     * batchSize. The header row resolves colName and variableColumns to column
+     * positions; rows without a usable mobile number are skipped.
+     */
+    private void streamCsvRecipients(
+            Path upload,
+            SendTemplateByCsvFileRequestDto request,
+            Consumer<List<CsvRecipientRow>> batchConsumer) {
 
-            log.debug("Building CSV batch {}/{} ({} numbers)", batchNum, totalBatches, batch.size());
+        try (InputStream in = Files.newInputStream(upload);
+                CsvStreamReader reader = new CsvStreamReader(in)) {
 
-            // Build templates with per-recipient CSV variables
-            List<MessageRequest> messageRequests = csvTemplateBuilder.buildSendableTemplatesFromCsv(
-                    userId, batch, templateDto, request);
+            List<String> header = reader.readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("Uploaded CSV file has no header row");
+            }
 
-            // Serialize immediately to minimize memory footprint
-            for (MessageRequest msg : messageRequests) {
-                try {
-                    String payload = objectMapper
-                            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-                            .writeValueAsString(msg);
+            int mobileColumn = resolveColumn(header, request.getColName());
+            List<String> variableColumnNames = request.getVariableColumns() != null
+                    ? request.getVariableColumns()
+                    : List.of();
+            int[] variableColumns = variableColumnNames.stream()
+                    .mapToInt(name -> resolveColumn(header, name))
+                    .toArray();
+
+            List<CsvRecipientRow> batch = new ArrayList<>(batchSize);
+            long skipped = 0;
+            List<String> record;
+
+            while ((record = reader.readRecord()) != null) {
+                String mobile = mobileColumn < record.size() ? normalizeMobile(record.get(mobileColumn)) : null;
+                if (mobile == null) {
+                    skipped++;
+                    continue;
+                }
 
-                    allItems.add(BroadcastDispatchItemDto.builder()
-                            .broadcastId(broadcastId)
-                            .mobileNo(msg.getTo())
-                            .payload(payload)
-                            .build());
+                List<String> values = new ArrayList<>(variableColumns.length);
+                for (int column : variableColumns) {
+                    values.add(column < record.size() ? record.get(column).trim() : null);
+                }
+                batch.add(new CsvRecipientRow(mobile, values));
 
-                } catch (Exception e) {
-                    log.error("Failed to serialize CSV message for {}: {}", msg.getTo(), e.getMessage());
+                if (batch.size() >= batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
                 }
             }
 
-            log.debug("CSV batch {}/{} completed - {} items serialized", batchNum, totalBatches, batch.size());
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+
+            if (skipped > 0) {
+                log.warn("Skipped {} CSV rows without a valid mobile number", skipped);
+            }
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read uploaded CSV file", e);
+        }
+    }
+
+    /**
+     * Copies the upload out of the request so a background job can read it
+     * after the request has completed.
+     */
+    private Path spoolUpload(MultipartFile file) {
+        try {
+            Path upload = Files.createTempFile(uploadSpoolDir, "upload-", ".csv");
+            file.transferTo(upload);
+            return upload;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to store uploaded CSV file", e);
+        }
+    }
+
+    private void deleteSpooledUpload(Path upload) {
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled upload {}: {}", upload, e.getMessage());
+        }
+    }
+
+    /**
+     * Maps the upload metadata onto the CSV request shape the template builder
+     * expects. Per-row variables are passed separately as a CsvVariableTable.
+     */
+    private SendTemplateByCsvRequestDto toBatchRequest(SendTemplateByCsvFileRequestDto request) {
+        SendTemplateByCsvRequestDto batchRequest = new SendTemplateByCsvRequestDto();
+        batchRequest.setTemplateId(request.getTemplateId());
+        batchRequest.setCountryId(request.getCountryId());
+        batchRequest.setIsMedia(request.getIsMedia());
+        batchRequest.setMediaType(request.getMediaType());
+        batchRequest.setMediaUrl(request.getMediaUrl());
+        batchRequest.setCarouselCards(request.getCarouselCards());
+        return batchRequest;
+    }
+
+    private int resolveColumn(List<String> header, String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("CSV column name must not be blank");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name.trim())) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Column '" + name + "' not found in CSV header " + header);
+    }
+
+    /**
+     * Strips formatting (spaces, '+', dashes) and returns the digits only,
+     * or null when the value cannot be a mobile number.
+     */
+    private String normalizeMobile(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.isEmpty() || digits.length() > 15 || digits.charAt(0) == '0') {
+            return null;
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Builds WhatsApp API payloads in batches using CSV-specific template builder.
+     * Each recipient gets personalized content based on their CSV row data.
+     * 
+     * Batches are built and serialized in parallel on the payload build pool;
+     * output order matches phoneNumbers. The variable table is parsed once by
+     * the caller and shared read-only by all batches; contact attributes are
+     * fetched once per wave, before its batches are forked. A journaled buffer
+     * keeps its payloads on disk for the dispatch journal.
+     */
+    private DispatchPayloadBuffer buildAllCsvDispatchItemsInBatches(
+            Long userId,
+            List<String> phoneNumbers,
+            TemplateDto templateDto,
+            SendTemplateByCsvRequestDto request,
+            CsvVariableTable variableTable,
+            Long broadcastId,
+            BroadcastJob job,
+            boolean journaled) {
+
+        DispatchPayloadBuffer buffer = payloadBufferService.create(broadcastId, journaled);
+        try {
+            payloadBuilder.buildDispatchItems(
+                    phoneNumbers, buildBatchSize, broadcastId, BroadcastType.CSV, userId,
+                    wave -> csvTemplateBuilder.fetchContactAttributes(userId, wave, templateDto),
+                    (batch, contactAttrs) -> {
+                        List<MessageRequest> built = csvTemplateBuilder.buildSendableTemplatesFromCsv(
+                                batch, templateDto, request, variableTable, contactAttrs);
+                        job.addBuilt(built.size());
+                        return built;
+                    },
+                    buffer);
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
         }
 
-        log.info("Successfully built {} CSV dispatch items", allItems.size());
-        return allItems;
+        log.info("Successfully built {} CSV dispatch items ({} spilled to disk)",
+                buffer.size(), buffer.spilledCount());
+        return buffer;
     }
 
     // ==================== HELPER METHODS ====================
 
+    /**
+     * Synchronous response for a repeated submission: the original
+     * broadcast's template and current phase.
+     */
+    private TemplateResponseDto toDuplicateResponse(Long broadcastId, Long userId) {
+        BroadcastProgressResponseDto progress = broadcastJobService.getProgress(broadcastId, userId);
+        Template template = templateService.getTemplateById(broadcastService.getBroadcastById(broadcastId)
+                .getTemplateId());
+        return TemplateResponseDto.builder()
+                .id(template.getId())
+                .name(template.getName())
+                .status(progress.getPhase() != null ? progress.getPhase().name() : "BROADCAST_INITIATED")
+                .build();
+    }
+
     /**
      * Returns message price based on template category.
      * Prices are configured per-user in User entity.
@@ -278,7 +948,8 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
             SendTemplateByCsvRequestDto request,
             User user,
             List<String> validNumbers,
-            Template template) {
+            Template template,
+            BigDecimal pricePerMessage) {
 
         String requestPayload = JsonHelper.serialize(request);
 
@@ -289,6 +960,8 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
         data.put("language_code", template.getLanguage());
         data.put("is_media", request.getIsMedia());
         data.put("source", "CSV");
+        data.put("phase", BroadcastPhase.CHARGED.getValue());
+        data.put("price_per_message", pricePerMessage);
 
         // Parse optional schedule date
         LocalDateTime scheduleAt = null;
@@ -329,12 +1002,57 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
     }
 
     /**
-     * Deducts amount from user balance and creates wallet transaction record.
+     * Creates broadcast record for a streamed CSV upload.
+     * Recipients live in the uploaded file, so the numbers column is left empty
+     * and streamed uploads cannot be scheduled for later execution.
      */
-    private void deductWalletBalance(User user, BigDecimal totalDeduction, Long broadcastId) {
+    private Broadcast createCsvFileBroadcastRecord(
+            SendTemplateByCsvFileRequestDto request,
+            MultipartFile file,
+            User user,
+            int total,
+            Template template,
+            BigDecimal pricePerMessage) {
+
+        log.info("Creating streamed CSV broadcast record for {} numbers", total);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("template_name", template.getName());
+        data.put("language_code", template.getLanguage());
+        data.put("is_media", request.getIsMedia());
+        data.put("source", "CSV_FILE");
+        data.put("file_name", file.getOriginalFilename());
+        data.put("phase", BroadcastPhase.CHARGED.getValue());
+        data.put("price_per_message", pricePerMessage);
+
+        Broadcast broadcast = Broadcast.builder()
+                .userId(user.getId())
+                .templateId(template.getId())
+                .countryId(request.getCountryId() != null ? request.getCountryId().longValue() : null)
+                .campname(request.getCampName())
+                .isMedia(Boolean.TRUE.equals(request.getIsMedia()) ? "1" : "0")
+                .data(data)
+                .total(total)
+                .status("2") // PROCESSING (immediate execution)
+                .broadcastType(BroadcastType.CSV)
+                .requests(JsonHelper.serialize(request))
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        return broadcastService.save(broadcast);
+    }
+
+    /**
+     * Reserves the broadcast's cost in the wallet (one conditional UPDATE) and
+     * creates the wallet transaction record. Failed and undispatched messages
+     * are refunded from the reservation later.
+     */
+    private void deductWalletBalance(User user, BigDecimal pricePerMessage, int messageCount, Long broadcastId) {
+        BigDecimal totalDeduction = pricePerMessage.multiply(BigDecimal.valueOf(messageCount));
         log.info("Deducting {} from userId: {} for CSV broadcastId: {}", totalDeduction, user.getId(), broadcastId);
 
-        userService.deductBalance(user.getId(), totalDeduction.doubleValue());
+        walletReservationService.reserve(user.getId(), broadcastId, pricePerMessage, messageCount);
 
         Wallet wallet = Wallet.builder()
                 .userId(user.getId())
@@ -352,13 +1070,41 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
         walletService.save(wallet);
     }
 
+    /**
+     * Price per message the broadcast was charged at. Falls back to the user's
+     * current price for broadcasts accepted before it was recorded.
+     */
+    private BigDecimal getChargedPricePerMessage(Broadcast broadcast, User user, Template template) {
+        Object price = broadcast.getData() != null ? broadcast.getData().get("price_per_message") : null;
+        return price != null
+                ? new BigDecimal(price.toString())
+                : getPricePerMessage(user.getId(), template.getCategory(), user);
+    }
+
     /**
      * Creates report entries in batches and returns mobile -> reportId mapping.
      * Reports track individual message delivery status.
      */
     private Map<String, Long> createReportsAndGetIds(Long userId, Long broadcastId, List<String> numbers) {
+        return createReportsAndGetIds(userId, broadcastId, numbers, false);
+    }
+
+    /**
+     * @param resuming when true, reports committed before an interruption are
+     *                 reused and only the missing ones are inserted
+     */
+    private Map<String, Long> createReportsAndGetIds(
+            Long userId, Long broadcastId, List<String> numbers, boolean resuming) {
+        Timer.Sample sample = metrics.start();
         Map<String, Long> mobileToReportId = new HashMap<>();
 
+        if (resuming) {
+            mobileToReportId.putAll(reportService.getReportIdsByMobile(broadcastId));
+            numbers = numbers.stream().filter(mobile -> !mobileToReportId.containsKey(mobile)).toList();
+            log.info("Resuming reports for broadcastId: {} - {} existing, {} missing",
+                    broadcastId, mobileToReportId.size(), numbers.size());
+        }
+
         for (int i = 0; i < numbers.size(); i += batchSize) {
             int end = Math.min(i + batchSize, numbers.size());
             List<String> batch = numbers.subList(i, end);
@@ -384,7 +1130,8 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
             }
         }
 
-        log.info("Created {} reports with IDs", mobileToReportId.size());
+        long duration = metrics.stop(sample, BroadcastStage.REPORT_CREATION, BroadcastType.CSV, userId);
+        log.info("Created {} reports with IDs in {}ms", mobileToReportId.size(), duration);
         return mobileToReportId;
     }
 
@@ -407,4 +1154,25 @@ public class SendTemplateByCSVOrchestratorServiceImpl {
         log.info("Ensured {} contacts with IDs", mobileToContactId.size());
         return mobileToContactId;
     }
-}
\ No newline at end of file
+
+    /**
+     * Outcome of the synchronous accept phase, carried into execution.
+     */
+    private record PreparedBroadcast(
+            User user,
+            WhatsappAccount config,
+            Template template,
+            TemplateDto templateDto,
+            List<String> validNumbers,
+            BigDecimal pricePerMessage,
+            Broadcast broadcast,
+            boolean isScheduled) {
+    }
+
+    /**
+     * One recipient row read from an uploaded CSV file.
+     * values holds the bound variable columns in variableColumns order.
+     */
+    private record CsvRecipientRow(String mobile, List<String> values) {
+    }
+}
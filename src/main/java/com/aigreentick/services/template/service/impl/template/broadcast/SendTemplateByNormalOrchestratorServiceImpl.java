@@ -2,7 +2,6 @@ package com.aigreentick.services.template.service.impl.template.broadcast;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,18 +9,22 @@ import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.aigreentick.services.template.dto.build.MessageRequest;
 import com.aigreentick.services.template.dto.build.TemplateDto;
 import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
-import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
 import com.aigreentick.services.template.dto.request.template.normal.SendTemplateNormalRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastProgressResponseDto;
 import com.aigreentick.services.template.dto.response.template.TemplateResponseDto;
+import com.aigreentick.services.template.enums.BroadcastJobPhase;
+import com.aigreentick.services.template.enums.BroadcastPhase;
+import com.aigreentick.services.template.enums.BroadcastStage;
 import com.aigreentick.services.template.enums.BroadcastType;
 import com.aigreentick.services.template.enums.Platform;
 import com.aigreentick.services.template.enums.TemplateCategory;
 import com.aigreentick.services.template.exceptions.InsufficientBalanceException;
+import com.aigreentick.services.template.jfr.BroadcastPhaseEvent;
 import com.aigreentick.services.template.mapper.TemplateMapper;
 import com.aigreentick.services.template.model.account.User;
 import com.aigreentick.services.template.model.account.WhatsappAccount;
@@ -32,18 +35,30 @@ import com.aigreentick.services.template.model.template.Template;
 import com.aigreentick.services.template.service.impl.account.UserServiceImpl;
 import com.aigreentick.services.template.service.impl.account.WhatsappAccountServiceImpl;
 import com.aigreentick.services.template.service.impl.broadcast.AsyncBatchDispatcherService;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastIdempotencyClaim;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastIdempotencyServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastJob;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastJobServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastMetricsServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastTracingServiceImpl;
 import com.aigreentick.services.template.service.impl.broadcast.BroadcastServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchJournalServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchPayloadBuffer;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchPayloadBufferServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.JournaledDispatch;
 import com.aigreentick.services.template.service.impl.broadcast.ReportServiceImpl;
+import com.aigreentick.services.template.service.impl.common.WalletReservationServiceImpl;
 import com.aigreentick.services.template.service.impl.common.WalletServiceImpl;
 import com.aigreentick.services.template.service.impl.contact.BlacklistServiceImpl;
 import com.aigreentick.services.template.service.impl.contact.ChatContactServiceImpl;
 import com.aigreentick.services.template.service.impl.contact.ContactMessagesServiceImpl;
+import com.aigreentick.services.template.service.impl.contact.FrequencyCapServiceImpl;
 import com.aigreentick.services.template.service.impl.template.TemplateServiceImpl;
+import com.aigreentick.services.template.service.impl.template.builder.ParallelPayloadBuilderService;
 import com.aigreentick.services.template.service.impl.template.builder.TemplateBuilderForNormalServiceImpl;
 import com.aigreentick.services.template.util.helper.JsonHelper;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -58,6 +73,10 @@ import lombok.extern.slf4j.Slf4j;
  * Flow: Validate -> Filter Blacklist -> Check Balance -> Create Broadcast
  * -> Deduct Wallet -> Create Reports -> Create Contacts -> Link ContactMessages
  * -> Build Templates -> Dispatch Async
+ * 
+ * The steps up to Deduct Wallet always run on the caller's thread; the rest
+ * either follows inline (broadcastTemplate) or runs as a background job
+ * (submitBroadcast).
  */
 @Service
 @Slf4j
@@ -69,14 +88,23 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
     private final TemplateMapper templateMapper;
     private final UserServiceImpl userService;
     private final BlacklistServiceImpl blacklistService;
+    private final FrequencyCapServiceImpl frequencyCapService;
     private final BroadcastServiceImpl broadcastService;
     private final ReportServiceImpl reportService;
     private final WalletServiceImpl walletService;
     private final ChatContactServiceImpl chatContactService;
     private final TemplateBuilderForNormalServiceImpl normalTemplateBuilder;
     private final AsyncBatchDispatcherService asyncDispatchService;
-    private final ObjectMapper objectMapper;
+    private final ParallelPayloadBuilderService payloadBuilder;
+    private final DispatchPayloadBufferServiceImpl payloadBufferService;
+    private final DispatchJournalServiceImpl dispatchJournal;
     private final ContactMessagesServiceImpl contactMessagesService;
+    private final BroadcastJobServiceImpl broadcastJobService;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletReservationServiceImpl walletReservationService;
+    private final BroadcastMetricsServiceImpl metrics;
+    private final BroadcastTracingServiceImpl tracing;
+    private final BroadcastIdempotencyServiceImpl idempotencyService;
 
     @Value("${broadcast.batch-size:1000}")
     private int batchSize;
@@ -86,12 +114,151 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
 
     /**
      * Main entry point for Normal broadcast.
-     * Transactional to ensure atomicity of DB operations.
+     * Not one transaction: the charge commits on its own and every later phase
+     * commits as it completes (see BroadcastPhase), so no connection or users
+     * row lock is held across the build.
+     * 
+     * Runs the whole pipeline on the calling thread; only the dispatch itself
+     * continues in the background. Used by the scheduler and by clients that
+     * still expect the synchronous behaviour - see submitBroadcast for the
+     * accept-and-queue variant.
      */
-    @Transactional
     public TemplateResponseDto broadcastTemplate(SendTemplateNormalRequestDto request, Long userId) {
+        return broadcastTemplate(request, userId, (BroadcastIdempotencyClaim) null);
+    }
+
+    /**
+     * broadcastTemplate for client submissions: a repeat of an earlier
+     * submission (same Idempotency-Key, or same request when there is none)
+     * returns the status of the broadcast it created instead of running again.
+     */
+    public TemplateResponseDto broadcastTemplate(SendTemplateNormalRequestDto request, Long userId, String idempotencyKey) {
+        return idempotencyService.submitOnce(userId, BroadcastType.NORMAL, idempotencyKey, () -> request,
+                claim -> broadcastTemplate(request, userId, claim),
+                broadcastId -> toDuplicateResponse(broadcastId, userId));
+    }
+
+    private TemplateResponseDto broadcastTemplate(SendTemplateNormalRequestDto request, Long userId,
+            BroadcastIdempotencyClaim claim) {
         log.info("=== Starting Normal broadcast for userId: {} ===", userId);
 
+        PreparedBroadcast prepared = prepareBroadcast(request, userId, claim);
+        Template template = prepared.template();
+
+        if (prepared.isScheduled()) {
+            // Don't proceed with immediate dispatch - let scheduler handle it
+            return TemplateResponseDto.builder()
+                    .id(template.getId())
+                    .name(template.getName())
+                    .status("SCHEDULED")
+                    .build();
+        }
+
+        BroadcastJob job = broadcastJobService.register(prepared.broadcast().getId(), userId,
+                BroadcastType.NORMAL, prepared.validNumbers().size());
+        try {
+            broadcastJobService.track(job, executeBroadcast(prepared, request, job, null));
+        } catch (RuntimeException e) {
+            job.fail(e);
+            throw e;
+        }
+
+        log.info("=== Normal Broadcast initiated - templates built, dispatching in background ===");
+
+        return TemplateResponseDto.builder()
+                .id(template.getId())
+                .name(template.getName())
+                .status("BROADCAST_INITIATED")
+                .build();
+    }
+
+    /**
+     * Accept-and-queue entry point for Normal broadcast.
+     * 
+     * Validates, filters the blacklist (the charge depends on it), charges the
+     * wallet and creates the broadcast, then returns. Reports, contacts,
+     * payload build and dispatch run on the broadcast job executor; poll
+     * progress by the returned broadcastId.
+     */
+    public BroadcastProgressResponseDto submitBroadcast(SendTemplateNormalRequestDto request, Long userId) {
+        return submitBroadcast(request, userId, (BroadcastIdempotencyClaim) null);
+    }
+
+    /**
+     * submitBroadcast for client submissions: a repeat of an earlier
+     * submission returns the progress of the broadcast it created.
+     */
+    public BroadcastProgressResponseDto submitBroadcast(SendTemplateNormalRequestDto request, Long userId, String idempotencyKey) {
+        return idempotencyService.submitOnce(userId, BroadcastType.NORMAL, idempotencyKey, () -> request,
+                claim -> submitBroadcast(request, userId, claim),
+                broadcastId -> broadcastJobService.getProgress(broadcastId, userId));
+    }
+
+    private BroadcastProgressResponseDto submitBroadcast(SendTemplateNormalRequestDto request, Long userId,
+            BroadcastIdempotencyClaim claim) {
+        log.info("=== Accepting Normal broadcast for userId: {} ===", userId);
+
+        PreparedBroadcast prepared = prepareBroadcast(request, userId, claim);
+        Broadcast broadcast = prepared.broadcast();
+
+        if (prepared.isScheduled()) {
+            return BroadcastProgressResponseDto.builder()
+                    .broadcastId(broadcast.getId())
+                    .broadcastType(BroadcastType.NORMAL)
+                    .phase(BroadcastJobPhase.SCHEDULED)
+                    .total(prepared.validNumbers().size())
+                    .submittedAt(broadcast.getCreatedAt())
+                    .build();
+        }
+
+        BroadcastJob job = broadcastJobService.register(broadcast.getId(), userId,
+                BroadcastType.NORMAL, prepared.validNumbers().size());
+        broadcastJobService.submit(job,
+                () -> executeBroadcast(prepared, request, job, null),
+                failure -> compensateFailedBroadcast(prepared, failure));
+
+        return broadcastJobService.toProgress(job);
+    }
+
+    /**
+     * Resumes a broadcast interrupted (e.g. by a restart) in the given phase.
+     * 
+     * The charge is already committed, so execution continues from the step
+     * after the last committed phase on the broadcast job executor, with the
+     * wallet reservation re-opened for the messages still to send. The stored
+     * numbers were blacklist-filtered when the broadcast was accepted.
+     */
+    public BroadcastProgressResponseDto resumeBroadcast(
+            Broadcast broadcast, SendTemplateNormalRequestDto request, BroadcastPhase phase) {
+        log.info("=== Resuming Normal broadcastId: {} from phase {} ===", broadcast.getId(), phase);
+
+        User user = userService.getUserById(broadcast.getUserId());
+        WhatsappAccount config = whatsappAccountService.getActiveAccountByUserId(user.getId());
+        Template template = templateService.getTemplateById(broadcast.getTemplateId());
+        TemplateDto templateDto = templateMapper.toTemplateDto(template);
+        List<String> validNumbers = request.getMobileNumbers();
+
+        BigDecimal pricePerMessage = getChargedPricePerMessage(broadcast, user, template);
+        PreparedBroadcast prepared = new PreparedBroadcast(user, config, template, templateDto, validNumbers,
+                pricePerMessage, broadcast, false);
+
+        BroadcastJob job = broadcastJobService.register(broadcast.getId(), user.getId(),
+                BroadcastType.NORMAL, validNumbers.size());
+        broadcastJobService.submit(job,
+                () -> executeBroadcast(prepared, request, job, phase),
+                failure -> compensateFailedBroadcast(prepared, failure));
+
+        return broadcastJobService.toProgress(job);
+    }
+
+    /**
+     * Steps 1-8: validation, blacklist filtering, balance check, broadcast
+     * record and wallet charge. Everything the caller needs an answer for.
+     * 
+     * @param claim idempotency claim bound to the new broadcast, or null
+     */
+    private PreparedBroadcast prepareBroadcast(SendTemplateNormalRequestDto request, Long userId,
+            BroadcastIdempotencyClaim claim) {
         // Step 1-2: Load user and WhatsApp configuration
         User user = userService.getUserById(userId);
         WhatsappAccount config = whatsappAccountService.getActiveAccountByUserId(user.getId());
@@ -101,12 +268,19 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
         TemplateDto templateDto = templateMapper.toTemplateDto(template);
 
         
-        // Step 5: Filter blacklisted numbers (mobileNumbers already String)
-        List<String> validNumbers = blacklistService.filterBlockedNumbers(userId, request.getMobileNumbers());
+        // Step 5: Filter blacklisted and frequency-capped numbers (mobileNumbers already String)
+        BroadcastPhaseEvent filterEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.BLACKLIST_FILTER,
+                BroadcastType.NORMAL.getValue(), null, userId, request.getMobileNumbers().size());
+        List<String> validNumbers = metrics.time(BroadcastStage.BLACKLIST_FILTER, BroadcastType.NORMAL, userId,
+                () -> frequencyCapService.filterCappedNumbers(userId, template.getCategory(),
+                        blacklistService.filterBlockedNumbers(userId, request.getMobileNumbers())));
+        filterEvent.commit();
         log.info("Filtered: {} valid out of {} total", validNumbers.size(), request.getMobileNumbers().size());
+        metrics.recordRecipients(BroadcastType.NORMAL, userId, validNumbers.size(),
+                request.getMobileNumbers().size() - validNumbers.size());
         
         if (validNumbers.isEmpty()) {
-            throw new IllegalArgumentException("No valid numbers after blacklist filtering");
+            throw new IllegalArgumentException("No valid numbers after blacklist and frequency cap filtering");
         }
 
         if (!request.getIsSchedulerExecution()) {
@@ -126,131 +300,243 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
                     402);
         }
 
-        // Step 7: Create broadcast record
-        Broadcast broadcast = createBroadcastRecord(request, user, validNumbers, template);
-
-        // Step 8: Deduct wallet balance and create transaction record
-        deductWalletBalance(user, totalDeduction, broadcast.getId());
+        // Step 7-8: Create broadcast record and charge the wallet in one short
+        // transaction - the broadcast is committed in phase CHARGED
+        Broadcast broadcast = transactionTemplate.execute(status -> {
+            Broadcast created = createBroadcastRecord(request, user, validNumbers, template, pricePerMessage);
+            idempotencyService.bind(claim, created.getId());
+            deductWalletBalance(user, pricePerMessage, validNumbers.size(), created.getId());
+            return created;
+        });
 
         // Check if this is a scheduled broadcast (future execution)
-        if (broadcast.getScheduleAt() != null &&
-                broadcast.getScheduleAt().isAfter(LocalDateTime.now())) {
-
+        boolean scheduled = broadcast.getScheduleAt() != null &&
+                broadcast.getScheduleAt().isAfter(LocalDateTime.now());
+        if (scheduled) {
             log.info("Broadcast {} scheduled for future execution at {}",
                     broadcast.getId(), broadcast.getScheduleAt());
-
-            // Don't proceed with immediate dispatch - let scheduler handle it
-            return TemplateResponseDto.builder()
-                    .id(template.getId())
-                    .name(template.getName())
-                    .status("SCHEDULED")
-                    .build();
         }
 
-        // Step 9: Create report entries for tracking delivery status
-        log.info("Creating reports at: {}", LocalDateTime.now());
-        Map<String, Long> mobileToReportId = createReportsAndGetIds(user.getId(), broadcast.getId(), validNumbers);
+        return new PreparedBroadcast(user, config, template, templateDto, validNumbers, pricePerMessage,
+                broadcast, scheduled);
+    }
 
-        // Step 9: Create contacts and link messages (chained async - fire and forget)
-        log.info(" Starting chained async for contacts + messages ===");
-        contactMessagesService.createContactsAndLinkMessagesAsync(
-                mobileToReportId,
-                user.getId(),
-                Long.valueOf(request.getCountryId()));
+    /**
+     * Steps 9-13: reports, contacts, payload build and dispatch, committing
+     * the broadcast's phase after each step.
+     * 
+     * @param resumeFrom phase the broadcast was interrupted in, or null for a
+     *                   fresh broadcast
+     * @return future completing when every dispatch chunk has finished
+     */
+    private CompletableFuture<Void> executeBroadcast(
+            PreparedBroadcast prepared,
+            SendTemplateNormalRequestDto request,
+            BroadcastJob job,
+            BroadcastPhase resumeFrom) {
+        return tracing.traceBroadcast(BroadcastType.NORMAL, prepared.broadcast().getId(), prepared.user().getId(),
+                prepared.validNumbers().size(), () -> runBroadcast(prepared, request, job, resumeFrom));
+    }
 
-        // Step 12: Build WhatsApp API payloads
-        log.info("=== PHASE 1: Building Normal templates for {} numbers ===", validNumbers.size());
-        long buildStart = System.currentTimeMillis();
+    private CompletableFuture<Void> runBroadcast(
+            PreparedBroadcast prepared,
+            SendTemplateNormalRequestDto request,
+            BroadcastJob job,
+            BroadcastPhase resumeFrom) {
+
+        Long userId = prepared.user().getId();
+        Broadcast broadcast = prepared.broadcast();
+        List<String> validNumbers = prepared.validNumbers();
+        JournaledDispatch journaled = null;
+        // Counted against the cap as they are dispatched, so a scheduled
+        // broadcast is not capped by its own acceptance
+        frequencyCapService.trackBroadcast(broadcast.getId(), userId, prepared.template().getCategory());
+
+        if (resumeFrom == null || resumeFrom == BroadcastPhase.CHARGED) {
+            // Step 9: Create report entries for tracking delivery status
+            job.moveTo(BroadcastJobPhase.CREATING_REPORTS);
+            log.info("Creating reports at: {}", LocalDateTime.now());
+            BroadcastPhaseEvent reportsEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.CREATE_REPORTS,
+                    BroadcastType.NORMAL.getValue(), broadcast.getId(), userId, validNumbers.size());
+            List<String> reportNumbers = validNumbers;
+            Map<String, Long> mobileToReportId = tracing.tracePhase(BroadcastPhaseEvent.CREATE_REPORTS,
+                    () -> createReportsAndGetIds(userId, broadcast.getId(), reportNumbers, resumeFrom != null));
+            reportsEvent.commit();
+            broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.REPORTS_CREATED);
+
+            // Step 9: Create contacts and link messages (chained async - fire and forget)
+            log.info(" Starting chained async for contacts + messages ===");
+            contactMessagesService.createContactsAndLinkMessagesAsync(
+                    mobileToReportId,
+                    userId,
+                    Long.valueOf(request.getCountryId()),
+                    BroadcastType.NORMAL);
+
+        } else if (resumeFrom == BroadcastPhase.DISPATCHING) {
+            // Part of the broadcast was sent before the interruption
+            validNumbers = reportService.getUndispatchedMobiles(broadcast.getId());
+            log.info("Resuming broadcastId: {} - {} recipients left to dispatch",
+                    broadcast.getId(), validNumbers.size());
+            // Chunks journaled before the crash are sent as built, no rebuild
+            journaled = dispatchJournal.resume(broadcast.getId(), validNumbers);
+            if (journaled != null) {
+                job.addBuilt(journaled.messages());
+            }
+        }
 
-        List<BroadcastDispatchItemDto> allDispatchItems = buildAllNormalDispatchItemsInBatches(
-                userId, validNumbers, templateDto, request, broadcast.getId());
+        if (resumeFrom != null) {
+            walletReservationService.resume(userId, broadcast.getId(), prepared.pricePerMessage(),
+                    journaled != null ? journaled.messages() : validNumbers.size());
+        }
 
-        long buildDuration = System.currentTimeMillis() - buildStart;
-        log.info("=== Built {} Normal dispatch items in {}ms ===", allDispatchItems.size(), buildDuration);
+        DispatchPayloadBuffer allDispatchItems = journaled != null
+                ? null
+                : buildPayloads(prepared, request, job, validNumbers);
+        int dispatchCount = journaled != null ? journaled.messages() : allDispatchItems.size();
 
         // Step 13: Dispatch messages asynchronously (returns immediately)
         WhatsappAccountInfoDto accountInfo = WhatsappAccountInfoDto.builder()
-                .phoneNumberId(config.getWhatsappNoId())
-                .accessToken(config.getParmenentToken())
+                .phoneNumberId(prepared.config().getWhatsappNoId())
+                .accessToken(prepared.config().getParmenentToken())
                 .build();
 
-        log.info("=== PHASE 2: Starting async dispatch for {} Normal items ===", allDispatchItems.size());
+        if (resumeFrom != BroadcastPhase.DISPATCHING) {
+            broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.BUILT);
+        }
 
-        CompletableFuture<Void> dispatchFuture = asyncDispatchService.dispatchAsync(
-                allDispatchItems, accountInfo, broadcast.getId());
+        job.moveTo(BroadcastJobPhase.DISPATCHING);
+        broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.DISPATCHING);
+        log.info("=== PHASE 2: Starting async dispatch for {} Normal items ===", dispatchCount);
+
+        BroadcastPhaseEvent dispatchEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.DISPATCH,
+                BroadcastType.NORMAL.getValue(), broadcast.getId(), userId, dispatchCount);
+        CompletableFuture<Void> dispatchFuture = journaled != null
+                ? asyncDispatchService.resumeAsync(journaled, accountInfo, broadcast.getId())
+                : asyncDispatchService.dispatchAsync(allDispatchItems, accountInfo, broadcast.getId(), true);
 
         // Log completion (non-blocking callback)
         dispatchFuture.whenComplete((result, throwable) -> {
+            dispatchEvent.commit();
             if (throwable != null) {
                 log.error("Async Normal dispatch failed for broadcastId: {}", broadcast.getId(), throwable);
             } else {
                 log.info("=== Async Normal dispatch completed for broadcastId: {} ===", broadcast.getId());
+                broadcastService.advancePhase(broadcast.getId(), BroadcastPhase.DONE);
+                // Charged messages that never reached dispatch (e.g. failed to build)
+                walletReservationService.release(broadcast.getId());
             }
         });
 
-        log.info("=== Normal Broadcast initiated - templates built, dispatching in background ===");
-
-        return TemplateResponseDto.builder()
-                .id(template.getId())
-                .name(template.getName())
-                .status("BROADCAST_INITIATED")
-                .build();
+        return dispatchFuture;
     }
 
     /**
-     * Builds WhatsApp API payloads in batches using Normal template builder.
-     * Since all contacts get same variables, this is more efficient than CSV.
+     * Step 12: builds the payloads of the given recipients into a sealed
+     * payload buffer.
      */
-    private List<BroadcastDispatchItemDto> buildAllNormalDispatchItemsInBatches(
-            Long userId,
-            List<String> phoneNumbers,
-            TemplateDto templateDto,
+    private DispatchPayloadBuffer buildPayloads(
+            PreparedBroadcast prepared,
             SendTemplateNormalRequestDto request,
-            Long broadcastId) {
+            BroadcastJob job,
+            List<String> validNumbers) {
 
-        List<BroadcastDispatchItemDto> allItems = new ArrayList<>(phoneNumbers.size());
-        int totalBatches = (phoneNumbers.size() + buildBatchSize - 1) / buildBatchSize;
+        Long userId = prepared.user().getId();
+        Broadcast broadcast = prepared.broadcast();
 
-        log.info("Building Normal templates in {} batches of {} numbers", totalBatches, buildBatchSize);
-
-        for (int i = 0; i < phoneNumbers.size(); i += buildBatchSize) {
-            int end = Math.min(i + buildBatchSize, phoneNumbers.size());
-            List<String> batch = phoneNumbers.subList(i, end);
-            int batchNum = (i / buildBatchSize) + 1;
-
-            log.debug("Building Normal batch {}/{} ({} numbers)", batchNum, totalBatches, batch.size());
-
-            // Build templates with Normal builder
-            List<MessageRequest> messageRequests = normalTemplateBuilder.buildSendableTemplatesFromNormal(
-                    userId, batch, templateDto, request);
+        // Step 12: Build WhatsApp API payloads
+        job.moveTo(BroadcastJobPhase.BUILDING);
+        log.info("=== PHASE 1: Building Normal templates for {} numbers ===", validNumbers.size());
+        Timer.Sample buildSample = metrics.start();
+        BroadcastPhaseEvent buildEvent = BroadcastPhaseEvent.begin(BroadcastPhaseEvent.BUILD,
+                BroadcastType.NORMAL.getValue(), broadcast.getId(), userId, validNumbers.size());
 
-            // Serialize immediately to minimize memory footprint
-            for (MessageRequest msg : messageRequests) {
-                try {
-                    String payload = objectMapper
-                            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-                            .writeValueAsString(msg);
+        DispatchPayloadBuffer allDispatchItems = tracing.tracePhase(BroadcastPhaseEvent.BUILD,
+                () -> buildAllNormalDispatchItemsInBatches(
+                        userId, validNumbers, prepared.templateDto(), request, broadcast.getId(), job));
 
-                    allItems.add(BroadcastDispatchItemDto.builder()
-                            .broadcastId(broadcastId)
-                            .mobileNo(msg.getTo())
-                            .payload(payload)
-                            .build());
+        buildEvent.commit();
+        long buildDuration = metrics.stop(buildSample, BroadcastStage.PAYLOAD_BUILD, BroadcastType.NORMAL, userId);
+        log.info("=== Built {} Normal dispatch items in {}ms ===", allDispatchItems.size(), buildDuration);
+        return allDispatchItems;
+    }
 
-                } catch (Exception e) {
-                    log.error("Failed to serialize Normal message for {}: {}", msg.getTo(), e.getMessage());
-                }
-            }
+    /**
+     * Compensation for a queued broadcast that failed before its dispatch
+     * started: every still-reserved message is refunded and the broadcast is
+     * marked failed.
+     */
+    private void compensateFailedBroadcast(PreparedBroadcast prepared, Throwable failure) {
+        Broadcast broadcast = prepared.broadcast();
+        try {
+            BigDecimal refunded = walletReservationService.release(broadcast.getId());
+            log.warn("Refunded {} to userId: {} for failed Normal broadcastId: {}",
+                    refunded, prepared.user().getId(), broadcast.getId());
+
+            broadcast.setStatus("0"); // FAILED/CANCELLED
+            broadcast.setUpdatedAt(LocalDateTime.now());
+            broadcast.getData().put("error", "Execution failed: " + failure.getMessage());
+            broadcast.getData().put("failed_at", LocalDateTime.now().toString());
+            broadcastService.save(broadcast);
+        } catch (Exception e) {
+            log.error("Failed to compensate Normal broadcastId: {}", broadcast.getId(), e);
+        }
+    }
 
-            log.debug("Normal batch {}/{} completed - {} items serialized", batchNum, totalBatches, batch.size());
+    /**
+     * Builds WhatsApp API payloads in batches using Normal template builder.
+     * Since all contacts get same variables, this is more efficient than CSV.
+     * 
+     * Batches are built and serialized in parallel on the payload build pool;
+     * output order matches phoneNumbers. Contact attributes are fetched once
+     * per wave, before its batches are forked.
+     */
+    private DispatchPayloadBuffer buildAllNormalDispatchItemsInBatches(
+            Long userId,
+            List<String> phoneNumbers,
+            TemplateDto templateDto,
+            SendTemplateNormalRequestDto request,
+            Long broadcastId,
+            BroadcastJob job) {
+
+        DispatchPayloadBuffer buffer = payloadBufferService.create(broadcastId, true);
+        try {
+            payloadBuilder.buildDispatchItems(
+                    phoneNumbers, buildBatchSize, broadcastId, BroadcastType.NORMAL, userId,
+                    wave -> normalTemplateBuilder.fetchContactAttributes(userId, wave, templateDto),
+                    (batch, contactAttrs) -> {
+                        List<MessageRequest> built = normalTemplateBuilder.buildSendableTemplatesFromNormal(
+                                batch, templateDto, request, contactAttrs);
+                        job.addBuilt(built.size());
+                        return built;
+                    },
+                    buffer);
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
         }
 
-        log.info("Successfully built {} Normal dispatch items", allItems.size());
-        return allItems;
+        log.info("Successfully built {} Normal dispatch items ({} spilled to disk)",
+                buffer.size(), buffer.spilledCount());
+        return buffer;
     }
 
     // ==================== HELPER METHODS ====================
 
+    /**
+     * Synchronous response for a repeated submission: the original
+     * broadcast's template and current phase.
+     */
+    private TemplateResponseDto toDuplicateResponse(Long broadcastId, Long userId) {
+        BroadcastProgressResponseDto progress = broadcastJobService.getProgress(broadcastId, userId);
+        Template template = templateService.getTemplateById(broadcastService.getBroadcastById(broadcastId)
+                .getTemplateId());
+        return TemplateResponseDto.builder()
+                .id(template.getId())
+                .name(template.getName())
+                .status(progress.getPhase() != null ? progress.getPhase().name() : "BROADCAST_INITIATED")
+                .build();
+    }
+
     /**
      * Returns message price based on template category.
      */
@@ -274,7 +560,8 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
             SendTemplateNormalRequestDto request,
             User user,
             List<String> validNumbers,
-            Template template) {
+            Template template,
+            BigDecimal pricePerMessage) {
 
         String requestPayload = JsonHelper.serialize(request);
 
@@ -285,6 +572,8 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
         data.put("language_code", template.getLanguage());
         data.put("is_media", request.getIsMedia());
         data.put("source", "NORMAL");
+        data.put("phase", BroadcastPhase.CHARGED.getValue());
+        data.put("price_per_message", pricePerMessage);
 
         // Parse optional schedule date
         LocalDateTime scheduleAt = null;
@@ -325,13 +614,16 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
     }
 
     /**
-     * Deducts amount from user balance and creates wallet transaction record.
+     * Reserves the broadcast's cost in the wallet (one conditional UPDATE) and
+     * creates the wallet transaction record. Failed and undispatched messages
+     * are refunded from the reservation later.
      */
-    private void deductWalletBalance(User user, BigDecimal totalDeduction, Long broadcastId) {
+    private void deductWalletBalance(User user, BigDecimal pricePerMessage, int messageCount, Long broadcastId) {
+        BigDecimal totalDeduction = pricePerMessage.multiply(BigDecimal.valueOf(messageCount));
         log.info("Deducting {} from userId: {} for Normal broadcastId: {}",
                 totalDeduction, user.getId(), broadcastId);
 
-        userService.deductBalance(user.getId(), totalDeduction.doubleValue());
+        walletReservationService.reserve(user.getId(), broadcastId, pricePerMessage, messageCount);
 
         Wallet wallet = Wallet.builder()
                 .userId(user.getId())
@@ -349,12 +641,40 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
         walletService.save(wallet);
     }
 
+    /**
+     * Price per message the broadcast was charged at. Falls back to the user's
+     * current price for broadcasts accepted before it was recorded.
+     */
+    private BigDecimal getChargedPricePerMessage(Broadcast broadcast, User user, Template template) {
+        Object price = broadcast.getData() != null ? broadcast.getData().get("price_per_message") : null;
+        return price != null
+                ? new BigDecimal(price.toString())
+                : getPricePerMessage(user.getId(), template.getCategory(), user);
+    }
+
     /**
      * Creates report entries in batches and returns mobile -> reportId mapping.
      */
     private Map<String, Long> createReportsAndGetIds(Long userId, Long broadcastId, List<String> numbers) {
+        return createReportsAndGetIds(userId, broadcastId, numbers, false);
+    }
+
+    /**
+     * @param resuming when true, reports committed before an interruption are
+     *                 reused and only the missing ones are inserted
+     */
+    private Map<String, Long> createReportsAndGetIds(
+            Long userId, Long broadcastId, List<String> numbers, boolean resuming) {
+        Timer.Sample sample = metrics.start();
         Map<String, Long> mobileToReportId = new HashMap<>();
 
+        if (resuming) {
+            mobileToReportId.putAll(reportService.getReportIdsByMobile(broadcastId));
+            numbers = numbers.stream().filter(mobile -> !mobileToReportId.containsKey(mobile)).toList();
+            log.info("Resuming reports for broadcastId: {} - {} existing, {} missing",
+                    broadcastId, mobileToReportId.size(), numbers.size());
+        }
+
         for (int i = 0; i < numbers.size(); i += batchSize) {
             int end = Math.min(i + batchSize, numbers.size());
             List<String> batch = numbers.subList(i, end);
@@ -380,7 +700,8 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
             }
         }
 
-        log.info("Created {} reports with IDs", mobileToReportId.size());
+        long duration = metrics.stop(sample, BroadcastStage.REPORT_CREATION, BroadcastType.NORMAL, userId);
+        log.info("Created {} reports with IDs in {}ms", mobileToReportId.size(), duration);
         return mobileToReportId;
     }
 
@@ -402,4 +723,18 @@ public class SendTemplateByNormalOrchestratorServiceImpl {
         log.info("Ensured {} contacts with IDs", mobileToContactId.size());
         return mobileToContactId;
     }
-}
\ No newline at end of file
+
+    /**
+     * Outcome of the synchronous accept phase, carried into execution.
+     */
+    private record PreparedBroadcast(
+            User user,
+            WhatsappAccount config,
+            Template template,
+            TemplateDto templateDto,
+            List<String> validNumbers,
+            BigDecimal pricePerMessage,
+            Broadcast broadcast,
+            boolean isScheduled) {
+    }
+}
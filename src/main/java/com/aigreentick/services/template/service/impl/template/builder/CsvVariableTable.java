@@ -0,0 +1,233 @@
+package com.aigreentick.services.template.service.impl.template.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aigreentick.services.template.dto.request.template.csv.VariableDto;
+import com.aigreentick.services.template.dto.request.template.csv.VariableGroupDto;
+
+/**
+ * Read-only, columnar view of the per-recipient CSV variables of one broadcast.
+ *
+ * Parsed exactly once per broadcast and shared by every build batch (and
+ * every build thread), instead of re-parsing the request for each batch.
+ *
+ * Layout:
+ * - values: dictionary of distinct variable values (each stored once)
+ * - cells: rows x width matrix of dictionary ids, -1 when a value is absent
+ * - phone index: open-addressing long -> row hash table, no boxing
+ * - global: values of the group without a mobile (apply to every recipient)
+ *
+ * Keys follow the builder's reindexing rule: the n-th entry of a group is
+ * variable {{n}} (1-based) regardless of the incoming "variable" number.
+ */
+public final class CsvVariableTable {
+
+    private static final CsvVariableTable EMPTY = builder(0).build();
+
+    private final String[] values;
+    private final int[] cells;
+    private final int width;
+    private final int rows;
+    private final String[] global;
+
+    private final long[] indexKeys;
+    private final int[] indexRows;
+    private final int indexMask;
+
+    private CsvVariableTable(String[] values, int[] cells, int width, int rows, String[] global,
+            long[] indexKeys, int[] indexRows) {
+        this.values = values;
+        this.cells = cells;
+        this.width = width;
+        this.rows = rows;
+        this.global = global;
+        this.indexKeys = indexKeys;
+        this.indexRows = indexRows;
+        this.indexMask = indexKeys.length - 1;
+    }
+
+    public static CsvVariableTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parses the request's variable groups. Later groups override earlier ones
+     * for the same mobile, matching the previous map-based behaviour.
+     */
+    public static CsvVariableTable parse(List<VariableGroupDto> groups) {
+        if (groups == null || groups.isEmpty()) {
+            return EMPTY;
+        }
+
+        Builder builder = builder(groups.size());
+        for (VariableGroupDto group : groups) {
+            List<String> rowValues = new ArrayList<>();
+            if (group.getVariable() != null) {
+                for (VariableDto v : group.getVariable()) {
+                    rowValues.add(v.getValue());
+                }
+            }
+
+            if (group.getMobile() != null) {
+                builder.addRow(group.getMobile(), rowValues);
+            } else {
+                builder.addGlobal(rowValues);
+            }
+        }
+        return builder.build();
+    }
+
+    public static Builder builder(int expectedRows) {
+        return new Builder(expectedRows);
+    }
+
+    /**
+     * Per-recipient value of variable {{key}}, or null if absent.
+     */
+    public String get(String phone, int key) {
+        int row = rowOf(phone);
+        if (row < 0 || key < 1 || key > width) {
+            return null;
+        }
+        int id = cells[row * width + key - 1];
+        return id < 0 ? null : values[id];
+    }
+
+    /**
+     * Global (all recipients) value of variable {{key}}, or null if absent.
+     */
+    public String getGlobal(int key) {
+        if (key < 1 || key > global.length) {
+            return null;
+        }
+        return global[key - 1];
+    }
+
+    public int rowCount() {
+        return rows;
+    }
+
+    public int distinctValueCount() {
+        return values.length;
+    }
+
+    private int rowOf(String phone) {
+        if (rows == 0 || phone == null) {
+            return -1;
+        }
+        long key;
+        try {
+            key = Long.parseLong(phone);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+
+        int slot = mix(key) & indexMask;
+        while (indexRows[slot] >= 0) {
+            if (indexKeys[slot] == key) {
+                return indexRows[slot];
+            }
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Accumulates rows and interns their values; build() produces the compact
+     * immutable table. Not thread-safe.
+     */
+    public static final class Builder {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<int[]> rowIds;
+        private final Map<Long, Integer> rowByMobile;
+        private final Map<Integer, String> global = new HashMap<>();
+        private int width;
+
+        private Builder(int expectedRows) {
+            this.rowIds = new ArrayList<>(expectedRows);
+            this.rowByMobile = new HashMap<>(Math.max(16, expectedRows * 4 / 3 + 1));
+        }
+
+        public Builder addRow(long mobile, List<String> rowValues) {
+            int[] ids = new int[rowValues.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = intern(rowValues.get(i));
+            }
+            width = Math.max(width, ids.length);
+
+            Integer existing = rowByMobile.get(mobile);
+            if (existing != null) {
+                rowIds.set(existing, ids);
+            } else {
+                rowByMobile.put(mobile, rowIds.size());
+                rowIds.add(ids);
+            }
+            return this;
+        }
+
+        public Builder addGlobal(List<String> rowValues) {
+            for (int i = 0; i < rowValues.size(); i++) {
+                if (rowValues.get(i) != null) {
+                    global.put(i + 1, rowValues.get(i));
+                }
+            }
+            return this;
+        }
+
+        public CsvVariableTable build() {
+            int rows = rowIds.size();
+            int[] cells = new int[rows * width];
+            Arrays.fill(cells, -1);
+            for (int r = 0; r < rows; r++) {
+                int[] ids = rowIds.get(r);
+                System.arraycopy(ids, 0, cells, r * width, ids.length);
+            }
+
+            int capacity = Integer.highestOneBit(Math.max(2, rows * 2 - 1)) << 1;
+            long[] indexKeys = new long[capacity];
+            int[] indexRows = new int[capacity];
+            Arrays.fill(indexRows, -1);
+            int mask = capacity - 1;
+            for (Map.Entry<Long, Integer> entry : rowByMobile.entrySet()) {
+                long key = entry.getKey();
+                int slot = mix(key) & mask;
+                while (indexRows[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                indexKeys[slot] = key;
+                indexRows[slot] = entry.getValue();
+            }
+
+            int globalWidth = global.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            String[] globalValues = new String[globalWidth];
+            global.forEach((k, v) -> globalValues[k - 1] = v);
+
+            return new CsvVariableTable(values.toArray(new String[0]), cells, width, rows, globalValues,
+                    indexKeys, indexRows);
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                dictionary.put(value, id);
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.aigreentick.services.template.service.impl.template.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.aigreentick.services.template.dto.build.MessageRequest;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.enums.BroadcastStage;
+import com.aigreentick.services.template.enums.BroadcastType;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastMetricsServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchPayloadBuffer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parallel payload build stage shared by the broadcast orchestrators.
+ *
+ * Splits recipients into build batches and builds + serializes them on the
+ * dedicated payloadBuildPool using fork/join. Each batch writes into its own
+ * slot, and slots are concatenated in batch order, so the output order is
+ * identical to a sequential build regardless of scheduling.
+ *
+ * Batches are built in waves of a few batches per build thread and each wave
+ * is handed to a sink in order, so building into a DispatchPayloadBuffer
+ * only holds one wave of payloads on the heap at a time.
+ *
+ * Build threads must not block: the pool has no spare threads to cover for
+ * one waiting on the database. Lookups such as contact attributes are
+ * prefetched for the whole wave on the calling thread, in one query, and
+ * the wave's batches only read the result.
+ *
+ * Build and serialization time are recorded per batch, so across build
+ * threads they add up to CPU time rather than wall time.
+ */
+@Service
+@Slf4j
+public class ParallelPayloadBuilderService {
+
+    private static final int WAVE_BATCHES_PER_THREAD = 4;
+
+    private final ForkJoinPool buildPool;
+    private final ObjectWriter payloadWriter;
+    private final BroadcastMetricsServiceImpl metrics;
+
+    public ParallelPayloadBuilderService(
+            @Qualifier("payloadBuildPool") ForkJoinPool buildPool,
+            ObjectMapper objectMapper,
+            BroadcastMetricsServiceImpl metrics) {
+        this.buildPool = buildPool;
+        this.metrics = metrics;
+        // Private copy: the shared mapper must not be reconfigured per call,
+        // and ObjectWriter is immutable so all build threads can share it
+        this.payloadWriter = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .writer();
+    }
+
+    /**
+     * Builds dispatch items for all phone numbers.
+     *
+     * @param phoneNumbers recipients, in dispatch order
+     * @param batchSize    recipients per build batch
+     * @param broadcastId  broadcast the items belong to
+     * @param type         broadcast type, for metrics
+     * @param userId       broadcast owner, for metrics
+     * @param batchBuilder builds the message requests for one batch; called
+     *                     concurrently, so it must not mutate shared state
+     * @return serialized dispatch items in recipient order
+     */
+    public List<BroadcastDispatchItemDto> buildDispatchItems(
+            List<String> phoneNumbers,
+            int batchSize,
+            Long broadcastId,
+            BroadcastType type,
+            Long userId,
+            Function<List<String>, List<MessageRequest>> batchBuilder) {
+
+        List<BroadcastDispatchItemDto> allItems = new ArrayList<>(phoneNumbers.size());
+        build(phoneNumbers, batchSize, broadcastId, type, userId, wave -> null,
+                (batch, prefetched) -> batchBuilder.apply(batch), allItems::addAll);
+        return allItems;
+    }
+
+    /**
+     * Builds dispatch items for all phone numbers into a payload buffer and
+     * seals it.
+     *
+     * @param wavePrefetch loads what the batches of one wave need, given the
+     *                     wave's phone numbers; runs on the calling thread
+     *                     before the wave is forked
+     * @param batchBuilder builds the message requests for one batch from the
+     *                     prefetched data of its wave; called concurrently,
+     *                     so it must not mutate shared state
+     * @return the buffer, ready for dispatch
+     */
+    public <W> DispatchPayloadBuffer buildDispatchItems(
+            List<String> phoneNumbers,
+            int batchSize,
+            Long broadcastId,
+            BroadcastType type,
+            Long userId,
+            Function<List<String>, W> wavePrefetch,
+            BiFunction<List<String>, W, List<MessageRequest>> batchBuilder,
+            DispatchPayloadBuffer buffer) {
+
+        build(phoneNumbers, batchSize, broadcastId, type, userId, wavePrefetch, batchBuilder, buffer::append);
+        buffer.seal();
+        return buffer;
+    }
+
+    private <W> void build(
+            List<String> phoneNumbers,
+            int batchSize,
+            Long broadcastId,
+            BroadcastType type,
+            Long userId,
+            Function<List<String>, W> wavePrefetch,
+            BiFunction<List<String>, W, List<MessageRequest>> batchBuilder,
+            Consumer<List<BroadcastDispatchItemDto>> sink) {
+
+        int totalBatches = (phoneNumbers.size() + batchSize - 1) / batchSize;
+        if (totalBatches == 0) {
+            return;
+        }
+        int waveBatches = buildPool.getParallelism() * WAVE_BATCHES_PER_THREAD;
+
+        log.info("Building {} batches of {} numbers on {} build threads",
+                totalBatches, batchSize, buildPool.getParallelism());
+
+        for (int waveStart = 0; waveStart < totalBatches; waveStart += waveBatches) {
+            int waveEnd = Math.min(waveStart + waveBatches, totalBatches);
+
+            List<String> waveNumbers = phoneNumbers.subList(waveStart * batchSize,
+                    Math.min(waveEnd * batchSize, phoneNumbers.size()));
+            W prefetched = metrics.time(BroadcastStage.TEMPLATE_BUILD, type, userId,
+                    () -> wavePrefetch.apply(waveNumbers));
+
+            Function<List<String>, List<BroadcastDispatchItemDto>> buildBatch = batch -> {
+                List<MessageRequest> built = metrics.time(BroadcastStage.TEMPLATE_BUILD, type, userId,
+                        () -> batchBuilder.apply(batch, prefetched));
+                return metrics.time(BroadcastStage.SERIALIZATION, type, userId,
+                        () -> toDispatchItems(built, broadcastId));
+            };
+
+            @SuppressWarnings("unchecked")
+            List<BroadcastDispatchItemDto>[] slots = new List[waveEnd - waveStart];
+            buildPool.invoke(new BuildBatchesTask(phoneNumbers, batchSize, waveStart, waveStart, waveEnd, slots,
+                    buildBatch));
+
+            for (List<BroadcastDispatchItemDto> slot : slots) {
+                sink.accept(slot);
+            }
+        }
+    }
+
+    /**
+     * Serializes built messages into dispatch items. Messages that fail to
+     * serialize are logged and skipped, as before.
+     */
+    public List<BroadcastDispatchItemDto> toDispatchItems(List<MessageRequest> messageRequests, Long broadcastId) {
+        List<BroadcastDispatchItemDto> items = new ArrayList<>(messageRequests.size());
+        for (MessageRequest msg : messageRequests) {
+            try {
+                items.add(BroadcastDispatchItemDto.builder()
+                        .broadcastId(broadcastId)
+                        .mobileNo(msg.getTo())
+                        .payload(payloadWriter.writeValueAsString(msg))
+                        .build());
+
+            } catch (Exception e) {
+                log.error("Failed to serialize message for {}: {}", msg.getTo(), e.getMessage());
+            }
+        }
+        return items;
+    }
+
+    public int getParallelism() {
+        return buildPool.getParallelism();
+    }
+
+    /**
+     * Recursively halves the batch range until a single batch remains, then
+     * builds it into its slot.
+     */
+    private static final class BuildBatchesTask extends RecursiveAction {
+
+        private final List<String> phoneNumbers;
+        private final int batchSize;
+        private final int slotBase;
+        private final int fromBatch;
+        private final int toBatch;
+        private final List<BroadcastDispatchItemDto>[] slots;
+        private final Function<List<String>, List<BroadcastDispatchItemDto>> buildBatch;
+
+        BuildBatchesTask(List<String> phoneNumbers, int batchSize, int slotBase, int fromBatch, int toBatch,
+                List<BroadcastDispatchItemDto>[] slots,
+                Function<List<String>, List<BroadcastDispatchItemDto>> buildBatch) {
+            this.phoneNumbers = phoneNumbers;
+            this.batchSize = batchSize;
+            this.slotBase = slotBase;
+            this.fromBatch = fromBatch;
+            this.toBatch = toBatch;
+            this.slots = slots;
+            this.buildBatch = buildBatch;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBatch - fromBatch == 1) {
+                int start = fromBatch * batchSize;
+                int end = Math.min(start + batchSize, phoneNumbers.size());
+                slots[fromBatch - slotBase] = buildBatch.apply(phoneNumbers.subList(start, end));
+                return;
+            }
+
+            int mid = (fromBatch + toBatch) >>> 1;
+            invokeAll(
+                    new BuildBatchesTask(phoneNumbers, batchSize, slotBase, fromBatch, mid, slots, buildBatch),
+                    new BuildBatchesTask(phoneNumbers, batchSize, slotBase, mid, toBatch, slots, buildBatch));
+        }
+    }
+}
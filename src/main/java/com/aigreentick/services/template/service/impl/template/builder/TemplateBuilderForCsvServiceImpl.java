@@ -42,10 +42,28 @@ public class TemplateBuilderForCsvServiceImpl {
             List<String> phoneNumbers,
             TemplateDto template,
             SendTemplateByCsvRequestDto csvRequest) {
+        return buildSendableTemplatesFromCsv(phoneNumbers, template, csvRequest, prepareVariableTable(csvRequest),
+                fetchContactAttributes(userId, phoneNumbers, template));
+    }
 
-        log.info("Building {} messages from CSV for template: {}", phoneNumbers.size(), template.getName());
+    /**
+     * Builds messages for one batch using a variable table prepared once per
+     * broadcast (see prepareVariableTable) and contact attributes fetched
+     * beforehand (see fetchContactAttributes) for these or more numbers.
+     * Safe to call concurrently with the same table and attributes; does not
+     * touch the database.
+     */
+    public List<MessageRequest> buildSendableTemplatesFromCsv(
+            List<String> phoneNumbers,
+            TemplateDto template,
+            SendTemplateByCsvRequestDto csvRequest,
+            CsvVariableTable variableTable,
+            Map<String, Map<String, String>> contactAttrs) {
+
+        // Once per build batch; the orchestrator logs the per-broadcast summary
+        log.debug("Building {} messages from CSV for template: {}", phoneNumbers.size(), template.getName());
 
-        CsvParameterContext ctx = buildParameterContext(userId, phoneNumbers, template, csvRequest);
+        CsvParameterContext ctx = buildParameterContext(template, csvRequest, variableTable, contactAttrs);
 
         return phoneNumbers.stream()
                 .map(phone -> buildMessageRequest(phone, template, ctx, csvRequest))
@@ -53,81 +71,43 @@ public class TemplateBuilderForCsvServiceImpl {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Parses the request's CSV variables into a compact table. Call once per
+     * broadcast and pass the result to every batch.
+     */
+    public CsvVariableTable prepareVariableTable(SendTemplateByCsvRequestDto csvRequest) {
+        CsvVariableTable table = CsvVariableTable.parse(csvRequest.getVariables());
+        log.info("Prepared CSV variable table: {} rows, {} distinct values",
+                table.rowCount(), table.distinctValueCount());
+        return table;
+    }
+
+    /**
+     * Fetches the contact attributes the template falls back on, as
+     * mobile -> (attribute -> value), for the given numbers.
+     */
+    public Map<String, Map<String, String>> fetchContactAttributes(
+            Long userId, List<String> phoneNumbers, TemplateDto template) {
+        return chatContactService.getContactAttributes(userId, phoneNumbers, extractAttributeKeys(template));
+    }
+
     // ==================== CONTEXT BUILDING ====================
 
     private CsvParameterContext buildParameterContext(
-            Long userId, List<String> phoneNumbers, TemplateDto template, SendTemplateByCsvRequestDto csvRequest) {
+            TemplateDto template, SendTemplateByCsvRequestDto csvRequest, CsvVariableTable variableTable,
+            Map<String, Map<String, String>> contactAttrs) {
 
         Map<String, String> fallbacks = buildFallbackValues(template);
-        Map<String, Map<Integer, String>> perContact = new HashMap<>();
-        Map<Integer, String> global = new HashMap<>();
-        parseCsvVariables(csvRequest.getVariables(), perContact, global);
         Map<Integer, CardParameters> carousel = parseCarouselParams(csvRequest.getCarouselCards());
 
-        List<String> attrKeys = extractAttributeKeys(template);
-        Map<String, Map<String, String>> contactAttrs = chatContactService.getContactAttributes(userId, phoneNumbers,
-                attrKeys);
-
         return CsvParameterContext.builder()
                 .fallbackValues(fallbacks)
-                .perContactVariables(perContact)
-                .globalVariables(global)
+                .variableTable(variableTable)
                 .carouselParameters(carousel)
                 .contactAttributes(contactAttrs)
                 .build();
     }
 
-    /**
-     * Parse CSV variables with REINDEXING.
-     * 
-     * Key Feature: Ignores the incoming "variable" keys and reindexes based on
-     * array position.
-     * 
-     * Example transformations:
-     * - Input: [{"variable": 0, "value": "John"}, {"variable": 1, "value": "Doe"}]
-     * Output: {1: "John", 2: "Doe"}
-     * 
-     * - Input: [{"variable": 5, "value": "Alice"}, {"variable": 10, "value":
-     * "Smith"}]
-     * Output: {1: "Alice", 2: "Smith"}
-     * 
-     * This ensures WhatsApp template variables {{1}}, {{2}}, etc. are always
-     * correctly mapped
-     * regardless of how the frontend/CSV sends the keys.
-     */
-    private void parseCsvVariables(List<VariableGroupDto> variables,
-            Map<String, Map<Integer, String>> perContact, Map<Integer, String> global) {
-        if (variables == null)
-            return;
-
-        for (VariableGroupDto group : variables) {
-            Map<Integer, String> varMap = new HashMap<>();
-
-            if (group.getVariable() != null) {
-                List<VariableDto> sortedVars = new ArrayList<>(group.getVariable());
-
-                // CRITICAL CHANGE: Reindex based on array position (1-based)
-                for (int i = 0; i < sortedVars.size(); i++) {
-                    VariableDto v = sortedVars.get(i);
-                    if (v.getValue() != null) {
-                        // Use array position + 1 as the key (1-based indexing for WhatsApp)
-                        int reindexedKey = i + 1;
-                        varMap.put(reindexedKey, v.getValue());
-
-                        log.debug("Reindexed variable: original key={}, new key={}, value={}",
-                                v.getVariable(), reindexedKey, v.getValue());
-                    }
-                }
-            }
-
-            if (group.getMobile() != null) {
-                perContact.put(String.valueOf(group.getMobile()), varMap);
-            } else {
-                global.putAll(varMap);
-            }
-        }
-    }
-
     private Map<Integer, CardParameters> parseCarouselParams(List<CarouselCardDto> cards) {
         Map<Integer, CardParameters> result = new HashMap<>();
         if (cards == null)
@@ -195,8 +175,10 @@ public class TemplateBuilderForCsvServiceImpl {
             for (int i = 0; i < entries.size(); i++) {
                 result.put(i + 1, entries.get(i).getValue());
 
-                log.debug("Carousel variable reindex: original key={}, new key={}, value={}",
-                        entries.get(i).getKey(), i + 1, entries.get(i).getValue());
+                if (log.isDebugEnabled()) {
+                    log.debug("Carousel variable reindex: original key={}, new key={}, value={}",
+                            entries.get(i).getKey(), i + 1, entries.get(i).getValue());
+                }
             }
 
         } catch (Exception e) {
@@ -537,37 +519,40 @@ public class TemplateBuilderForCsvServiceImpl {
      */
     private String resolveNonCarouselValue(TemplateTextDto text, String phone, CsvParameterContext ctx) {
         int varIdx = text.getTextIndex() != null ? text.getTextIndex() : 0;
-        String key = compositeKey(text.getType(), text.getTextIndex(), text.getCardIndex(), text.getIsCarousel());
 
         // Priority 1: Contact attribute (NEW - using `text` field as attribute key)
         if (text.getText() != null && !text.getText().isBlank()) {
             String attrVal = ctx.getContactAttributes()
-                    .getOrDefault(phone, new HashMap<>())
+                    .getOrDefault(phone, Map.of())
                     .get(text.getText()); // NEW: text = attribute name
 
             if (attrVal != null && !attrVal.isBlank()) {
-                log.debug("Resolved contact attr for {}: {} = {}", phone, text.getText(), attrVal);
+                // Runs per variable per recipient: no varargs array unless enabled
+                if (log.isDebugEnabled()) {
+                    log.debug("Resolved contact attr for {}: {} = {}", phone, text.getText(), attrVal);
+                }
                 return attrVal;
             }
         }
 
         // Priority 2: Per-contact CSV (1-based lookup)
-        String perContact = ctx.getPerContactVariables()
-                .getOrDefault(phone, new HashMap<>())
-                .get(varIdx + 1);
+        String perContact = ctx.getVariableTable().get(phone, varIdx + 1);
         if (perContact != null && !perContact.isBlank()) {
             return perContact;
         }
 
         // Priority 3: Global CSV (1-based lookup)
-        String global = ctx.getGlobalVariables().get(varIdx + 1);
+        String global = ctx.getVariableTable().getGlobal(varIdx + 1);
         if (global != null && !global.isBlank()) {
             return global;
         }
 
         // Priority 4: Fallback to defaultValue (example value from Facebook)
+        String key = compositeKey(text.getType(), text.getTextIndex(), text.getCardIndex(), text.getIsCarousel());
         String fallback = ctx.getFallbackValues().getOrDefault(key, "");
-        log.debug("Using fallback for {}: {}", key, fallback);
+        if (log.isDebugEnabled()) {
+            log.debug("Using fallback for {}: {}", key, fallback);
+        }
         return fallback;
     }
 
@@ -658,8 +643,7 @@ public class TemplateBuilderForCsvServiceImpl {
     @Builder
     private static class CsvParameterContext {
         private Map<String, String> fallbackValues;
-        private Map<String, Map<Integer, String>> perContactVariables;
-        private Map<Integer, String> globalVariables;
+        private CsvVariableTable variableTable;
         private Map<Integer, CardParameters> carouselParameters;
         private Map<String, Map<String, String>> contactAttributes;
     }
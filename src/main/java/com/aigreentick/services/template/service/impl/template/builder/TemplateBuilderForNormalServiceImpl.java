@@ -59,12 +59,27 @@ public class TemplateBuilderForNormalServiceImpl {
             List<String> phoneNumbers,
             TemplateDto template,
             SendTemplateNormalRequestDto request) {
+        return buildSendableTemplatesFromNormal(phoneNumbers, template, request,
+                fetchContactAttributes(userId, phoneNumbers, template));
+    }
+
+    /**
+     * Builds messages for one batch using contact attributes fetched
+     * beforehand (see fetchContactAttributes) for these or more numbers.
+     * Does not touch the database, so it is safe on the payload build pool.
+     */
+    public List<MessageRequest> buildSendableTemplatesFromNormal(
+            List<String> phoneNumbers,
+            TemplateDto template,
+            SendTemplateNormalRequestDto request,
+            Map<String, Map<String, String>> contactAttrs) {
 
-        log.info("Building {} messages from Normal request for template: {}",
+        // Once per build batch; the orchestrator logs the per-broadcast summary
+        log.debug("Building {} messages from Normal request for template: {}",
                 phoneNumbers.size(), template.getName());
 
         // Build parameter context
-        NormalParameterContext ctx = buildParameterContext(userId, phoneNumbers, template, request);
+        NormalParameterContext ctx = buildParameterContext(template, request, contactAttrs);
 
         return phoneNumbers.stream()
                 .map(phone -> buildMessageRequest(phone, template, ctx, request))
@@ -72,13 +87,25 @@ public class TemplateBuilderForNormalServiceImpl {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Fetches the contact attributes the template falls back on, as
+     * mobile -> (attribute -> value), for the given numbers. Skips the
+     * query when the template uses none.
+     */
+    public Map<String, Map<String, String>> fetchContactAttributes(
+            Long userId, List<String> phoneNumbers, TemplateDto template) {
+        List<String> attrKeys = extractAttributeKeys(template);
+        return attrKeys.isEmpty()
+                ? new HashMap<>()
+                : chatContactService.getContactAttributes(userId, phoneNumbers, attrKeys);
+    }
+
     // ==================== CONTEXT BUILDING ====================
 
     private NormalParameterContext buildParameterContext(
-            Long userId,
-            List<String> phoneNumbers,
             TemplateDto template,
-            SendTemplateNormalRequestDto request) {
+            SendTemplateNormalRequestDto request,
+            Map<String, Map<String, String>> contactAttrs) {
 
         // 1. Parse comma-separated variables string
         Map<Integer, String> globalVars = parseVariablesString(request.getVariables());
@@ -90,12 +117,7 @@ public class TemplateBuilderForNormalServiceImpl {
         // 3. Parse carousel parameters (same as CSV)
         Map<Integer, CardParameters> carousel = parseCarouselParams(request.getCarouselCards());
 
-        // 4. Fetch contact attributes for fallback personalization
-        List<String> attrKeys = extractAttributeKeys(template);
-        Map<String, Map<String, String>> contactAttrs = attrKeys.isEmpty()
-                ? new HashMap<>()
-                : chatContactService.getContactAttributes(userId, phoneNumbers, attrKeys);
-
+        // 4. Contact attributes for fallback personalization are prefetched
         return NormalParameterContext.builder()
                 .globalVariables(globalVars)
                 .fallbackValues(fallbacks)
@@ -528,7 +550,6 @@ public class TemplateBuilderForNormalServiceImpl {
      */
     private String resolveNonCarouselValue(TemplateTextDto text, String phone, NormalParameterContext ctx) {
         int varIdx = text.getTextIndex() != null ? text.getTextIndex() : 0;
-        String key = compositeKey(text.getType(), text.getTextIndex(), text.getCardIndex(), text.getIsCarousel());
 
         // Priority 1: Global variables (from comma-separated string) - 1-based index
         String globalVal = ctx.getGlobalVariables().get(varIdx + 1);
@@ -539,18 +560,24 @@ public class TemplateBuilderForNormalServiceImpl {
         // Priority 2: Contact attribute (NEW - using `text` field as attribute key)
         if (text.getText() != null && !text.getText().isBlank()) {
             String attrVal = ctx.getContactAttributes()
-                    .getOrDefault(phone, new HashMap<>())
+                    .getOrDefault(phone, Map.of())
                     .get(text.getText()); // NEW: text = attribute name
 
             if (attrVal != null && !attrVal.isBlank()) {
-                log.debug("Resolved contact attr for {}: {} = {}", phone, text.getText(), attrVal);
+                // Runs per variable per recipient: no varargs array unless enabled
+                if (log.isDebugEnabled()) {
+                    log.debug("Resolved contact attr for {}: {} = {}", phone, text.getText(), attrVal);
+                }
                 return attrVal;
             }
         }
 
         // Priority 3: Fallback to defaultValue (example value from Facebook)
+        String key = compositeKey(text.getType(), text.getTextIndex(), text.getCardIndex(), text.getIsCarousel());
         String fallback = ctx.getFallbackValues().getOrDefault(key, "");
-        log.debug("Using fallback for {}: {}", key, fallback);
+        if (log.isDebugEnabled()) {
+            log.debug("Using fallback for {}: {}", key, fallback);
+        }
         return fallback;
     }
 
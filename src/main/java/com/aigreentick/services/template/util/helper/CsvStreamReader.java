@@ -0,0 +1,138 @@
+package com.aigreentick.services.template.util.helper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only RFC 4180 CSV tokenizer.
+ *
+ * Reads one record at a time from the underlying stream so callers can process
+ * uploads of any size without materializing the whole file. Supports quoted
+ * fields, escaped quotes ("") and line breaks inside quotes, CRLF / LF line
+ * endings and a leading UTF-8 BOM.
+ */
+public class CsvStreamReader implements Closeable {
+
+    private static final int BOM = '\uFEFF';
+
+    private final Reader reader;
+    private final char delimiter;
+    private final StringBuilder field = new StringBuilder(64);
+
+    private long recordNumber;
+    private boolean firstChar = true;
+    private int pushedBack = -1;
+
+    public CsvStreamReader(InputStream in) {
+        this(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024), ',');
+    }
+
+    public CsvStreamReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the record's fields, or null when the end of the stream is reached
+     */
+    public List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+
+        boolean inQuotes = false;
+        boolean sawAnything = false;
+
+        while (true) {
+            int c = read();
+
+            if (c == -1) {
+                if (!sawAnything) {
+                    return null;
+                }
+                fields.add(field.toString());
+                recordNumber++;
+                return fields;
+            }
+            sawAnything = true;
+
+            if (inQuotes) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        unread(next);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == '"' && field.isEmpty()) {
+                inQuotes = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                fields.add(field.toString());
+                recordNumber++;
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Number of records returned so far (header included).
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushedBack != -1) {
+            c = pushedBack;
+            pushedBack = -1;
+        } else {
+            c = reader.read();
+        }
+
+        if (firstChar) {
+            firstChar = false;
+            if (c == BOM) {
+                return read();
+            }
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        if (c != -1) {
+            pushedBack = c;
+        }
+    }
+}
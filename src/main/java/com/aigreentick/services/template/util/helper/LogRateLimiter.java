@@ -0,0 +1,44 @@
+package com.aigreentick.services.template.util.helper;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most one log line through per interval and counts the rest.
+ *
+ * Meant for per-chunk / per-item logs on hot paths: callers check
+ * tryAcquire() before building any log arguments, so suppressed calls cost
+ * two atomic operations and no allocation.
+ *
+ * <pre>
+ * long suppressed = limiter.tryAcquire();
+ * if (suppressed >= 0) {
+ *     log.info("... ({} similar suppressed)", ..., suppressed);
+ * }
+ * </pre>
+ */
+public final class LogRateLimiter {
+
+    private final long intervalNanos;
+    private final AtomicLong nextAllowedAt;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogRateLimiter(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+        this.nextAllowedAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return -1 when the caller must not log; otherwise the number of calls
+     *         suppressed since the last permitted one
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        long next = nextAllowedAt.get();
+        if (now - next < 0 || !nextAllowedAt.compareAndSet(next, now + intervalNanos)) {
+            suppressed.incrementAndGet();
+            return -1;
+        }
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,16 @@
+-- Idempotency keys of broadcast submissions, maintained by
+-- BroadcastIdempotencyServiceImpl. Expired rows are purged in the background.
+
+CREATE TABLE IF NOT EXISTS broadcast_idempotency_keys (
+    id           BIGINT NOT NULL AUTO_INCREMENT,
+    user_id      BIGINT NOT NULL,
+    -- SHA-256 of the Idempotency-Key header, or of the request when absent
+    key_hash     BINARY(32) NOT NULL,
+    claim_token  VARCHAR(36) NOT NULL,
+    broadcast_id BIGINT NULL,
+    created_at   DATETIME NOT NULL,
+    expires_at   DATETIME NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_broadcast_idempotency_keys_key (user_id, key_hash),
+    KEY idx_broadcast_idempotency_keys_expires (expires_at)
+) ENGINE = InnoDB;
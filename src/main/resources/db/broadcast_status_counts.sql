@@ -0,0 +1,28 @@
+-- Per-broadcast report counters maintained by ReportStatusCounterServiceImpl.
+-- Run once before deploying; the backfill seeds counters for existing broadcasts.
+
+CREATE TABLE IF NOT EXISTS broadcast_status_counts (
+    broadcast_id BIGINT NOT NULL,
+    pending      BIGINT NOT NULL DEFAULT 0,
+    sent         BIGINT NOT NULL DEFAULT 0,
+    delivered    BIGINT NOT NULL DEFAULT 0,
+    read_count   BIGINT NOT NULL DEFAULT 0,
+    failed       BIGINT NOT NULL DEFAULT 0,
+    updated_at   DATETIME NOT NULL,
+    PRIMARY KEY (broadcast_id)
+) ENGINE = InnoDB;
+
+INSERT INTO broadcast_status_counts
+    (broadcast_id, pending, sent, delivered, read_count, failed, updated_at)
+SELECT broadcast_id,
+       SUM(status = 'pending'),
+       SUM(status = 'sent'),
+       SUM(status = 'delivered'),
+       SUM(status = 'read'),
+       SUM(status IN ('failed', 'error')),
+       NOW()
+FROM reports
+WHERE broadcast_id IS NOT NULL
+  AND deleted_at IS NULL
+GROUP BY broadcast_id
+ON DUPLICATE KEY UPDATE broadcast_id = broadcast_id;
@@ -0,0 +1,23 @@
+-- Failed dispatch items queued for retry by DispatchRetryServiceImpl.
+
+CREATE TABLE IF NOT EXISTS dispatch_retries (
+    id              BIGINT NOT NULL AUTO_INCREMENT,
+    broadcast_id    BIGINT NOT NULL,
+    user_id         BIGINT NULL,
+    phone_number_id VARCHAR(64) NOT NULL,
+    mobile          VARCHAR(20) NOT NULL,
+    payload         MEDIUMTEXT NOT NULL,
+    unit_price      DECIMAL(12, 4) NULL,
+    attempts        INT NOT NULL DEFAULT 0,
+    status          VARCHAR(20) NOT NULL,
+    next_attempt_at DATETIME NOT NULL,
+    claim_token     VARCHAR(36) NULL,
+    last_error      VARCHAR(1000) NULL,
+    created_at      DATETIME NOT NULL,
+    updated_at      DATETIME NOT NULL,
+    PRIMARY KEY (id),
+    -- due retries per account
+    KEY idx_dispatch_retries_due (status, phone_number_id, next_attempt_at),
+    KEY idx_dispatch_retries_claim (claim_token),
+    KEY idx_dispatch_retries_broadcast (broadcast_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,13 @@
+-- Messages per user, recipient and time bucket, written behind by
+-- FrequencyCapServiceImpl and loaded on startup. Rows older than the
+-- frequency cap window are purged in the background.
+
+CREATE TABLE IF NOT EXISTS recipient_frequency_counts (
+    user_id    BIGINT NOT NULL,
+    mobile     BIGINT NOT NULL,
+    -- frequency-cap.bucket-minutes periods since the epoch
+    bucket     BIGINT NOT NULL,
+    sent_count INT NOT NULL,
+    PRIMARY KEY (user_id, mobile, bucket),
+    KEY idx_recipient_frequency_counts_bucket (bucket)
+) ENGINE = InnoDB;
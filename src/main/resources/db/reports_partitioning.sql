@@ -0,0 +1,46 @@
+-- Monthly RANGE partitioning of reports on created_at, plus the indexes the
+-- ReportRepository queries rely on.
+--
+-- Run once, in a maintenance window (the ALTERs rebuild the table; on a large
+-- table prefer an online schema change tool with the same final definition).
+-- Afterwards ReportPartitionMaintenanceProcessor keeps partitions created
+-- ahead of time and archives cold ones (report.partitioning.*).
+--
+-- Partition p<yyyyMM> holds the rows created in that month; p_legacy holds
+-- everything before the first monthly partition. Adjust the list to start at
+-- the current month when applying.
+
+-- Partitioned InnoDB tables cannot have foreign keys; drop any on reports first.
+-- The partitioning column must be part of every unique key, including the PK.
+ALTER TABLE reports
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+-- broadcast reports, keyset pages on (created_at, id), undispatched lookup
+CREATE INDEX idx_reports_broadcast_created ON reports (broadcast_id, created_at, id);
+-- per-status counts, failed / pending lookups
+CREATE INDEX idx_reports_broadcast_status ON reports (broadcast_id, status);
+-- user reports, keyset pages and date ranges
+CREATE INDEX idx_reports_user_created ON reports (user_id, created_at, id);
+-- delivery receipts (single and bulk status updates)
+CREATE INDEX idx_reports_message_id ON reports (message_id);
+-- reports of a mobile number
+CREATE INDEX idx_reports_user_mobile ON reports (user_id, mobile);
+
+ALTER TABLE reports
+    PARTITION BY RANGE COLUMNS (created_at) (
+        PARTITION p_legacy VALUES LESS THAN ('2026-01-01'),
+        PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+        PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+        PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+        PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+        PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+        PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+        PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+        PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+        PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+        PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+        PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+        PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+        PARTITION pmax VALUES LESS THAN (MAXVALUE)
+    );
@@ -0,0 +1,190 @@
+package com.aigreentick.services.template.client.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import com.aigreentick.services.template.client.adapter.MessagingClientImpl;
+import com.aigreentick.services.template.config.client.DispatchTransportProperties;
+import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.broadcast.DispatchResultData;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+import com.aigreentick.services.template.model.account.WhatsappAccount;
+import com.aigreentick.services.template.service.impl.account.WhatsappAccountServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchRateLimiterServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchRetryServiceImpl;
+
+class EmbeddedDispatchQueueSenderTest {
+
+    @TempDir
+    Path dir;
+
+    private final MessagingClientImpl messagingClient = mock(MessagingClientImpl.class);
+    private final DispatchRateLimiterServiceImpl rateLimiter = mock(DispatchRateLimiterServiceImpl.class);
+    private final DispatchRetryServiceImpl retryService = mock(DispatchRetryServiceImpl.class);
+    private final WhatsappAccountServiceImpl accountService = mock(WhatsappAccountServiceImpl.class);
+
+    private FileDispatchQueue queue;
+
+    @AfterEach
+    void closeQueue() throws IOException {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    private EmbeddedDispatchQueueSender sender(int maxDeliveries) throws IOException {
+        DispatchTransportProperties properties = new DispatchTransportProperties();
+        properties.getQueue().setDir(dir.toString());
+        properties.getQueue().setMaxDeliveries(maxDeliveries);
+        if (queue != null) {
+            queue.close();
+        }
+        queue = new FileDispatchQueue(properties);
+        return new EmbeddedDispatchQueueSender(queue, messagingClient, rateLimiter, retryService, accountService,
+                properties);
+    }
+
+    private static DispatchRequestDto chunk(String token, String... mobiles) {
+        return DispatchRequestDto.builder()
+                .items(List.of(mobiles).stream()
+                        .map(mobile -> BroadcastDispatchItemDto.builder()
+                                .broadcastId(1L)
+                                .mobileNo(mobile)
+                                .payload("{}")
+                                .build())
+                        .toList())
+                .accountInfo(WhatsappAccountInfoDto.builder().phoneNumberId("pn-1").accessToken(token).build())
+                .dispatchId("1:k:1")
+                .build();
+    }
+
+    private static FacebookApiResponse<BroadcastDispatchResponseDto> accepted(int dispatched) {
+        return FacebookApiResponse.success(BroadcastDispatchResponseDto.builder()
+                .data(DispatchResultData.builder().totalDispatched(dispatched).build())
+                .build(), 200);
+    }
+
+    @Test
+    void deliveredChunkIsAckedAndFedToRateLimiter() throws IOException {
+        EmbeddedDispatchQueueSender sender = sender(3);
+        when(messagingClient.dispatchMessage(any())).thenReturn(accepted(2));
+        queue.offer(chunk("t", "911", "912"));
+
+        sender.drain();
+
+        verify(rateLimiter).onResponse("pn-1", 200, 2);
+        assertEquals(0, queue.size());
+        verify(retryService, never()).failUndeliverable(anyList(), anyString());
+    }
+
+    @Test
+    void throttledChunkIsRedeliveredLater() throws IOException {
+        EmbeddedDispatchQueueSender sender = sender(3);
+        when(messagingClient.dispatchMessage(any())).thenReturn(FacebookApiResponse.error("slow down", 429));
+        queue.offer(chunk("t", "911"));
+
+        sender.drain();
+
+        verify(rateLimiter).onResponse("pn-1", 429, 1);
+        assertEquals(1, queue.size());
+        List<QueuedDispatch> again = queue.poll(1);
+        assertEquals(2, again.get(0).deliveryCount());
+    }
+
+    @Test
+    void permanentRejectionFailsMessages() throws IOException {
+        EmbeddedDispatchQueueSender sender = sender(3);
+        when(messagingClient.dispatchMessage(any())).thenReturn(FacebookApiResponse.error("bad template", 400));
+        queue.offer(chunk("t", "911"));
+
+        sender.drain();
+
+        verify(retryService).failUndeliverable(anyList(), eq("Rejected with HTTP 400: bad template"));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void deadLetteredChunkIsFailedAndAcked() throws IOException {
+        EmbeddedDispatchQueueSender sender = sender(1);
+        when(messagingClient.dispatchMessage(any())).thenThrow(new IllegalStateException("connection reset"));
+        queue.offer(chunk("t", "911", "912"));
+
+        // Out of deliveries after the first failure
+        sender.drain();
+        verify(rateLimiter).onResponse("pn-1", 500, 2);
+        assertEquals(0, queue.size());
+
+        sender.drain();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BroadcastDispatchItemDto>> items = ArgumentCaptor.forClass(List.class);
+        verify(retryService).failUndeliverable(items.capture(), eq("Not delivered after 1 attempts"));
+        assertEquals(List.of("911", "912"), items.getValue().stream().map(BroadcastDispatchItemDto::getMobileNo)
+                .toList());
+        assertTrue(queue.pollDeadLetters(10).isEmpty());
+
+        // Settled: not sent again after a restart
+        sender(1);
+        assertTrue(queue.poll(10).isEmpty());
+    }
+
+    @Test
+    void recoveredChunkGetsAccessTokenLookedUp() throws IOException {
+        sender(3);
+        queue.offer(chunk("t", "911"));
+        queue.offer(chunk("t", "912"));
+        EmbeddedDispatchQueueSender sender = sender(3);
+        WhatsappAccount account = new WhatsappAccount();
+        account.setParmenentToken("fresh");
+        when(accountService.getAccountByNumberId("pn-1")).thenReturn(account);
+        when(messagingClient.dispatchMessage(any())).thenReturn(accepted(1));
+
+        sender.drain();
+
+        ArgumentCaptor<DispatchRequestDto> sent = ArgumentCaptor.forClass(DispatchRequestDto.class);
+        verify(messagingClient, times(2)).dispatchMessage(sent.capture());
+        assertEquals("fresh", sent.getValue().getAccountInfo().getAccessToken());
+        assertEquals("1:k:1", sent.getValue().getDispatchId());
+        // Once per batch, not per chunk
+        verify(accountService, times(1)).getAccountByNumberId("pn-1");
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void failedAccountLookupRedeliversWithoutRateFeedback() throws IOException {
+        sender(3);
+        queue.offer(chunk("t", "911"));
+        EmbeddedDispatchQueueSender sender = sender(3);
+        when(accountService.getAccountByNumberId("pn-1")).thenThrow(new IllegalStateException("db down"));
+
+        sender.drain();
+
+        verify(messagingClient, never()).dispatchMessage(any());
+        verify(rateLimiter, never()).onResponse(anyString(), anyInt(), anyInt());
+        assertEquals(1, queue.size());
+        assertNull(queue.poll(1).get(0).request().getAccountInfo().getAccessToken());
+    }
+}
@@ -0,0 +1,252 @@
+package com.aigreentick.services.template.client.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aigreentick.services.template.config.client.DispatchTransportProperties;
+import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+
+class FileDispatchQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<FileDispatchQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void closeQueues() throws IOException {
+        for (FileDispatchQueue queue : queues) {
+            queue.close();
+        }
+    }
+
+    private DispatchTransportProperties properties() {
+        DispatchTransportProperties properties = new DispatchTransportProperties();
+        properties.getQueue().setDir(dir.toString());
+        properties.getQueue().setCapacity(10);
+        properties.getQueue().setMaxDeliveries(2);
+        return properties;
+    }
+
+    private FileDispatchQueue open(DispatchTransportProperties properties) throws IOException {
+        FileDispatchQueue queue = new FileDispatchQueue(properties);
+        queues.add(queue);
+        return queue;
+    }
+
+    private FileDispatchQueue open() throws IOException {
+        return open(properties());
+    }
+
+    private FileDispatchQueue reopen(FileDispatchQueue queue) throws IOException {
+        queue.close();
+        queues.remove(queue);
+        return open();
+    }
+
+    private static DispatchRequestDto chunk(String dispatchId, String... mobiles) {
+        List<BroadcastDispatchItemDto> items = new ArrayList<>();
+        for (String mobile : mobiles) {
+            items.add(BroadcastDispatchItemDto.builder()
+                    .broadcastId(7L)
+                    .mobileNo(mobile)
+                    .payload("{\"to\":\"" + mobile + "\",\"text\":\"héllo\"}")
+                    .build());
+        }
+        return DispatchRequestDto.builder()
+                .items(items)
+                .accountInfo(WhatsappAccountInfoDto.builder().phoneNumberId("pn-1").accessToken("secret").build())
+                .dispatchId(dispatchId)
+                .build();
+    }
+
+    private static List<String> mobiles(List<QueuedDispatch> batch) {
+        return batch.stream()
+                .flatMap(dispatch -> dispatch.request().getItems().stream())
+                .map(BroadcastDispatchItemDto::getMobileNo)
+                .toList();
+    }
+
+    @Test
+    void deliversInOrderUntilAcked() throws IOException {
+        FileDispatchQueue queue = open();
+        assertTrue(queue.offer(chunk("7:k:1", "911", "912")));
+        assertTrue(queue.offer(chunk("7:k:2", "913")));
+
+        List<QueuedDispatch> batch = queue.poll(10);
+
+        assertEquals(List.of("911", "912", "913"), mobiles(batch));
+        assertEquals(1, batch.get(0).deliveryCount());
+        assertEquals(2, queue.size());
+        assertTrue(queue.poll(10).isEmpty());
+
+        batch.forEach(dispatch -> queue.ack(dispatch.id()));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void leasedChunksCountAgainstCapacity() throws IOException {
+        DispatchTransportProperties properties = properties();
+        properties.getQueue().setCapacity(2);
+        FileDispatchQueue queue = open(properties);
+        queue.offer(chunk("a", "911"));
+        queue.offer(chunk("b", "912"));
+        queue.poll(1);
+
+        assertFalse(queue.offer(chunk("c", "913")));
+    }
+
+    @Test
+    void nackedChunkIsDeliveredAgain() throws IOException {
+        FileDispatchQueue queue = open();
+        queue.offer(chunk("a", "911"));
+        QueuedDispatch first = queue.poll(1).get(0);
+
+        queue.nack(first.id());
+        QueuedDispatch second = queue.poll(1).get(0);
+
+        assertEquals(first.id(), second.id());
+        assertEquals(2, second.deliveryCount());
+    }
+
+    @Test
+    void expiredLeaseIsDeliveredAgain() throws IOException, InterruptedException {
+        DispatchTransportProperties properties = properties();
+        properties.getQueue().setVisibilityTimeout(Duration.ofMillis(1));
+        FileDispatchQueue queue = open(properties);
+        queue.offer(chunk("a", "911"));
+        QueuedDispatch first = queue.poll(1).get(0);
+
+        Thread.sleep(10);
+        List<QueuedDispatch> again = queue.poll(1);
+
+        assertEquals(1, again.size());
+        assertEquals(first.id(), again.get(0).id());
+        assertEquals(2, again.get(0).deliveryCount());
+    }
+
+    @Test
+    void chunkOutOfDeliveriesIsDeadLetteredUntilAcked() throws IOException {
+        FileDispatchQueue queue = open();
+        queue.offer(chunk("a", "911"));
+        queue.nack(queue.poll(1).get(0).id());
+        queue.nack(queue.poll(1).get(0).id());
+
+        assertTrue(queue.poll(1).isEmpty());
+        assertEquals(0, queue.size());
+        List<QueuedDispatch> dead = queue.pollDeadLetters(10);
+        assertEquals(List.of("911"), mobiles(dead));
+        assertEquals(2, dead.get(0).deliveryCount());
+        assertTrue(queue.pollDeadLetters(10).isEmpty());
+
+        queue.ack(dead.get(0).id());
+        FileDispatchQueue reopened = reopen(queue);
+
+        assertTrue(reopened.poll(10).isEmpty());
+        assertTrue(reopened.pollDeadLetters(10).isEmpty());
+    }
+
+    @Test
+    void unackedChunksSurviveRestartWithoutAccessToken() throws IOException {
+        FileDispatchQueue queue = open();
+        queue.offer(chunk("7:k:1", "911"));
+        queue.offer(chunk("7:k:2", "912", "913"));
+        queue.offer(chunk(null, "914"));
+        List<QueuedDispatch> batch = queue.poll(10);
+        queue.ack(batch.get(0).id());
+
+        FileDispatchQueue reopened = reopen(queue);
+        List<QueuedDispatch> recovered = reopened.poll(10);
+
+        assertEquals(List.of("912", "913", "914"), mobiles(recovered));
+        DispatchRequestDto request = recovered.get(0).request();
+        assertEquals(batch.get(1).id(), recovered.get(0).id());
+        assertEquals(1, recovered.get(0).deliveryCount());
+        assertEquals("7:k:2", request.getDispatchId());
+        assertNull(recovered.get(1).request().getDispatchId());
+        assertEquals("pn-1", request.getAccountInfo().getPhoneNumberId());
+        assertNull(request.getAccountInfo().getAccessToken());
+        assertEquals(7L, request.getItems().get(0).getBroadcastId());
+        assertEquals("{\"to\":\"912\",\"text\":\"héllo\"}", request.getItems().get(0).getPayload());
+
+        // Ids keep increasing across restarts
+        reopened.offer(chunk("x", "915"));
+        assertTrue(reopened.poll(1).get(0).id() > batch.get(2).id());
+    }
+
+    @Test
+    void unsettledDeadLetterIsDeliveredAgainAfterRestart() throws IOException {
+        FileDispatchQueue queue = open();
+        queue.offer(chunk("a", "911"));
+        queue.nack(queue.poll(1).get(0).id());
+        queue.nack(queue.poll(1).get(0).id());
+        queue.pollDeadLetters(10);
+
+        FileDispatchQueue reopened = reopen(queue);
+
+        assertEquals(List.of("911"), mobiles(reopened.poll(10)));
+    }
+
+    @Test
+    void tornRecordAtEndIsIgnored() throws IOException {
+        FileDispatchQueue queue = open();
+        queue.offer(chunk("a", "911"));
+        queue.offer(chunk("b", "912"));
+        queue.close();
+        Path segment = segments().get(segments().size() - 1);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        FileDispatchQueue reopened = reopen(queue);
+
+        assertEquals(List.of("911"), mobiles(reopened.poll(10)));
+    }
+
+    @Test
+    void fullyAckedSegmentsAreDeleted() throws IOException {
+        DispatchTransportProperties properties = properties();
+        // Every record in a segment of its own
+        properties.getQueue().setSegmentBytes(1);
+        FileDispatchQueue queue = open(properties);
+        for (int i = 0; i < 3; i++) {
+            queue.offer(chunk("c" + i, "91" + i));
+        }
+        List<QueuedDispatch> batch = queue.poll(10);
+
+        queue.ack(batch.get(1).id());
+        assertTrue(segments().size() >= 4);
+
+        queue.ack(batch.get(0).id());
+        queue.ack(batch.get(2).id());
+
+        // Only the segment being written to is left
+        assertEquals(1, segments().size());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(FileDispatchQueue.SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.aigreentick.services.template.client.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aigreentick.services.template.config.client.DispatchTransportProperties;
+import com.aigreentick.services.template.dto.request.WhatsappAccountInfoDto;
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+import com.aigreentick.services.template.dto.request.template.DispatchRequestDto;
+import com.aigreentick.services.template.dto.response.broadcast.BroadcastDispatchResponseDto;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+
+class QueueDispatchTransportTest {
+
+    @TempDir
+    Path dir;
+
+    private FileDispatchQueue queue;
+    private QueueDispatchTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DispatchTransportProperties properties = new DispatchTransportProperties();
+        properties.getQueue().setDir(dir.toString());
+        properties.getQueue().setCapacity(1);
+        queue = new FileDispatchQueue(properties);
+        transport = new QueueDispatchTransport(queue);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        queue.close();
+    }
+
+    private static DispatchRequestDto chunk(String... mobiles) {
+        return DispatchRequestDto.builder()
+                .items(List.of(mobiles).stream()
+                        .map(mobile -> BroadcastDispatchItemDto.builder()
+                                .broadcastId(1L)
+                                .mobileNo(mobile)
+                                .payload("{}")
+                                .build())
+                        .toList())
+                .accountInfo(WhatsappAccountInfoDto.builder().phoneNumberId("pn-1").accessToken("t").build())
+                .build();
+    }
+
+    @Test
+    void acceptedChunkCountsAsDispatched() {
+        FacebookApiResponse<BroadcastDispatchResponseDto> response = transport.send(chunk("911", "912"));
+
+        assertTrue(response.isSuccess());
+        assertEquals(202, response.getStatusCode());
+        assertEquals(2, response.getData().getData().getTotalDispatched());
+        assertEquals(0, response.getData().getData().getFailedCount());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void fullQueueAnswersRetryableError() {
+        transport.send(chunk("911"));
+
+        FacebookApiResponse<BroadcastDispatchResponseDto> response = transport.send(chunk("912"));
+
+        assertFalse(response.isSuccess());
+        assertEquals(503, response.getStatusCode());
+        assertTrue(DispatchTransport.isRetryable(response.getStatusCode()));
+        assertEquals(1, queue.size());
+    }
+}
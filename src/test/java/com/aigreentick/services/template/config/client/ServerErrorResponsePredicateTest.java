@@ -0,0 +1,42 @@
+package com.aigreentick.services.template.config.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.aigreentick.services.template.client.transport.DispatchTransport;
+import com.aigreentick.services.template.dto.response.common.FacebookApiResponse;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+
+class ServerErrorResponsePredicateTest {
+
+    private final ServerErrorResponsePredicate predicate = new ServerErrorResponsePredicate();
+
+    @Test
+    void serverErrorsAndThrottlingCountAsFailures() {
+        assertTrue(predicate.test(FacebookApiResponse.error("down", 503)));
+        assertTrue(predicate.test(FacebookApiResponse.error("slow down", 429)));
+        assertFalse(predicate.test(FacebookApiResponse.error("bad request", 400)));
+        assertFalse(predicate.test(FacebookApiResponse.success("ok", 200)));
+    }
+
+    @Test
+    void bulkheadRejectionIsRetryableButNotAFailure() {
+        BulkheadFullException rejected = BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("test"));
+
+        int status = ServerErrorResponsePredicate.fallbackStatus(rejected);
+
+        assertEquals(ServerErrorResponsePredicate.BULKHEAD_FULL, status);
+        assertFalse(predicate.test(FacebookApiResponse.error("rejected", status)));
+        assertTrue(DispatchTransport.isRetryable(status));
+    }
+
+    @Test
+    void otherFallbacksAnswerServiceUnavailable() {
+        assertEquals(503, ServerErrorResponsePredicate.fallbackStatus(new IllegalStateException("open")));
+    }
+}
@@ -0,0 +1,133 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveTokenBucketTest {
+
+    private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    // 1 token per second and room for 10: refill is negligible within a test
+    private static AdaptiveTokenBucket slowBucket() {
+        return new AdaptiveTokenBucket(1, 1, 1, 0, 0.5, 10, HOUR_NANOS);
+    }
+
+    @Test
+    void grantsImmediatelyWhileTokensLast() {
+        AdaptiveTokenBucket bucket = slowBucket();
+
+        assertTrue(bucket.acquire(4).isDone());
+        assertTrue(bucket.acquire(6).isDone());
+        assertFalse(bucket.acquire(1).isDone());
+        assertEquals(1, bucket.getQueuedRequests());
+    }
+
+    @Test
+    void laterSmallRequestWaitsBehindQueuedHead() {
+        AdaptiveTokenBucket bucket = slowBucket();
+        bucket.acquire(7);
+
+        CompletableFuture<Void> head = bucket.acquire(5);
+        // 3 tokens left would cover it, but the head is first
+        CompletableFuture<Void> small = bucket.acquire(1);
+
+        assertTrue(bucket.drainGranted().isEmpty());
+        assertFalse(head.isDone());
+        assertFalse(small.isDone());
+        assertEquals(2, bucket.getQueuedRequests());
+    }
+
+    @Test
+    void drainGrantsWaitersInArrivalOrder() throws InterruptedException {
+        // 1000 tokens per second, room for 10
+        AdaptiveTokenBucket bucket = new AdaptiveTokenBucket(1000, 1000, 1000, 0, 0.5, 0.01, HOUR_NANOS);
+        bucket.acquire(10);
+        CompletableFuture<Void> first = bucket.acquire(5);
+        CompletableFuture<Void> second = bucket.acquire(3);
+        CompletableFuture<Void> third = bucket.acquire(2);
+
+        // A slow run may have refilled enough to grant the first ones at once;
+        // whatever queued must come out in order
+        List<CompletableFuture<Void>> queued = Stream.of(first, second, third)
+                .filter(future -> !future.isDone())
+                .toList();
+
+        Thread.sleep(50);
+
+        assertEquals(queued, bucket.drainGranted());
+        assertFalse(bucket.hasWaiters());
+    }
+
+    @Test
+    void oversizeRequestIsGrantedFromFullBucketAndLeavesDebt() {
+        AdaptiveTokenBucket bucket = slowBucket();
+
+        assertTrue(bucket.acquire(25).isDone());
+
+        // 15 tokens in debt: even a single permit has to wait
+        CompletableFuture<Void> next = bucket.acquire(1);
+        assertTrue(bucket.drainGranted().isEmpty());
+        assertFalse(next.isDone());
+    }
+
+    @Test
+    void oversizeRequestWaitsForFullBucket() {
+        AdaptiveTokenBucket bucket = slowBucket();
+        bucket.acquire(1);
+
+        CompletableFuture<Void> oversize = bucket.acquire(25);
+
+        assertTrue(bucket.drainGranted().isEmpty());
+        assertFalse(oversize.isDone());
+    }
+
+    @Test
+    void throttleCutsRateOncePerCooldown() {
+        AdaptiveTokenBucket bucket = new AdaptiveTokenBucket(100, 1, 100, 1, 0.5, 1, HOUR_NANOS);
+
+        assertTrue(bucket.onThrottle());
+        assertEquals(50, bucket.getRate(), 1e-9);
+
+        assertFalse(bucket.onThrottle());
+        assertFalse(bucket.onThrottle());
+        assertEquals(50, bucket.getRate(), 1e-9);
+    }
+
+    @Test
+    void throttleCutsAgainAfterCooldownDownToMinRate() {
+        AdaptiveTokenBucket bucket = new AdaptiveTokenBucket(100, 30, 100, 1, 0.5, 1, 0);
+
+        assertTrue(bucket.onThrottle());
+        assertEquals(50, bucket.getRate(), 1e-9);
+        assertTrue(bucket.onThrottle());
+        assertEquals(30, bucket.getRate(), 1e-9);
+    }
+
+    @Test
+    void throttleEmptiesSavedTokens() {
+        AdaptiveTokenBucket bucket = slowBucket();
+
+        bucket.onThrottle();
+
+        assertFalse(bucket.acquire(1).isDone());
+    }
+
+    @Test
+    void successRaisesRateUpToMax() {
+        AdaptiveTokenBucket bucket = new AdaptiveTokenBucket(10, 1, 12, 10, 0.5, 1, HOUR_NANOS);
+
+        bucket.onSuccess(1);
+        assertEquals(11, bucket.getRate(), 1e-9);
+
+        bucket.onSuccess(100);
+        assertEquals(12, bucket.getRate(), 1e-9);
+    }
+}
@@ -0,0 +1,264 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+
+class DispatchJournalTest {
+
+    private static final Long BROADCAST_ID = 42L;
+    private static final int CHUNK_SIZE = 2;
+    private static final int ITEMS = 5;
+
+    @TempDir
+    Path dir;
+
+    private final List<DispatchPayloadBuffer> buffers = new ArrayList<>();
+
+    @AfterEach
+    void closeBuffers() {
+        buffers.forEach(DispatchPayloadBuffer::close);
+    }
+
+    private Path file() {
+        return dir.resolve("broadcast-" + BROADCAST_ID + ".journal");
+    }
+
+    private DispatchPayloadBuffer durableBuffer(long segmentBytes) {
+        DispatchPayloadBuffer buffer = new DispatchPayloadBuffer(BROADCAST_ID, 100, dir, segmentBytes, true);
+        buffers.add(buffer);
+        List<BroadcastDispatchItemDto> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(BroadcastDispatchItemDto.builder()
+                    .broadcastId(BROADCAST_ID)
+                    .mobileNo("9100" + i)
+                    .payload("{\"item\":" + i + ",\"text\":\"héllo\"}")
+                    .build());
+        }
+        buffer.append(items);
+        buffer.seal();
+        return buffer;
+    }
+
+    private DispatchJournal createJournal() throws IOException {
+        return DispatchJournal.create(BROADCAST_ID, file(), CHUNK_SIZE, durableBuffer(64));
+    }
+
+    private DispatchJournal open() throws IOException {
+        return DispatchJournal.open(BROADCAST_ID, file());
+    }
+
+    @Test
+    void durableBufferKeepsNothingOnHeap() {
+        DispatchPayloadBuffer buffer = durableBuffer(64);
+
+        assertEquals(ITEMS, buffer.spilledCount());
+        assertTrue(buffer.segmentFiles().size() > 1);
+    }
+
+    @Test
+    void headerRefersToBufferSegments() throws IOException {
+        DispatchPayloadBuffer buffer = durableBuffer(64);
+        DispatchJournal.create(BROADCAST_ID, file(), CHUNK_SIZE, buffer).close();
+
+        try (DispatchJournal journal = open()) {
+            assertEquals(CHUNK_SIZE, journal.getChunkSize());
+            assertEquals(ITEMS, journal.getTotalItems());
+            assertEquals(3, journal.getTotalChunks());
+            assertEquals(buffer.segmentFiles(), journal.getSegmentFiles());
+        }
+        assertEquals(buffer.segmentFiles(), DispatchJournal.readSegmentFiles(file()));
+    }
+
+    @Test
+    void segmentsReopenWithTheOriginalItems() throws IOException {
+        createJournal().close();
+
+        DispatchPayloadBuffer reopened = DispatchPayloadBuffer.open(BROADCAST_ID,
+                DispatchJournal.readSegmentFiles(file()));
+        buffers.add(reopened);
+
+        assertEquals(ITEMS, reopened.size());
+        assertEquals(List.of("91002", "91003"), reopened.readMobiles(2, CHUNK_SIZE));
+        BroadcastDispatchItemDto last = reopened.read(4, CHUNK_SIZE).get(0);
+        assertEquals(BROADCAST_ID, last.getBroadcastId());
+        assertEquals("{\"item\":4,\"text\":\"héllo\"}", last.getPayload());
+    }
+
+    @Test
+    void truncatedSegmentCannotBeReopened() throws IOException {
+        createJournal().close();
+        List<Path> segments = DispatchJournal.readSegmentFiles(file());
+        Path lastSegment = segments.get(segments.size() - 1);
+        truncate(lastSegment, Files.size(lastSegment) - 3);
+
+        assertThrows(IOException.class, () -> DispatchPayloadBuffer.open(BROADCAST_ID, segments));
+    }
+
+    @Test
+    void everyChunkIsPendingWithoutAcks() throws IOException {
+        createJournal().close();
+
+        try (DispatchJournal journal = open()) {
+            assertEquals(List.of(1, 2, 3), journal.pendingChunks());
+        }
+    }
+
+    @Test
+    void acknowledgedChunksAreNotPending() throws IOException {
+        DispatchJournal journal = createJournal();
+        journal.ack(1);
+        journal.ack(3);
+        journal.close();
+
+        try (DispatchJournal reopened = open()) {
+            assertEquals(List.of(2), reopened.pendingChunks());
+        }
+    }
+
+    @Test
+    void acksAppendedAfterReopenAreKept() throws IOException {
+        DispatchJournal journal = createJournal();
+        journal.ack(1);
+        journal.close();
+
+        DispatchJournal reopened = open();
+        reopened.ack(2);
+        reopened.close();
+
+        try (DispatchJournal again = open()) {
+            assertEquals(List.of(3), again.pendingChunks());
+        }
+    }
+
+    @Test
+    void tornAckIsCutOffOnOpen() throws IOException {
+        DispatchJournal journal = createJournal();
+        journal.ack(1);
+        journal.ack(2);
+        journal.close();
+        // An ack record is 4 + 5 + 4 bytes; keep only part of the second
+        truncate(file(), Files.size(file()) - 6);
+
+        DispatchJournal reopened = open();
+        assertEquals(List.of(2, 3), reopened.pendingChunks());
+        reopened.ack(3);
+        reopened.close();
+
+        // The new ack follows the last complete record, not the torn bytes
+        try (DispatchJournal again = open()) {
+            assertEquals(List.of(2), again.pendingChunks());
+        }
+    }
+
+    @Test
+    void partialLengthFieldAndBogusLengthAreIgnored() throws IOException {
+        createJournal().close();
+        append(new byte[] {0, 0});
+
+        try (DispatchJournal journal = open()) {
+            assertEquals(3, journal.pendingChunks().size());
+        }
+
+        append(ByteBuffer.allocate(8).putInt(1_000_000).putInt(0).array());
+
+        try (DispatchJournal journal = open()) {
+            assertEquals(3, journal.pendingChunks().size());
+        }
+    }
+
+    @Test
+    void crcMismatchEndsReadAtCorruptRecord() throws IOException {
+        DispatchJournal journal = createJournal();
+        journal.ack(1);
+        journal.ack(2);
+        journal.close();
+        byte[] content = Files.readAllBytes(file());
+        // Chunk number of the last ack: same length, different content
+        content[content.length - 5] = 3;
+        Files.write(file(), content);
+
+        try (DispatchJournal reopened = open()) {
+            assertEquals(List.of(2, 3), reopened.pendingChunks());
+        }
+    }
+
+    @Test
+    void journalWithoutHeaderCannotBeOpened() throws IOException {
+        createJournal().close();
+        truncate(file(), 10);
+
+        assertThrows(IOException.class, this::open);
+        assertTrue(DispatchJournal.readSegmentFiles(file()).isEmpty());
+    }
+
+    @Test
+    void chunkIdsSurviveReopenButNotANewDispatch() throws IOException {
+        DispatchJournal journal = createJournal();
+        String first = journal.chunkId(1);
+        journal.close();
+
+        try (DispatchJournal reopened = open()) {
+            assertEquals(first, reopened.chunkId(1));
+            assertNotEquals(reopened.chunkId(1), reopened.chunkId(2));
+            assertTrue(first.startsWith(BROADCAST_ID + ":"));
+        }
+
+        try (DispatchJournal rebuilt = createJournal()) {
+            assertNotEquals(first, rebuilt.chunkId(1));
+        }
+    }
+
+    @Test
+    void createReplacesPreviousJournal() throws IOException {
+        DispatchJournal journal = createJournal();
+        journal.ack(1);
+        journal.ack(2);
+        journal.close();
+
+        createJournal().close();
+
+        try (DispatchJournal reopened = open()) {
+            assertEquals(List.of(1, 2, 3), reopened.pendingChunks());
+        }
+        assertFalse(Files.exists(dir.resolve(file().getFileName() + ".tmp")));
+    }
+
+    @Test
+    void deleteRemovesJournalButNotSegments() throws IOException {
+        DispatchJournal journal = createJournal();
+        List<Path> segments = journal.getSegmentFiles();
+
+        journal.delete();
+
+        assertFalse(Files.exists(file()));
+        assertTrue(segments.stream().allMatch(Files::exists));
+    }
+
+    private void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        Files.write(file(), bytes, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,72 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aigreentick.services.template.dto.request.template.BroadcastDispatchItemDto;
+
+class DispatchPayloadBufferTest {
+
+    private static final Long BROADCAST_ID = 7L;
+
+    @TempDir
+    Path dir;
+
+    private DispatchPayloadBuffer buffer;
+
+    @AfterEach
+    void closeBuffer() {
+        buffer.close();
+    }
+
+    private DispatchPayloadBuffer sealedBuffer(int heapWindow, int items) {
+        buffer = new DispatchPayloadBuffer(BROADCAST_ID, heapWindow, dir, 1024 * 1024, false);
+        List<BroadcastDispatchItemDto> built = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            built.add(BroadcastDispatchItemDto.builder()
+                    .broadcastId(BROADCAST_ID)
+                    .mobileNo("9100" + i)
+                    .payload("{\"item\":" + i + "}")
+                    .build());
+        }
+        buffer.append(built);
+        buffer.seal();
+        return buffer;
+    }
+
+    private static List<String> mobiles(List<BroadcastDispatchItemDto> items) {
+        return items.stream().map(BroadcastDispatchItemDto::getMobileNo).toList();
+    }
+
+    @Test
+    void itemsBeyondTheHeapWindowSpill() {
+        sealedBuffer(2, 5);
+
+        assertEquals(5, buffer.size());
+        assertEquals(3, buffer.spilledCount());
+        assertEquals(List.of("91001", "91002", "91003"), mobiles(buffer.read(1, 3)));
+        assertEquals("{\"item\":4}", buffer.read(4, 1).get(0).getPayload());
+    }
+
+    @Test
+    void heapItemsAreReleasedOnRead() {
+        sealedBuffer(4, 6);
+
+        assertEquals(List.of("91000", "91001"), mobiles(buffer.read(0, 2)));
+        assertEquals(List.of("91002", "91003"), buffer.readMobiles(2, 2));
+
+        assertThrows(IllegalStateException.class, () -> buffer.read(0, 1));
+        assertThrows(IllegalStateException.class, () -> buffer.readMobiles(1, 1));
+        // Spilled items stay readable
+        assertEquals(List.of("91004", "91005"), mobiles(buffer.read(4, 2)));
+        assertEquals(List.of("91004", "91005"), mobiles(buffer.read(4, 2)));
+    }
+}
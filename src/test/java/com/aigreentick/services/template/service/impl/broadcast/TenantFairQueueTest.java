@@ -0,0 +1,163 @@
+package com.aigreentick.services.template.service.impl.broadcast;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TenantFairQueueTest {
+
+    private static final long A = 1L;
+    private static final long B = 2L;
+    private static final long C = 3L;
+
+    private static TenantFairQueue<String> queue(int slots, Map<Long, Integer> weights) {
+        return new TenantFairQueue<>(slots, tenant -> weights.getOrDefault(tenant, 1));
+    }
+
+    @Test
+    void acquiresFreeSlotsUntilFull() {
+        TenantFairQueue<String> queue = queue(2, Map.of());
+
+        assertTrue(queue.acquireOrEnqueue(A, "a1"));
+        assertTrue(queue.acquireOrEnqueue(B, "b1"));
+        assertFalse(queue.acquireOrEnqueue(A, "a2"));
+
+        assertEquals(2, queue.running());
+        assertEquals(1, queue.waiting());
+    }
+
+    @Test
+    void freedSlotGoesToTenantWithFewestRunning() {
+        TenantFairQueue<String> queue = queue(2, Map.of());
+        queue.acquireOrEnqueue(A, "a1");
+        queue.acquireOrEnqueue(A, "a2");
+        queue.acquireOrEnqueue(A, "a3");
+        queue.acquireOrEnqueue(A, "a4");
+        queue.acquireOrEnqueue(B, "b1");
+
+        // B queued last but runs nothing, A's backlog does not starve it
+        assertEquals("b1", queue.release(A));
+        assertEquals("a3", queue.release(A));
+    }
+
+    @Test
+    void freedSlotIsSharedByWeight() {
+        TenantFairQueue<String> queue = queue(3, Map.of(A, 2));
+        queue.acquireOrEnqueue(A, "a1");
+        queue.acquireOrEnqueue(A, "a2");
+        queue.acquireOrEnqueue(B, "b1");
+        queue.acquireOrEnqueue(B, "b2");
+        queue.acquireOrEnqueue(A, "a3");
+
+        // A: 1 running / weight 2 = 0.5, B: 1 running / weight 1 = 1
+        assertEquals("a3", queue.release(A));
+    }
+
+    @Test
+    void weightedTenantGetsProportionalShareOfSlots() {
+        TenantFairQueue<String> queue = queue(3, Map.of(A, 2));
+        List<Long> owners = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queue.acquireOrEnqueue(C, "c" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.acquireOrEnqueue(A, "a" + i);
+            queue.acquireOrEnqueue(B, "b" + i);
+        }
+
+        // C finishes its three jobs; its slots go to A and B by weight
+        for (int i = 0; i < 3; i++) {
+            String next = queue.release(C);
+            owners.add(next.startsWith("a") ? A : B);
+        }
+
+        assertEquals(2, owners.stream().filter(owner -> owner == A).count());
+        assertEquals(1, owners.stream().filter(owner -> owner == B).count());
+    }
+
+    @Test
+    void tiesGoToOldestWaiter() {
+        TenantFairQueue<String> queue = queue(1, Map.of());
+        queue.acquireOrEnqueue(C, "c1");
+        queue.acquireOrEnqueue(B, "b1");
+        queue.acquireOrEnqueue(A, "a1");
+
+        assertEquals("b1", queue.release(C));
+    }
+
+    @Test
+    void newcomerQueuesBehindWaitersEvenWithFreeSlot() {
+        TenantFairQueue<String> queue = queue(1, Map.of());
+        queue.acquireOrEnqueue(A, "a1");
+        queue.acquireOrEnqueue(A, "a2");
+
+        assertEquals("a2", queue.release(A));
+        assertFalse(queue.acquireOrEnqueue(B, "b1"));
+    }
+
+    @Test
+    void waitingInOrderSimulatesReleases() {
+        TenantFairQueue<String> queue = queue(2, Map.of());
+        queue.acquireOrEnqueue(A, "a1");
+        queue.acquireOrEnqueue(A, "a2");
+        queue.acquireOrEnqueue(A, "a3");
+        queue.acquireOrEnqueue(A, "a4");
+        queue.acquireOrEnqueue(B, "b1");
+        queue.acquireOrEnqueue(B, "b2");
+
+        assertEquals(List.of("b1", "b2", "a3", "a4"), queue.waitingInOrder());
+        // Reading the order changes nothing
+        assertEquals(2, queue.running());
+        assertEquals(4, queue.waiting());
+    }
+
+    @Test
+    void waitingInOrderMatchesActualGrantsWhenSlotsFreeUp() {
+        TenantFairQueue<String> queue = queue(3, Map.of(A, 2));
+        queue.acquireOrEnqueue(C, "c1");
+        queue.acquireOrEnqueue(C, "c2");
+        queue.acquireOrEnqueue(C, "c3");
+        for (int i = 0; i < 4; i++) {
+            queue.acquireOrEnqueue(A, "a" + i);
+            queue.acquireOrEnqueue(B, "b" + i);
+        }
+        List<String> predicted = queue.waitingInOrder();
+
+        // Slots are freed only by C and the new holders keep running, so
+        // grants must follow the simulated order
+        List<String> granted = new ArrayList<>();
+        granted.add(queue.release(C));
+        granted.add(queue.release(C));
+        granted.add(queue.release(C));
+
+        assertEquals(predicted.subList(0, 3), granted);
+    }
+
+    @Test
+    void releaseWithoutWaiterFreesSlot() {
+        TenantFairQueue<String> queue = queue(1, Map.of());
+        queue.acquireOrEnqueue(A, "a1");
+
+        assertNull(queue.release(A));
+        assertEquals(0, queue.running());
+        assertTrue(queue.acquireOrEnqueue(B, "b1"));
+    }
+
+    @Test
+    void releaseOfTenantWithoutSlotFails() {
+        TenantFairQueue<String> queue = queue(1, Map.of());
+        queue.acquireOrEnqueue(A, "a1");
+        queue.release(A);
+
+        assertThrows(IllegalStateException.class, () -> queue.release(A));
+        assertThrows(IllegalStateException.class, () -> queue.release(B));
+    }
+}
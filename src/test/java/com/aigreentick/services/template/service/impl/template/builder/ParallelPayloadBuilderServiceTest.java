@@ -0,0 +1,75 @@
+package com.aigreentick.services.template.service.impl.template.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.aigreentick.services.template.dto.build.MessageRequest;
+import com.aigreentick.services.template.enums.BroadcastType;
+import com.aigreentick.services.template.service.impl.broadcast.BroadcastMetricsServiceImpl;
+import com.aigreentick.services.template.service.impl.broadcast.DispatchPayloadBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ParallelPayloadBuilderServiceTest {
+
+    private static final int PARALLELISM = 2;
+    private static final int BATCH_SIZE = 3;
+
+    @TempDir
+    Path dir;
+
+    private final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+    private final ParallelPayloadBuilderService builder = new ParallelPayloadBuilderService(pool,
+            new ObjectMapper(), new BroadcastMetricsServiceImpl(new SimpleMeterRegistry()));
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void prefetchesEachWaveOnTheCallingThread() {
+        // Two waves: 8 batches of 3, then 2 more
+        List<String> phoneNumbers = IntStream.range(0, 30).mapToObj(i -> "91" + (100 + i)).toList();
+        List<List<String>> waves = Collections.synchronizedList(new ArrayList<>());
+        Set<Thread> prefetchThreads = ConcurrentHashMap.newKeySet();
+        Set<Thread> buildThreads = ConcurrentHashMap.newKeySet();
+
+        DispatchPayloadBuffer buffer = new DispatchPayloadBuffer(1L, 100, dir, 1024 * 1024, false);
+        try {
+            builder.buildDispatchItems(phoneNumbers, BATCH_SIZE, 1L, BroadcastType.NORMAL, 1L,
+                    wave -> {
+                        waves.add(List.copyOf(wave));
+                        prefetchThreads.add(Thread.currentThread());
+                        return Set.copyOf(wave);
+                    },
+                    (batch, prefetched) -> {
+                        buildThreads.add(Thread.currentThread());
+                        assertTrue(prefetched.containsAll(batch));
+                        return batch.stream().map(to -> MessageRequest.builder().to(to).build()).toList();
+                    },
+                    buffer);
+
+            assertEquals(List.of(phoneNumbers.subList(0, 24), phoneNumbers.subList(24, 30)), waves);
+            assertEquals(Set.of(Thread.currentThread()), prefetchThreads);
+            assertTrue(buildThreads.stream().allMatch(thread -> thread != Thread.currentThread()));
+            assertEquals(phoneNumbers, buffer.readMobiles(0, phoneNumbers.size()));
+        } finally {
+            buffer.close();
+        }
+    }
+}
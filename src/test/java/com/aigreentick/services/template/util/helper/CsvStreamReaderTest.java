@@ -0,0 +1,96 @@
+package com.aigreentick.services.template.util.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvStreamReaderTest {
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        try (CsvStreamReader reader = new CsvStreamReader(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            List<List<String>> records = new ArrayList<>();
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                records.add(record);
+            }
+            return records;
+        }
+    }
+
+    @Test
+    void readsPlainRecords() throws IOException {
+        assertEquals(List.of(
+                List.of("mobile", "name"),
+                List.of("919800000001", "Asha")),
+                readAll("mobile,name\n919800000001,Asha\n"));
+    }
+
+    @Test
+    void keepsCommasInsideQuotes() throws IOException {
+        assertEquals(List.of(List.of("919800000001", "Mumbai, MH", "x")),
+                readAll("919800000001,\"Mumbai, MH\",x\n"));
+    }
+
+    @Test
+    void unescapesDoubledQuotes() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "\"", "")),
+                readAll("\"say \"\"hi\"\"\",\"\"\"\",\"\"\n"));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotes() throws IOException {
+        assertEquals(List.of(
+                List.of("919800000001", "line 1\r\nline 2\nline 3"),
+                List.of("919800000002", "b")),
+                readAll("919800000001,\"line 1\r\nline 2\nline 3\"\r\n919800000002,b\r\n"));
+    }
+
+    @Test
+    void readsLastRecordWithoutTrailingNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), readAll("a,b\nc,d"));
+    }
+
+    @Test
+    void readsQuotedLastFieldWithoutTrailingNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b, c")), readAll("a,\"b, c\""));
+    }
+
+    @Test
+    void handlesCrLfAndBareCrLineEndings() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of("b"), List.of("c")), readAll("a\r\nb\rc\r\n"));
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("", "b", ""), List.of("")), readAll(",b,\n\n"));
+    }
+
+    @Test
+    void skipsLeadingByteOrderMark() throws IOException {
+        assertEquals(List.of(List.of("mobile", "name")), readAll("\uFEFFmobile,name\n"));
+    }
+
+    @Test
+    void returnsNullForEmptyInput() throws IOException {
+        assertEquals(List.of(), readAll(""));
+    }
+
+    @Test
+    void countsRecordsAndSupportsOtherDelimiters() throws IOException {
+        try (CsvStreamReader reader = new CsvStreamReader(new StringReader("a;\"b;c\"\nd;e"), ';')) {
+            assertEquals(List.of("a", "b;c"), reader.readRecord());
+            assertEquals(List.of("d", "e"), reader.readRecord());
+            assertNull(reader.readRecord());
+            assertEquals(2, reader.getRecordNumber());
+        }
+    }
+}